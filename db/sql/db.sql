@@ -1,5 +1,7 @@
 -- 创建数据库（如果需要，请取消注释并根据您的数据库系统调整）
--- CREATE DATABASE canteen_management_system;
+-- 菜品检索依赖 pg_trgm 识别中文字符，数据库须为 UTF8 编码且 LC_CTYPE 不能是 C/POSIX：
+-- C 区域下非 ASCII 字符不算字母数字，中文名称切不出任何三元组，检索只能全表扫描
+-- CREATE DATABASE canteen_management_system ENCODING 'UTF8' LC_COLLATE 'zh_CN.UTF-8' LC_CTYPE 'zh_CN.UTF-8' TEMPLATE template0;
 -- \c canteen_management_system; -- 连接到新创建的数据库
 
 -- 创建 ENUM 类型
@@ -133,6 +135,8 @@ COMMENT ON COLUMN Dish_Dietary_Tags.tag_id IS '饮食标签ID';
 
 -- 10. 每日菜谱表 (Daily_Menus)
 -- 存储每日各时间段的食谱信息
+-- 同一食堂的供应时间窗口不允许重叠，由 menu_window 上的 GiST 排他约束保证（需要 btree_gist 扩展以支持 canteen_id 的等值比较）
+CREATE EXTENSION IF NOT EXISTS btree_gist;
 CREATE TABLE Daily_Menus
 (
     menu_id              VARCHAR(255) PRIMARY KEY,
@@ -140,11 +144,16 @@ CREATE TABLE Daily_Menus
     menu_date            DATE         NOT NULL,
     start_time           TIME         NOT NULL,
     end_time             TIME         NOT NULL,
+    menu_window          TSRANGE GENERATED ALWAYS AS (
+        tsrange(menu_date + start_time,
+                CASE WHEN end_time > start_time THEN menu_date + end_time ELSE menu_date + 1 + end_time END,
+                '[)')
+        ) STORED,
     published_by_user_id VARCHAR(255),
     published_at         TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (canteen_id) REFERENCES Canteens (canteen_id),
     FOREIGN KEY (published_by_user_id) REFERENCES Users (user_id),
-    UNIQUE (canteen_id, menu_date, start_time, end_time)
+    CONSTRAINT daily_menus_no_overlap EXCLUDE USING GIST (canteen_id WITH =, menu_window WITH &&)
 );
 COMMENT ON TABLE Daily_Menus IS '存储每日各时间段的食谱信息';
 COMMENT ON COLUMN Daily_Menus.menu_id IS '菜谱唯一ID';
@@ -152,6 +161,7 @@ COMMENT ON COLUMN Daily_Menus.canteen_id IS '所属食堂ID';
 COMMENT ON COLUMN Daily_Menus.menu_date IS '菜谱日期';
 COMMENT ON COLUMN Daily_Menus.start_time IS '菜谱开始时间';
 COMMENT ON COLUMN Daily_Menus.end_time IS '菜谱结束时间';
+COMMENT ON COLUMN Daily_Menus.menu_window IS '供应时间窗口 [开始, 结束)，结束时间不晚于开始时间时视为跨过午夜；由 menu_date、start_time、end_time 生成';
 COMMENT ON COLUMN Daily_Menus.published_by_user_id IS '发布菜谱的管理员ID';
 COMMENT ON COLUMN Daily_Menus.published_at IS '菜谱发布时间';
 
@@ -173,26 +183,31 @@ COMMENT ON COLUMN Menu_Dishes.dish_id IS '菜品ID';
 
 -- 12. 餐品预订表 (Orders)
 -- 存储用户的餐品预订信息
+-- 按 order_date 按月范围分区，分区由 ensure_order_partitions() 预先创建，过期分区由 archive_order_partitions() 归档；
+-- 分区表的主键必须包含分区键，因此主键为 (order_id, order_date)，order_id 仍由应用生成 UUID 保证唯一
 CREATE TABLE Orders
 (
-    order_id     VARCHAR(255) PRIMARY KEY,
+    order_id     VARCHAR(255)   NOT NULL,
     user_id      VARCHAR(255)   NOT NULL,
     canteen_id   VARCHAR(255)   NOT NULL,
     order_date   DATE           NOT NULL,
     pickup_time  TIME           NOT NULL,
+    pickup_slot_id VARCHAR(255),                  -- 预占容量的取餐时段，外键在 Pickup_Slots 建表后添加
     total_amount DECIMAL(10, 2) NOT NULL,
     status       order_status DEFAULT 'PENDING', -- 使用自定义 ENUM 类型
     created_at   TIMESTAMP    DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (order_id, order_date),
     FOREIGN KEY (user_id) REFERENCES Users (user_id),
     FOREIGN KEY (canteen_id) REFERENCES Canteens (canteen_id)
-);
-COMMENT ON TABLE Orders IS '存储用户的餐品预订信息';
+) PARTITION BY RANGE (order_date);
+COMMENT ON TABLE Orders IS '存储用户的餐品预订信息（按预订日期按月分区）';
 COMMENT ON COLUMN Orders.order_id IS '订单唯一ID';
 COMMENT ON COLUMN Orders.user_id IS '预订用户ID';
 COMMENT ON COLUMN Orders.canteen_id IS '预订食堂ID';
 COMMENT ON COLUMN Orders.canteen_id IS '预订食堂ID';
 COMMENT ON COLUMN Orders.order_date IS '预订日期';
 COMMENT ON COLUMN Orders.pickup_time IS '取餐时间';
+COMMENT ON COLUMN Orders.pickup_slot_id IS '预占容量的取餐时段ID，未配置时段时为空';
 COMMENT ON COLUMN Orders.total_amount IS '订单总金额';
 COMMENT ON COLUMN Orders.status IS '订单状态';
 COMMENT ON COLUMN Orders.created_at IS '订单创建时间';
@@ -200,22 +215,105 @@ COMMENT ON COLUMN Orders.created_at IS '订单创建时间';
 
 -- 13. 订单详情表 (Order_Items)
 -- 存储每个订单包含的菜品及其数量
+-- 与 Orders 按相同的月份边界分区，订单项与所属订单总在同月分区中，可以整体分离归档
 CREATE TABLE Order_Items
 (
-    order_item_id VARCHAR(255) PRIMARY KEY,
+    order_item_id VARCHAR(255)   NOT NULL,
     order_id      VARCHAR(255)   NOT NULL,
+    order_date    DATE           NOT NULL,
     dish_id       VARCHAR(255)   NOT NULL,
     quantity      INT            NOT NULL,
     subtotal      DECIMAL(10, 2) NOT NULL,
-    FOREIGN KEY (order_id) REFERENCES Orders (order_id),
+    stock_reserved BOOLEAN       NOT NULL DEFAULT FALSE,
+    PRIMARY KEY (order_item_id, order_date),
+    FOREIGN KEY (order_id, order_date) REFERENCES Orders (order_id, order_date),
     FOREIGN KEY (dish_id) REFERENCES Dishes (dish_id)
-);
-COMMENT ON TABLE Order_Items IS '存储每个订单包含的菜品及其数量';
+) PARTITION BY RANGE (order_date);
+COMMENT ON TABLE Order_Items IS '存储每个订单包含的菜品及其数量（与 Orders 同样按预订日期按月分区）';
 COMMENT ON COLUMN Order_Items.order_item_id IS '订单项唯一ID';
 COMMENT ON COLUMN Order_Items.order_id IS '所属订单ID';
+COMMENT ON COLUMN Order_Items.order_date IS '所属订单的预订日期（分区键，冗余自 Orders）';
 COMMENT ON COLUMN Order_Items.dish_id IS '菜品ID';
 COMMENT ON COLUMN Order_Items.quantity IS '菜品数量';
 COMMENT ON COLUMN Order_Items.subtotal IS '该菜品小计金额';
+COMMENT ON COLUMN Order_Items.stock_reserved IS '下单时是否从 Dish_Daily_Stock 扣减了库存；取消订单时只归还为 TRUE 的订单项';
+
+-- 订单分区维护
+-- 为 from_month 起的 months 个月份创建 Orders 与 Order_Items 的月分区（已存在的跳过），返回新建的分区数
+CREATE OR REPLACE FUNCTION ensure_order_partitions(from_month DATE, months INT) RETURNS INT
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    month_start DATE;
+    suffix      TEXT;
+    created     INT := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('order-partitions')); -- 多节点同时执行时串行化
+    FOR i IN 0 .. months - 1
+        LOOP
+            month_start := (date_trunc('month', from_month) + make_interval(months => i))::date;
+            suffix := to_char(month_start, 'YYYYMM');
+            IF to_regclass('orders_p' || suffix) IS NULL THEN
+                EXECUTE format('CREATE TABLE %I PARTITION OF orders FOR VALUES FROM (%L) TO (%L)',
+                               'orders_p' || suffix, month_start, (month_start + INTERVAL '1 month')::date);
+                created := created + 1;
+            END IF;
+            IF to_regclass('order_items_p' || suffix) IS NULL THEN
+                EXECUTE format('CREATE TABLE %I PARTITION OF order_items FOR VALUES FROM (%L) TO (%L)',
+                               'order_items_p' || suffix, month_start, (month_start + INTERVAL '1 month')::date);
+                created := created + 1;
+            END IF;
+        END LOOP;
+    RETURN created;
+END;
+$$;
+
+-- 将结束日期不晚于 cutoff 的月分区从 Orders 与 Order_Items 分离，移入 order_archive 模式，返回归档的月份数。
+-- 先分离订单项分区并删除其指向 Orders 的外键，再分离订单分区；归档表是否删除由运维决定
+CREATE SCHEMA IF NOT EXISTS order_archive;
+CREATE OR REPLACE FUNCTION archive_order_partitions(cutoff DATE) RETURNS INT
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    part      RECORD;
+    fk        RECORD;
+    item_part TEXT;
+    archived  INT := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('order-partitions'));
+    FOR part IN
+        SELECT c.relname
+        FROM pg_inherits i
+                 JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'orders'::regclass
+          AND c.relname ~ '^orders_p[0-9]{6}$'
+          AND to_date(substr(c.relname, 9), 'YYYYMM') + INTERVAL '1 month' <= cutoff
+        ORDER BY c.relname
+        LOOP
+            item_part := 'order_items_p' || substr(part.relname, 9);
+            IF to_regclass(item_part) IS NOT NULL THEN
+                EXECUTE format('ALTER TABLE order_items DETACH PARTITION %I', item_part);
+                FOR fk IN
+                    SELECT conname
+                    FROM pg_constraint
+                    WHERE conrelid = to_regclass(item_part)
+                      AND contype = 'f'
+                      AND confrelid = 'orders'::regclass
+                    LOOP
+                        EXECUTE format('ALTER TABLE %I DROP CONSTRAINT %I', item_part, fk.conname);
+                    END LOOP;
+                EXECUTE format('ALTER TABLE %I SET SCHEMA order_archive', item_part);
+            END IF;
+            EXECUTE format('ALTER TABLE orders DETACH PARTITION %I', part.relname);
+            EXECUTE format('ALTER TABLE %I SET SCHEMA order_archive', part.relname);
+            archived := archived + 1;
+        END LOOP;
+    RETURN archived;
+END;
+$$;
+
+-- 初始分区：当月起 12 个月，之后由应用的定时任务滚动创建
+SELECT ensure_order_partitions(CURRENT_DATE, 12);
 
 
 -- 14. 评价与反馈表 (Ratings_Reviews)
@@ -381,6 +479,243 @@ CREATE TABLE Canteen_Images
     FOREIGN KEY (canteen_id) REFERENCES Canteens(canteen_id) ON DELETE CASCADE
 );
 
+-- 菜品评分聚合表 (Dish_Rating_Stats)
+-- 由评价的增删改增量维护，避免展示菜品时加载全部评价
+CREATE TABLE Dish_Rating_Stats
+(
+    dish_id      VARCHAR(255) PRIMARY KEY,
+    rating_count BIGINT NOT NULL DEFAULT 0,
+    rating_sum   BIGINT NOT NULL DEFAULT 0,
+    star_1_count BIGINT NOT NULL DEFAULT 0,
+    star_2_count BIGINT NOT NULL DEFAULT 0,
+    star_3_count BIGINT NOT NULL DEFAULT 0,
+    star_4_count BIGINT NOT NULL DEFAULT 0,
+    star_5_count BIGINT NOT NULL DEFAULT 0,
+    updated_at   TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (dish_id) REFERENCES Dishes (dish_id) ON DELETE CASCADE
+);
+COMMENT ON TABLE Dish_Rating_Stats IS '菜品评分聚合（条数、总和、1-5星分布）';
+COMMENT ON COLUMN Dish_Rating_Stats.dish_id IS '菜品ID';
+COMMENT ON COLUMN Dish_Rating_Stats.rating_count IS '评分条数';
+COMMENT ON COLUMN Dish_Rating_Stats.rating_sum IS '评分总和';
+COMMENT ON COLUMN Dish_Rating_Stats.star_1_count IS '1星评分条数';
+COMMENT ON COLUMN Dish_Rating_Stats.star_2_count IS '2星评分条数';
+COMMENT ON COLUMN Dish_Rating_Stats.star_3_count IS '3星评分条数';
+COMMENT ON COLUMN Dish_Rating_Stats.star_4_count IS '4星评分条数';
+COMMENT ON COLUMN Dish_Rating_Stats.star_5_count IS '5星评分条数';
+COMMENT ON COLUMN Dish_Rating_Stats.updated_at IS '最近更新时间';
+
+-- 对象存储删除任务表 (Storage_Outbox)
+-- 业务事务内登记待删除的 COS 对象，由后台任务在事务之外批量删除并重试失败项
+CREATE TABLE Storage_Outbox
+(
+    outbox_id       VARCHAR(255) PRIMARY KEY,
+    object_url      VARCHAR(1024) NOT NULL,
+    attempts        INT           NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP     NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error      VARCHAR(1024),
+    created_at      TIMESTAMP     NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+COMMENT ON TABLE Storage_Outbox IS '待删除的对象存储文件，由后台任务批量处理';
+COMMENT ON COLUMN Storage_Outbox.outbox_id IS '记录唯一ID';
+COMMENT ON COLUMN Storage_Outbox.object_url IS '待删除对象的完整URL';
+COMMENT ON COLUMN Storage_Outbox.attempts IS '已尝试删除的次数';
+COMMENT ON COLUMN Storage_Outbox.next_attempt_at IS '下一次允许尝试的时间（认领租约与失败退避）';
+COMMENT ON COLUMN Storage_Outbox.last_error IS '最近一次失败的错误信息';
+COMMENT ON COLUMN Storage_Outbox.created_at IS '记录创建时间';
+
+-- 按内容寻址的存储对象表 (Stored_Objects)
+-- 对象 key 由内容的 SHA-256 决定，相同内容只存一份；引用计数归零并超过宽限期后删除实际对象
+CREATE TABLE Stored_Objects
+(
+    content_hash CHAR(64) PRIMARY KEY,
+    object_key   VARCHAR(512) NOT NULL UNIQUE,
+    size_bytes   BIGINT       NOT NULL,
+    content_type VARCHAR(255),
+    ref_count    INT          NOT NULL DEFAULT 0 CHECK (ref_count >= 0),
+    uploaded     BOOLEAN      NOT NULL DEFAULT FALSE,
+    deleting     BOOLEAN      NOT NULL DEFAULT FALSE,
+    created_at   TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at   TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+COMMENT ON TABLE Stored_Objects IS '按内容寻址的存储对象及其引用计数';
+COMMENT ON COLUMN Stored_Objects.content_hash IS '内容的SHA-256（十六进制）';
+COMMENT ON COLUMN Stored_Objects.object_key IS '对象存储中的key';
+COMMENT ON COLUMN Stored_Objects.size_bytes IS '对象大小（字节）';
+COMMENT ON COLUMN Stored_Objects.content_type IS '内容类型';
+COMMENT ON COLUMN Stored_Objects.ref_count IS '引用该对象的实体数';
+COMMENT ON COLUMN Stored_Objects.uploaded IS '对象是否已成功写入对象存储';
+COMMENT ON COLUMN Stored_Objects.deleting IS '是否已被清理任务认领、正在从对象存储中删除';
+COMMENT ON COLUMN Stored_Objects.created_at IS '记录创建时间';
+COMMENT ON COLUMN Stored_Objects.updated_at IS '最近一次上传命中或引用变化的时间';
+
+-- 取餐时段表 (Pickup_Slots)
+-- 工作人员按食堂、日期配置的取餐时段及其订单容量；下单时以条件 UPDATE 原子预占，取消时释放
+CREATE TABLE Pickup_Slots
+(
+    slot_id    VARCHAR(255) PRIMARY KEY,
+    canteen_id VARCHAR(255) NOT NULL,
+    slot_date  DATE         NOT NULL,
+    start_time TIME         NOT NULL,
+    end_time   TIME         NOT NULL,
+    capacity   INT          NOT NULL CHECK (capacity >= 0),
+    reserved   INT          NOT NULL DEFAULT 0 CHECK (reserved >= 0),
+    reserved_updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (canteen_id) REFERENCES Canteens (canteen_id) ON DELETE CASCADE,
+    UNIQUE (canteen_id, slot_date, start_time),
+    CHECK (start_time < end_time)
+);
+COMMENT ON TABLE Pickup_Slots IS '取餐时段及其订单容量';
+COMMENT ON COLUMN Pickup_Slots.slot_id IS '时段唯一ID';
+COMMENT ON COLUMN Pickup_Slots.canteen_id IS '所属食堂ID';
+COMMENT ON COLUMN Pickup_Slots.slot_date IS '日期';
+COMMENT ON COLUMN Pickup_Slots.start_time IS '开始时间（含）';
+COMMENT ON COLUMN Pickup_Slots.end_time IS '结束时间（不含）';
+COMMENT ON COLUMN Pickup_Slots.capacity IS '可接受的订单数';
+COMMENT ON COLUMN Pickup_Slots.reserved IS '已预占的订单数（调低容量后可能超过容量）';
+COMMENT ON COLUMN Pickup_Slots.reserved_updated_at IS '已预占数最近一次变更的时间，对账时跳过近期有预占的时段';
+
+ALTER TABLE Orders
+    ADD FOREIGN KEY (pickup_slot_id) REFERENCES Pickup_Slots (slot_id) ON DELETE SET NULL;
+
+-- 菜品每日库存表 (Dish_Daily_Stock)
+-- 工作人员按日期为菜品设置的份数；下单时以条件扣减原子预占，取消时归还。没有库存行的菜品不限量
+CREATE TABLE Dish_Daily_Stock
+(
+    stock_id           VARCHAR(255) PRIMARY KEY,
+    dish_id            VARCHAR(255) NOT NULL,
+    canteen_id         VARCHAR(255) NOT NULL,
+    stock_date         DATE         NOT NULL,
+    total_quantity     INT          NOT NULL CHECK (total_quantity >= 0),
+    remaining_quantity INT          NOT NULL CHECK (remaining_quantity >= 0),
+    sold_out           BOOLEAN      NOT NULL DEFAULT FALSE,
+    updated_at         TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (dish_id) REFERENCES Dishes (dish_id) ON DELETE CASCADE,
+    FOREIGN KEY (canteen_id) REFERENCES Canteens (canteen_id) ON DELETE CASCADE,
+    UNIQUE (dish_id, stock_date)
+);
+COMMENT ON TABLE Dish_Daily_Stock IS '菜品每日库存';
+COMMENT ON COLUMN Dish_Daily_Stock.stock_id IS '记录唯一ID';
+COMMENT ON COLUMN Dish_Daily_Stock.dish_id IS '菜品ID';
+COMMENT ON COLUMN Dish_Daily_Stock.canteen_id IS '菜品所属食堂ID（冗余，便于按食堂查询）';
+COMMENT ON COLUMN Dish_Daily_Stock.stock_date IS '日期';
+COMMENT ON COLUMN Dish_Daily_Stock.total_quantity IS '当日供应总份数';
+COMMENT ON COLUMN Dish_Daily_Stock.remaining_quantity IS '剩余可预订份数';
+COMMENT ON COLUMN Dish_Daily_Stock.sold_out IS '是否因售罄自动将菜品置为不可用（恢复库存或次日自动还原）';
+COMMENT ON COLUMN Dish_Daily_Stock.updated_at IS '最近更新时间';
+
+-- 订单事件序列 (order_event_seq)
+-- 订单变更通过 pg_notify 随事务提交推送到各节点，序列号作为 SSE 事件ID，在节点之间通用
+CREATE SEQUENCE order_event_seq;
+
+-- 后厨备餐计数表 (Kitchen_Prep_Counts)
+-- 按食堂、日期、时段和菜品累计需要准备的份数，随下单、取消和宴会确认在同一事务内增量维护
+CREATE TABLE Kitchen_Prep_Counts
+(
+    prep_count_id    VARCHAR(255) PRIMARY KEY,
+    canteen_id       VARCHAR(255) NOT NULL,
+    prep_date        DATE         NOT NULL,
+    slot_start       TIME         NOT NULL,
+    dish_id          VARCHAR(255) NOT NULL,
+    order_quantity   INT          NOT NULL DEFAULT 0,
+    banquet_quantity INT          NOT NULL DEFAULT 0,
+    updated_at       TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (canteen_id) REFERENCES Canteens (canteen_id) ON DELETE CASCADE,
+    FOREIGN KEY (dish_id) REFERENCES Dishes (dish_id) ON DELETE CASCADE,
+    UNIQUE (canteen_id, prep_date, slot_start, dish_id)
+);
+COMMENT ON TABLE Kitchen_Prep_Counts IS '后厨备餐计数（按食堂、日期、时段和菜品汇总）';
+COMMENT ON COLUMN Kitchen_Prep_Counts.prep_count_id IS '记录唯一ID';
+COMMENT ON COLUMN Kitchen_Prep_Counts.canteen_id IS '食堂ID';
+COMMENT ON COLUMN Kitchen_Prep_Counts.prep_date IS '备餐日期';
+COMMENT ON COLUMN Kitchen_Prep_Counts.slot_start IS '时段开始时间（订单取所属取餐时段的开始时间，未配置时段时为取餐时间；宴会取开始时间）';
+COMMENT ON COLUMN Kitchen_Prep_Counts.dish_id IS '菜品ID';
+COMMENT ON COLUMN Kitchen_Prep_Counts.order_quantity IS '未取消订单中的份数';
+COMMENT ON COLUMN Kitchen_Prep_Counts.banquet_quantity IS '已确认宴会预订中的份数（套餐内每道菜按一份计）';
+COMMENT ON COLUMN Kitchen_Prep_Counts.updated_at IS '最近更新时间';
+
+-- 销售汇总表 (Sales_Daily_Rollups)
+-- 按食堂和日期汇总各状态订单数与金额；每个 (食堂, 日期) 拆为多个分桶行以分散下单时的行锁，查询时求和
+CREATE TABLE Sales_Daily_Rollups
+(
+    rollup_id        VARCHAR(255)   PRIMARY KEY,
+    canteen_id       VARCHAR(255)   NOT NULL,
+    sales_date       DATE           NOT NULL,
+    bucket           SMALLINT       NOT NULL DEFAULT 0,
+    pending_count    INT            NOT NULL DEFAULT 0,
+    confirmed_count  INT            NOT NULL DEFAULT 0,
+    completed_count  INT            NOT NULL DEFAULT 0,
+    cancelled_count  INT            NOT NULL DEFAULT 0,
+    booked_amount    DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    completed_amount DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    updated_at       TIMESTAMP      NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (canteen_id) REFERENCES Canteens (canteen_id) ON DELETE CASCADE,
+    UNIQUE (canteen_id, sales_date, bucket)
+);
+COMMENT ON TABLE Sales_Daily_Rollups IS '食堂每日销售汇总（随订单状态变化增量维护，夜间对账重算）';
+COMMENT ON COLUMN Sales_Daily_Rollups.rollup_id IS '记录唯一ID';
+COMMENT ON COLUMN Sales_Daily_Rollups.canteen_id IS '食堂ID';
+COMMENT ON COLUMN Sales_Daily_Rollups.sales_date IS '销售日期（订单的预订日期）';
+COMMENT ON COLUMN Sales_Daily_Rollups.bucket IS '分桶编号';
+COMMENT ON COLUMN Sales_Daily_Rollups.pending_count IS '待处理订单数';
+COMMENT ON COLUMN Sales_Daily_Rollups.confirmed_count IS '已确认订单数';
+COMMENT ON COLUMN Sales_Daily_Rollups.completed_count IS '已完成订单数';
+COMMENT ON COLUMN Sales_Daily_Rollups.cancelled_count IS '已取消订单数';
+COMMENT ON COLUMN Sales_Daily_Rollups.booked_amount IS '未取消订单的总金额';
+COMMENT ON COLUMN Sales_Daily_Rollups.completed_amount IS '已完成订单的总金额';
+COMMENT ON COLUMN Sales_Daily_Rollups.updated_at IS '最近更新时间';
+
+-- 菜品销售汇总表 (Dish_Sales_Daily_Rollups)
+-- 按食堂、菜品和日期汇总未取消订单的份数与金额
+CREATE TABLE Dish_Sales_Daily_Rollups
+(
+    rollup_id    VARCHAR(255)   PRIMARY KEY,
+    canteen_id   VARCHAR(255)   NOT NULL,
+    dish_id      VARCHAR(255)   NOT NULL,
+    sales_date   DATE           NOT NULL,
+    quantity     INT            NOT NULL DEFAULT 0,
+    total_amount DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    updated_at   TIMESTAMP      NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (canteen_id) REFERENCES Canteens (canteen_id) ON DELETE CASCADE,
+    FOREIGN KEY (dish_id) REFERENCES Dishes (dish_id) ON DELETE CASCADE,
+    UNIQUE (canteen_id, dish_id, sales_date)
+);
+COMMENT ON TABLE Dish_Sales_Daily_Rollups IS '菜品每日销售汇总（不含已取消订单）';
+COMMENT ON COLUMN Dish_Sales_Daily_Rollups.rollup_id IS '记录唯一ID';
+COMMENT ON COLUMN Dish_Sales_Daily_Rollups.canteen_id IS '食堂ID';
+COMMENT ON COLUMN Dish_Sales_Daily_Rollups.dish_id IS '菜品ID';
+COMMENT ON COLUMN Dish_Sales_Daily_Rollups.sales_date IS '销售日期（订单的预订日期）';
+COMMENT ON COLUMN Dish_Sales_Daily_Rollups.quantity IS '售出份数';
+COMMENT ON COLUMN Dish_Sales_Daily_Rollups.total_amount IS '销售金额';
+COMMENT ON COLUMN Dish_Sales_Daily_Rollups.updated_at IS '最近更新时间';
+
+-- 幂等键表 (Idempotency_Keys)
+-- 记录创建类请求携带的 Idempotency-Key 及首次执行结果，客户端重试时直接返回该结果
+CREATE TABLE Idempotency_Keys
+(
+    idempotency_id  VARCHAR(255) PRIMARY KEY,
+    scope           VARCHAR(64)  NOT NULL,
+    user_id         VARCHAR(255) NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash    VARCHAR(64)  NOT NULL,
+    status          VARCHAR(20)  NOT NULL CHECK (status IN ('IN_PROGRESS', 'COMPLETED')),
+    response_body   TEXT,
+    created_at      TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at      TIMESTAMP    NOT NULL,
+    FOREIGN KEY (user_id) REFERENCES Users (user_id) ON DELETE CASCADE,
+    UNIQUE (scope, user_id, idempotency_key)
+);
+COMMENT ON TABLE Idempotency_Keys IS '幂等键记录（订单和宴会预订创建接口）';
+COMMENT ON COLUMN Idempotency_Keys.idempotency_id IS '记录唯一ID';
+COMMENT ON COLUMN Idempotency_Keys.scope IS '接口范围，例如 order.create';
+COMMENT ON COLUMN Idempotency_Keys.user_id IS '发起请求的用户ID';
+COMMENT ON COLUMN Idempotency_Keys.idempotency_key IS '客户端提供的 Idempotency-Key';
+COMMENT ON COLUMN Idempotency_Keys.request_hash IS '请求体的 SHA-256 摘要';
+COMMENT ON COLUMN Idempotency_Keys.status IS '状态：IN_PROGRESS（执行中）或 COMPLETED（已完成）';
+COMMENT ON COLUMN Idempotency_Keys.response_body IS '首次执行结果的 JSON';
+COMMENT ON COLUMN Idempotency_Keys.created_at IS '认领时间';
+COMMENT ON COLUMN Idempotency_Keys.expires_at IS '过期时间（执行中为租约到期时间，已完成为结果保留截止时间）';
+
 -- 索引（可选，但推荐用于提高查询性能）
 CREATE INDEX idx_users_role ON Users (role);
 CREATE INDEX idx_dishes_canteen_id ON Dishes (canteen_id);
@@ -402,6 +737,48 @@ CREATE INDEX idx_banquet_reservation_packages_banquet_id ON Banquet_Reservation_
 CREATE INDEX idx_banquet_reservation_packages_package_id ON Banquet_Reservation_Packages (package_id);
 
 CREATE INDEX idx_dish_allergens_dish_id ON Dish_Allergens (dish_id);
-CREATE INDEX idx_dish_allergens_allergen_id ON Dish_Allergens (allergen_id);
+CREATE INDEX idx_dish_allergens_allergen_id ON Dish_Allergens (allergen_id, dish_id);
 CREATE INDEX idx_dish_dietary_tags_dish_id ON Dish_Dietary_Tags (dish_id);
-CREATE INDEX idx_dish_dietary_tags_tag_id ON Dish_Dietary_Tags (tag_id);
\ No newline at end of file
+CREATE INDEX idx_dish_dietary_tags_tag_id ON Dish_Dietary_Tags (tag_id, dish_id);
+
+-- 菜品目录键集分页索引，排序键为 (created_at DESC, dish_id DESC)
+CREATE INDEX idx_dishes_created_at_dish_id ON Dishes (created_at DESC, dish_id DESC);
+CREATE INDEX idx_dishes_canteen_created_at ON Dishes (canteen_id, created_at DESC, dish_id DESC);
+CREATE INDEX idx_dishes_canteen_available_created_at ON Dishes (canteen_id, is_available, created_at DESC, dish_id DESC);
+CREATE INDEX idx_dishes_canteen_price ON Dishes (canteen_id, price);
+
+-- 菜品全文检索：pg_trgm 按字符三元组切分，不依赖分词器，可用于中文名称与描述
+-- 要求数据库的 LC_CTYPE 为 UTF-8 区域（见文件开头），否则中文字符不产生三元组
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX idx_dishes_name_trgm ON Dishes USING GIN (name gin_trgm_ops);
+CREATE INDEX idx_dishes_description_trgm ON Dishes USING GIN (description gin_trgm_ops);
+
+-- 一到两个字的关键字（如"鱼"、"牛肉"）切不出三元组，三元组索引无法过滤；
+-- 为名称和描述另建单字与双字片段的数组索引，短关键字按数组包含检索
+CREATE OR REPLACE FUNCTION dish_short_grams(content TEXT) RETURNS TEXT[]
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE AS
+$$
+SELECT COALESCE(array_agg(DISTINCT substr(lower(content), i, n)), '{}')
+FROM generate_series(1, char_length(content)) AS i,
+     (VALUES (1), (2)) AS lengths(n)
+WHERE i + n - 1 <= char_length(content)
+$$;
+CREATE INDEX idx_dishes_short_grams ON Dishes USING GIN (dish_short_grams(name || ' ' || COALESCE(description, '')));
+CREATE INDEX idx_menu_dishes_dish_id ON Menu_Dishes (dish_id);
+CREATE INDEX idx_storage_outbox_next_attempt_at ON Storage_Outbox (next_attempt_at);
+CREATE INDEX idx_stored_objects_unreferenced ON Stored_Objects (updated_at) WHERE ref_count = 0 OR deleting;
+CREATE INDEX idx_orders_pickup_slot_id ON Orders (pickup_slot_id);
+CREATE INDEX idx_dish_daily_stock_canteen_date ON Dish_Daily_Stock (canteen_id, stock_date);
+
+-- 订单检索键集分页索引，排序键为 (created_at DESC, order_id DESC)
+CREATE INDEX idx_orders_created_at_order_id ON Orders (created_at DESC, order_id DESC);
+CREATE INDEX idx_orders_canteen_created_at ON Orders (canteen_id, created_at DESC, order_id DESC);
+CREATE INDEX idx_orders_canteen_status_created_at ON Orders (canteen_id, status, created_at DESC, order_id DESC);
+CREATE INDEX idx_orders_status_created_at ON Orders (status, created_at DESC, order_id DESC);
+CREATE INDEX idx_orders_user_created_at ON Orders (user_id, created_at DESC, order_id DESC);
+CREATE INDEX idx_orders_canteen_date_pickup ON Orders (canteen_id, order_date, pickup_time);
+CREATE INDEX idx_order_items_order_id ON Order_Items (order_id, quantity);
+CREATE INDEX idx_sales_daily_rollups_date ON Sales_Daily_Rollups (sales_date, canteen_id);
+CREATE INDEX idx_dish_sales_daily_rollups_date ON Dish_Sales_Daily_Rollups (sales_date, canteen_id);
+CREATE INDEX idx_orders_order_date ON Orders (order_date);
+CREATE INDEX idx_idempotency_keys_expires_at ON Idempotency_Keys (expires_at);
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.harukite.canteen.config;
 
 import com.harukite.canteen.filter.JwtRequestFilter;
 import com.harukite.canteen.service.CustomUserDetailsService;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -77,6 +78,8 @@ public class SecurityConfig
                 .csrf(csrf -> csrf.disable()) // 禁用 CSRF，因为我们使用 JWT 进行无状态认证
                 .cors(Customizer.withDefaults()) // 启用 CORS 配置
                 .authorizeHttpRequests(authorize -> authorize
+                        // SSE 等异步请求结束时的再次分派不携带 JWT，访问控制已在首次分派时完成
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // 允许匿名访问的公共接口，例如注册和登录
                         .requestMatchers("/api/auth/**").permitAll()
                         // 允许所有用户访问 /api/canteens 下的所有路径
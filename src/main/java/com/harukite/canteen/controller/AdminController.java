@@ -1,7 +1,11 @@
 package com.harukite.canteen.controller;
 
+import com.harukite.canteen.dto.StorageGcReport;
 import com.harukite.canteen.dto.UserResponseDto;
 import com.harukite.canteen.model.UserRole;
+import com.harukite.canteen.service.DishRatingStatsService;
+import com.harukite.canteen.service.OrderPartitionService;
+import com.harukite.canteen.service.StorageGcService;
 import com.harukite.canteen.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -22,6 +26,9 @@ public class AdminController
 {
 
     private final UserService userService;
+    private final DishRatingStatsService dishRatingStatsService;
+    private final StorageGcService storageGcService;
+    private final OrderPartitionService orderPartitionService;
 
     // --- 用户管理 ---
 
@@ -94,4 +101,53 @@ public class AdminController
         userService.deleteUser(userId);
         return ResponseEntity.noContent().build();
     }
+
+    // --- 数据维护 ---
+
+    /**
+     * 根据评价表全量重建菜品评分聚合。
+     * URL: POST /api/admin/rating-stats/rebuild
+     * (需要管理员权限)
+     *
+     * @return 重建后的聚合行数
+     */
+    @PostMapping("/rating-stats/rebuild")
+    @PreAuthorize("hasRole('ADMIN')") // 只有拥有 'ADMIN' 角色的用户才能访问
+    public ResponseEntity<Integer> rebuildRatingStats()
+    {
+        int rebuilt = dishRatingStatsService.rebuildAll();
+        return ResponseEntity.ok(rebuilt);
+    }
+
+    /**
+     * 立即执行一轮对象存储孤儿对象回收。
+     * URL: POST /api/admin/storage/gc?mode=DRY_RUN
+     * (需要管理员权限)
+     *
+     * @param mode 运行模式：METRICS（只统计）、DRY_RUN（统计并记录候选对象，默认）或 DELETE（删除）
+     * @return 本轮统计
+     */
+    @PostMapping("/storage/gc")
+    @PreAuthorize("hasRole('ADMIN')") // 只有拥有 'ADMIN' 角色的用户才能访问
+    public ResponseEntity<StorageGcReport> collectStorageGarbage(
+            @RequestParam(defaultValue = "DRY_RUN") StorageGcService.Mode mode)
+    {
+        StorageGcReport report = storageGcService.collect(mode);
+        return ResponseEntity.ok(report);
+    }
+
+    /**
+     * 立即执行一轮订单分区维护：创建缺失的未来月份分区，归档超出保留期的分区。
+     * URL: POST /api/admin/order-partitions/maintain
+     * (需要管理员权限)
+     *
+     * @return 本轮归档的月份数
+     */
+    @PostMapping("/order-partitions/maintain")
+    @PreAuthorize("hasRole('ADMIN')") // 只有拥有 'ADMIN' 角色的用户才能访问
+    public ResponseEntity<Integer> maintainOrderPartitions()
+    {
+        int archived = orderPartitionService.maintainPartitions();
+        return ResponseEntity.ok(archived);
+    }
 }
@@ -6,6 +6,7 @@ import com.harukite.canteen.exception.ResourceNotFoundException;
 import com.harukite.canteen.model.BanquetStatus;
 import com.harukite.canteen.model.User;
 import com.harukite.canteen.service.BanquetReservationService;
+import com.harukite.canteen.service.IdempotencyService;
 import com.harukite.canteen.repository.UserRepository;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -31,19 +32,24 @@ public class BanquetReservationController
 {
 
     private final BanquetReservationService banquetReservationService;
+    private final IdempotencyService idempotencyService;
     private final UserRepository userRepository;
 
     /**
      * 创建新的宴会预订。
      * URL: POST /api/banquet
      * (需要已认证用户权限，通常是学生或任何普通用户)
+     * 携带 Idempotency-Key 请求头时，保留期内以同一个键重试会返回首次创建的预订，不会重复预订。
      *
-     * @param request 包含预订信息的 DTO
+     * @param request        包含预订信息的 DTO
+     * @param idempotencyKey 幂等键（可选）
      * @return 创建成功的宴会预订响应 DTO
      */
     @PostMapping
     @PreAuthorize("isAuthenticated()") // 任何已认证用户都可以创建预订
-    public ResponseEntity<BanquetReservationResponse> createBanquetReservation(@Valid @RequestBody BanquetReservationRequest request)
+    public ResponseEntity<BanquetReservationResponse> createBanquetReservation(
+            @Valid @RequestBody BanquetReservationRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey)
     {
         // 从 Spring Security 认证上下文中获取当前用户名
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -52,7 +58,9 @@ public class BanquetReservationController
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with Name: " + userName));
         String userId = user.getUserId(); // 获取用户ID
 
-        BanquetReservationResponse createdReservation = banquetReservationService.createBanquetReservation(request, userId);
+        BanquetReservationResponse createdReservation = idempotencyService.execute(IdempotencyService.SCOPE_BANQUET_CREATE, userId,
+                idempotencyKey, request, BanquetReservationResponse.class,
+                () -> banquetReservationService.createBanquetReservation(request, userId));
         return new ResponseEntity<>(createdReservation, HttpStatus.CREATED);
     }
 
@@ -65,7 +73,7 @@ public class BanquetReservationController
      * @return 宴会预订响应 DTO
      */
     @GetMapping("/{id}")
-    @PreAuthorize("isAuthenticated() and (hasRole('ADMIN') or hasRole('STAFF') or @banquetReservationService.getBanquetReservationById(#id).userId == (userRepository.findByUsername(authentication.name)).getUserId())")
+    @PreAuthorize("isAuthenticated() and (hasRole('ADMIN') or hasRole('STAFF') or @authz.isBanquetOwner(#id, authentication))")
     // 只有管理员/工作人员或预订所有者才能查看
     public ResponseEntity<BanquetReservationResponse> getBanquetReservationById(@PathVariable String id)
     {
@@ -97,7 +105,7 @@ public class BanquetReservationController
      * @return 宴会预订响应 DTO 列表
      */
     @GetMapping("/user/{userId}")
-    @PreAuthorize("isAuthenticated() and (hasRole('ADMIN') or #userId == userRepository.findByUsername(authentication.name))")
+    @PreAuthorize("isAuthenticated() and (hasRole('ADMIN') or @authz.isCurrentUser(#userId, authentication))")
     // 只有管理员或用户本人才能查看
     public ResponseEntity<List<BanquetReservationResponse>> getBanquetReservationsByUserId(@PathVariable String userId)
     {
@@ -1,11 +1,15 @@
 package com.harukite.canteen.controller;
 
+import com.harukite.canteen.dto.BulkMenuPublishRequest;
 import com.harukite.canteen.dto.DailyMenuRequest;
 import com.harukite.canteen.dto.DailyMenuResponse;
+import com.harukite.canteen.dto.MenuBatchResult;
+import com.harukite.canteen.dto.MenuCloneRequest;
 import com.harukite.canteen.service.DailyMenuService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -43,23 +47,76 @@ public class DailyMenuController
         return new ResponseEntity<>(publishedMenu, HttpStatus.CREATED);
     }
 
+    /**
+     * 批量发布每日菜谱（例如一周内多个食堂的全部菜谱）。
+     * URL: POST /api/menu/bulk
+     * (需要管理员或工作人员权限)
+     *
+     * @param request 批量发布请求 DTO
+     * @return 批量写入结果
+     */
+    @PostMapping("/bulk")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')") // 只有管理员或工作人员才能发布菜谱
+    public ResponseEntity<MenuBatchResult> publishDailyMenus(@Valid @RequestBody BulkMenuPublishRequest request)
+    {
+        String publisherName = org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication().getName();
+        MenuBatchResult result = dailyMenuService.publishDailyMenus(request, publisherName);
+        return new ResponseEntity<>(result, HttpStatus.CREATED);
+    }
+
+    /**
+     * 将源日期范围内的菜谱复制到目标日期范围（例如把上周的菜谱复制到下周）。
+     * URL: POST /api/menu/clone
+     * (需要管理员或工作人员权限)
+     *
+     * @param request 复制请求 DTO
+     * @return 批量写入结果
+     */
+    @PostMapping("/clone")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')") // 只有管理员或工作人员才能发布菜谱
+    public ResponseEntity<MenuBatchResult> cloneDailyMenus(@Valid @RequestBody MenuCloneRequest request)
+    {
+        String publisherName = org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication().getName();
+        MenuBatchResult result = dailyMenuService.cloneDailyMenus(request, publisherName);
+        return new ResponseEntity<>(result, HttpStatus.CREATED);
+    }
+
     /**
      * 根据食堂ID和日期获取每日菜谱列表。
      * URL: GET /api/menu/canteen/{canteenId}/{menuDate}
      * (任何已认证用户或匿名用户都可以查看)
+     * 响应体为预序列化缓存中的 JSON 字节，直接写出，不再重新序列化。
      *
      * @param canteenId 食堂ID
      * @param menuDate  菜谱日期 (格式:YYYY-MM-DD)
-     * @return 每日菜谱响应 DTO 列表
+     * @return 每日菜谱响应 DTO 列表的 JSON
      */
     @GetMapping("/canteen/{canteenId}/{menuDate}")
     @PreAuthorize("permitAll()") // 允许所有用户访问
-    public ResponseEntity<List<DailyMenuResponse>> getDailyMenusByCanteenAndDate(
+    public ResponseEntity<byte[]> getDailyMenusByCanteenAndDate(
             @PathVariable String canteenId,
             @PathVariable LocalDate menuDate)
     {
-        List<DailyMenuResponse> dailyMenus = dailyMenuService.getDailyMenusByCanteenAndDate(canteenId, menuDate);
-        return ResponseEntity.ok(dailyMenus);
+        byte[] dailyMenus = dailyMenuService.getDailyMenusJsonByCanteenAndDate(canteenId, menuDate);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(dailyMenus);
+    }
+
+    /**
+     * 获取当前正在供应的菜谱。
+     * URL: GET /api/menu/now?canteenId=
+     * (任何已认证用户或匿名用户都可以查看)
+     *
+     * @param canteenId 食堂ID（可选，不传时返回所有食堂）
+     * @return 正在供应的菜谱响应 DTO 列表
+     */
+    @GetMapping("/now")
+    @PreAuthorize("permitAll()") // 允许所有用户访问
+    public ResponseEntity<List<DailyMenuResponse>> getActiveMenus(@RequestParam(required = false) String canteenId)
+    {
+        List<DailyMenuResponse> activeMenus = dailyMenuService.getActiveMenus(canteenId);
+        return ResponseEntity.ok(activeMenus);
     }
 
     /**
@@ -1,6 +1,9 @@
 package com.harukite.canteen.controller;
 
+import com.harukite.canteen.dto.CursorPageResponse;
+import com.harukite.canteen.dto.DishCatalogQuery;
 import com.harukite.canteen.dto.DishDto;
+import com.harukite.canteen.dto.PageResponse;
 import com.harukite.canteen.service.DishService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -11,6 +14,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -61,10 +65,42 @@ public class DishController
         return ResponseEntity.ok(dish);
     }
 
+    /**
+     * 按条件分页浏览菜品目录。
+     * URL: GET /api/dishes?canteenId=&isAvailable=&minPrice=&maxPrice=&tagIds=&excludeAllergenIds=&cursor=&limit=
+     * (任何已认证用户或匿名用户都可以查看)
+     *
+     * @param canteenId          食堂ID（可选）
+     * @param isAvailable        是否可用（可选）
+     * @param minPrice           最低价格（可选）
+     * @param maxPrice           最高价格（可选）
+     * @param tagIds             必须同时带有的饮食标签ID（可选）
+     * @param excludeAllergenIds 不能含有的过敏原ID（可选）
+     * @param cursor             上一页返回的 nextCursor，首页不传
+     * @param limit              每页数量，默认 20，最大 100
+     * @return 当前页菜品及下一页游标
+     */
+    @GetMapping
+    @PreAuthorize("permitAll()") // 允许所有用户访问
+    public ResponseEntity<CursorPageResponse<DishDto>> getDishCatalog(
+            @RequestParam(required = false) String canteenId,
+            @RequestParam(required = false) Boolean isAvailable,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) List<String> tagIds,
+            @RequestParam(required = false) List<String> excludeAllergenIds,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit)
+    {
+        DishCatalogQuery filter = new DishCatalogQuery(canteenId, isAvailable, minPrice, maxPrice, tagIds, excludeAllergenIds);
+        CursorPageResponse<DishDto> page = dishService.getDishCatalog(filter, cursor, limit);
+        return ResponseEntity.ok(page);
+    }
+
     /**
      * 获取所有菜品列表。
      * URL: GET /api/dishes/all
-     * (保留此接口以提供全局视图，但通常更推荐按食堂查询)
+     * (已被分页接口 GET /api/dishes 取代，仅为兼容旧客户端保留)
      * (任何已认证用户或匿名用户都可以查看)
      *
      * @return 菜品 DTO 列表
@@ -77,6 +113,52 @@ public class DishController
         return ResponseEntity.ok(dishes);
     }
 
+    /**
+     * 按饮食标签和过敏原筛选可用菜品（基于内存位图索引）。
+     * URL: GET /api/dishes/safe?canteenId=&tagIds=&excludeAllergenIds=
+     * (任何已认证用户或匿名用户都可以查看)
+     *
+     * @param canteenId          食堂ID（可选）
+     * @param tagIds             必须同时带有的饮食标签ID（可选）
+     * @param excludeAllergenIds 不能含有的过敏原ID（可选）
+     * @return 菜品 DTO 列表
+     */
+    @GetMapping("/safe")
+    @PreAuthorize("permitAll()") // 允许所有用户访问
+    public ResponseEntity<List<DishDto>> getSafeDishes(
+            @RequestParam(required = false) String canteenId,
+            @RequestParam(required = false) List<String> tagIds,
+            @RequestParam(required = false) List<String> excludeAllergenIds)
+    {
+        List<DishDto> dishes = dishService.getSafeDishes(canteenId, tagIds, excludeAllergenIds);
+        return ResponseEntity.ok(dishes);
+    }
+
+    /**
+     * 按关键字检索菜品名称和描述，结果按相关度排序。
+     * URL: GET /api/dishes/search?q=&canteenId=&todayOnly=&page=&size=
+     * (任何已认证用户或匿名用户都可以查看)
+     *
+     * @param q         关键字
+     * @param canteenId 食堂ID（可选）
+     * @param todayOnly 是否仅检索今日菜谱中的菜品，默认 false
+     * @param page      页码，从 0 开始，默认 0，最大 100
+     * @param size      每页数量，默认 20，最大 100
+     * @return 当前页菜品
+     */
+    @GetMapping("/search")
+    @PreAuthorize("permitAll()") // 允许所有用户访问
+    public ResponseEntity<PageResponse<DishDto>> searchDishes(
+            @RequestParam String q,
+            @RequestParam(required = false) String canteenId,
+            @RequestParam(defaultValue = "false") boolean todayOnly,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size)
+    {
+        PageResponse<DishDto> result = dishService.searchDishes(q, canteenId, todayOnly, page, size);
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * 更新菜品信息。
      * URL: PUT /api/dishes/{id}
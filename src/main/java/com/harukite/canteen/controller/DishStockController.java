@@ -0,0 +1,78 @@
+package com.harukite.canteen.controller;
+
+import com.harukite.canteen.dto.DishStockDto;
+import com.harukite.canteen.dto.DishStockRequest;
+import com.harukite.canteen.service.DishStockService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * REST 控制器，用于管理菜品每日库存。
+ * 提供库存的设置、查询和删除的 API 接口。
+ */
+@RestController
+@RequestMapping("/api/dish-stock")
+@RequiredArgsConstructor
+public class DishStockController
+{
+
+    private final DishStockService dishStockService;
+
+    /**
+     * 设置菜品某日的供应总份数（已存在时覆盖总数，已售出的份数保持不变）。
+     * URL: PUT /api/dish-stock
+     * (需要管理员或工作人员权限)
+     *
+     * @param request 库存信息
+     * @return 设置后的库存 DTO
+     */
+    @PutMapping
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')") // 只有管理员或工作人员才能设置库存
+    public ResponseEntity<DishStockDto> setStock(@Valid @RequestBody DishStockRequest request)
+    {
+        DishStockDto stock = dishStockService.setStock(request);
+        return ResponseEntity.ok(stock);
+    }
+
+    /**
+     * 获取食堂某日的全部菜品库存。
+     * URL: GET /api/dish-stock?canteenId=&date=
+     * (任何已认证用户或匿名用户都可以查看)
+     *
+     * @param canteenId 食堂ID
+     * @param date      日期 (格式: yyyy-MM-dd)
+     * @return 按菜品名称排序的库存 DTO 列表
+     */
+    @GetMapping
+    @PreAuthorize("permitAll()") // 允许所有用户访问
+    public ResponseEntity<List<DishStockDto>> getStocks(
+            @RequestParam String canteenId,
+            @RequestParam LocalDate date)
+    {
+        List<DishStockDto> stocks = dishStockService.getStocks(canteenId, date);
+        return ResponseEntity.ok(stocks);
+    }
+
+    /**
+     * 删除菜品某日的库存设置，使其恢复不限量。
+     * URL: DELETE /api/dish-stock/{dishId}?date=
+     * (需要管理员或工作人员权限)
+     *
+     * @param dishId 菜品ID
+     * @param date   日期 (格式: yyyy-MM-dd)
+     * @return 无内容响应
+     */
+    @DeleteMapping("/{dishId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')") // 只有管理员或工作人员才能设置库存
+    public ResponseEntity<Void> deleteStock(@PathVariable String dishId, @RequestParam LocalDate date)
+    {
+        dishStockService.deleteStock(dishId, date);
+        return ResponseEntity.noContent().build();
+    }
+}
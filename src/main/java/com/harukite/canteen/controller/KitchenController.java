@@ -0,0 +1,86 @@
+package com.harukite.canteen.controller;
+
+import com.harukite.canteen.dto.KitchenPrepItemDto;
+import com.harukite.canteen.service.KitchenFeedService;
+import com.harukite.canteen.service.KitchenPrepService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * REST 控制器，用于后厨工作人员。
+ * 提供按食堂的订单实时推送和备餐清单接口。
+ */
+@RestController
+@RequestMapping("/api/kitchen")
+@RequiredArgsConstructor
+public class KitchenController
+{
+
+    private final KitchenFeedService kitchenFeedService;
+    private final KitchenPrepService kitchenPrepService;
+
+    /**
+     * 订阅食堂的订单事件流（Server-Sent Events）。
+     * 事件名为 ORDER_CREATED / ORDER_STATUS_CHANGED，数据为精简的订单事件 JSON；
+     * 收到 reset 事件时客户端应重新加载订单列表。断线重连时浏览器会自动携带 Last-Event-ID 补齐错过的事件。
+     * URL: GET /api/kitchen/feed?canteenId=
+     * (需要管理员或工作人员权限)
+     *
+     * @param canteenId   食堂ID
+     * @param lastEventId 最后收到的事件ID（可选）
+     * @return SSE 连接
+     */
+    @GetMapping(value = "/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')") // 只有管理员或工作人员才能订阅后厨推送
+    public SseEmitter subscribeFeed(
+            @RequestParam String canteenId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId)
+    {
+        return kitchenFeedService.subscribe(canteenId, lastEventId);
+    }
+
+    /**
+     * 获取食堂某日按取餐时段汇总的备餐清单，包含未取消订单以及已确认宴会预订（定制菜品和套餐菜品）的份数。
+     * URL: GET /api/kitchen/prep-list?canteenId=&date=
+     * (需要管理员或工作人员权限)
+     *
+     * @param canteenId 食堂ID
+     * @param date      日期
+     * @return 按时段和菜品名称排序的备餐项列表
+     */
+    @GetMapping("/prep-list")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')") // 只有管理员或工作人员才能查看备餐清单
+    public ResponseEntity<List<KitchenPrepItemDto>> getPrepList(
+            @RequestParam String canteenId,
+            @RequestParam LocalDate date)
+    {
+        List<KitchenPrepItemDto> items = kitchenPrepService.getPrepList(canteenId, date);
+        return ResponseEntity.ok(items);
+    }
+
+    /**
+     * 从订单和宴会预订重新汇总食堂某日的备餐计数，用于初始化历史数据或校正。
+     * URL: POST /api/kitchen/prep-list/rebuild?canteenId=&date=
+     * (需要管理员权限)
+     *
+     * @param canteenId 食堂ID
+     * @param date      日期
+     * @return 重建后的备餐清单
+     */
+    @PostMapping("/prep-list/rebuild")
+    @PreAuthorize("hasRole('ADMIN')") // 只有管理员才能重建备餐计数
+    public ResponseEntity<List<KitchenPrepItemDto>> rebuildPrepList(
+            @RequestParam String canteenId,
+            @RequestParam LocalDate date)
+    {
+        kitchenPrepService.rebuild(canteenId, date);
+        return ResponseEntity.ok(kitchenPrepService.getPrepList(canteenId, date));
+    }
+}
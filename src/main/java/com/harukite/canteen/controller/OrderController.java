@@ -1,21 +1,30 @@
 package com.harukite.canteen.controller;
 
+import com.harukite.canteen.dto.CursorPageResponse;
 import com.harukite.canteen.dto.OrderRequest;
 import com.harukite.canteen.dto.OrderResponse;
+import com.harukite.canteen.dto.OrderSearchQuery;
+import com.harukite.canteen.dto.OrderSummaryDto;
 import com.harukite.canteen.exception.ResourceNotFoundException;
 import com.harukite.canteen.model.OrderStatus;
 import com.harukite.canteen.model.User;
 import com.harukite.canteen.repository.UserRepository;
+import com.harukite.canteen.service.IdempotencyService;
 import com.harukite.canteen.service.OrderService;
+import com.harukite.canteen.service.OrderStatusFeedService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
 
 /**
@@ -29,46 +38,92 @@ public class OrderController
 {
 
     private final OrderService orderService;
+    private final OrderStatusFeedService orderStatusFeedService;
+    private final IdempotencyService idempotencyService;
     private final UserRepository userRepository;
 
     /**
      * 创建新订单。
      * URL: POST /api/orders
+     * 携带 Idempotency-Key 请求头时，保留期内以同一个键重试会返回首次创建的订单，不会重复下单。
      *
-     * @param request 包含订单信息的 DTO
+     * @param request        包含订单信息的 DTO
+     * @param idempotencyKey 幂等键（可选）
      * @return 创建成功的订单响应 DTO
      */
     @PostMapping
     @PreAuthorize("isAuthenticated()") // 仅允许已认证用户访问
-    public ResponseEntity<OrderResponse> createOrder(@Valid @RequestBody OrderRequest request)
+    public ResponseEntity<OrderResponse> createOrder(
+            @Valid @RequestBody OrderRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey)
     {
         // 从 Spring Security 认证上下文中获取当前用户ID
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         User user= userRepository.findByUsername(authentication.getName())
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with Name: " + authentication.getName()));
         String userId = user.getUserId(); // 获取用户ID
-        OrderResponse createdOrder = orderService.createOrder(request, userId);
+        OrderResponse createdOrder = idempotencyService.execute(IdempotencyService.SCOPE_ORDER_CREATE, userId, idempotencyKey,
+                request, OrderResponse.class, () -> orderService.createOrder(request, userId));
         return new ResponseEntity<>(createdOrder, HttpStatus.CREATED);
     }
 
     /**
      * 根据订单ID获取订单详情。
-     * URL: GET /api/orders/{id}
+     * URL: GET /api/orders/{id}?orderDate=
+     * (用户可以查看自己的订单，管理员或工作人员可以查看任何订单)
      *
-     * @param id 订单ID
+     * @param id        订单ID
+     * @param orderDate 预订日期（可选），提供时只查找该日期所在的分区
      * @return 订单响应 DTO
      */
     @GetMapping("/{id}")
-    @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<OrderResponse> getOrderById(@PathVariable String id)
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF') or @authz.isOrderOwner(#id, #orderDate, authentication)") // 允许用户查看自己的订单或管理员查看任何订单
+    public ResponseEntity<OrderResponse> getOrderById(
+            @PathVariable String id,
+            @RequestParam(required = false) LocalDate orderDate)
     {
-        OrderResponse order = orderService.getOrderById(id);
+        OrderResponse order = orderService.getOrderById(id, orderDate);
         return ResponseEntity.ok(order);
     }
 
+    /**
+     * 按条件检索订单，按创建时间倒序分页，返回扁平的订单摘要。
+     * URL: GET /api/orders/search?canteenId=&status=&orderDateFrom=&orderDateTo=&pickupFrom=&pickupTo=&userId=&cursor=&limit=
+     * (需要管理员或工作人员权限)
+     *
+     * @param canteenId     食堂ID（可选）
+     * @param status        订单状态（可选）
+     * @param orderDateFrom 预订日期下限，含（可选）
+     * @param orderDateTo   预订日期上限，含（可选）
+     * @param pickupFrom    取餐时间下限，含（可选）
+     * @param pickupTo      取餐时间上限，含（可选）
+     * @param userId        下单用户ID（可选）
+     * @param cursor        上一页返回的 nextCursor，首页不传
+     * @param limit         每页数量，默认 50，最大 100
+     * @return 当前页订单摘要及下一页游标
+     */
+    @GetMapping("/search")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')") // 只有管理员或工作人员才能检索所有订单
+    public ResponseEntity<CursorPageResponse<OrderSummaryDto>> searchOrders(
+            @RequestParam(required = false) String canteenId,
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) LocalDate orderDateFrom,
+            @RequestParam(required = false) LocalDate orderDateTo,
+            @RequestParam(required = false) LocalTime pickupFrom,
+            @RequestParam(required = false) LocalTime pickupTo,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit)
+    {
+        OrderSearchQuery filter = new OrderSearchQuery(canteenId, status, orderDateFrom, orderDateTo, pickupFrom, pickupTo, userId);
+        CursorPageResponse<OrderSummaryDto> page = orderService.searchOrders(filter, cursor, limit);
+        return ResponseEntity.ok(page);
+    }
+
     /**
      * 获取所有订单列表。
      * URL: GET /api/orders
+     * (已被分页接口 GET /api/orders/search 取代，仅为兼容旧客户端保留)
      *
      * @return 订单响应 DTO 列表
      */
@@ -89,7 +144,7 @@ public class OrderController
      * @return 订单响应 DTO 列表
      */
     @GetMapping("/user/{userId}")
-    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF') or @orderService.getOrdersByUserId(#userId).get(0).getUserId() == (userRepository.findByUsername(authentication.name)).getUserId()") // 允许用户查询自己的订单或管理员查询任何用户的订单
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF') or @authz.isCurrentUser(#userId, authentication)") // 允许用户查询自己的订单或管理员查询任何用户的订单
     public ResponseEntity<List<OrderResponse>> getOrdersByUserId(@PathVariable String userId)
     {
         List<OrderResponse> orders = orderService.getOrdersByUserId(userId);
@@ -116,42 +171,67 @@ public class OrderController
         return ResponseEntity.ok(orders);
     }
 
+    /**
+     * 订阅当前用户订单的状态变化（Server-Sent Events），替代轮询 GET /api/orders/current-user。
+     * 事件名为 ORDER_STATUS_CHANGED，数据包含订单ID、新状态和原状态；
+     * 收到 reset 事件时客户端应重新加载订单列表。断线重连时浏览器会自动携带 Last-Event-ID 补齐错过的事件。
+     * URL: GET /api/orders/current-user/status-feed
+     *
+     * @param lastEventId 最后收到的事件ID（可选）
+     * @return SSE 连接
+     */
+    @GetMapping(value = "/current-user/status-feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("isAuthenticated()") // 仅允许已认证用户访问，且只能订阅自己的订单
+    public SseEmitter subscribeStatusFeed(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId)
+    {
+        // 从 Spring Security 认证上下文中获取当前用户ID
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        User user= userRepository.findByUsername(authentication.getName())
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with Name: " + authentication.getName()));
+        return orderStatusFeedService.subscribe(user.getUserId(), lastEventId);
+    }
+
     /**
      * 更新订单状态。
-     * URL: PUT /api/orders/{id}/status
+     * URL: PUT /api/orders/{id}/status?newStatus=&orderDate=
      * (通常需要管理员或食堂工作人员权限)
      *
      * @param id        订单ID
      * @param newStatus 新的订单状态
+     * @param orderDate 预订日期（可选），提供时只查找该日期所在的分区
      * @return 更新后的订单响应 DTO
      */
     @PutMapping("/{id}/status")
     @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')") // 只有管理员或工作人员才能更新订单状态
     public ResponseEntity<OrderResponse> updateOrderStatus(
             @PathVariable String id,
-            @RequestParam OrderStatus newStatus)
+            @RequestParam OrderStatus newStatus,
+            @RequestParam(required = false) LocalDate orderDate)
     { // 使用 @RequestParam 接收枚举
-        OrderResponse updatedOrder = orderService.updateOrderStatus(id, newStatus);
+        OrderResponse updatedOrder = orderService.updateOrderStatus(id, orderDate, newStatus);
         return ResponseEntity.ok(updatedOrder);
     }
 
     /**
      * 取消订单。
-     * URL: PUT /api/orders/{id}/cancel
+     * URL: PUT /api/orders/{id}/cancel?orderDate=
      * (用户可以取消自己的订单，管理员可以取消任何订单)
      *
-     * @param id 订单ID
+     * @param id        订单ID
+     * @param orderDate 预订日期（可选），提供时只查找该日期所在的分区
      * @return 无内容响应
      */
     @PutMapping("/{id}/cancel")
     @PreAuthorize("isAuthenticated()")// 允许用户取消自己的订单或管理员取消任何订单
-    public ResponseEntity<Void> cancelOrder(@PathVariable String id)
+    public ResponseEntity<Void> cancelOrder(
+            @PathVariable String id,
+            @RequestParam(required = false) LocalDate orderDate)
     {
         // 从 Spring Security 认证上下文中获取当前用户ID
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         User user= userRepository.findByUsername(authentication.getName())
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with Name: " + authentication.getName()));
-        orderService.cancelOrder(id, user.getUserId());
+        orderService.cancelOrder(id, orderDate, user.getUserId());
         return ResponseEntity.noContent().build();
     }
 }
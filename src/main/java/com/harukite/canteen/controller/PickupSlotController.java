@@ -0,0 +1,95 @@
+package com.harukite.canteen.controller;
+
+import com.harukite.canteen.dto.PickupSlotDto;
+import com.harukite.canteen.dto.PickupSlotRequest;
+import com.harukite.canteen.service.PickupSlotService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * REST 控制器，用于管理取餐时段容量。
+ * 提供时段的配置接口，以及按食堂和日期查询剩余名额的接口。
+ */
+@RestController
+@RequestMapping("/api/pickup-slots")
+@RequiredArgsConstructor
+public class PickupSlotController
+{
+
+    private final PickupSlotService pickupSlotService;
+
+    /**
+     * 创建取餐时段。
+     * URL: POST /api/pickup-slots
+     * (需要管理员或工作人员权限)
+     *
+     * @param request 时段信息
+     * @return 创建成功的时段 DTO
+     */
+    @PostMapping
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')") // 只有管理员或工作人员才能配置时段
+    public ResponseEntity<PickupSlotDto> createSlot(@Valid @RequestBody PickupSlotRequest request)
+    {
+        PickupSlotDto slot = pickupSlotService.createSlot(request);
+        return new ResponseEntity<>(slot, HttpStatus.CREATED);
+    }
+
+    /**
+     * 获取食堂某日各时段的容量与剩余名额。
+     * URL: GET /api/pickup-slots?canteenId=&date=
+     * (任何已认证用户或匿名用户都可以查看)
+     *
+     * @param canteenId 食堂ID
+     * @param date      日期 (格式: yyyy-MM-dd)
+     * @return 按开始时间排序的时段 DTO 列表
+     */
+    @GetMapping
+    @PreAuthorize("permitAll()") // 允许所有用户访问
+    public ResponseEntity<List<PickupSlotDto>> getSlots(
+            @RequestParam String canteenId,
+            @RequestParam LocalDate date)
+    {
+        List<PickupSlotDto> slots = pickupSlotService.getSlots(canteenId, date);
+        return ResponseEntity.ok(slots);
+    }
+
+    /**
+     * 更新取餐时段的时间范围和容量。
+     * URL: PUT /api/pickup-slots/{id}
+     * (需要管理员或工作人员权限)
+     *
+     * @param id      时段ID
+     * @param request 时段信息
+     * @return 更新后的时段 DTO
+     */
+    @PutMapping("/{id}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')") // 只有管理员或工作人员才能配置时段
+    public ResponseEntity<PickupSlotDto> updateSlot(@PathVariable String id, @Valid @RequestBody PickupSlotRequest request)
+    {
+        PickupSlotDto slot = pickupSlotService.updateSlot(id, request);
+        return ResponseEntity.ok(slot);
+    }
+
+    /**
+     * 删除取餐时段。
+     * URL: DELETE /api/pickup-slots/{id}
+     * (需要管理员或工作人员权限)
+     *
+     * @param id 时段ID
+     * @return 无内容响应
+     */
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')") // 只有管理员或工作人员才能配置时段
+    public ResponseEntity<Void> deleteSlot(@PathVariable String id)
+    {
+        pickupSlotService.deleteSlot(id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,112 @@
+package com.harukite.canteen.controller;
+
+import com.harukite.canteen.dto.DailySalesDto;
+import com.harukite.canteen.dto.DishSalesDto;
+import com.harukite.canteen.dto.SalesSummaryDto;
+import com.harukite.canteen.service.SalesReportService;
+import com.harukite.canteen.service.SalesRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * REST 控制器，用于销售报表。
+ * 所有报表从销售汇总表读取，日期范围最长 366 天。
+ */
+@RestController
+@RequestMapping("/api/reports")
+@RequiredArgsConstructor
+public class ReportController
+{
+
+    private final SalesReportService salesReportService;
+    private final SalesRollupService salesRollupService;
+
+    /**
+     * 按食堂和日期获取营业额及各状态订单数。
+     * URL: GET /api/reports/daily-sales?canteenId=&fromDate=&toDate=
+     * (需要管理员权限)
+     *
+     * @param canteenId 食堂ID（可选，不传则包含所有食堂）
+     * @param fromDate  开始日期（含）
+     * @param toDate    结束日期（含）
+     * @return 每日销售列表
+     */
+    @GetMapping("/daily-sales")
+    @PreAuthorize("hasRole('ADMIN')") // 只有管理员才能查看销售报表
+    public ResponseEntity<List<DailySalesDto>> getDailySales(
+            @RequestParam(required = false) String canteenId,
+            @RequestParam LocalDate fromDate,
+            @RequestParam LocalDate toDate)
+    {
+        List<DailySalesDto> sales = salesReportService.getDailySales(canteenId, fromDate, toDate);
+        return ResponseEntity.ok(sales);
+    }
+
+    /**
+     * 获取日期范围内销量最高的菜品。
+     * URL: GET /api/reports/top-dishes?canteenId=&fromDate=&toDate=&limit=
+     * (需要管理员权限)
+     *
+     * @param canteenId 食堂ID（可选，不传则包含所有食堂）
+     * @param fromDate  开始日期（含）
+     * @param toDate    结束日期（含）
+     * @param limit     返回条数，默认 10，最大 100
+     * @return 按销量倒序的菜品销售列表
+     */
+    @GetMapping("/top-dishes")
+    @PreAuthorize("hasRole('ADMIN')") // 只有管理员才能查看销售报表
+    public ResponseEntity<List<DishSalesDto>> getTopDishes(
+            @RequestParam(required = false) String canteenId,
+            @RequestParam LocalDate fromDate,
+            @RequestParam LocalDate toDate,
+            @RequestParam(defaultValue = "10") int limit)
+    {
+        List<DishSalesDto> dishes = salesReportService.getTopDishes(canteenId, fromDate, toDate, limit);
+        return ResponseEntity.ok(dishes);
+    }
+
+    /**
+     * 获取日期范围内各状态的订单数和销售金额。
+     * URL: GET /api/reports/summary?canteenId=&fromDate=&toDate=
+     * (需要管理员权限)
+     *
+     * @param canteenId 食堂ID（可选，不传则包含所有食堂）
+     * @param fromDate  开始日期（含）
+     * @param toDate    结束日期（含）
+     * @return 汇总数据
+     */
+    @GetMapping("/summary")
+    @PreAuthorize("hasRole('ADMIN')") // 只有管理员才能查看销售报表
+    public ResponseEntity<SalesSummaryDto> getSummary(
+            @RequestParam(required = false) String canteenId,
+            @RequestParam LocalDate fromDate,
+            @RequestParam LocalDate toDate)
+    {
+        SalesSummaryDto summary = salesReportService.getSummary(canteenId, fromDate, toDate);
+        return ResponseEntity.ok(summary);
+    }
+
+    /**
+     * 从订单表重新计算日期范围内的销售汇总（初始化历史数据或手动对账）。
+     * URL: POST /api/reports/reconcile?fromDate=&toDate=
+     * (需要管理员权限)
+     *
+     * @param fromDate 开始日期（含）
+     * @param toDate   结束日期（含）
+     * @return 重新计算的天数
+     */
+    @PostMapping("/reconcile")
+    @PreAuthorize("hasRole('ADMIN')") // 只有管理员才能触发对账
+    public ResponseEntity<Integer> reconcile(
+            @RequestParam LocalDate fromDate,
+            @RequestParam LocalDate toDate)
+    {
+        int days = salesRollupService.reconcile(fromDate, toDate);
+        return ResponseEntity.ok(days);
+    }
+}
@@ -0,0 +1,25 @@
+package com.harukite.canteen.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for publishing many daily menus at once (e.g. a whole week across several canteens).
+ * The batch is validated as a whole and inserted in a single transaction.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkMenuPublishRequest
+{
+
+    @NotEmpty(message = "At least one menu is required")
+    @Size(max = 1000, message = "At most 1000 menus can be published at once")
+    private List<@Valid DailyMenuRequest> menus;
+}
@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Map;
+
 
 /**
  * DTO for Canteen information.
@@ -21,5 +23,6 @@ public class CanteenDto
     private String openingHours;
     private String contactPhone;
     private String imageUrl;
+    private Map<String, String> imageVariants; // Resized variant URLs keyed by name (large, medium, thumb); generated asynchronously
 }
 
@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 /**
  * DTO for Canteen Image information.
@@ -24,4 +25,5 @@ public class CanteenImageDto {
     @Size(max = 255, message = "Description cannot exceed 255 characters")
     private String description; // 图片描述
     private LocalDateTime uploadTime; // 上传时间
+    private Map<String, String> imageVariants; // Resized variant URLs keyed by name (large, medium, thumb); generated asynchronously
 }
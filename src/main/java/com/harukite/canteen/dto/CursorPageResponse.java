@@ -0,0 +1,21 @@
+package com.harukite.canteen.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for keyset (cursor) paginated responses.
+ * Pass nextCursor back as the cursor parameter to fetch the following page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResponse<T>
+{
+    private List<T> items;
+    private String nextCursor; // null when there are no more pages
+    private boolean hasMore;
+}
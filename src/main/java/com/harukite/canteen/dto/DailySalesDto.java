@@ -0,0 +1,28 @@
+package com.harukite.canteen.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * DTO for one canteen's sales on one day, read from the sales rollups.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySalesDto
+{
+    private String canteenId;
+    private String canteenName;
+    private LocalDate date; // Order date the orders were placed for
+    private Long pendingCount;
+    private Long confirmedCount;
+    private Long completedCount;
+    private Long cancelledCount;
+    private Long orderCount; // All orders except cancelled ones
+    private BigDecimal bookedAmount; // Total of all orders except cancelled ones
+    private BigDecimal completedAmount; // Total of completed orders
+}
@@ -0,0 +1,25 @@
+package com.harukite.canteen.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * DTO for dish catalog filters.
+ * Every field is optional; null means the filter is not applied.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DishCatalogQuery
+{
+    private String canteenId;
+    private Boolean isAvailable;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private List<String> requiredTagIds; // Dish must carry all of these dietary tags
+    private List<String> excludedAllergenIds; // Dish must contain none of these allergens
+}
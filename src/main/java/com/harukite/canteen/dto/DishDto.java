@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DTO for Dish information.
@@ -31,4 +32,5 @@ public class DishDto
     private List<String> dietaryTagNames; // List of dietary tag names
     private List<String> allergenNames; // List of allergen names
     private Double averageRating;
+    private Map<String, String> imageVariants; // Resized variant URLs keyed by name (large, medium, thumb); generated asynchronously
 }
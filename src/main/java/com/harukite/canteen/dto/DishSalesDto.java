@@ -0,0 +1,22 @@
+package com.harukite.canteen.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO for a dish's sales over a date range (cancelled orders excluded).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DishSalesDto
+{
+    private String dishId;
+    private String dishName;
+    private String canteenId;
+    private Long quantity;
+    private BigDecimal totalAmount;
+}
@@ -0,0 +1,25 @@
+package com.harukite.canteen.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * DTO for a dish's stock on one day.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DishStockDto
+{
+    private String stockId;
+    private String dishId;
+    private String dishName;
+    private String canteenId;
+    private LocalDate stockDate;
+    private Integer totalQuantity;
+    private Integer remainingQuantity;
+    private Boolean soldOut; // True while the dish is automatically marked unavailable because this day's stock ran out
+}
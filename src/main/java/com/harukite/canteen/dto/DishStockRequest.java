@@ -0,0 +1,31 @@
+package com.harukite.canteen.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * DTO for setting a dish's stock for one day.
+ * Portions already sold stay sold; the remaining count becomes max(quantity - sold, 0).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DishStockRequest
+{
+
+    @NotBlank(message = "Dish ID cannot be empty")
+    private String dishId;
+
+    @NotNull(message = "Stock date cannot be null")
+    private LocalDate stockDate;
+
+    @NotNull(message = "Quantity cannot be null")
+    @Min(value = 0, message = "Quantity cannot be negative")
+    private Integer quantity;
+}
@@ -0,0 +1,23 @@
+package com.harukite.canteen.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalTime;
+
+/**
+ * DTO for one line of the kitchen prep list: how many portions of a dish to prepare for a slot.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KitchenPrepItemDto
+{
+    private LocalTime slotStart; // Pickup slot start (or pickup time when no slot is configured); banquet start time
+    private String dishId;
+    private String dishName;
+    private Integer orderQuantity;
+    private Integer banquetQuantity;
+    private Integer totalQuantity;
+}
@@ -0,0 +1,21 @@
+package com.harukite.canteen.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO summarising a bulk menu publish or clone.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MenuBatchResult
+{
+    private int menuCount; // Menus inserted
+    private int dishLinkCount; // Menu_Dishes rows inserted
+    private int skippedCount; // Source menus skipped because the target slot was taken (clone with skipExisting only)
+    private List<String> menuIds; // IDs of the inserted menus
+}
@@ -0,0 +1,39 @@
+package com.harukite.canteen.dto;
+
+import jakarta.validation.constraints.FutureOrPresent;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO for copying the menus of a source date range to a target range of the same length.
+ * Each source menu keeps its canteen, time window and dishes and is shifted by (targetStartDate - sourceStartDate) days.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MenuCloneRequest
+{
+
+    @NotNull(message = "Source start date cannot be null")
+    private LocalDate sourceStartDate;
+
+    @NotNull(message = "Target start date cannot be null")
+    @FutureOrPresent(message = "Target start date must be today or in the future")
+    private LocalDate targetStartDate;
+
+    @NotNull(message = "Number of days cannot be null")
+    @Min(value = 1, message = "Number of days must be at least 1")
+    @Max(value = 31, message = "Number of days must be at most 31")
+    private Integer days = 7;
+
+    private List<String> canteenIds; // Optional; all canteens when null or empty
+
+    private boolean skipExisting; // Skip target slots that already have a menu instead of rejecting the request
+}
@@ -0,0 +1,21 @@
+package com.harukite.canteen.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for one page of an object storage listing, ordered by key.
+ * Pass nextMarker back to fetch the following page while truncated is true.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ObjectListingPage
+{
+    private List<ObjectSummary> objects;
+    private String nextMarker;
+    private boolean truncated;
+}
@@ -0,0 +1,20 @@
+package com.harukite.canteen.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * DTO for a single entry of an object storage listing.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ObjectSummary
+{
+    private String key;
+    private long sizeBytes;
+    private Instant lastModified;
+}
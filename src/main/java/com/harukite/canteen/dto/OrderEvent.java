@@ -0,0 +1,52 @@
+package com.harukite.canteen.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.harukite.canteen.model.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Compact order change event pushed to kitchen screens and diners.
+ * Items are only included for ORDER_CREATED; status changes carry just the new and previous status.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderEvent
+{
+    private String eventId; // Assigned when the event is delivered; used as the SSE id
+    private Type type;
+    private String orderId;
+    private String userId;
+    private String canteenId;
+    private OrderStatus status;
+    private OrderStatus previousStatus;
+    private LocalDate orderDate;
+    private LocalTime pickupTime;
+    private LocalDateTime occurredAt;
+    private List<Item> items;
+    private Boolean itemsTruncated; // True when items were dropped to keep the event small; fetch the order instead
+
+    public enum Type
+    {
+        ORDER_CREATED,
+        ORDER_STATUS_CHANGED
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item
+    {
+        private String dishId;
+        private String dishName;
+        private Integer quantity;
+    }
+}
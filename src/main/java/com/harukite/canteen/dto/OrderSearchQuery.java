@@ -0,0 +1,27 @@
+package com.harukite.canteen.dto;
+
+import com.harukite.canteen.model.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * DTO for staff order search filters.
+ * Every field is optional; null means the filter is not applied. Ranges are inclusive.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSearchQuery
+{
+    private String canteenId;
+    private OrderStatus status;
+    private LocalDate orderDateFrom;
+    private LocalDate orderDateTo;
+    private LocalTime pickupFrom;
+    private LocalTime pickupTo;
+    private String userId;
+}
@@ -0,0 +1,33 @@
+package com.harukite.canteen.dto;
+
+import com.harukite.canteen.model.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Flat order row for staff order lists.
+ * Built directly by the search query; fetch the full order via GET /api/orders/{id} for its items.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummaryDto
+{
+    private String orderId;
+    private String userId;
+    private String username;
+    private String canteenId;
+    private String canteenName;
+    private LocalDate orderDate;
+    private LocalTime pickupTime;
+    private BigDecimal totalAmount;
+    private OrderStatus status;
+    private LocalDateTime createdAt;
+    private Long itemCount; // Total quantity across all items
+}
@@ -0,0 +1,22 @@
+package com.harukite.canteen.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for offset (page number) paginated responses.
+ * Used where results are ordered by a computed score and a keyset cursor is not practical.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageResponse<T>
+{
+    private List<T> items;
+    private int page; // zero-based
+    private int size;
+    private boolean hasMore;
+}
@@ -0,0 +1,26 @@
+package com.harukite.canteen.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * DTO for pickup slot information, including remaining capacity.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PickupSlotDto
+{
+    private String slotId;
+    private String canteenId;
+    private LocalDate slotDate;
+    private LocalTime startTime;
+    private LocalTime endTime;
+    private Integer capacity;
+    private Integer reserved;
+    private Integer remaining; // Never negative, even if capacity was lowered below the reserved count
+}
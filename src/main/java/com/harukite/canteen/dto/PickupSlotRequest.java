@@ -0,0 +1,38 @@
+package com.harukite.canteen.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * DTO for creating or updating a pickup slot.
+ * Orders whose pickup time falls in [startTime, endTime) consume the slot's capacity.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PickupSlotRequest
+{
+
+    @NotBlank(message = "Canteen ID cannot be empty")
+    private String canteenId;
+
+    @NotNull(message = "Slot date cannot be null")
+    private LocalDate slotDate;
+
+    @NotNull(message = "Start time cannot be null")
+    private LocalTime startTime;
+
+    @NotNull(message = "End time cannot be null")
+    private LocalTime endTime;
+
+    @NotNull(message = "Capacity cannot be null")
+    @Min(value = 0, message = "Capacity cannot be negative")
+    private Integer capacity;
+}
@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.util.Map;
 
 /**
  * DTO for Room information.
@@ -23,4 +24,5 @@ public class RoomDto
     private String description;
     private String imageUrl;
     private BigDecimal baseFee;
+    private Map<String, String> imageVariants; // Resized variant URLs keyed by name (large, medium, thumb); generated asynchronously
 }
@@ -0,0 +1,26 @@
+package com.harukite.canteen.dto;
+
+import com.harukite.canteen.model.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * DTO for order counts by status and revenue over a date range.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesSummaryDto
+{
+    private String canteenId; // Null when the summary covers all canteens
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    private Map<OrderStatus, Long> orderCounts;
+    private BigDecimal bookedAmount; // Total of all orders except cancelled ones
+    private BigDecimal completedAmount; // Total of completed orders
+}
@@ -0,0 +1,24 @@
+package com.harukite.canteen.dto;
+
+import com.harukite.canteen.service.StorageGcService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO summarising one run of the orphaned object garbage collector.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageGcReport
+{
+    private StorageGcService.Mode mode;
+    private long referencedKeys; // size of the mark set
+    private long scannedObjects;
+    private long orphanedObjects; // unreferenced and older than the grace period
+    private long orphanedBytes;
+    private long deletedObjects;
+    private long failedObjects;
+    private long durationMillis;
+}
@@ -0,0 +1,18 @@
+package com.harukite.canteen.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for the result of storing an uploaded file.
+ * {@code deduplicated} is true when identical content was already stored and no write happened.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredFile
+{
+    private String url;
+    private boolean deduplicated;
+}
@@ -1,6 +1,7 @@
 package com.harukite.canteen.exception;
 
 import lombok.Getter;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.AuthenticationException;
@@ -9,6 +10,7 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
@@ -21,6 +23,11 @@ import java.util.Map;
 public class GlobalExceptionHandler
 {
 
+    /**
+     * PostgreSQL 排他约束冲突的 SQLState。
+     */
+    private static final String EXCLUSION_VIOLATION = "23P01";
+
     /**
      * 处理 ResourceNotFoundException 异常。
      * 映射到 HTTP 404 Not Found。
@@ -61,6 +68,51 @@ public class GlobalExceptionHandler
         return new ResponseEntity<>(errorDetails, HttpStatus.CONFLICT);
     }
 
+    /**
+     * 处理 OperationInProgressException 异常。
+     * 映射到 HTTP 409 Conflict。
+     *
+     * @param ex      OperationInProgressException 实例
+     * @param request WebRequest 实例
+     * @return 包含错误详情的 ResponseEntity
+     */
+    @ExceptionHandler(OperationInProgressException.class)
+    public ResponseEntity<ErrorDetails> handleOperationInProgressException(OperationInProgressException ex, WebRequest request)
+    {
+        ErrorDetails errorDetails = new ErrorDetails(
+                LocalDateTime.now(),
+                ex.getMessage(),
+                request.getDescription(false),
+                HttpStatus.CONFLICT.value() // 返回 409 Conflict
+        );
+        return new ResponseEntity<>(errorDetails, HttpStatus.CONFLICT);
+    }
+
+    /**
+     * 处理数据库完整性约束异常。
+     * 排他约束冲突（SQLState 23P01，例如同一食堂的菜谱时间窗口重叠）按 DuplicateEntryException 处理，映射到 HTTP 409 Conflict；
+     * 其它完整性约束异常仍按未捕获异常处理。
+     *
+     * @param ex      DataIntegrityViolationException 实例
+     * @param request WebRequest 实例
+     * @return 包含错误详情的 ResponseEntity
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<ErrorDetails> handleDataIntegrityViolationException(DataIntegrityViolationException ex, WebRequest request)
+    {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause())
+        {
+            if (cause instanceof SQLException sqlException && EXCLUSION_VIOLATION.equals(sqlException.getSQLState()))
+            {
+                String message = String.valueOf(sqlException.getMessage()).contains("daily_menus_no_overlap")
+                        ? "The menu time window overlaps an existing menu of the same canteen."
+                        : "The entry conflicts with an existing entry.";
+                return handleDuplicateEntryException(new DuplicateEntryException(message), request);
+            }
+        }
+        return handleGlobalException(ex, request);
+    }
+
     /**
      * 处理 InvalidInputException 异常。
      * 映射到 HTTP 400 Bad Request。
@@ -0,0 +1,19 @@
+package com.harukite.canteen.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 自定义异常：操作正在进行中。
+ * 当同一操作已有一次正在执行、本次请求不能并发执行时抛出（如存储回收正在运行）。
+ * 映射到 HTTP 409 Conflict 状态码，客户端可稍后重试。
+ */
+@ResponseStatus(HttpStatus.CONFLICT) // 映射到 HTTP 409
+public class OperationInProgressException extends RuntimeException
+{
+
+    public OperationInProgressException(String message)
+    {
+        super(message);
+    }
+}
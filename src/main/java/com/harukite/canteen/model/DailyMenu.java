@@ -15,11 +15,10 @@ import java.util.UUID;
 
 /**
  * 每日菜谱实体类，对应数据库中的 'daily_menus' 表。
+ * 同一食堂的供应时间窗口不允许重叠，由数据库排他约束 daily_menus_no_overlap 保证。
  */
 @Entity
-@Table(name = "daily_menus", uniqueConstraints = {
-        @UniqueConstraint(columnNames = {"canteen_id", "menu_date", "start_time", "end_time"})
-})
+@Table(name = "daily_menus")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
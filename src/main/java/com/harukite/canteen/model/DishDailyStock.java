@@ -0,0 +1,73 @@
+package com.harukite.canteen.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 菜品每日库存实体类，对应数据库中的 'dish_daily_stock' 表。
+ * 所有写入都通过仓库中的原生语句完成（upsert、条件扣减、归还），实体仅用于查询。
+ */
+@Entity
+@Table(name = "dish_daily_stock")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DishDailyStock
+{
+
+    /**
+     * 记录唯一ID，作为主键。
+     */
+    @Id
+    @Column(name = "stock_id", nullable = false, updatable = false)
+    private String stockId;
+
+    /**
+     * 菜品。多对一关系。
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "dish_id", nullable = false)
+    private Dish dish;
+
+    /**
+     * 菜品所属食堂。多对一关系。
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "canteen_id", nullable = false)
+    private Canteen canteen;
+
+    /**
+     * 日期。
+     */
+    @Column(name = "stock_date", nullable = false)
+    private LocalDate stockDate;
+
+    /**
+     * 当日供应总份数。
+     */
+    @Column(name = "total_quantity", nullable = false)
+    private Integer totalQuantity;
+
+    /**
+     * 剩余可预订份数。
+     */
+    @Column(name = "remaining_quantity", nullable = false)
+    private Integer remainingQuantity;
+
+    /**
+     * 是否因售罄自动将菜品置为不可用。
+     */
+    @Column(name = "sold_out", nullable = false)
+    private Boolean soldOut = false;
+
+    /**
+     * 最近更新时间。
+     */
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,90 @@
+package com.harukite.canteen.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 菜品评分聚合实体类，对应数据库中的 'dish_rating_stats' 表。
+ * 由评价的增删改增量维护，避免每次展示菜品时加载全部评价再求平均。
+ */
+@Entity
+@Table(name = "dish_rating_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DishRatingStats
+{
+
+    /**
+     * 菜品ID，作为主键（与 dishes 表一对一）。
+     */
+    @Id
+    @Column(name = "dish_id", nullable = false, updatable = false)
+    private String dishId;
+
+    /**
+     * 评分条数。
+     */
+    @Column(name = "rating_count", nullable = false)
+    private Long ratingCount = 0L;
+
+    /**
+     * 评分总和。
+     */
+    @Column(name = "rating_sum", nullable = false)
+    private Long ratingSum = 0L;
+
+    /**
+     * 1 星评分条数。
+     */
+    @Column(name = "star_1_count", nullable = false)
+    private Long star1Count = 0L;
+
+    /**
+     * 2 星评分条数。
+     */
+    @Column(name = "star_2_count", nullable = false)
+    private Long star2Count = 0L;
+
+    /**
+     * 3 星评分条数。
+     */
+    @Column(name = "star_3_count", nullable = false)
+    private Long star3Count = 0L;
+
+    /**
+     * 4 星评分条数。
+     */
+    @Column(name = "star_4_count", nullable = false)
+    private Long star4Count = 0L;
+
+    /**
+     * 5 星评分条数。
+     */
+    @Column(name = "star_5_count", nullable = false)
+    private Long star5Count = 0L;
+
+    /**
+     * 最近一次更新时间。
+     */
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    /**
+     * 计算平均评分，没有评分时返回 0.0。
+     *
+     * @return 平均评分
+     */
+    public double getAverageRating()
+    {
+        if (ratingCount == null || ratingCount <= 0)
+        {
+            return 0.0;
+        }
+        return ratingSum.doubleValue() / ratingCount;
+    }
+}
@@ -0,0 +1,68 @@
+package com.harukite.canteen.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 菜品每日销售汇总实体类，对应数据库中的 'dish_sales_daily_rollups' 表。
+ * 只统计未取消订单；所有写入都通过仓库中的原生语句完成，实体仅用于映射表结构。
+ */
+@Entity
+@Table(name = "dish_sales_daily_rollups")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DishSalesDailyRollup
+{
+
+    /**
+     * 记录唯一ID，作为主键。
+     */
+    @Id
+    @Column(name = "rollup_id", nullable = false, updatable = false)
+    private String rollupId;
+
+    /**
+     * 食堂。多对一关系。
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "canteen_id", nullable = false)
+    private Canteen canteen;
+
+    /**
+     * 菜品。多对一关系。
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "dish_id", nullable = false)
+    private Dish dish;
+
+    /**
+     * 销售日期（订单的预订日期）。
+     */
+    @Column(name = "sales_date", nullable = false)
+    private LocalDate salesDate;
+
+    /**
+     * 售出份数。
+     */
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    /**
+     * 销售金额。
+     */
+    @Column(name = "total_amount", nullable = false, precision = 12, scale = 2)
+    private BigDecimal totalAmount;
+
+    /**
+     * 最近更新时间。
+     */
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,105 @@
+package com.harukite.canteen.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * 幂等键记录实体类，对应数据库中的 'Idempotency_Keys' 表。
+ * 记录某个用户在某个接口上使用过的 Idempotency-Key 及其首次执行的结果，重放请求直接返回该结果。
+ */
+@Entity
+@Table(name = "Idempotency_Keys",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"scope", "user_id", "idempotency_key"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord
+{
+
+    /**
+     * 状态：正在执行。
+     */
+    public static final String STATUS_IN_PROGRESS = "IN_PROGRESS";
+
+    /**
+     * 状态：已完成，response_body 中保存了结果。
+     */
+    public static final String STATUS_COMPLETED = "COMPLETED";
+
+    /**
+     * 记录唯一ID，作为主键。
+     * 在持久化前自动生成 UUID。
+     */
+    @Id
+    @Column(name = "idempotency_id", nullable = false, updatable = false)
+    private String idempotencyId;
+
+    /**
+     * 接口范围，例如 'order.create'。
+     */
+    @Column(name = "scope", nullable = false, length = 64)
+    private String scope;
+
+    /**
+     * 发起请求的用户ID。
+     */
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    /**
+     * 客户端提供的 Idempotency-Key。
+     */
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    /**
+     * 请求体的 SHA-256 摘要，用于拒绝以同一个键提交不同内容的请求。
+     */
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    /**
+     * 状态：IN_PROGRESS 或 COMPLETED。
+     */
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+
+    /**
+     * 首次执行结果的 JSON，仅在 COMPLETED 时有值。
+     */
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    /**
+     * 记录创建时间。
+     */
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * 过期时间：IN_PROGRESS 时为执行租约的到期时间，COMPLETED 时为结果保留的截止时间。
+     */
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    /**
+     * 在实体持久化前，自动生成 UUID 并设置创建时间。
+     */
+    @PrePersist
+    protected void onCreate()
+    {
+        if (this.idempotencyId == null)
+        {
+            this.idempotencyId = UUID.randomUUID().toString();
+        }
+        if (this.createdAt == null)
+        {
+            this.createdAt = LocalDateTime.now();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.harukite.canteen.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * 后厨备餐计数实体类，对应数据库中的 'kitchen_prep_counts' 表。
+ * 每行是某食堂某日某取餐时段某菜品需要准备的份数，随订单和宴会预订的状态变化增量维护；
+ * 所有写入都通过仓库中的原生语句完成，实体仅用于查询。
+ */
+@Entity
+@Table(name = "kitchen_prep_counts")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KitchenPrepCount
+{
+
+    /**
+     * 记录唯一ID，作为主键。
+     */
+    @Id
+    @Column(name = "prep_count_id", nullable = false, updatable = false)
+    private String prepCountId;
+
+    /**
+     * 食堂。多对一关系。
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "canteen_id", nullable = false)
+    private Canteen canteen;
+
+    /**
+     * 备餐日期（订单的预订日期或宴会日期）。
+     */
+    @Column(name = "prep_date", nullable = false)
+    private LocalDate prepDate;
+
+    /**
+     * 时段开始时间：订单为所属取餐时段的开始时间（未配置时段时为取餐时间），宴会为开始时间。
+     */
+    @Column(name = "slot_start", nullable = false)
+    private LocalTime slotStart;
+
+    /**
+     * 菜品。多对一关系。
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "dish_id", nullable = false)
+    private Dish dish;
+
+    /**
+     * 来自普通订单的份数。
+     */
+    @Column(name = "order_quantity", nullable = false)
+    private Integer orderQuantity;
+
+    /**
+     * 来自已确认宴会预订（定制菜品及套餐菜品）的份数。
+     */
+    @Column(name = "banquet_quantity", nullable = false)
+    private Integer banquetQuantity;
+
+    /**
+     * 最近更新时间。
+     */
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
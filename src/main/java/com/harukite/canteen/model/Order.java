@@ -5,6 +5,7 @@ import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.PartitionKey;
 import org.hibernate.type.SqlTypes;
 
 import java.math.BigDecimal;
@@ -17,6 +18,9 @@ import java.util.UUID;
 
 /**
  * 餐品预订实体类，对应数据库中的 'orders' 表。
+ * 该表按 order_date 按月分区，数据库主键为 (order_id, order_date)；order_id 是 UUID，单独即可唯一标识订单。
+ * 分区键 orderDate 创建后不可修改，并标注为 {@link PartitionKey}，Hibernate 生成的 UPDATE/DELETE 会带上它，只命中一个分区。
+ * 数据库层面没有单独对 order_id 的唯一约束，其唯一性由 UUID 生成保证。
  */
 @Entity
 @Table(name = "orders")
@@ -49,9 +53,10 @@ public class Order
     private Canteen canteen;
 
     /**
-     * 预订日期。
+     * 预订日期，也是分区键。
      */
-    @Column(name = "order_date", nullable = false)
+    @PartitionKey
+    @Column(name = "order_date", nullable = false, updatable = false)
     private LocalDate orderDate;
 
     /**
@@ -60,6 +65,12 @@ public class Order
     @Column(name = "pickup_time", nullable = false)
     private LocalTime pickupTime;
 
+    /**
+     * 预占容量的取餐时段ID，下单时该时段未配置容量则为空。
+     */
+    @Column(name = "pickup_slot_id")
+    private String pickupSlotId;
+
     /**
      * 订单总金额。
      */
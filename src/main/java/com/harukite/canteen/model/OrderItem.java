@@ -3,12 +3,15 @@ package com.harukite.canteen.model;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.PartitionKey;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.UUID;
 
 /**
  * 订单详情实体类，对应数据库中的 'order_items' 表。
+ * 该表与 orders 一样按 order_date 按月分区，order_date 冗余自所属订单，在持久化前自动填充。
  */
 @Entity
 @Table(name = "order_items")
@@ -35,6 +38,13 @@ public class OrderItem
     @ToString.Exclude
     private Order order;
 
+    /**
+     * 所属订单的预订日期（分区键），持久化后不可修改。
+     */
+    @PartitionKey
+    @Column(name = "order_date", nullable = false, updatable = false)
+    private LocalDate orderDate;
+
     /**
      * 订单中的菜品。多对一关系。
      */
@@ -55,7 +65,13 @@ public class OrderItem
     private BigDecimal subtotal;
 
     /**
-     * 在实体持久化前，自动为 orderItemId 生成一个 UUID。
+     * 下单时是否扣减了当日库存。下单时该菜品没有库存设置（不限量）则为 false，取消时不归还。
+     */
+    @Column(name = "stock_reserved", nullable = false)
+    private Boolean stockReserved = false;
+
+    /**
+     * 在实体持久化前，自动为 orderItemId 生成一个 UUID，并从所属订单复制分区键 orderDate。
      */
     @PrePersist
     protected void onCreate()
@@ -64,5 +80,9 @@ public class OrderItem
         {
             this.orderItemId = UUID.randomUUID().toString();
         }
+        if (this.orderDate == null && this.order != null)
+        {
+            this.orderDate = this.order.getOrderDate();
+        }
     }
 }
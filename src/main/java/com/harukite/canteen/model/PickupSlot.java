@@ -0,0 +1,88 @@
+package com.harukite.canteen.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * 取餐时段实体类，对应数据库中的 'pickup_slots' 表。
+ * 取餐时间落在 [startTime, endTime) 内的订单占用该时段的容量；
+ * reserved 只通过条件 UPDATE 原子增减，不经由实体修改。
+ */
+@Entity
+@Table(name = "pickup_slots")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PickupSlot
+{
+
+    /**
+     * 时段唯一ID，作为主键。
+     * 在持久化前自动生成 UUID。
+     */
+    @Id
+    @Column(name = "slot_id", nullable = false, updatable = false)
+    private String slotId;
+
+    /**
+     * 所属食堂。多对一关系。
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "canteen_id", nullable = false)
+    private Canteen canteen;
+
+    /**
+     * 日期。
+     */
+    @Column(name = "slot_date", nullable = false)
+    private LocalDate slotDate;
+
+    /**
+     * 开始时间（含）。
+     */
+    @Column(name = "start_time", nullable = false)
+    private LocalTime startTime;
+
+    /**
+     * 结束时间（不含）。
+     */
+    @Column(name = "end_time", nullable = false)
+    private LocalTime endTime;
+
+    /**
+     * 可接受的订单数。
+     */
+    @Column(name = "capacity", nullable = false)
+    private Integer capacity;
+
+    /**
+     * 已预占的订单数。由仓库中的条件 UPDATE 维护，实体保存时不写回。
+     */
+    @Column(name = "reserved", nullable = false, insertable = false, updatable = false)
+    private Integer reserved = 0;
+
+    /**
+     * 已预占数最近一次变更的时间。与 reserved 一同由条件 UPDATE 维护。
+     */
+    @Column(name = "reserved_updated_at", nullable = false, insertable = false, updatable = false)
+    private LocalDateTime reservedUpdatedAt;
+
+    /**
+     * 在实体持久化前，自动为 slotId 生成一个 UUID。
+     */
+    @PrePersist
+    protected void onCreate()
+    {
+        if (this.slotId == null)
+        {
+            this.slotId = UUID.randomUUID().toString();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.harukite.canteen.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 食堂每日销售汇总实体类，对应数据库中的 'sales_daily_rollups' 表。
+ * 同一 (食堂, 日期) 拆分为若干个分桶行，下单时随机写入其中一行以分散热点行锁，查询时按桶求和；
+ * 所有写入都通过仓库中的原生语句完成，实体仅用于映射表结构。
+ */
+@Entity
+@Table(name = "sales_daily_rollups")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesDailyRollup
+{
+
+    /**
+     * 记录唯一ID，作为主键。
+     */
+    @Id
+    @Column(name = "rollup_id", nullable = false, updatable = false)
+    private String rollupId;
+
+    /**
+     * 食堂。多对一关系。
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "canteen_id", nullable = false)
+    private Canteen canteen;
+
+    /**
+     * 销售日期（订单的预订日期）。
+     */
+    @Column(name = "sales_date", nullable = false)
+    private LocalDate salesDate;
+
+    /**
+     * 分桶编号。
+     */
+    @Column(name = "bucket", nullable = false)
+    private Short bucket;
+
+    /**
+     * 待处理订单数。
+     */
+    @Column(name = "pending_count", nullable = false)
+    private Integer pendingCount;
+
+    /**
+     * 已确认订单数。
+     */
+    @Column(name = "confirmed_count", nullable = false)
+    private Integer confirmedCount;
+
+    /**
+     * 已完成订单数。
+     */
+    @Column(name = "completed_count", nullable = false)
+    private Integer completedCount;
+
+    /**
+     * 已取消订单数。
+     */
+    @Column(name = "cancelled_count", nullable = false)
+    private Integer cancelledCount;
+
+    /**
+     * 未取消订单的总金额。
+     */
+    @Column(name = "booked_amount", nullable = false, precision = 12, scale = 2)
+    private BigDecimal bookedAmount;
+
+    /**
+     * 已完成订单的总金额。
+     */
+    @Column(name = "completed_amount", nullable = false, precision = 12, scale = 2)
+    private BigDecimal completedAmount;
+
+    /**
+     * 最近更新时间。
+     */
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,78 @@
+package com.harukite.canteen.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * 对象存储删除任务实体类，对应数据库中的 'storage_outbox' 表。
+ * 业务事务内只写入一行待删除记录，实际删除由后台任务在事务之外批量执行。
+ */
+@Entity
+@Table(name = "storage_outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageOutboxEntry
+{
+
+    /**
+     * 记录唯一ID，作为主键。
+     * 在持久化前自动生成 UUID。
+     */
+    @Id
+    @Column(name = "outbox_id", nullable = false, updatable = false)
+    private String outboxId;
+
+    /**
+     * 待删除对象的完整 URL。
+     */
+    @Column(name = "object_url", nullable = false, length = 1024)
+    private String objectUrl;
+
+    /**
+     * 已尝试删除的次数。
+     */
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    /**
+     * 下一次允许尝试的时间，认领和失败退避都通过推后该时间实现。
+     */
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    /**
+     * 最近一次失败的错误信息。
+     */
+    @Column(name = "last_error", length = 1024)
+    private String lastError;
+
+    /**
+     * 记录创建时间。
+     */
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * 在实体持久化前，自动生成 UUID 并设置首次尝试时间。
+     */
+    @PrePersist
+    protected void onCreate()
+    {
+        if (this.outboxId == null)
+        {
+            this.outboxId = UUID.randomUUID().toString();
+        }
+        if (this.nextAttemptAt == null)
+        {
+            this.nextAttemptAt = LocalDateTime.now();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.harukite.canteen.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 按内容寻址的存储对象实体类，对应数据库中的 'stored_objects' 表。
+ * 对象 key 由内容的 SHA-256 决定，相同内容只存一份；ref_count 记录引用该对象的实体数，
+ * 归零且超过宽限期后由后台任务删除实际对象。
+ */
+@Entity
+@Table(name = "stored_objects")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredObject
+{
+
+    /**
+     * 内容的 SHA-256（十六进制），作为主键。
+     */
+    @Id
+    @Column(name = "content_hash", nullable = false, updatable = false, length = 64)
+    private String contentHash;
+
+    /**
+     * 对象存储中的 key。
+     */
+    @Column(name = "object_key", nullable = false, unique = true, length = 512)
+    private String objectKey;
+
+    /**
+     * 对象大小（字节）。
+     */
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    /**
+     * 内容类型。
+     */
+    @Column(name = "content_type")
+    private String contentType;
+
+    /**
+     * 引用计数。
+     */
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount = 0;
+
+    /**
+     * 对象是否已成功写入对象存储。
+     */
+    @Column(name = "uploaded", nullable = false)
+    private Boolean uploaded = false;
+
+    /**
+     * 是否已被清理任务认领、正在从对象存储中删除。认领期间上传不会复用或重新写入该对象。
+     */
+    @Column(name = "deleting", nullable = false)
+    private Boolean deleting = false;
+
+    /**
+     * 记录创建时间。
+     */
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * 最近一次上传命中或引用计数变化的时间，用于删除前的宽限期判断。
+     */
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -23,6 +24,15 @@ public interface BanquetReservationRepository extends JpaRepository<BanquetReser
      */
     List<BanquetReservation> findByUser(User user);
 
+    /**
+     * 判断宴会预订是否属于指定用户（按主键索引查找）。
+     *
+     * @param banquetId 宴会预订ID
+     * @param userId    用户ID
+     * @return 属于该用户时返回 true
+     */
+    boolean existsByBanquetIdAndUser_UserId(String banquetId, String userId);
+
     /**
      * 根据包厢和日期查找宴会预订列表。
      * 用于检查包厢可用性。
@@ -40,4 +50,16 @@ public interface BanquetReservationRepository extends JpaRepository<BanquetReser
      * @return 宴会预订列表
      */
     List<BanquetReservation> findByCanteen(Canteen canteen);
-}
\ No newline at end of file
+
+    /**
+     * 查找选用了指定套餐、处于给定状态且宴会日期不早于 from 的宴会预订。
+     * 用于套餐菜品变更后定位需要重建备餐计数的食堂和日期。
+     *
+     * @param packageId 套餐ID
+     * @param statuses  预订状态集合
+     * @param from      起始日期（含）
+     * @return 宴会预订列表
+     */
+    List<BanquetReservation> findDistinctBySelectedPackages_PackageIdAndStatusInAndEventDateGreaterThanEqual(
+            String packageId, Collection<BanquetStatus> statuses, LocalDate from);
+}
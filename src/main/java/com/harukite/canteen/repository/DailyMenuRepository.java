@@ -3,12 +3,13 @@ package com.harukite.canteen.repository;
 import com.harukite.canteen.model.Canteen;
 import com.harukite.canteen.model.DailyMenu;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
-import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * 每日菜谱数据访问接口。
@@ -28,15 +29,53 @@ public interface DailyMenuRepository extends JpaRepository<DailyMenu, String>
     List<DailyMenu> findByCanteenAndMenuDate(Canteen canteen, LocalDate menuDate);
 
     /**
-     * 根据食堂、日期、开始时间和结束时间查找每日菜谱。
-     * 用于确保特定时间段内菜谱的唯一性。
+     * 查找日期在指定范围内（含两端）的所有每日菜谱。
      *
-     * @param canteen   食堂实体
-     * @param menuDate  菜谱日期
-     * @param startTime 菜谱开始时间
-     * @param endTime   菜谱结束时间
-     * @return 包含每日菜谱的 Optional 对象，如果未找到则为空
+     * @param from 起始日期
+     * @param to   结束日期
+     * @return 每日菜谱列表
+     */
+    List<DailyMenu> findByMenuDateBetween(LocalDate from, LocalDate to);
+
+    /**
+     * 查询指定食堂在日期范围内已占用的时间段，用于批量发布前的一次性冲突检查。
+     *
+     * @param canteenIds 食堂ID集合
+     * @param from       起始日期（含）
+     * @param to         结束日期（含）
+     * @return 每行依次为 canteenId, menuDate, startTime, endTime
+     */
+    @Query("""
+            SELECT m.canteen.canteenId, m.menuDate, m.startTime, m.endTime
+            FROM DailyMenu m
+            WHERE m.canteen.canteenId IN :canteenIds AND m.menuDate BETWEEN :from AND :to
+            """)
+    List<Object[]> findSlotsInRange(@Param("canteenIds") Collection<String> canteenIds,
+                                    @Param("from") LocalDate from,
+                                    @Param("to") LocalDate to);
+
+    /**
+     * 查询日期范围内的菜谱基本信息（不加载菜品），用于复制菜谱。
+     *
+     * @param from 起始日期（含）
+     * @param to   结束日期（含）
+     * @return 每行依次为 menuId, canteenId, menuDate, startTime, endTime
+     */
+    @Query("""
+            SELECT m.menuId, m.canteen.canteenId, m.menuDate, m.startTime, m.endTime
+            FROM DailyMenu m
+            WHERE m.menuDate BETWEEN :from AND :to
+            ORDER BY m.menuDate, m.canteen.canteenId, m.startTime
+            """)
+    List<Object[]> findMenuRowsInRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * 查询一批菜谱包含的菜品ID。
+     *
+     * @param menuIds 菜谱ID集合
+     * @return 每行依次为 menuId, dishId
      */
-    Optional<DailyMenu> findByCanteenAndMenuDateAndStartTimeAndEndTime(Canteen canteen, LocalDate menuDate, LocalTime startTime, LocalTime endTime);
+    @Query("SELECT m.menuId, d.dishId FROM DailyMenu m JOIN m.dishes d WHERE m.menuId IN :menuIds")
+    List<Object[]> findMenuDishPairs(@Param("menuIds") Collection<String> menuIds);
 
 }
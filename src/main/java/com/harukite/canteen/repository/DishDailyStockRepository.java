@@ -0,0 +1,53 @@
+package com.harukite.canteen.repository;
+
+import com.harukite.canteen.model.DishDailyStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 菜品每日库存数据访问接口。
+ * 扣减与归还都是单条带条件的 UPDATE，行锁只持有一条语句的时间；带 RETURNING 的写操作见 {@link DishDailyStockUpdateRepository}。
+ */
+@Repository
+public interface DishDailyStockRepository extends JpaRepository<DishDailyStock, String>, DishDailyStockUpdateRepository
+{
+
+    /**
+     * 设置售罄标记。
+     *
+     * @return 更新的行数
+     */
+    @Modifying
+    @Query(value = "UPDATE dish_daily_stock SET sold_out = :soldOut WHERE dish_id = :dishId AND stock_date = :stockDate AND sold_out <> :soldOut", nativeQuery = true)
+    int updateSoldOut(@Param("dishId") String dishId,
+                      @Param("stockDate") LocalDate stockDate,
+                      @Param("soldOut") boolean soldOut);
+
+    /**
+     * 获取菜品某日的库存行。
+     */
+    Optional<DishDailyStock> findByDish_DishIdAndStockDate(String dishId, LocalDate stockDate);
+
+    /**
+     * 获取食堂某日的全部库存行（连同菜品），按菜品名称排序。
+     */
+    @Query("""
+            SELECT s FROM DishDailyStock s JOIN FETCH s.dish d
+            WHERE s.canteen.canteenId = :canteenId AND s.stockDate = :stockDate
+            ORDER BY d.name
+            """)
+    List<DishDailyStock> findByCanteenAndDate(@Param("canteenId") String canteenId, @Param("stockDate") LocalDate stockDate);
+
+    /**
+     * 获取指定日期已售罄的菜品ID。
+     */
+    @Query(value = "SELECT dish_id FROM dish_daily_stock WHERE stock_date = :today AND sold_out", nativeQuery = true)
+    List<String> findSoldOutDishIds(@Param("today") LocalDate today);
+}
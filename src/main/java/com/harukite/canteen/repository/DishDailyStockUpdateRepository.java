@@ -0,0 +1,67 @@
+package com.harukite.canteen.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 菜品每日库存的写操作数据访问接口，由 {@link DishDailyStockRepository} 继承。
+ * 每个操作都是单条 INSERT/UPDATE/DELETE ... RETURNING 语句，一次往返同时完成修改并取回结果。
+ */
+public interface DishDailyStockUpdateRepository
+{
+
+    /**
+     * 在剩余份数足够时扣减库存，一次往返同时返回扣减前后的剩余份数。
+     * 结果恰好一行 [remainingAfter, remainingBefore]：
+     * remainingAfter 非空表示扣减成功；两者都为空表示该菜品当日没有库存行（不限量）；
+     * 只有 remainingBefore 非空表示库存不足。
+     */
+    List<Object[]> tryDecrement(String dishId, LocalDate stockDate, int quantity);
+
+    /**
+     * 归还库存，不超过当日总份数。
+     *
+     * @return 该行的售罄标记（本语句不修改它）；没有库存行时为空
+     */
+    List<Boolean> restore(String dishId, LocalDate stockDate, int quantity);
+
+    /**
+     * 设置当日总份数，已售出的份数保持不变：剩余 = max(新总数 - 已售出, 0)。
+     * 已有库存行时已售出 = 总数 - 剩余；新建库存行时，已售出为当日该菜品未取消订单的份数，
+     * 这些订单项同时标记为已扣减库存，取消时归还。
+     *
+     * @return 设置后的剩余份数
+     */
+    Integer upsertStock(String stockId, String dishId, String canteenId, LocalDate stockDate, int quantity);
+
+    /**
+     * 删除菜品某日的库存行，使其恢复不限量。
+     *
+     * @return 删除前的售罄标记；没有库存行时为空
+     */
+    List<Boolean> deleteStock(String dishId, LocalDate stockDate);
+
+    /**
+     * 清除早于指定日期的售罄标记。
+     *
+     * @return 被清除标记的菜品ID
+     */
+    List<String> clearSoldOutBefore(LocalDate today);
+
+    /**
+     * 为指定日期剩余为 0 且尚未标记的库存行设置售罄标记（提前为未来日期下单售完的菜品）。
+     *
+     * @return 被标记的菜品ID
+     */
+    List<String> markSoldOutOn(LocalDate today);
+
+    /**
+     * 把 fromDate 及以后、自 quietSince 起没有变更过的库存行的剩余份数上调为
+     * 总份数减去未取消且已扣减库存的订单项份数。只归还多扣的库存，不会调低剩余份数。
+     * 正在下单的请求会刷新 updated_at，因此其预占不会被当作泄漏。
+     *
+     * @return 每行为 [dishId, stockDate, soldOut]，soldOut 为该行的售罄标记（本语句不修改它）
+     */
+    List<Object[]> reconcileRemaining(LocalDate fromDate, LocalDateTime quietSince);
+}
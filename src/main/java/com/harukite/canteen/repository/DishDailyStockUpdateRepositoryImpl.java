@@ -0,0 +1,185 @@
+package com.harukite.canteen.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 菜品每日库存写操作的实现。
+ * 带 RETURNING 的语句要取回结果集，不能声明为 @Modifying（Spring Data 的修改查询只能返回影响行数），
+ * 因此在这里按修改查询的语义执行：方法在读写事务中运行，执行前先 flush 持久化上下文。
+ * 不清空持久化上下文，调用方在同一事务中持有的订单等实体不受影响；
+ * 库存行只通过这些语句修改，调用方在语句之后重新查询库存行即可读到最新值。
+ */
+class DishDailyStockUpdateRepositoryImpl implements DishDailyStockUpdateRepository
+{
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public List<Object[]> tryDecrement(String dishId, LocalDate stockDate, int quantity)
+    {
+        return modifying("""
+                WITH current_stock AS (
+                    SELECT remaining_quantity FROM dish_daily_stock
+                    WHERE dish_id = :dishId AND stock_date = :stockDate
+                ), decremented AS (
+                    UPDATE dish_daily_stock
+                    SET remaining_quantity = remaining_quantity - :quantity, updated_at = now()
+                    WHERE dish_id = :dishId AND stock_date = :stockDate AND remaining_quantity >= :quantity
+                    RETURNING remaining_quantity
+                )
+                SELECT (SELECT remaining_quantity FROM decremented), (SELECT remaining_quantity FROM current_stock)
+                """)
+                .setParameter("dishId", dishId)
+                .setParameter("stockDate", stockDate)
+                .setParameter("quantity", quantity)
+                .getResultList();
+    }
+
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public List<Boolean> restore(String dishId, LocalDate stockDate, int quantity)
+    {
+        return modifying("""
+                UPDATE dish_daily_stock
+                SET remaining_quantity = LEAST(remaining_quantity + :quantity, total_quantity), updated_at = now()
+                WHERE dish_id = :dishId AND stock_date = :stockDate
+                RETURNING sold_out
+                """)
+                .setParameter("dishId", dishId)
+                .setParameter("stockDate", stockDate)
+                .setParameter("quantity", quantity)
+                .getResultList();
+    }
+
+    @Override
+    @Transactional
+    public Integer upsertStock(String stockId, String dishId, String canteenId, LocalDate stockDate, int quantity)
+    {
+        // 新建库存行时，此前不限量期间已下的订单没有扣减库存，按其份数计入已售出
+        Object[] result = (Object[]) modifying("""
+                WITH sold AS (
+                    SELECT COALESCE(SUM(oi.quantity), 0) AS quantity
+                    FROM order_items oi
+                    JOIN orders o ON o.order_id = oi.order_id AND o.order_date = oi.order_date
+                    WHERE oi.dish_id = :dishId AND oi.order_date = :stockDate AND o.status <> 'CANCELLED'
+                )
+                INSERT INTO dish_daily_stock (stock_id, dish_id, canteen_id, stock_date, total_quantity, remaining_quantity, sold_out, updated_at)
+                VALUES (:stockId, :dishId, :canteenId, :stockDate, :quantity,
+                        GREATEST(:quantity - (SELECT quantity FROM sold), 0), FALSE, now())
+                ON CONFLICT (dish_id, stock_date) DO UPDATE
+                SET remaining_quantity = GREATEST(EXCLUDED.total_quantity
+                            - (dish_daily_stock.total_quantity - dish_daily_stock.remaining_quantity), 0),
+                    total_quantity = EXCLUDED.total_quantity,
+                    updated_at = now()
+                RETURNING remaining_quantity, (xmax = 0) AS inserted
+                """)
+                .setParameter("stockId", stockId)
+                .setParameter("dishId", dishId)
+                .setParameter("canteenId", canteenId)
+                .setParameter("stockDate", stockDate)
+                .setParameter("quantity", quantity)
+                .getSingleResult();
+        if (Boolean.TRUE.equals(result[1]))
+        {
+            // 计入已售出的订单项从此视为已扣减库存，取消时归还
+            entityManager.createNativeQuery("""
+                            UPDATE order_items oi SET stock_reserved = TRUE
+                            FROM orders o
+                            WHERE o.order_id = oi.order_id AND o.order_date = oi.order_date
+                              AND oi.dish_id = :dishId AND oi.order_date = :stockDate
+                              AND NOT oi.stock_reserved AND o.status <> 'CANCELLED'
+                            """)
+                    .setParameter("dishId", dishId)
+                    .setParameter("stockDate", stockDate)
+                    .executeUpdate();
+        }
+        return ((Number) result[0]).intValue();
+    }
+
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public List<Boolean> deleteStock(String dishId, LocalDate stockDate)
+    {
+        return modifying("DELETE FROM dish_daily_stock WHERE dish_id = :dishId AND stock_date = :stockDate RETURNING sold_out")
+                .setParameter("dishId", dishId)
+                .setParameter("stockDate", stockDate)
+                .getResultList();
+    }
+
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public List<String> clearSoldOutBefore(LocalDate today)
+    {
+        return modifying("""
+                UPDATE dish_daily_stock SET sold_out = FALSE
+                WHERE sold_out AND stock_date < :today
+                RETURNING dish_id
+                """)
+                .setParameter("today", today)
+                .getResultList();
+    }
+
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public List<String> markSoldOutOn(LocalDate today)
+    {
+        return modifying("""
+                UPDATE dish_daily_stock SET sold_out = TRUE
+                WHERE stock_date = :today AND remaining_quantity = 0 AND NOT sold_out
+                RETURNING dish_id
+                """)
+                .setParameter("today", today)
+                .getResultList();
+    }
+
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public List<Object[]> reconcileRemaining(LocalDate fromDate, LocalDateTime quietSince)
+    {
+        return modifying("""
+                WITH reserved AS (
+                    SELECT st.stock_id,
+                           (SELECT COALESCE(SUM(oi.quantity), 0)
+                            FROM order_items oi
+                            JOIN orders o ON o.order_id = oi.order_id AND o.order_date = oi.order_date
+                            WHERE oi.dish_id = st.dish_id AND oi.order_date = st.stock_date
+                              AND oi.stock_reserved AND o.status <> 'CANCELLED') AS quantity
+                    FROM dish_daily_stock st
+                    WHERE st.stock_date >= :fromDate AND st.updated_at < :quietSince
+                )
+                UPDATE dish_daily_stock s
+                SET remaining_quantity = s.total_quantity - r.quantity, updated_at = now()
+                FROM reserved r
+                WHERE s.stock_id = r.stock_id
+                  AND s.updated_at < :quietSince AND s.total_quantity - s.remaining_quantity > r.quantity
+                RETURNING s.dish_id, s.stock_date, s.sold_out
+                """)
+                .setParameter("fromDate", fromDate)
+                .setParameter("quietSince", quietSince)
+                .getResultList();
+    }
+
+    /**
+     * 先 flush 持久化上下文中尚未写入的修改，再创建原生语句。
+     */
+    private Query modifying(String sql)
+    {
+        entityManager.flush();
+        return entityManager.createNativeQuery(sql);
+    }
+}
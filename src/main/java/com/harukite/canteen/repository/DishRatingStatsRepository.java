@@ -0,0 +1,77 @@
+package com.harukite.canteen.repository;
+
+import com.harukite.canteen.model.DishRatingStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 菜品评分聚合数据访问接口。
+ * 继承 JpaRepository，提供 DishRatingStats 实体的 CRUD 操作，
+ * 并提供基于单条 SQL 的原子增量更新与全量重建。
+ */
+@Repository
+public interface DishRatingStatsRepository extends JpaRepository<DishRatingStats, String>
+{
+
+    /**
+     * 原子地将增量累加到指定菜品的评分聚合上，不存在时插入。
+     * 使用 INSERT ... ON CONFLICT，并发评价同一菜品时无需先读后写。
+     *
+     * @param dishId     菜品ID
+     * @param countDelta 评分条数增量
+     * @param sumDelta   评分总和增量
+     * @param star1      1 星条数增量
+     * @param star2      2 星条数增量
+     * @param star3      3 星条数增量
+     * @param star4      4 星条数增量
+     * @param star5      5 星条数增量
+     * @return 受影响的行数
+     */
+    @Modifying
+    @Query(value = "INSERT INTO dish_rating_stats (dish_id, rating_count, rating_sum, star_1_count, star_2_count, star_3_count, star_4_count, star_5_count, updated_at) " +
+            "VALUES (:dishId, :countDelta, :sumDelta, :star1, :star2, :star3, :star4, :star5, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (dish_id) DO UPDATE SET " +
+            "rating_count = dish_rating_stats.rating_count + EXCLUDED.rating_count, " +
+            "rating_sum = dish_rating_stats.rating_sum + EXCLUDED.rating_sum, " +
+            "star_1_count = dish_rating_stats.star_1_count + EXCLUDED.star_1_count, " +
+            "star_2_count = dish_rating_stats.star_2_count + EXCLUDED.star_2_count, " +
+            "star_3_count = dish_rating_stats.star_3_count + EXCLUDED.star_3_count, " +
+            "star_4_count = dish_rating_stats.star_4_count + EXCLUDED.star_4_count, " +
+            "star_5_count = dish_rating_stats.star_5_count + EXCLUDED.star_5_count, " +
+            "updated_at = CURRENT_TIMESTAMP",
+            nativeQuery = true)
+    int applyDelta(@Param("dishId") String dishId,
+                   @Param("countDelta") long countDelta,
+                   @Param("sumDelta") long sumDelta,
+                   @Param("star1") long star1,
+                   @Param("star2") long star2,
+                   @Param("star3") long star3,
+                   @Param("star4") long star4,
+                   @Param("star5") long star5);
+
+    /**
+     * 清空所有评分聚合，用于全量重建。
+     *
+     * @return 删除的行数
+     */
+    @Modifying
+    @Query(value = "DELETE FROM dish_rating_stats", nativeQuery = true)
+    int deleteAllStats();
+
+    /**
+     * 从 ratings_reviews 表按菜品分组重新计算全部评分聚合。
+     *
+     * @return 插入的行数
+     */
+    @Modifying
+    @Query(value = "INSERT INTO dish_rating_stats (dish_id, rating_count, rating_sum, star_1_count, star_2_count, star_3_count, star_4_count, star_5_count, updated_at) " +
+            "SELECT dish_id, COUNT(rating), COALESCE(SUM(rating), 0), " +
+            "COUNT(*) FILTER (WHERE rating = 1), COUNT(*) FILTER (WHERE rating = 2), COUNT(*) FILTER (WHERE rating = 3), " +
+            "COUNT(*) FILTER (WHERE rating = 4), COUNT(*) FILTER (WHERE rating = 5), CURRENT_TIMESTAMP " +
+            "FROM ratings_reviews WHERE rating IS NOT NULL GROUP BY dish_id",
+            nativeQuery = true)
+    int rebuildFromReviews();
+}
@@ -3,24 +3,149 @@ package com.harukite.canteen.repository;
 import com.harukite.canteen.model.Dish;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 /**
  * 菜品数据访问接口。
- * 继承 JpaRepository，提供 Dish 实体的 CRUD 操作。
+ * 继承 JpaRepository，提供 Dish 实体的 CRUD 操作；
+ * 继承 JpaSpecificationExecutor，配合 DishSpecifications 进行条件查询。
  */
 @Repository
 public interface DishRepository extends JpaRepository<Dish, String>, JpaSpecificationExecutor<Dish>
 {
     /**
-     * 获取所有菜品。
+     * 批量获取菜品并抓取其饮食标签。
+     * 与 {@link #findAllWithAllergensByDishIdIn(Collection)} 分两次抓取，避免标签×过敏原的笛卡尔积。
      *
+     * @param dishIds 菜品ID集合
      * @return 菜品列表
      */
-    @Query("SELECT d FROM Dish d LEFT JOIN FETCH d.dietaryTags dt LEFT JOIN FETCH d.allergens a")
-    List<Dish> findAllWithDetails();
-}
+    @Query("SELECT DISTINCT d FROM Dish d LEFT JOIN FETCH d.dietaryTags WHERE d.dishId IN :dishIds")
+    List<Dish> findAllWithTagsByDishIdIn(@Param("dishIds") Collection<String> dishIds);
+
+    /**
+     * 批量获取菜品并抓取其过敏原。
+     *
+     * @param dishIds 菜品ID集合
+     * @return 菜品列表
+     */
+    @Query("SELECT DISTINCT d FROM Dish d LEFT JOIN FETCH d.allergens WHERE d.dishId IN :dishIds")
+    List<Dish> findAllWithAllergensByDishIdIn(@Param("dishIds") Collection<String> dishIds);
+
+    /**
+     * 获取构建筛选索引所需的菜品基本列：菜品ID、食堂ID、是否可用。
+     *
+     * @return 每行为 [dishId, canteenId, isAvailable]
+     */
+    @Query("SELECT d.dishId, d.canteen.canteenId, d.isAvailable FROM Dish d")
+    List<Object[]> findAllFilterIndexRows();
+
+    /**
+     * 获取全部菜品-饮食标签关联。
+     *
+     * @return 每行为 [dishId, tagId]
+     */
+    @Query(value = "SELECT dish_id, tag_id FROM dish_dietary_tags", nativeQuery = true)
+    List<Object[]> findAllDishTagPairs();
+
+    /**
+     * 获取全部菜品-过敏原关联。
+     *
+     * @return 每行为 [dishId, allergenId]
+     */
+    @Query(value = "SELECT dish_id, allergen_id FROM dish_allergens", nativeQuery = true)
+    List<Object[]> findAllDishAllergenPairs();
+
+    /**
+     * 按关键字检索菜品，返回按相关度排序的菜品ID。
+     * 名称或描述包含关键字（ILIKE，走 pg_trgm GIN 索引）或名称与关键字三元组相似即命中；
+     * 关键字至少要有三个字符索引才能过滤，更短的关键字见 {@link #searchDishIdsByShortKeyword}。
+     * 相关度以名称相似度为主、描述词相似度为辅，名称直接包含关键字额外加分。
+     *
+     * @param keyword   原始关键字
+     * @param pattern   已转义的 ILIKE 模式（形如 %关键字%）
+     * @param canteenId 食堂ID，为 null 时不限食堂
+     * @param menuDate  菜谱日期，非 null 时仅返回出现在该日菜谱中的菜品
+     * @param limit     返回条数
+     * @param offset    跳过条数
+     * @return 菜品ID列表
+     */
+    @Query(value = """
+            SELECT d.dish_id
+            FROM dishes d
+            WHERE (CAST(:canteenId AS VARCHAR) IS NULL OR d.canteen_id = CAST(:canteenId AS VARCHAR))
+              AND (CAST(:menuDate AS DATE) IS NULL OR EXISTS (
+                    SELECT 1
+                    FROM menu_dishes md
+                    JOIN daily_menus m ON m.menu_id = md.menu_id
+                    WHERE md.dish_id = d.dish_id
+                      AND m.menu_date = CAST(:menuDate AS DATE)))
+              AND (d.name ILIKE :pattern OR d.description ILIKE :pattern OR d.name % :keyword)
+            ORDER BY 2 * similarity(d.name, :keyword)
+                     + word_similarity(:keyword, COALESCE(d.description, ''))
+                     + CASE WHEN d.name ILIKE :pattern THEN 1 ELSE 0 END DESC,
+                     d.dish_id
+            LIMIT :limit OFFSET :offset
+            """, nativeQuery = true)
+    List<String> searchDishIds(@Param("keyword") String keyword,
+                               @Param("pattern") String pattern,
+                               @Param("canteenId") String canteenId,
+                               @Param("menuDate") LocalDate menuDate,
+                               @Param("limit") int limit,
+                               @Param("offset") int offset);
 
+    /**
+     * 按一到两个字的关键字检索菜品，返回按相关度排序的菜品ID。
+     * 这样的关键字切不出三元组，改用名称和描述的单字、双字片段数组索引（dish_short_grams）过滤，
+     * 命中条件等价于名称或描述包含关键字（不区分大小写）；排序与 {@link #searchDishIds} 相同。
+     *
+     * @param keyword   原始关键字，一到两个字符
+     * @param pattern   已转义的 ILIKE 模式（形如 %关键字%），仅用于排序
+     * @param canteenId 食堂ID，为 null 时不限食堂
+     * @param menuDate  菜谱日期，非 null 时仅返回出现在该日菜谱中的菜品
+     * @param limit     返回条数
+     * @param offset    跳过条数
+     * @return 菜品ID列表
+     */
+    @Query(value = """
+            SELECT d.dish_id
+            FROM dishes d
+            WHERE (CAST(:canteenId AS VARCHAR) IS NULL OR d.canteen_id = CAST(:canteenId AS VARCHAR))
+              AND (CAST(:menuDate AS DATE) IS NULL OR EXISTS (
+                    SELECT 1
+                    FROM menu_dishes md
+                    JOIN daily_menus m ON m.menu_id = md.menu_id
+                    WHERE md.dish_id = d.dish_id
+                      AND m.menu_date = CAST(:menuDate AS DATE)))
+              AND dish_short_grams(d.name || ' ' || COALESCE(d.description, '')) @> ARRAY[lower(CAST(:keyword AS TEXT))]
+            ORDER BY 2 * similarity(d.name, :keyword)
+                     + word_similarity(:keyword, COALESCE(d.description, ''))
+                     + CASE WHEN d.name ILIKE :pattern THEN 1 ELSE 0 END DESC,
+                     d.dish_id
+            LIMIT :limit OFFSET :offset
+            """, nativeQuery = true)
+    List<String> searchDishIdsByShortKeyword(@Param("keyword") String keyword,
+                                             @Param("pattern") String pattern,
+                                             @Param("canteenId") String canteenId,
+                                             @Param("menuDate") LocalDate menuDate,
+                                             @Param("limit") int limit,
+                                             @Param("offset") int offset);
+
+    /**
+     * 只修改菜品的可用状态，不加载实体，也不触及标签、过敏原和图片。
+     *
+     * @param dishId    菜品ID
+     * @param available 是否可用
+     * @return 更新的行数
+     */
+    @Modifying
+    @Query(value = "UPDATE dishes SET is_available = :available WHERE dish_id = :dishId AND is_available IS DISTINCT FROM :available", nativeQuery = true)
+    int updateAvailability(@Param("dishId") String dishId, @Param("available") boolean available);
+}
@@ -0,0 +1,92 @@
+package com.harukite.canteen.repository;
+
+import com.harukite.canteen.model.DishSalesDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 菜品每日销售汇总数据访问接口。
+ * 与 {@link SalesDailyRollupRepository} 共用按日期的咨询锁。
+ */
+@Repository
+public interface DishSalesDailyRollupRepository extends JpaRepository<DishSalesDailyRollup, String>
+{
+
+    /**
+     * 将一个订单的各菜品份数和小计累加到汇总中（sign 为 -1 时扣除）。按菜品ID顺序写入，避免并发事务死锁。
+     *
+     * @param orderId 订单ID（订单及订单项须已写入数据库）
+     * @param sign    1 或 -1
+     * @return 写入的行数
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO dish_sales_daily_rollups (rollup_id, canteen_id, dish_id, sales_date, quantity, total_amount)
+            SELECT gen_random_uuid()::text, o.canteen_id, oi.dish_id, o.order_date,
+                   :sign * SUM(oi.quantity), :sign * SUM(oi.subtotal)
+            FROM orders o
+            JOIN order_items oi ON oi.order_id = o.order_id AND oi.order_date = o.order_date
+            WHERE o.order_id = :orderId
+            GROUP BY o.canteen_id, oi.dish_id, o.order_date
+            ORDER BY oi.dish_id
+            ON CONFLICT (canteen_id, dish_id, sales_date) DO UPDATE
+            SET quantity     = dish_sales_daily_rollups.quantity + EXCLUDED.quantity,
+                total_amount = dish_sales_daily_rollups.total_amount + EXCLUDED.total_amount,
+                updated_at   = now()
+            """, nativeQuery = true)
+    int applyOrder(@Param("orderId") String orderId, @Param("sign") int sign);
+
+    /**
+     * 删除某日的全部汇总行，对账重建前调用。
+     *
+     * @return 删除的行数
+     */
+    @Modifying
+    @Query(value = "DELETE FROM dish_sales_daily_rollups WHERE sales_date = :salesDate", nativeQuery = true)
+    int deleteBySalesDate(@Param("salesDate") LocalDate salesDate);
+
+    /**
+     * 用一条汇总语句从未取消订单的订单项重新计算某日的菜品汇总。
+     *
+     * @return 写入的行数
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO dish_sales_daily_rollups (rollup_id, canteen_id, dish_id, sales_date, quantity, total_amount)
+            SELECT gen_random_uuid()::text, o.canteen_id, oi.dish_id, o.order_date, SUM(oi.quantity), SUM(oi.subtotal)
+            FROM orders o
+            JOIN order_items oi ON oi.order_id = o.order_id AND oi.order_date = o.order_date
+            WHERE o.order_date = :salesDate AND o.status <> 'CANCELLED'
+            GROUP BY o.canteen_id, oi.dish_id, o.order_date
+            """, nativeQuery = true)
+    int rebuild(@Param("salesDate") LocalDate salesDate);
+
+    /**
+     * 日期范围内销量最高的菜品。
+     *
+     * @param canteenId 食堂ID，为 null 时包含所有食堂
+     * @param limit     返回条数
+     * @return 每行依次为 dish_id, dish_name, canteen_id, quantity, total_amount
+     */
+    @Query(value = """
+            SELECT r.dish_id, d.name, r.canteen_id, SUM(r.quantity) AS quantity, SUM(r.total_amount) AS total_amount
+            FROM dish_sales_daily_rollups r
+            JOIN dishes d ON d.dish_id = r.dish_id
+            WHERE r.sales_date BETWEEN :fromDate AND :toDate
+              AND (CAST(:canteenId AS VARCHAR) IS NULL OR r.canteen_id = CAST(:canteenId AS VARCHAR))
+            GROUP BY r.dish_id, d.name, r.canteen_id
+            HAVING SUM(r.quantity) > 0
+            ORDER BY quantity DESC, total_amount DESC, r.dish_id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Object[]> findTopDishes(@Param("canteenId") String canteenId,
+                                 @Param("fromDate") LocalDate fromDate,
+                                 @Param("toDate") LocalDate toDate,
+                                 @Param("limit") int limit);
+}
@@ -0,0 +1,150 @@
+package com.harukite.canteen.repository;
+
+import com.harukite.canteen.model.Allergen;
+import com.harukite.canteen.model.DietaryTag;
+import com.harukite.canteen.model.Dish;
+import com.harukite.canteen.util.KeysetCursor;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 菜品查询条件集合。
+ * 配合 DishRepository 的 JpaSpecificationExecutor 使用，参数为空时对应条件不生效。
+ */
+public final class DishSpecifications
+{
+
+    private DishSpecifications()
+    {
+    }
+
+    /**
+     * 按所属食堂筛选。
+     *
+     * @param canteenId 食堂ID
+     * @return 查询条件
+     */
+    public static Specification<Dish> inCanteen(String canteenId)
+    {
+        return (root, query, cb) -> canteenId == null ? null
+                : cb.equal(root.get("canteen").get("canteenId"), canteenId);
+    }
+
+    /**
+     * 按是否可用筛选。
+     *
+     * @param isAvailable 是否可用
+     * @return 查询条件
+     */
+    public static Specification<Dish> availability(Boolean isAvailable)
+    {
+        return (root, query, cb) -> isAvailable == null ? null
+                : cb.equal(root.get("isAvailable"), isAvailable);
+    }
+
+    /**
+     * 按价格区间筛选（闭区间）。
+     *
+     * @param minPrice 最低价格
+     * @param maxPrice 最高价格
+     * @return 查询条件
+     */
+    public static Specification<Dish> priceBetween(BigDecimal minPrice, BigDecimal maxPrice)
+    {
+        return (root, query, cb) -> {
+            if (minPrice != null && maxPrice != null)
+            {
+                return cb.between(root.get("price"), minPrice, maxPrice);
+            }
+            if (minPrice != null)
+            {
+                return cb.greaterThanOrEqualTo(root.get("price"), minPrice);
+            }
+            if (maxPrice != null)
+            {
+                return cb.lessThanOrEqualTo(root.get("price"), maxPrice);
+            }
+            return null;
+        };
+    }
+
+    /**
+     * 要求菜品同时带有所有给定的饮食标签。
+     * 通过相关子查询统计命中标签数，避免与标签表连接后产生重复行。
+     *
+     * @param tagIds 饮食标签ID集合
+     * @return 查询条件
+     */
+    public static Specification<Dish> hasAllTags(Collection<String> tagIds)
+    {
+        return (root, query, cb) -> {
+            if (tagIds == null || tagIds.isEmpty())
+            {
+                return null;
+            }
+            Set<String> distinctTagIds = new HashSet<>(tagIds);
+            Subquery<Long> matched = query.subquery(Long.class);
+            Root<Dish> dish = matched.from(Dish.class);
+            Join<Dish, DietaryTag> tag = dish.join("dietaryTags");
+            matched.select(cb.countDistinct(tag.get("tagId")))
+                    .where(cb.equal(dish.get("dishId"), root.get("dishId")),
+                            tag.get("tagId").in(distinctTagIds));
+            return cb.equal(matched, (long) distinctTagIds.size());
+        };
+    }
+
+    /**
+     * 排除含有任一给定过敏原的菜品。
+     *
+     * @param allergenIds 过敏原ID集合
+     * @return 查询条件
+     */
+    public static Specification<Dish> excludesAllergens(Collection<String> allergenIds)
+    {
+        return (root, query, cb) -> {
+            if (allergenIds == null || allergenIds.isEmpty())
+            {
+                return null;
+            }
+            Subquery<String> containing = query.subquery(String.class);
+            Root<Dish> dish = containing.from(Dish.class);
+            Join<Dish, Allergen> allergen = dish.join("allergens");
+            containing.select(dish.get("dishId"))
+                    .where(cb.equal(dish.get("dishId"), root.get("dishId")),
+                            allergen.get("allergenId").in(allergenIds));
+            return cb.not(cb.exists(containing));
+        };
+    }
+
+    /**
+     * 键集分页条件：只返回排在游标之后的菜品。
+     * 排序为 (created_at DESC, dish_id DESC)。
+     *
+     * @param cursor 上一页最后一条记录的游标
+     * @return 查询条件
+     */
+    public static Specification<Dish> after(KeysetCursor cursor)
+    {
+        return (root, query, cb) -> {
+            if (cursor == null)
+            {
+                return null;
+            }
+            return cb.or(
+                    cb.lessThan(root.<LocalDateTime>get("createdAt"), cursor.getTimestamp()),
+                    cb.and(
+                            cb.equal(root.get("createdAt"), cursor.getTimestamp()),
+                            cb.lessThan(root.<String>get("dishId"), cursor.getId())
+                    )
+            );
+        };
+    }
+}
@@ -0,0 +1,130 @@
+package com.harukite.canteen.repository;
+
+import com.harukite.canteen.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * 幂等键记录数据访问接口。
+ * 继承 JpaRepository，提供 IdempotencyRecord 实体的 CRUD 操作。
+ */
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String>
+{
+
+    /**
+     * 根据接口范围、用户和幂等键查找记录。
+     *
+     * @param scope          接口范围
+     * @param userId         用户ID
+     * @param idempotencyKey 幂等键
+     * @return 幂等键记录（如果存在）
+     */
+    Optional<IdempotencyRecord> findByScopeAndUserIdAndIdempotencyKey(String scope, String userId, String idempotencyKey);
+
+    /**
+     * 认领幂等键：键不存在或已有记录已过期时写入一条 IN_PROGRESS 记录。
+     * 多个节点同时认领同一个键时，唯一约束保证只有一个成功。
+     *
+     * @param scope          接口范围
+     * @param userId         用户ID
+     * @param idempotencyKey 幂等键
+     * @param requestHash    请求体摘要
+     * @param now            当前时间
+     * @param leaseUntil     执行租约的到期时间
+     * @return 认领成功时返回 1，否则返回 0
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO idempotency_keys (idempotency_id, scope, user_id, idempotency_key, request_hash, status, created_at, expires_at)
+            VALUES (gen_random_uuid()::text, :scope, :userId, :idempotencyKey, :requestHash, 'IN_PROGRESS', :now, :leaseUntil)
+            ON CONFLICT (scope, user_id, idempotency_key) DO UPDATE
+            SET request_hash = EXCLUDED.request_hash,
+                status = 'IN_PROGRESS',
+                response_body = NULL,
+                created_at = EXCLUDED.created_at,
+                expires_at = EXCLUDED.expires_at
+            WHERE idempotency_keys.expires_at < EXCLUDED.created_at
+            """, nativeQuery = true)
+    int claim(@Param("scope") String scope,
+              @Param("userId") String userId,
+              @Param("idempotencyKey") String idempotencyKey,
+              @Param("requestHash") String requestHash,
+              @Param("now") LocalDateTime now,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * 保存执行结果，把记录标记为 COMPLETED。
+     *
+     * @param scope          接口范围
+     * @param userId         用户ID
+     * @param idempotencyKey 幂等键
+     * @param responseBody   结果 JSON
+     * @param expiresAt      结果保留的截止时间
+     * @return 更新的行数
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE idempotency_keys
+            SET status = 'COMPLETED', response_body = :responseBody, expires_at = :expiresAt
+            WHERE scope = :scope AND user_id = :userId AND idempotency_key = :idempotencyKey AND status = 'IN_PROGRESS'
+            """, nativeQuery = true)
+    int complete(@Param("scope") String scope,
+                 @Param("userId") String userId,
+                 @Param("idempotencyKey") String idempotencyKey,
+                 @Param("responseBody") String responseBody,
+                 @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * 延长 IN_PROGRESS 记录的租约：操作仍在执行，或操作已提交但结果未能保存时使用。
+     *
+     * @param scope          接口范围
+     * @param userId         用户ID
+     * @param idempotencyKey 幂等键
+     * @param leaseUntil     新的租约到期时间
+     * @return 更新的行数
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE idempotency_keys
+            SET expires_at = GREATEST(expires_at, :leaseUntil)
+            WHERE scope = :scope AND user_id = :userId AND idempotency_key = :idempotencyKey AND status = 'IN_PROGRESS'
+            """, nativeQuery = true)
+    int extendLease(@Param("scope") String scope,
+                    @Param("userId") String userId,
+                    @Param("idempotencyKey") String idempotencyKey,
+                    @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * 执行失败时释放认领，允许客户端用同一个键重试。
+     *
+     * @param scope          接口范围
+     * @param userId         用户ID
+     * @param idempotencyKey 幂等键
+     * @return 删除的行数
+     */
+    @Modifying
+    @Query(value = """
+            DELETE FROM idempotency_keys
+            WHERE scope = :scope AND user_id = :userId AND idempotency_key = :idempotencyKey AND status = 'IN_PROGRESS'
+            """, nativeQuery = true)
+    int release(@Param("scope") String scope,
+                @Param("userId") String userId,
+                @Param("idempotencyKey") String idempotencyKey);
+
+    /**
+     * 删除已过期的记录。
+     *
+     * @param now 当前时间
+     * @return 删除的行数
+     */
+    @Modifying
+    @Query(value = "DELETE FROM idempotency_keys WHERE expires_at < :now", nativeQuery = true)
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,152 @@
+package com.harukite.canteen.repository;
+
+import com.harukite.canteen.model.KitchenPrepCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 后厨备餐计数数据访问接口。
+ * 增量更新与重建都在同一个 (食堂, 日期) 事务级咨询锁下进行：增量更新取共享锁，互不阻塞；
+ * 重建取排他锁，等待进行中的增量更新提交后再按源数据重新汇总，二者不会相互覆盖。
+ */
+@Repository
+public interface KitchenPrepCountRepository extends JpaRepository<KitchenPrepCount, String>
+{
+
+    /**
+     * 获取食堂某日需要准备的菜品份数（不含已归零的行），按时段和菜品名称排序。
+     *
+     * @param canteenId 食堂ID
+     * @param prepDate  日期
+     * @return 备餐计数列表
+     */
+    @Query("""
+            SELECT k FROM KitchenPrepCount k JOIN FETCH k.dish d
+            WHERE k.canteen.canteenId = :canteenId AND k.prepDate = :prepDate
+              AND k.orderQuantity + k.banquetQuantity > 0
+            ORDER BY k.slotStart, d.name
+            """)
+    List<KitchenPrepCount> findPrepList(@Param("canteenId") String canteenId, @Param("prepDate") LocalDate prepDate);
+
+    /**
+     * 获取 (食堂, 日期) 的共享咨询锁，持有到事务结束；用于增量更新。
+     *
+     * @param canteenId 食堂ID
+     * @param epochDay  日期（距 1970-01-01 的天数）
+     */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock_shared(hashtext(:canteenId), :epochDay)", nativeQuery = true)
+    Integer lockShared(@Param("canteenId") String canteenId, @Param("epochDay") int epochDay);
+
+    /**
+     * 获取 (食堂, 日期) 的排他咨询锁，持有到事务结束；用于重建。
+     *
+     * @param canteenId 食堂ID
+     * @param epochDay  日期（距 1970-01-01 的天数）
+     */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(hashtext(:canteenId), :epochDay)", nativeQuery = true)
+    Integer lockExclusive(@Param("canteenId") String canteenId, @Param("epochDay") int epochDay);
+
+    /**
+     * 将一个订单的各菜品份数累加到计数中（sign 为 -1 时扣除）。按菜品ID顺序写入，避免并发事务死锁。
+     *
+     * @param orderId 订单ID（订单及订单项须已写入数据库）
+     * @param sign    1 或 -1
+     * @return 写入的行数
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO kitchen_prep_counts (prep_count_id, canteen_id, prep_date, slot_start, dish_id, order_quantity, banquet_quantity)
+            SELECT gen_random_uuid()::text, o.canteen_id, o.order_date, COALESCE(ps.start_time, o.pickup_time),
+                   oi.dish_id, :sign * SUM(oi.quantity), 0
+            FROM orders o
+            JOIN order_items oi ON oi.order_id = o.order_id AND oi.order_date = o.order_date
+            LEFT JOIN pickup_slots ps ON ps.slot_id = o.pickup_slot_id
+            WHERE o.order_id = :orderId
+            GROUP BY o.canteen_id, o.order_date, COALESCE(ps.start_time, o.pickup_time), oi.dish_id
+            ORDER BY oi.dish_id
+            ON CONFLICT (canteen_id, prep_date, slot_start, dish_id) DO UPDATE
+            SET order_quantity = kitchen_prep_counts.order_quantity + EXCLUDED.order_quantity,
+                updated_at = now()
+            """, nativeQuery = true)
+    int applyOrder(@Param("orderId") String orderId, @Param("sign") int sign);
+
+    /**
+     * 将一个宴会预订的定制菜品和套餐菜品份数累加到计数中（sign 为 -1 时扣除）。套餐内每道菜按一份计。
+     *
+     * @param banquetId 宴会预订ID
+     * @param sign      1 或 -1
+     * @return 写入的行数
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO kitchen_prep_counts (prep_count_id, canteen_id, prep_date, slot_start, dish_id, order_quantity, banquet_quantity)
+            SELECT gen_random_uuid()::text, d.canteen_id, d.event_date, d.event_time, d.dish_id, 0, :sign * SUM(d.quantity)
+            FROM (
+                SELECT b.canteen_id, b.event_date, b.event_time, bd.dish_id, bd.quantity
+                FROM banquet_reservations b
+                JOIN banquet_reservation_dishes bd ON bd.banquet_id = b.banquet_id
+                WHERE b.banquet_id = :banquetId
+                UNION ALL
+                SELECT b.canteen_id, b.event_date, b.event_time, pd.dish_id, 1
+                FROM banquet_reservations b
+                JOIN banquet_reservation_packages bp ON bp.banquet_id = b.banquet_id
+                JOIN package_dishes pd ON pd.package_id = bp.package_id
+                WHERE b.banquet_id = :banquetId
+            ) d
+            GROUP BY d.canteen_id, d.event_date, d.event_time, d.dish_id
+            ORDER BY d.dish_id
+            ON CONFLICT (canteen_id, prep_date, slot_start, dish_id) DO UPDATE
+            SET banquet_quantity = kitchen_prep_counts.banquet_quantity + EXCLUDED.banquet_quantity,
+                updated_at = now()
+            """, nativeQuery = true)
+    int applyBanquet(@Param("banquetId") String banquetId, @Param("sign") int sign);
+
+    /**
+     * 删除食堂某日的全部计数，重建前调用。
+     *
+     * @return 删除的行数
+     */
+    @Modifying
+    @Query(value = "DELETE FROM kitchen_prep_counts WHERE canteen_id = :canteenId AND prep_date = :prepDate", nativeQuery = true)
+    int deleteByCanteenAndDate(@Param("canteenId") String canteenId, @Param("prepDate") LocalDate prepDate);
+
+    /**
+     * 用一条汇总语句从源数据重新计算食堂某日的计数：未取消订单的订单项，
+     * 加上已确认（或已完成）宴会预订的定制菜品和套餐菜品。
+     *
+     * @return 写入的行数
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO kitchen_prep_counts (prep_count_id, canteen_id, prep_date, slot_start, dish_id, order_quantity, banquet_quantity)
+            SELECT gen_random_uuid()::text, :canteenId, :prepDate, d.slot_start, d.dish_id,
+                   SUM(d.order_quantity), SUM(d.banquet_quantity)
+            FROM (
+                SELECT COALESCE(ps.start_time, o.pickup_time) AS slot_start, oi.dish_id,
+                       oi.quantity AS order_quantity, 0 AS banquet_quantity
+                FROM orders o
+                JOIN order_items oi ON oi.order_id = o.order_id AND oi.order_date = o.order_date
+                LEFT JOIN pickup_slots ps ON ps.slot_id = o.pickup_slot_id
+                WHERE o.canteen_id = :canteenId AND o.order_date = :prepDate AND o.status <> 'CANCELLED'
+                UNION ALL
+                SELECT b.event_time, bd.dish_id, 0, bd.quantity
+                FROM banquet_reservations b
+                JOIN banquet_reservation_dishes bd ON bd.banquet_id = b.banquet_id
+                WHERE b.canteen_id = :canteenId AND b.event_date = :prepDate AND b.status IN ('CONFIRMED', 'COMPLETED')
+                UNION ALL
+                SELECT b.event_time, pd.dish_id, 0, 1
+                FROM banquet_reservations b
+                JOIN banquet_reservation_packages bp ON bp.banquet_id = b.banquet_id
+                JOIN package_dishes pd ON pd.package_id = bp.package_id
+                WHERE b.canteen_id = :canteenId AND b.event_date = :prepDate AND b.status IN ('CONFIRMED', 'COMPLETED')
+            ) d
+            GROUP BY d.slot_start, d.dish_id
+            """, nativeQuery = true)
+    int rebuild(@Param("canteenId") String canteenId, @Param("prepDate") LocalDate prepDate);
+}
@@ -5,14 +5,16 @@ import com.harukite.canteen.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * 订单数据访问接口。
- * 继承 JpaRepository，提供 Order 实体的 CRUD 操作。
+ * 继承 JpaRepository，提供 Order 实体的 CRUD 操作；条件检索见 {@link OrderSearchRepository}。
  */
 @Repository
-public interface OrderRepository extends JpaRepository<Order, String>
+public interface OrderRepository extends JpaRepository<Order, String>, OrderSearchRepository
 {
 
     /**
@@ -23,5 +25,35 @@ public interface OrderRepository extends JpaRepository<Order, String>
      */
     List<Order> findByUser(User user);
 
+    /**
+     * 判断订单是否属于指定用户。
+     * 只按 order_id 过滤，会探查每个月分区的主键索引；调用方知道预订日期时应使用
+     * {@link #existsByOrderIdAndOrderDateAndUser_UserId}。
+     *
+     * @param orderId 订单ID
+     * @param userId  用户ID
+     * @return 属于该用户时返回 true
+     */
+    boolean existsByOrderIdAndUser_UserId(String orderId, String userId);
+
+    /**
+     * 按订单ID和预订日期查找订单，只扫描该日期所在的月分区。
+     *
+     * @param orderId   订单ID
+     * @param orderDate 预订日期（分区键）
+     * @return 订单
+     */
+    Optional<Order> findByOrderIdAndOrderDate(String orderId, LocalDate orderDate);
+
+    /**
+     * 判断订单是否属于指定用户，只扫描预订日期所在的月分区。
+     *
+     * @param orderId   订单ID
+     * @param orderDate 预订日期（分区键）
+     * @param userId    用户ID
+     * @return 属于该用户时返回 true
+     */
+    boolean existsByOrderIdAndOrderDateAndUser_UserId(String orderId, LocalDate orderDate, String userId);
+
 }
 
@@ -0,0 +1,24 @@
+package com.harukite.canteen.repository;
+
+import com.harukite.canteen.dto.OrderSearchQuery;
+import com.harukite.canteen.dto.OrderSummaryDto;
+import com.harukite.canteen.util.KeysetCursor;
+
+import java.util.List;
+
+/**
+ * 订单检索的自定义数据访问接口，由 {@link OrderRepository} 继承。
+ */
+public interface OrderSearchRepository
+{
+
+    /**
+     * 按条件检索订单，按 (created_at, order_id) 倒序键集分页，直接返回扁平的订单摘要。
+     *
+     * @param filter 筛选条件
+     * @param after  上一页最后一条记录的游标，首页为 null
+     * @param limit  最多返回的记录数
+     * @return 订单摘要列表
+     */
+    List<OrderSummaryDto> searchSummaries(OrderSearchQuery filter, KeysetCursor after, int limit);
+}
@@ -0,0 +1,86 @@
+package com.harukite.canteen.repository;
+
+import com.harukite.canteen.dto.OrderSearchQuery;
+import com.harukite.canteen.dto.OrderSummaryDto;
+import com.harukite.canteen.util.KeysetCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单检索的实现。
+ * 只把实际传入的条件拼进 JPQL，使每种条件组合都能命中对应的 Orders 复合索引；
+ * 用户名、食堂名和菜品总数在同一条查询中取出（构造器表达式），不加载任何实体。
+ */
+class OrderSearchRepositoryImpl implements OrderSearchRepository
+{
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<OrderSummaryDto> searchSummaries(OrderSearchQuery filter, KeysetCursor after, int limit)
+    {
+        StringBuilder jpql = new StringBuilder("""
+                SELECT new com.harukite.canteen.dto.OrderSummaryDto(
+                    o.orderId, u.userId, u.username, c.canteenId, c.name,
+                    o.orderDate, o.pickupTime, o.totalAmount, o.status, o.createdAt,
+                    COALESCE((SELECT SUM(i.quantity) FROM OrderItem i WHERE i.order = o AND i.orderDate = o.orderDate), 0L))
+                FROM Order o
+                JOIN o.user u
+                JOIN o.canteen c
+                WHERE 1 = 1""");
+        Map<String, Object> params = new LinkedHashMap<>();
+
+        if (filter.getCanteenId() != null)
+        {
+            jpql.append(" AND c.canteenId = :canteenId");
+            params.put("canteenId", filter.getCanteenId());
+        }
+        if (filter.getStatus() != null)
+        {
+            jpql.append(" AND o.status = :status");
+            params.put("status", filter.getStatus());
+        }
+        if (filter.getUserId() != null)
+        {
+            jpql.append(" AND u.userId = :userId");
+            params.put("userId", filter.getUserId());
+        }
+        if (filter.getOrderDateFrom() != null)
+        {
+            jpql.append(" AND o.orderDate >= :orderDateFrom");
+            params.put("orderDateFrom", filter.getOrderDateFrom());
+        }
+        if (filter.getOrderDateTo() != null)
+        {
+            jpql.append(" AND o.orderDate <= :orderDateTo");
+            params.put("orderDateTo", filter.getOrderDateTo());
+        }
+        if (filter.getPickupFrom() != null)
+        {
+            jpql.append(" AND o.pickupTime >= :pickupFrom");
+            params.put("pickupFrom", filter.getPickupFrom());
+        }
+        if (filter.getPickupTo() != null)
+        {
+            jpql.append(" AND o.pickupTime <= :pickupTo");
+            params.put("pickupTo", filter.getPickupTo());
+        }
+        if (after != null)
+        {
+            jpql.append(" AND (o.createdAt < :afterCreatedAt OR (o.createdAt = :afterCreatedAt AND o.orderId < :afterOrderId))");
+            params.put("afterCreatedAt", after.getTimestamp());
+            params.put("afterOrderId", after.getId());
+        }
+        jpql.append(" ORDER BY o.createdAt DESC, o.orderId DESC");
+
+        TypedQuery<OrderSummaryDto> query = entityManager.createQuery(jpql.toString(), OrderSummaryDto.class);
+        params.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+}
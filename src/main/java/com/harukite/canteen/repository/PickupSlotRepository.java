@@ -0,0 +1,108 @@
+package com.harukite.canteen.repository;
+
+import com.harukite.canteen.model.PickupSlot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 取餐时段数据访问接口。
+ * 继承 JpaRepository，提供 PickupSlot 实体的 CRUD 操作；容量的预占与释放通过单条条件 UPDATE 完成。
+ */
+@Repository
+public interface PickupSlotRepository extends JpaRepository<PickupSlot, String>
+{
+
+    /**
+     * 查找覆盖指定取餐时间的时段ID。
+     *
+     * @param canteenId  食堂ID
+     * @param slotDate   日期
+     * @param pickupTime 取餐时间
+     * @return 时段ID，未配置时段时为空
+     */
+    @Query(value = """
+            SELECT slot_id FROM pickup_slots
+            WHERE canteen_id = :canteenId AND slot_date = :slotDate
+              AND start_time <= :pickupTime AND end_time > :pickupTime
+            LIMIT 1
+            """, nativeQuery = true)
+    Optional<String> findCoveringSlotId(@Param("canteenId") String canteenId,
+                                        @Param("slotDate") LocalDate slotDate,
+                                        @Param("pickupTime") LocalTime pickupTime);
+
+    /**
+     * 获取食堂某日的全部时段，按开始时间排序。
+     *
+     * @param canteenId 食堂ID
+     * @param slotDate  日期
+     * @return 时段列表
+     */
+    List<PickupSlot> findByCanteen_CanteenIdAndSlotDateOrderByStartTime(String canteenId, LocalDate slotDate);
+
+    /**
+     * 判断食堂某日是否已有与 [startTime, endTime) 重叠的其它时段。
+     *
+     * @param excludeSlotId 排除的时段ID（更新时传入自身，创建时传 null）
+     */
+    @Query("""
+            SELECT COUNT(s) > 0 FROM PickupSlot s
+            WHERE s.canteen.canteenId = :canteenId AND s.slotDate = :slotDate
+              AND s.startTime < :endTime AND s.endTime > :startTime
+              AND (:excludeSlotId IS NULL OR s.slotId <> :excludeSlotId)
+            """)
+    boolean existsOverlapping(@Param("canteenId") String canteenId,
+                              @Param("slotDate") LocalDate slotDate,
+                              @Param("startTime") LocalTime startTime,
+                              @Param("endTime") LocalTime endTime,
+                              @Param("excludeSlotId") String excludeSlotId);
+
+    /**
+     * 在容量未满时预占一个名额。
+     *
+     * @return 更新的行数，时段已满或不存在时为 0
+     */
+    @Modifying
+    @Query(value = "UPDATE pickup_slots SET reserved = reserved + 1, reserved_updated_at = now() WHERE slot_id = :slotId AND reserved < capacity", nativeQuery = true)
+    int tryReserve(@Param("slotId") String slotId);
+
+    /**
+     * 释放一个名额，不低于 0。
+     *
+     * @return 更新的行数
+     */
+    @Modifying
+    @Query(value = "UPDATE pickup_slots SET reserved = GREATEST(reserved - 1, 0), reserved_updated_at = now() WHERE slot_id = :slotId", nativeQuery = true)
+    int release(@Param("slotId") String slotId);
+
+    /**
+     * 把 fromDate 及以后、自 quietSince 起没有预占或释放过的时段的已预占数下调为其未取消订单数。
+     * 预占在订单事务之前提交，正在下单的请求会刷新 reserved_updated_at，因此不会被当作泄漏；
+     * 语句执行时行上条件按最新版本重新判断，期间提交的预占同样使该行被跳过。
+     *
+     * @return 被校正的时段数
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE pickup_slots s
+            SET reserved = c.active, reserved_updated_at = now()
+            FROM (
+                SELECT ps.slot_id,
+                       (SELECT COUNT(*) FROM orders o
+                        WHERE o.pickup_slot_id = ps.slot_id AND o.order_date = ps.slot_date
+                          AND o.status <> 'CANCELLED') AS active
+                FROM pickup_slots ps
+                WHERE ps.slot_date >= :fromDate AND ps.reserved_updated_at < :quietSince
+            ) c
+            WHERE s.slot_id = c.slot_id AND s.reserved_updated_at < :quietSince AND s.reserved > c.active
+            """, nativeQuery = true)
+    int reconcileReserved(@Param("fromDate") LocalDate fromDate, @Param("quietSince") LocalDateTime quietSince);
+}
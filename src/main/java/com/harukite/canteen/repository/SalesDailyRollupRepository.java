@@ -0,0 +1,140 @@
+package com.harukite.canteen.repository;
+
+import com.harukite.canteen.model.SalesDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 食堂每日销售汇总数据访问接口。
+ * 增量更新取按日期的共享咨询锁，对账重建取排他锁，二者不会相互覆盖。
+ */
+@Repository
+public interface SalesDailyRollupRepository extends JpaRepository<SalesDailyRollup, String>
+{
+
+    /**
+     * 获取某日销售汇总的共享咨询锁，持有到事务结束；用于增量更新。
+     *
+     * @param epochDay 日期（距 1970-01-01 的天数）
+     */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock_shared(hashtext('sales-rollup'), :epochDay)", nativeQuery = true)
+    Integer lockShared(@Param("epochDay") int epochDay);
+
+    /**
+     * 获取某日销售汇总的排他咨询锁，持有到事务结束；用于对账重建。
+     *
+     * @param epochDay 日期（距 1970-01-01 的天数）
+     */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(hashtext('sales-rollup'), :epochDay)", nativeQuery = true)
+    Integer lockExclusive(@Param("epochDay") int epochDay);
+
+    /**
+     * 将各状态订单数和金额的增量累加到一个分桶行。
+     *
+     * @return 写入的行数
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO sales_daily_rollups (rollup_id, canteen_id, sales_date, bucket,
+                                             pending_count, confirmed_count, completed_count, cancelled_count,
+                                             booked_amount, completed_amount)
+            VALUES (:rollupId, :canteenId, :salesDate, :bucket,
+                    :pending, :confirmed, :completed, :cancelled, :bookedAmount, :completedAmount)
+            ON CONFLICT (canteen_id, sales_date, bucket) DO UPDATE
+            SET pending_count    = sales_daily_rollups.pending_count + EXCLUDED.pending_count,
+                confirmed_count  = sales_daily_rollups.confirmed_count + EXCLUDED.confirmed_count,
+                completed_count  = sales_daily_rollups.completed_count + EXCLUDED.completed_count,
+                cancelled_count  = sales_daily_rollups.cancelled_count + EXCLUDED.cancelled_count,
+                booked_amount    = sales_daily_rollups.booked_amount + EXCLUDED.booked_amount,
+                completed_amount = sales_daily_rollups.completed_amount + EXCLUDED.completed_amount,
+                updated_at       = now()
+            """, nativeQuery = true)
+    int applyDelta(@Param("rollupId") String rollupId,
+                   @Param("canteenId") String canteenId,
+                   @Param("salesDate") LocalDate salesDate,
+                   @Param("bucket") short bucket,
+                   @Param("pending") int pending,
+                   @Param("confirmed") int confirmed,
+                   @Param("completed") int completed,
+                   @Param("cancelled") int cancelled,
+                   @Param("bookedAmount") BigDecimal bookedAmount,
+                   @Param("completedAmount") BigDecimal completedAmount);
+
+    /**
+     * 删除某日的全部汇总行，对账重建前调用。
+     *
+     * @return 删除的行数
+     */
+    @Modifying
+    @Query(value = "DELETE FROM sales_daily_rollups WHERE sales_date = :salesDate", nativeQuery = true)
+    int deleteBySalesDate(@Param("salesDate") LocalDate salesDate);
+
+    /**
+     * 用一条汇总语句从订单表重新计算某日各食堂的汇总，写入 0 号分桶。
+     *
+     * @return 写入的行数
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO sales_daily_rollups (rollup_id, canteen_id, sales_date, bucket,
+                                             pending_count, confirmed_count, completed_count, cancelled_count,
+                                             booked_amount, completed_amount)
+            SELECT gen_random_uuid()::text, o.canteen_id, o.order_date, 0,
+                   COUNT(*) FILTER (WHERE o.status = 'PENDING'),
+                   COUNT(*) FILTER (WHERE o.status = 'CONFIRMED'),
+                   COUNT(*) FILTER (WHERE o.status = 'COMPLETED'),
+                   COUNT(*) FILTER (WHERE o.status = 'CANCELLED'),
+                   COALESCE(SUM(o.total_amount) FILTER (WHERE o.status <> 'CANCELLED'), 0),
+                   COALESCE(SUM(o.total_amount) FILTER (WHERE o.status = 'COMPLETED'), 0)
+            FROM orders o
+            WHERE o.order_date = :salesDate
+            GROUP BY o.canteen_id, o.order_date
+            """, nativeQuery = true)
+    int rebuild(@Param("salesDate") LocalDate salesDate);
+
+    /**
+     * 按食堂和日期汇总日期范围内的销售数据。
+     *
+     * @param canteenId 食堂ID，为 null 时包含所有食堂
+     * @return 每行依次为 canteen_id, canteen_name, sales_date, pending, confirmed, completed, cancelled, booked_amount, completed_amount
+     */
+    @Query(value = """
+            SELECT r.canteen_id, c.name, r.sales_date,
+                   SUM(r.pending_count), SUM(r.confirmed_count), SUM(r.completed_count), SUM(r.cancelled_count),
+                   SUM(r.booked_amount), SUM(r.completed_amount)
+            FROM sales_daily_rollups r
+            JOIN canteens c ON c.canteen_id = r.canteen_id
+            WHERE r.sales_date BETWEEN :fromDate AND :toDate
+              AND (CAST(:canteenId AS VARCHAR) IS NULL OR r.canteen_id = CAST(:canteenId AS VARCHAR))
+            GROUP BY r.canteen_id, c.name, r.sales_date
+            ORDER BY r.sales_date, c.name
+            """, nativeQuery = true)
+    List<Object[]> findDailySales(@Param("canteenId") String canteenId,
+                                  @Param("fromDate") LocalDate fromDate,
+                                  @Param("toDate") LocalDate toDate);
+
+    /**
+     * 汇总日期范围内的订单数和金额。
+     *
+     * @param canteenId 食堂ID，为 null 时包含所有食堂
+     * @return 单行：pending, confirmed, completed, cancelled, booked_amount, completed_amount
+     */
+    @Query(value = """
+            SELECT COALESCE(SUM(r.pending_count), 0), COALESCE(SUM(r.confirmed_count), 0),
+                   COALESCE(SUM(r.completed_count), 0), COALESCE(SUM(r.cancelled_count), 0),
+                   COALESCE(SUM(r.booked_amount), 0), COALESCE(SUM(r.completed_amount), 0)
+            FROM sales_daily_rollups r
+            WHERE r.sales_date BETWEEN :fromDate AND :toDate
+              AND (CAST(:canteenId AS VARCHAR) IS NULL OR r.canteen_id = CAST(:canteenId AS VARCHAR))
+            """, nativeQuery = true)
+    List<Object[]> summarize(@Param("canteenId") String canteenId,
+                             @Param("fromDate") LocalDate fromDate,
+                             @Param("toDate") LocalDate toDate);
+}
@@ -0,0 +1,35 @@
+package com.harukite.canteen.repository;
+
+import com.harukite.canteen.model.StorageOutboxEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 对象存储删除任务数据访问接口。
+ * 继承 JpaRepository，提供 StorageOutboxEntry 实体的 CRUD 操作。
+ */
+@Repository
+public interface StorageOutboxRepository extends JpaRepository<StorageOutboxEntry, String>
+{
+    /**
+     * 锁定一批已到期的删除任务。
+     * SKIP LOCKED 使多个实例可以并行认领互不重叠的批次。
+     *
+     * @param now   当前时间
+     * @param limit 批次大小
+     * @return 已锁定的删除任务
+     */
+    @Query(value = """
+            SELECT * FROM storage_outbox
+            WHERE next_attempt_at <= :now
+            ORDER BY next_attempt_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<StorageOutboxEntry> lockDueBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
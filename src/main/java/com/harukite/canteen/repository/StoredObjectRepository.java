@@ -0,0 +1,153 @@
+package com.harukite.canteen.repository;
+
+import com.harukite.canteen.model.StoredObject;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+/**
+ * 按内容寻址的存储对象数据访问接口。
+ * 继承 JpaRepository，提供 StoredObject 实体的 CRUD 操作；引用计数通过单条 UPDATE 原子增减。
+ */
+@Repository
+public interface StoredObjectRepository extends JpaRepository<StoredObject, String>
+{
+    /**
+     * 登记一个新对象，已存在时不做任何修改。
+     * 若该行正被清理任务锁定删除，此语句会等待其提交后再插入。
+     *
+     * @return 插入的行数（0 或 1）
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO stored_objects (content_hash, object_key, size_bytes, content_type, ref_count, uploaded, created_at, updated_at)
+            VALUES (:contentHash, :objectKey, :sizeBytes, :contentType, 0, FALSE, now(), now())
+            ON CONFLICT (content_hash) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("contentHash") String contentHash,
+                       @Param("objectKey") String objectKey,
+                       @Param("sizeBytes") long sizeBytes,
+                       @Param("contentType") String contentType);
+
+    /**
+     * 刷新对象的 updated_at，使其在宽限期内不会被清理。
+     *
+     * @return 更新的行数（对象已被清理或正被清理任务删除时为 0）
+     */
+    @Modifying
+    @Query(value = "UPDATE stored_objects SET updated_at = now() WHERE content_hash = :contentHash AND NOT deleting", nativeQuery = true)
+    int touch(@Param("contentHash") String contentHash);
+
+    /**
+     * 标记对象已成功写入对象存储。
+     */
+    @Modifying
+    @Query(value = "UPDATE stored_objects SET uploaded = TRUE, updated_at = now() WHERE content_hash = :contentHash", nativeQuery = true)
+    int markUploaded(@Param("contentHash") String contentHash);
+
+    /**
+     * 引用计数加一。已被清理任务认领删除的对象不会再被引用。
+     *
+     * @return 更新的行数（对象不存在或正被清理任务删除时为 0）
+     */
+    @Modifying
+    @Query(value = "UPDATE stored_objects SET ref_count = ref_count + 1, updated_at = now() WHERE object_key = :objectKey AND NOT deleting", nativeQuery = true)
+    int incrementRefCount(@Param("objectKey") String objectKey);
+
+    /**
+     * 判断对象是否已登记。
+     *
+     * @param objectKey 对象 key
+     * @return 已登记时返回 true
+     */
+    boolean existsByObjectKey(String objectKey);
+
+    /**
+     * 引用计数减一，不低于 0。
+     *
+     * @return 更新的行数（key 不是按内容寻址的对象时为 0）
+     */
+    @Modifying
+    @Query(value = "UPDATE stored_objects SET ref_count = GREATEST(ref_count - 1, 0), updated_at = now() WHERE object_key = :objectKey", nativeQuery = true)
+    int decrementRefCount(@Param("objectKey") String objectKey);
+
+    /**
+     * 锁定一批待删除的对象：引用计数为 0 且超过宽限期的对象，以及认领后超过租约仍未删除完成的对象。
+     *
+     * @param cutoff      宽限期截止时间
+     * @param leaseCutoff 认领租约截止时间
+     * @param limit       批次大小
+     * @return 已锁定的对象
+     */
+    @Query(value = """
+            SELECT * FROM stored_objects
+            WHERE (ref_count = 0 AND NOT deleting AND updated_at < :cutoff)
+               OR (deleting AND updated_at < :leaseCutoff)
+            ORDER BY updated_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<StoredObject> lockUnreferenced(@Param("cutoff") LocalDateTime cutoff,
+                                        @Param("leaseCutoff") LocalDateTime leaseCutoff,
+                                        @Param("limit") int limit);
+
+    /**
+     * 认领一批对象准备删除，updated_at 作为认领时间（租约起点）。
+     *
+     * @return 更新的行数
+     */
+    @Modifying
+    @Query(value = "UPDATE stored_objects SET deleting = TRUE, updated_at = now() WHERE content_hash IN (:contentHashes)", nativeQuery = true)
+    int markDeleting(@Param("contentHashes") Collection<String> contentHashes);
+
+    /**
+     * 删除已认领、对象已从存储中删除且仍无引用的行。
+     * 仍被引用的行不删除，由 {@link #releaseClaim} 撤销认领并标记为未上传。
+     *
+     * @return 删除的行数
+     */
+    @Modifying
+    @Query(value = "DELETE FROM stored_objects WHERE content_hash IN (:contentHashes) AND deleting AND ref_count = 0", nativeQuery = true)
+    int deleteClaimed(@Param("contentHashes") Collection<String> contentHashes);
+
+    /**
+     * 撤销删除失败对象的认领。对象可能已被部分删除，标记为未上传，下次上传相同内容时重新写入。
+     *
+     * @return 更新的行数
+     */
+    @Modifying
+    @Query(value = "UPDATE stored_objects SET deleting = FALSE, uploaded = FALSE, updated_at = now() WHERE content_hash IN (:contentHashes) AND deleting", nativeQuery = true)
+    int releaseClaim(@Param("contentHashes") Collection<String> contentHashes);
+
+    /**
+     * 流式读取所有实体引用的图片 URL（菜品、包厢、食堂及食堂附加图片），可能重复。
+     * 必须在事务内消费并关闭返回的流。
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = """
+            SELECT image_url FROM dishes WHERE image_url IS NOT NULL
+            UNION ALL SELECT image_url FROM rooms WHERE image_url IS NOT NULL
+            UNION ALL SELECT image_url FROM canteens WHERE image_url IS NOT NULL
+            UNION ALL SELECT image_url FROM canteen_images
+            """, nativeQuery = true)
+    Stream<String> streamReferencedImageUrls();
+
+    /**
+     * 流式读取所有已登记的按内容寻址对象的 key。这些对象由引用计数清理任务负责。
+     * 必须在事务内消费并关闭返回的流。
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = "SELECT object_key FROM stored_objects", nativeQuery = true)
+    Stream<String> streamObjectKeys();
+}
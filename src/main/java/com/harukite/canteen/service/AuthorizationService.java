@@ -0,0 +1,41 @@
+package com.harukite.canteen.service;
+
+import org.springframework.security.core.Authentication;
+
+import java.time.LocalDate;
+
+/**
+ * 资源归属鉴权服务接口，供 @PreAuthorize 表达式以 @authz 引用。
+ * 每项检查最多执行一次按主键的存在性查询，当前用户ID直接取自认证主体。
+ */
+public interface AuthorizationService
+{
+
+    /**
+     * 判断 userId 是否为当前认证用户本人。
+     *
+     * @param userId         用户ID
+     * @param authentication 当前认证信息
+     * @return 是本人时返回 true
+     */
+    boolean isCurrentUser(String userId, Authentication authentication);
+
+    /**
+     * 判断订单是否属于当前认证用户。
+     *
+     * @param orderId        订单ID
+     * @param orderDate      预订日期，可为空；提供时只查找该日期所在的分区
+     * @param authentication 当前认证信息
+     * @return 属于当前用户时返回 true；订单不存在时返回 false
+     */
+    boolean isOrderOwner(String orderId, LocalDate orderDate, Authentication authentication);
+
+    /**
+     * 判断宴会预订是否属于当前认证用户。
+     *
+     * @param banquetId      宴会预订ID
+     * @param authentication 当前认证信息
+     * @return 属于当前用户时返回 true；预订不存在时返回 false
+     */
+    boolean isBanquetOwner(String banquetId, Authentication authentication);
+}
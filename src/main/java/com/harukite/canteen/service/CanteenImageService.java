@@ -49,7 +49,7 @@ public interface CanteenImageService {
 
     /**
      * 根据图片ID删除食堂图片。
-     * 同时会删除 COS 中的实际图片文件。
+     * 同时会删除对象存储中的实际图片文件。
      *
      * @param imageId 要删除的图片ID
      */
@@ -0,0 +1,27 @@
+package com.harukite.canteen.service;
+
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * 认证主体，在 Spring Security 的 User 之外携带用户ID。
+ * 鉴权时可以直接比较用户ID，无需再按用户名查询数据库。
+ */
+@Getter
+public class CanteenUserDetails extends User
+{
+
+    /**
+     * 用户ID。
+     */
+    private final String userId;
+
+    public CanteenUserDetails(String userId, String username, String password, Collection<? extends GrantedAuthority> authorities)
+    {
+        super(username, password, authorities);
+        this.userId = userId;
+    }
+}
@@ -46,8 +46,9 @@ public class CustomUserDetailsService implements UserDetailsService
         // 所以这里我们手动添加，以匹配 hasRole() 的期望。
         List<GrantedAuthority> authorities = Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()));
 
-        // 返回 Spring Security 的 UserDetails 对象
-        return new org.springframework.security.core.userdetails.User(
+        // 返回携带用户ID的 UserDetails 对象，鉴权时可直接使用用户ID
+        return new CanteenUserDetails(
+                user.getUserId(), // 用户ID
                 user.getUsername(), // 作为 principal 的用户名
                 user.getPasswordHash(), // 用户的密码哈希
                 authorities // 用户的权限/角色
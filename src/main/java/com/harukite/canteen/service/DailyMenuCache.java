@@ -0,0 +1,463 @@
+package com.harukite.canteen.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.harukite.canteen.dto.DailyMenuResponse;
+import com.harukite.canteen.dto.DishDto;
+import com.harukite.canteen.util.AfterCommit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 每日菜谱的预序列化缓存。
+ * 按 (食堂, 日期) 缓存完整的 JSON 字节，命中时直接写入响应，不再组装 DTO 和序列化。
+ * 同一个未命中的键只有一个线程重建，其它并发请求等待同一个 CompletableFuture。
+ * 构建时记录条目依赖的菜谱、菜品、饮食标签和过敏原，相关数据变更在事务提交后只失效受影响的条目；
+ * 构建期间若发生过任何失效，新条目只交给等待者而不留在缓存中，避免写入过期数据。
+ * 条目因失效、淘汰、过期或构建失败离开缓存时，同时清理它在依赖表中的登记。
+ * 失效只作用于本节点，max-age 为多节点部署下的过期上限。
+ * 每次请求按所处的供菜时段记录命中（warm）或未命中（cold），用于观察预热效果。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DailyMenuCache
+{
+
+    private static final String METRIC_PREFIX = "canteen.menu.cache.";
+    private static final DateTimeFormatter PERIOD_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final ObjectMapper objectMapper;
+    private final MenuScheduleIndex menuScheduleIndex;
+    private final MeterRegistry meterRegistry;
+
+    // 供菜时段 -> 命中统计
+    private final Map<String, PeriodStats> statsByPeriod = new ConcurrentHashMap<>();
+
+    private final Map<String, CompletableFuture<Entry>> entries = new ConcurrentHashMap<>();
+
+    // 依赖 -> 缓存键
+    private final Map<String, Set<String>> keysByCanteen = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> keysByDish = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> keysByTag = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> keysByAllergen = new ConcurrentHashMap<>();
+
+    // 缓存键 -> 该键登记过的依赖，键离开缓存时据此清理上面的依赖表；登记和清理都在它的锁内进行
+    private final Map<String, Dependencies> dependenciesByKey = new HashMap<>();
+
+    // 每次失效递增，用于识别构建期间发生的失效
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Value("${canteen.menu-cache.max-entries:2000}")
+    private int maxEntries;
+
+    @Value("${canteen.menu-cache.max-age-seconds:600}")
+    private long maxAgeSeconds;
+
+    /**
+     * 获取某食堂某日菜谱的 JSON 字节，未命中时调用 loader 构建。
+     *
+     * @param canteenId 食堂ID
+     * @param menuDate  菜谱日期
+     * @param loader    构建菜谱列表，抛出的异常原样传给所有等待者
+     * @return 菜谱列表的 JSON 字节
+     */
+    public byte[] get(String canteenId, LocalDate menuDate, Supplier<List<DailyMenuResponse>> loader)
+    {
+        String key = key(canteenId, menuDate);
+        boolean warm = true;
+        while (true)
+        {
+            CompletableFuture<Entry> mine = new CompletableFuture<>();
+            CompletableFuture<Entry> existing = entries.putIfAbsent(key, mine);
+            if (existing == null)
+            {
+                recordLookup(canteenId, menuDate, false);
+                return build(key, canteenId, loader, mine).json();
+            }
+            warm &= existing.isDone();
+            Entry entry = join(existing);
+            if (entry.builtAtMillis() + maxAgeSeconds * 1000 >= System.currentTimeMillis())
+            {
+                recordLookup(canteenId, menuDate, warm);
+                return entry.json();
+            }
+            warm = false;
+            if (entries.remove(key, existing)) // 超过 max-age，由下一轮重建
+            {
+                release(key);
+            }
+        }
+    }
+
+    /**
+     * 重新构建并替换条目（预热）。构建期间旧条目仍可被读取；构建期间若发生过失效则不写入。
+     *
+     * @param canteenId 食堂ID
+     * @param menuDate  菜谱日期
+     * @param loader    构建菜谱列表
+     * @return 新条目写入缓存时返回 true，构建期间发生过失效而未写入时返回 false
+     */
+    public boolean refresh(String canteenId, LocalDate menuDate, Supplier<List<DailyMenuResponse>> loader)
+    {
+        String key = key(canteenId, menuDate);
+        long invalidationsAtStart = invalidations.get();
+        List<DailyMenuResponse> menus = loader.get();
+        Entry entry = new Entry(serialize(menus), System.currentTimeMillis());
+        boolean stored;
+        synchronized (dependenciesByKey)
+        {
+            // 登记和写入在同一把锁内，避免并发的 release 在两者之间清掉刚登记的依赖
+            registerDependencies(key, canteenId, menus);
+            stored = invalidations.get() == invalidationsAtStart;
+            if (stored)
+            {
+                entries.put(key, CompletableFuture.completedFuture(entry));
+            }
+        }
+        if (!stored)
+        {
+            release(key);
+        }
+        else if (entries.size() > maxEntries)
+        {
+            evictOldest();
+        }
+        return stored;
+    }
+
+    /**
+     * 判断条目是否需要预热：不存在、尚未构建完成，或将在指定时间内超过 max-age。
+     *
+     * @param canteenId    食堂ID
+     * @param menuDate     菜谱日期
+     * @param withinMillis 时间范围（毫秒）
+     * @return 需要预热时返回 true
+     */
+    public boolean expiresWithin(String canteenId, LocalDate menuDate, long withinMillis)
+    {
+        CompletableFuture<Entry> future = entries.get(key(canteenId, menuDate));
+        Entry entry = future == null || future.isCompletedExceptionally() ? null : future.getNow(null);
+        return entry == null || entry.builtAtMillis() + maxAgeSeconds * 1000 < System.currentTimeMillis() + withinMillis;
+    }
+
+    /**
+     * 由当前线程构建条目。
+     */
+    private Entry build(String key, String canteenId, Supplier<List<DailyMenuResponse>> loader, CompletableFuture<Entry> future)
+    {
+        long invalidationsAtStart = invalidations.get();
+        Entry entry;
+        try
+        {
+            List<DailyMenuResponse> menus = loader.get();
+            entry = new Entry(serialize(menus), System.currentTimeMillis());
+            registerDependencies(key, canteenId, menus);
+        }
+        catch (RuntimeException e)
+        {
+            entries.remove(key, future);
+            release(key);
+            future.completeExceptionally(e);
+            throw e;
+        }
+        future.complete(entry);
+        if (invalidations.get() != invalidationsAtStart)
+        {
+            // 构建期间有数据变更提交，无法确定读到的是否为新数据，不保留该条目
+            entries.remove(key, future);
+            release(key);
+        }
+        else if (entries.size() > maxEntries)
+        {
+            evictOldest();
+        }
+        return entry;
+    }
+
+    /**
+     * 在当前事务提交后失效某食堂某日的菜谱。
+     *
+     * @param canteenId 食堂ID
+     * @param menuDate  菜谱日期
+     */
+    public void invalidateMenu(String canteenId, LocalDate menuDate)
+    {
+        String key = key(canteenId, menuDate);
+        AfterCommit.run(() -> invalidateKeys(Set.of(key)));
+    }
+
+    /**
+     * 在当前事务提交后失效某食堂的全部菜谱（例如食堂名称变更）。
+     *
+     * @param canteenId 食堂ID
+     */
+    public void invalidateCanteen(String canteenId)
+    {
+        AfterCommit.run(() -> invalidateKeys(keysByCanteen.remove(canteenId)));
+    }
+
+    /**
+     * 在当前事务提交后失效包含某菜品的菜谱（菜品信息、可用状态或评分变更）。
+     *
+     * @param dishId 菜品ID
+     */
+    public void invalidateDish(String dishId)
+    {
+        AfterCommit.run(() -> invalidateKeys(keysByDish.remove(dishId)));
+    }
+
+    /**
+     * 在当前事务提交后失效包含带有某饮食标签菜品的菜谱。
+     *
+     * @param tagId 饮食标签ID
+     */
+    public void invalidateTag(String tagId)
+    {
+        AfterCommit.run(() -> invalidateKeys(keysByTag.remove(tagId)));
+    }
+
+    /**
+     * 在当前事务提交后失效包含含有某过敏原菜品的菜谱。
+     *
+     * @param allergenId 过敏原ID
+     */
+    public void invalidateAllergen(String allergenId)
+    {
+        AfterCommit.run(() -> invalidateKeys(keysByAllergen.remove(allergenId)));
+    }
+
+    /**
+     * 在当前事务提交后清空缓存（例如评分聚合全量重建）。
+     */
+    public void invalidateAll()
+    {
+        AfterCommit.run(() -> {
+            invalidations.incrementAndGet();
+            synchronized (dependenciesByKey)
+            {
+                entries.clear();
+                keysByCanteen.clear();
+                keysByDish.clear();
+                keysByTag.clear();
+                keysByAllergen.clear();
+                dependenciesByKey.clear();
+            }
+        });
+    }
+
+    private void invalidateKeys(Set<String> keys)
+    {
+        invalidations.incrementAndGet();
+        if (keys != null)
+        {
+            for (String key : keys)
+            {
+                entries.remove(key);
+                release(key);
+            }
+        }
+    }
+
+    private void registerDependencies(String key, String canteenId, List<DailyMenuResponse> menus)
+    {
+        synchronized (dependenciesByKey)
+        {
+            Dependencies dependencies = dependenciesByKey.computeIfAbsent(key, k -> new Dependencies());
+            link(keysByCanteen, dependencies.canteens(), canteenId, key);
+            for (DailyMenuResponse menu : menus)
+            {
+                for (DishDto dish : menu.getDishes())
+                {
+                    if (dish == null)
+                    {
+                        continue;
+                    }
+                    link(keysByDish, dependencies.dishes(), dish.getDishId(), key);
+                    if (dish.getDietaryTagIds() != null)
+                    {
+                        dish.getDietaryTagIds().forEach(tagId -> link(keysByTag, dependencies.tags(), tagId, key));
+                    }
+                    if (dish.getAllergenIds() != null)
+                    {
+                        dish.getAllergenIds().forEach(allergenId -> link(keysByAllergen, dependencies.allergens(), allergenId, key));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 键离开缓存后清理它在依赖表中的登记，依赖表中不再有键的依赖项一并删除。
+     * 若此时同一个键已被新的构建重新放入缓存，登记留给新条目，等它离开时一起清理。
+     */
+    private void release(String key)
+    {
+        synchronized (dependenciesByKey)
+        {
+            if (entries.containsKey(key))
+            {
+                return;
+            }
+            Dependencies dependencies = dependenciesByKey.remove(key);
+            if (dependencies == null)
+            {
+                return;
+            }
+            unlink(keysByCanteen, dependencies.canteens(), key);
+            unlink(keysByDish, dependencies.dishes(), key);
+            unlink(keysByTag, dependencies.tags(), key);
+            unlink(keysByAllergen, dependencies.allergens(), key);
+        }
+    }
+
+    private static void link(Map<String, Set<String>> index, Set<String> recorded, String id, String key)
+    {
+        recorded.add(id);
+        index.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    private static void unlink(Map<String, Set<String>> index, Set<String> ids, String key)
+    {
+        for (String id : ids)
+        {
+            index.computeIfPresent(id, (k, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    /**
+     * 超出容量时淘汰最早构建的条目。
+     */
+    private void evictOldest()
+    {
+        String oldestKey = null;
+        long oldest = Long.MAX_VALUE;
+        for (Map.Entry<String, CompletableFuture<Entry>> candidate : entries.entrySet())
+        {
+            Entry entry = candidate.getValue().getNow(null);
+            if (entry != null && entry.builtAtMillis() < oldest)
+            {
+                oldest = entry.builtAtMillis();
+                oldestKey = candidate.getKey();
+            }
+        }
+        if (oldestKey != null && entries.remove(oldestKey) != null)
+        {
+            release(oldestKey);
+        }
+    }
+
+    private byte[] serialize(List<DailyMenuResponse> menus)
+    {
+        try
+        {
+            return objectMapper.writeValueAsBytes(menus);
+        }
+        catch (JsonProcessingException e)
+        {
+            throw new IllegalStateException("Failed to serialize daily menus", e);
+        }
+    }
+
+    /**
+     * 按供菜时段记录一次请求是否命中已就绪的条目。
+     * 时段取该食堂当前正在供应菜谱的开始时间（如 11:30）；今天没有正在供应的菜谱时为 between-periods，非今天的请求为 other-date。
+     */
+    private void recordLookup(String canteenId, LocalDate menuDate, boolean warm)
+    {
+        String period;
+        LocalDateTime now = LocalDateTime.now();
+        if (!menuDate.equals(now.toLocalDate()))
+        {
+            period = "other-date";
+        }
+        else
+        {
+            List<DailyMenuResponse> active = menuScheduleIndex.findActive(canteenId, now);
+            period = active.isEmpty() ? "between-periods" : active.get(0).getStartTime().format(PERIOD_FORMAT);
+        }
+        PeriodStats stats = statsByPeriod.computeIfAbsent(period, this::registerPeriod);
+        (warm ? stats.warm : stats.cold).increment();
+    }
+
+    private PeriodStats registerPeriod(String period)
+    {
+        PeriodStats stats = new PeriodStats(
+                Counter.builder(METRIC_PREFIX + "requests").tag("period", period).tag("result", "warm")
+                        .description("Daily menu requests served from a ready cache entry").register(meterRegistry),
+                Counter.builder(METRIC_PREFIX + "requests").tag("period", period).tag("result", "cold")
+                        .description("Daily menu requests that had to build or wait for a cache entry").register(meterRegistry));
+        Gauge.builder(METRIC_PREFIX + "warm.hit.ratio", stats, PeriodStats::warmHitRatio).tag("period", period)
+                .description("Share of daily menu requests served warm in this meal period").register(meterRegistry);
+        return stats;
+    }
+
+    private static Entry join(CompletableFuture<Entry> future)
+    {
+        try
+        {
+            return future.join();
+        }
+        catch (CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException cause)
+            {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static String key(String canteenId, LocalDate menuDate)
+    {
+        return canteenId + '|' + menuDate;
+    }
+
+    /**
+     * 某个供菜时段的命中计数。
+     */
+    private record PeriodStats(Counter warm, Counter cold)
+    {
+        private double warmHitRatio()
+        {
+            double total = warm.count() + cold.count();
+            return total == 0 ? 0 : warm.count() / total;
+        }
+    }
+
+    /**
+     * 一个缓存键登记过的食堂、菜品、饮食标签和过敏原ID。
+     */
+    private record Dependencies(Set<String> canteens, Set<String> dishes, Set<String> tags, Set<String> allergens)
+    {
+        private Dependencies()
+        {
+            this(new HashSet<>(), new HashSet<>(), new HashSet<>(), new HashSet<>());
+        }
+    }
+
+    /**
+     * 缓存条目：JSON 字节及构建时间。
+     */
+    private record Entry(byte[] json, long builtAtMillis)
+    {
+    }
+}
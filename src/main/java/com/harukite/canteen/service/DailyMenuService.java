@@ -1,7 +1,10 @@
 package com.harukite.canteen.service;
 
+import com.harukite.canteen.dto.BulkMenuPublishRequest;
 import com.harukite.canteen.dto.DailyMenuRequest;
 import com.harukite.canteen.dto.DailyMenuResponse;
+import com.harukite.canteen.dto.MenuBatchResult;
+import com.harukite.canteen.dto.MenuCloneRequest;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -31,6 +34,58 @@ public interface DailyMenuService
      */
     List<DailyMenuResponse> getDailyMenusByCanteenAndDate(String canteenId, LocalDate menuDate);
 
+    /**
+     * 根据食堂ID和日期获取每日菜谱列表的 JSON 字节（预序列化缓存）。
+     * 只接受今天前后一定天数内的日期，超出范围时抛出 InvalidInputException。
+     *
+     * @param canteenId 食堂ID
+     * @param menuDate  菜谱日期
+     * @return 每日菜谱响应 DTO 列表的 JSON 字节
+     */
+    byte[] getDailyMenusJsonByCanteenAndDate(String canteenId, LocalDate menuDate);
+
+    /**
+     * 重新构建某食堂某日菜谱的预序列化缓存条目（预热），构建期间旧条目仍可被读取。
+     *
+     * @param canteenId 食堂ID
+     * @param menuDate  菜谱日期
+     * @return 新条目写入缓存时返回 true；构建期间有数据变更提交、条目未写入时返回 false
+     */
+    boolean prewarmDailyMenus(String canteenId, LocalDate menuDate);
+
+    /**
+     * 获取当前正在供应的菜谱（基于内存区间索引，不访问数据库）。
+     *
+     * @param canteenId 食堂ID（可选，为 null 时返回所有食堂）
+     * @return 正在供应的菜谱响应 DTO 列表
+     */
+    List<DailyMenuResponse> getActiveMenus(String canteenId);
+
+    /**
+     * 从数据库重新加载今天和明天的菜谱到正在供应菜谱索引。
+     *
+     * @return 加载的菜谱数
+     */
+    int refreshMenuSchedule();
+
+    /**
+     * 批量发布每日菜谱（例如一周内多个食堂的全部菜谱），在一个事务内批量写入。
+     *
+     * @param request       批量发布请求 DTO
+     * @param publisherName 发布者用户名
+     * @return 批量写入结果
+     */
+    MenuBatchResult publishDailyMenus(BulkMenuPublishRequest request, String publisherName);
+
+    /**
+     * 将源日期范围内的菜谱复制到目标日期范围。
+     *
+     * @param request       复制请求 DTO
+     * @param publisherName 发布者用户名
+     * @return 批量写入结果
+     */
+    MenuBatchResult cloneDailyMenus(MenuCloneRequest request, String publisherName);
+
     /**
      * 获取菜谱列表。
      * @return 每日菜谱响应 DTO 列表
@@ -0,0 +1,364 @@
+package com.harukite.canteen.service;
+
+import com.harukite.canteen.model.Allergen;
+import com.harukite.canteen.model.DietaryTag;
+import com.harukite.canteen.model.Dish;
+import com.harukite.canteen.repository.DishRepository;
+import com.harukite.canteen.util.AfterCommit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * 菜品饮食标签 / 过敏原的内存位图索引。
+ * 每个菜品分配一个序号，每个标签、过敏原、食堂各对应一个以菜品序号为下标的 BitSet；
+ * 每个菜品另存一份以标签/过敏原序号为下标的位掩码，用于增量更新时撤销旧位。
+ * “含全部指定标签且不含任一指定过敏原”的筛选因此只需几次按字的 AND / ANDNOT 运算。
+ * 写操作在数据库事务提交后才应用到索引，启动时从数据库全量构建。
+ * 索引是每个节点各自的一份，增量更新只覆盖本节点上的写操作；其它节点上的菜品增删改和售罄切换
+ * 靠定时全量重建同步，过期时间不超过 canteen.dish-filter-index.rebuild-interval-ms。
+ * 标签与过敏原按首次出现时登记；由于仍被菜品引用的标签/过敏原不允许删除，目录无需随其增删同步。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DishFilterIndex
+{
+
+    private final DishRepository dishRepository;
+
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 已应用的增量更新次数，用于发现与全量重建交错的写操作
+    private final AtomicLong appliedWrites = new AtomicLong();
+
+    // 菜品序号 -> 菜品ID，空闲序号复用
+    private final List<String> dishIdsByOrdinal = new ArrayList<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+
+    // 菜品序号集合
+    private final BitSet indexedDishes = new BitSet();
+    private final BitSet availableDishes = new BitSet();
+    private final Map<String, BitSet> dishesByCanteen = new HashMap<>();
+    private final Catalog tags = new Catalog();
+    private final Catalog allergens = new Catalog();
+
+    // 每个菜品的位掩码
+    private final Map<String, DishMask> masksByDishId = new HashMap<>();
+
+    /**
+     * 应用启动完成后，以及此后定时（默认每分钟）从数据库全量构建索引。
+     * 读取数据库期间若有本节点的增量更新被应用，读到的数据可能比索引旧，此时放弃这次结果重新读取；
+     * 连续冲突时仍然替换，被覆盖的增量更新由下一轮重建补上。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${canteen.dish-filter-index.rebuild-interval-ms:60000}",
+            fixedDelayString = "${canteen.dish-filter-index.rebuild-interval-ms:60000}")
+    public void rebuild()
+    {
+        for (int attempt = 1; ; attempt++)
+        {
+            long writesBefore = appliedWrites.get();
+            List<Object[]> dishRows = dishRepository.findAllFilterIndexRows();
+            Map<String, List<String>> tagIdsByDish = groupPairs(dishRepository.findAllDishTagPairs());
+            Map<String, List<String>> allergenIdsByDish = groupPairs(dishRepository.findAllDishAllergenPairs());
+            if (replaceAll(dishRows, tagIdsByDish, allergenIdsByDish, writesBefore, attempt >= MAX_REBUILD_ATTEMPTS))
+            {
+                log.debug("Dish filter index rebuilt for {} dishes.", dishRows.size());
+                return;
+            }
+        }
+    }
+
+    /**
+     * 用读出的数据替换索引内容；读取期间有增量更新且未强制替换时放弃并返回 false。
+     */
+    private boolean replaceAll(List<Object[]> dishRows, Map<String, List<String>> tagIdsByDish,
+                               Map<String, List<String>> allergenIdsByDish, long writesBefore, boolean force)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            if (!force && appliedWrites.get() != writesBefore)
+            {
+                return false;
+            }
+            dishIdsByOrdinal.clear();
+            freeOrdinals.clear();
+            indexedDishes.clear();
+            availableDishes.clear();
+            dishesByCanteen.clear();
+            tags.clear();
+            allergens.clear();
+            masksByDishId.clear();
+
+            for (Object[] row : dishRows)
+            {
+                String dishId = (String) row[0];
+                applyIndexDish(dishId, (String) row[1], Boolean.TRUE.equals(row[2]),
+                        tagIdsByDish.getOrDefault(dishId, List.of()),
+                        allergenIdsByDish.getOrDefault(dishId, List.of()));
+            }
+            return true;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 在当前事务提交后，将菜品的最新状态写入索引（新增或覆盖）。
+     *
+     * @param dish 已保存的菜品实体
+     */
+    public void indexDish(Dish dish)
+    {
+        // 在事务内先取出所需的值，提交后实体可能已脱管
+        String dishId = dish.getDishId();
+        String canteenId = dish.getCanteen().getCanteenId();
+        boolean available = Boolean.TRUE.equals(dish.getIsAvailable());
+        List<String> tagIds = dish.getDietaryTags().stream().map(DietaryTag::getTagId).collect(Collectors.toList());
+        List<String> allergenIds = dish.getAllergens().stream().map(Allergen::getAllergenId).collect(Collectors.toList());
+        AfterCommit.run(() -> withWriteLock(() -> applyIndexDish(dishId, canteenId, available, tagIds, allergenIds)));
+    }
+
+    /**
+     * 在当前事务提交后，只更新菜品的可用状态位。
+     *
+     * @param dishId    菜品ID
+     * @param available 是否可用
+     */
+    public void updateAvailability(String dishId, boolean available)
+    {
+        AfterCommit.run(() -> withWriteLock(() -> {
+            DishMask mask = masksByDishId.get(dishId);
+            if (mask != null)
+            {
+                availableDishes.set(mask.ordinal, available);
+            }
+        }));
+    }
+
+    /**
+     * 在当前事务提交后，从索引中移除菜品。
+     *
+     * @param dishId 菜品ID
+     */
+    public void removeDish(String dishId)
+    {
+        AfterCommit.run(() -> withWriteLock(() -> applyRemoveDish(dishId)));
+    }
+
+    /**
+     * 查找满足条件的菜品ID。
+     *
+     * @param canteenId           食堂ID，为 null 时不限食堂
+     * @param requiredTagIds      必须同时带有的饮食标签ID
+     * @param excludedAllergenIds 不能含有的过敏原ID
+     * @param availableOnly       是否只返回可用菜品
+     * @return 菜品ID列表，按菜品序号排列
+     */
+    public List<String> findDishIds(String canteenId, Collection<String> requiredTagIds,
+                                    Collection<String> excludedAllergenIds, boolean availableOnly)
+    {
+        lock.readLock().lock();
+        try
+        {
+            BitSet source = canteenId != null ? dishesByCanteen.get(canteenId) : indexedDishes;
+            if (source == null)
+            {
+                return new ArrayList<>();
+            }
+            BitSet result = (BitSet) source.clone();
+            if (availableOnly)
+            {
+                result.and(availableDishes);
+            }
+            if (requiredTagIds != null)
+            {
+                for (String tagId : requiredTagIds)
+                {
+                    BitSet tagged = tags.dishesOf(tagId);
+                    if (tagged == null)
+                    {
+                        return new ArrayList<>(); // 未知标签，不可能有菜品满足
+                    }
+                    result.and(tagged);
+                }
+            }
+            if (excludedAllergenIds != null)
+            {
+                for (String allergenId : excludedAllergenIds)
+                {
+                    BitSet containing = allergens.dishesOf(allergenId);
+                    if (containing != null)
+                    {
+                        result.andNot(containing);
+                    }
+                }
+            }
+
+            List<String> dishIds = new ArrayList<>(result.cardinality());
+            for (int ordinal = result.nextSetBit(0); ordinal >= 0; ordinal = result.nextSetBit(ordinal + 1))
+            {
+                dishIds.add(dishIdsByOrdinal.get(ordinal));
+            }
+            return dishIds;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 写入或覆盖一个菜品，调用方需持有写锁。
+     */
+    private void applyIndexDish(String dishId, String canteenId, boolean available,
+                                Collection<String> tagIds, Collection<String> allergenIds)
+    {
+        applyRemoveDish(dishId);
+
+        int ordinal;
+        if (freeOrdinals.isEmpty())
+        {
+            ordinal = dishIdsByOrdinal.size();
+            dishIdsByOrdinal.add(dishId);
+        }
+        else
+        {
+            ordinal = freeOrdinals.pop();
+            dishIdsByOrdinal.set(ordinal, dishId);
+        }
+        indexedDishes.set(ordinal);
+        if (available)
+        {
+            availableDishes.set(ordinal);
+        }
+        dishesByCanteen.computeIfAbsent(canteenId, k -> new BitSet()).set(ordinal);
+
+        DishMask mask = new DishMask(ordinal, canteenId);
+        for (String tagId : tagIds)
+        {
+            int tagOrdinal = tags.ordinalOf(tagId);
+            tags.dishSets.get(tagOrdinal).set(ordinal);
+            mask.tagMask.set(tagOrdinal);
+        }
+        for (String allergenId : allergenIds)
+        {
+            int allergenOrdinal = allergens.ordinalOf(allergenId);
+            allergens.dishSets.get(allergenOrdinal).set(ordinal);
+            mask.allergenMask.set(allergenOrdinal);
+        }
+        masksByDishId.put(dishId, mask);
+    }
+
+    /**
+     * 移除一个菜品并回收其序号，调用方需持有写锁。
+     */
+    private void applyRemoveDish(String dishId)
+    {
+        DishMask mask = masksByDishId.remove(dishId);
+        if (mask == null)
+        {
+            return;
+        }
+        int ordinal = mask.ordinal;
+        for (int t = mask.tagMask.nextSetBit(0); t >= 0; t = mask.tagMask.nextSetBit(t + 1))
+        {
+            tags.dishSets.get(t).clear(ordinal);
+        }
+        for (int a = mask.allergenMask.nextSetBit(0); a >= 0; a = mask.allergenMask.nextSetBit(a + 1))
+        {
+            allergens.dishSets.get(a).clear(ordinal);
+        }
+        BitSet canteenDishes = dishesByCanteen.get(mask.canteenId);
+        if (canteenDishes != null)
+        {
+            canteenDishes.clear(ordinal);
+        }
+        indexedDishes.clear(ordinal);
+        availableDishes.clear(ordinal);
+        dishIdsByOrdinal.set(ordinal, null);
+        freeOrdinals.push(ordinal);
+    }
+
+    private void withWriteLock(Runnable action)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            appliedWrites.incrementAndGet();
+            action.run();
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Map<String, List<String>> groupPairs(List<Object[]> pairs)
+    {
+        return pairs.stream().collect(Collectors.groupingBy(
+                pair -> (String) pair[0],
+                Collectors.mapping(pair -> (String) pair[1], Collectors.toList())));
+    }
+
+    /**
+     * 单个菜品的位掩码：所属食堂，以及按标签 / 过敏原序号置位的 BitSet。
+     */
+    private static final class DishMask
+    {
+        private final int ordinal;
+        private final String canteenId;
+        private final BitSet tagMask = new BitSet();
+        private final BitSet allergenMask = new BitSet();
+
+        private DishMask(int ordinal, String canteenId)
+        {
+            this.ordinal = ordinal;
+            this.canteenId = canteenId;
+        }
+    }
+
+    /**
+     * 标签或过敏原目录：ID 与序号的双向映射，以及每项对应的菜品集合。
+     */
+    private final class Catalog
+    {
+        private final Map<String, Integer> ordinals = new HashMap<>();
+        private final List<BitSet> dishSets = new ArrayList<>();
+
+        private int ordinalOf(String id)
+        {
+            return ordinals.computeIfAbsent(id, k -> {
+                dishSets.add(new BitSet());
+                return dishSets.size() - 1;
+            });
+        }
+
+        private BitSet dishesOf(String id)
+        {
+            Integer ordinal = ordinals.get(id);
+            return ordinal == null ? null : dishSets.get(ordinal);
+        }
+
+        private void clear()
+        {
+            ordinals.clear();
+            dishSets.clear();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.harukite.canteen.service;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 菜品评分聚合服务接口。
+ * 定义评分聚合的增量维护、查询与全量重建操作。
+ */
+public interface DishRatingStatsService
+{
+
+    /**
+     * 获取菜品的平均评分，没有评分时返回 0.0。
+     *
+     * @param dishId 菜品ID
+     * @return 平均评分
+     */
+    double getAverageRating(String dishId);
+
+    /**
+     * 批量获取菜品的平均评分。
+     * 没有评分记录的菜品不会出现在结果中。
+     *
+     * @param dishIds 菜品ID集合
+     * @return 菜品ID到平均评分的映射
+     */
+    Map<String, Double> getAverageRatings(Collection<String> dishIds);
+
+    /**
+     * 记录一条新增评分。
+     *
+     * @param dishId 菜品ID
+     * @param rating 评分（1-5星）
+     */
+    void recordRatingAdded(String dishId, Integer rating);
+
+    /**
+     * 记录一条评分被修改。
+     *
+     * @param dishId    菜品ID
+     * @param oldRating 修改前评分
+     * @param newRating 修改后评分
+     */
+    void recordRatingChanged(String dishId, Integer oldRating, Integer newRating);
+
+    /**
+     * 记录一条评分被删除。
+     *
+     * @param dishId 菜品ID
+     * @param rating 被删除的评分
+     */
+    void recordRatingRemoved(String dishId, Integer rating);
+
+    /**
+     * 根据 ratings_reviews 表全量重建所有菜品的评分聚合。
+     *
+     * @return 重建后的聚合行数
+     */
+    int rebuildAll();
+}
@@ -1,8 +1,13 @@
 package com.harukite.canteen.service;
 
+import com.harukite.canteen.dto.CursorPageResponse;
+import com.harukite.canteen.dto.DishCatalogQuery;
 import com.harukite.canteen.dto.DishDto;
+import com.harukite.canteen.dto.PageResponse;
+import com.harukite.canteen.exception.InvalidInputException;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -29,6 +34,15 @@ public interface DishService
      */
     DishDto getDishById(String dishId);
 
+    /**
+     * 根据菜品ID批量获取菜品详情。
+     * 菜品、饮食标签、过敏原和评分以固定次数的集合查询加载，结果顺序与传入ID顺序一致。
+     *
+     * @param dishIds 菜品ID集合
+     * @return 菜品 DTO 列表
+     */
+    List<DishDto> getDishesByIds(Collection<String> dishIds);
+
     /**
      * 获取所有菜品列表。
      *
@@ -36,6 +50,27 @@ public interface DishService
      */
     List<DishDto> getAllDishes();
 
+    /**
+     * 按条件分页浏览菜品目录（键集分页）。
+     *
+     * @param filter 筛选条件
+     * @param cursor 上一页返回的游标，首页为 null
+     * @param limit  每页数量
+     * @return 当前页菜品及下一页游标
+     */
+    CursorPageResponse<DishDto> getDishCatalog(DishCatalogQuery filter, String cursor, int limit);
+
+    /**
+     * 查找同时带有全部指定饮食标签、且不含任一指定过敏原的可用菜品。
+     * 筛选在内存位图索引上完成，仅对命中的菜品加载详情。
+     *
+     * @param canteenId           食堂ID（可选）
+     * @param requiredTagIds      必须带有的饮食标签ID（可选）
+     * @param excludedAllergenIds 需要排除的过敏原ID（可选）
+     * @return 菜品 DTO 列表
+     */
+    List<DishDto> getSafeDishes(String canteenId, List<String> requiredTagIds, List<String> excludedAllergenIds);
+
     /**
      * 更新菜品信息。
      *
@@ -52,4 +87,17 @@ public interface DishService
      * @param dishId 要删除的菜品ID
      */
     void deleteDish(String dishId);
+
+    /**
+     * 按关键字检索菜品，结果按相关度排序并分页。
+     *
+     * @param keyword   关键字
+     * @param canteenId 食堂ID（可选）
+     * @param todayOnly 是否仅检索今日菜谱中的菜品
+     * @param page      页码，从 0 开始（最大 100）
+     * @param size      每页数量
+     * @return 当前页菜品
+     * @throws InvalidInputException 如果关键字为空或过长，或页码超过上限
+     */
+    PageResponse<DishDto> searchDishes(String keyword, String canteenId, boolean todayOnly, int page, int size);
 }
@@ -0,0 +1,74 @@
+package com.harukite.canteen.service;
+
+import com.harukite.canteen.dto.DishStockDto;
+import com.harukite.canteen.dto.DishStockRequest;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 菜品每日库存服务接口。
+ * 定义库存的设置与查询、下单时的原子扣减、取消时的归还，以及售罄状态的自动切换。
+ * 当日没有库存行的菜品不限量。
+ */
+public interface DishStockService
+{
+
+    /**
+     * 设置菜品某日的供应总份数，已售出的份数保持不变。
+     *
+     * @param request 库存信息
+     * @return 设置后的库存 DTO
+     */
+    DishStockDto setStock(DishStockRequest request);
+
+    /**
+     * 获取食堂某日的全部菜品库存。
+     *
+     * @param canteenId 食堂ID
+     * @param stockDate 日期
+     * @return 按菜品名称排序的库存 DTO 列表
+     */
+    List<DishStockDto> getStocks(String canteenId, LocalDate stockDate);
+
+    /**
+     * 删除菜品某日的库存设置，使其恢复不限量。
+     *
+     * @param dishId    菜品ID
+     * @param stockDate 日期
+     */
+    void deleteStock(String dishId, LocalDate stockDate);
+
+    /**
+     * 为一个订单扣减各菜品的库存，全部成功或全部不扣。
+     *
+     * @param stockDate        订单日期
+     * @param quantitiesByDish 菜品ID到份数的映射
+     * @return 实际扣减了库存的菜品ID；没有库存设置（不限量）的菜品不在其中
+     */
+    Set<String> reserve(LocalDate stockDate, Map<String, Integer> quantitiesByDish);
+
+    /**
+     * 归还一个订单扣减的库存，随当前事务一同提交。
+     * 调用方只应传入 {@link #reserve} 实际扣减过的菜品。
+     *
+     * @param stockDate        订单日期
+     * @param quantitiesByDish 菜品ID到份数的映射
+     */
+    void restore(LocalDate stockDate, Map<String, Integer> quantitiesByDish);
+
+    /**
+     * 日期切换时同步售罄状态：恢复前一日因售罄下架的菜品，下架今日库存已为 0 的菜品。
+     */
+    void rolloverSoldOut();
+
+    /**
+     * 归还已扣减却没有对应订单的库存（扣减提交后、订单事务提交前进程崩溃）。
+     * 只处理一段时间内没有变更的库存行，正在下单的请求不会被误判。
+     *
+     * @return 被校正的库存行数
+     */
+    int reconcileRemaining();
+}
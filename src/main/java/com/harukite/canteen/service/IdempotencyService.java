@@ -0,0 +1,46 @@
+package com.harukite.canteen.service;
+
+import java.util.function.Supplier;
+
+/**
+ * 幂等请求服务接口。
+ * 客户端在创建类请求上携带 Idempotency-Key，重试时返回首次执行的结果而不是再创建一条记录。
+ */
+public interface IdempotencyService
+{
+
+    /**
+     * 订单创建接口的范围。
+     */
+    String SCOPE_ORDER_CREATE = "order.create";
+
+    /**
+     * 宴会预订创建接口的范围。
+     */
+    String SCOPE_BANQUET_CREATE = "banquet.create";
+
+    /**
+     * 以幂等方式执行一次创建操作。
+     * 同一用户在同一范围内以同一个键发起的请求只执行一次，保留期内的重放直接返回已保存的结果；
+     * 同时到达的重复请求会等待正在执行的那一次并共享其结果。
+     *
+     * @param scope          接口范围
+     * @param userId         用户ID
+     * @param idempotencyKey 幂等键，为 null 或空时直接执行
+     * @param request        请求体，用于校验重放内容是否一致
+     * @param responseType   结果类型
+     * @param action         实际的创建操作
+     * @param <T>            结果类型
+     * @return 首次执行的结果
+     * @throws com.harukite.canteen.exception.InvalidInputException   如果幂等键过长，或同一个键对应了不同的请求体
+     * @throws com.harukite.canteen.exception.OperationInProgressException 如果同一个键的请求正在其它节点上执行
+     */
+    <T> T execute(String scope, String userId, String idempotencyKey, Object request, Class<T> responseType, Supplier<T> action);
+
+    /**
+     * 清理已过期的幂等键记录。
+     *
+     * @return 删除的记录数
+     */
+    int purgeExpired();
+}
@@ -0,0 +1,41 @@
+package com.harukite.canteen.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 图片衍生版本服务接口。
+ * 上传的原图在后台被解码一次，生成若干缩放并重新压缩的 JPEG 版本，与原图存放在同一文件夹下：
+ * {原图 key 去掉扩展名}_{版本名}.jpg。版本生成是异步的，生成完成前客户端应回退到原图。
+ */
+public interface ImageVariantService
+{
+
+    /**
+     * 为已上传的原图排队生成衍生版本。
+     * 必须在请求线程中、业务事务提交后调用；队列已满或文件无法读取时只记录日志，不抛出异常。
+     * 复用已有对象的上传也应调用：各版本都已存在时不会重新生成。
+     *
+     * @param file        上传的原图文件，为 null 或空时忽略
+     * @param originalUrl 原图 URL，为 null 时忽略
+     */
+    void generateVariants(MultipartFile file, String originalUrl);
+
+    /**
+     * 计算原图各衍生版本的 URL。
+     *
+     * @param originalUrl 原图 URL
+     * @return 版本名到 URL 的映射；原图为空或不属于本存储时返回空映射
+     */
+    Map<String, String> variantUrls(String originalUrl);
+
+    /**
+     * 计算原图所有衍生版本的 URL，用于随原图一同删除。
+     *
+     * @param originalUrl 原图 URL
+     * @return 衍生版本 URL 列表
+     */
+    List<String> allVariantUrls(String originalUrl);
+}
@@ -0,0 +1,20 @@
+package com.harukite.canteen.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 厨房订单实时推送服务接口。
+ * 按食堂推送新订单和订单状态变化，供工作人员的后厨屏幕替代轮询。
+ */
+public interface KitchenFeedService
+{
+
+    /**
+     * 订阅食堂的订单事件流。
+     *
+     * @param canteenId   食堂ID
+     * @param lastEventId 客户端最后收到的事件ID（Last-Event-ID），首次连接为 null
+     * @return SSE 连接
+     */
+    SseEmitter subscribe(String canteenId, String lastEventId);
+}
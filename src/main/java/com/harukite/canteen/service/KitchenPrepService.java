@@ -0,0 +1,62 @@
+package com.harukite.canteen.service;
+
+import com.harukite.canteen.dto.KitchenPrepItemDto;
+import com.harukite.canteen.model.BanquetReservation;
+import com.harukite.canteen.model.Order;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 后厨备餐清单服务接口。
+ * 按食堂、日期和取餐时段汇总需要准备的菜品份数，计数随订单和宴会预订的状态变化在同一事务内增量维护。
+ */
+public interface KitchenPrepService
+{
+
+    /**
+     * 获取食堂某日的备餐清单。
+     *
+     * @param canteenId 食堂ID
+     * @param date      日期
+     * @return 按时段和菜品名称排序的备餐项列表
+     */
+    List<KitchenPrepItemDto> getPrepList(String canteenId, LocalDate date);
+
+    /**
+     * 在当前事务中计入一个订单的菜品份数。订单及订单项须已写入数据库。
+     *
+     * @param order 订单
+     */
+    void addOrder(Order order);
+
+    /**
+     * 在当前事务中扣除一个订单的菜品份数（订单被取消时调用）。
+     *
+     * @param order 订单
+     */
+    void removeOrder(Order order);
+
+    /**
+     * 在当前事务中计入一个宴会预订的定制菜品和套餐菜品份数（预订被确认时调用）。
+     *
+     * @param reservation 宴会预订
+     */
+    void addBanquet(BanquetReservation reservation);
+
+    /**
+     * 在当前事务中扣除一个宴会预订的菜品份数（已确认的预订被取消时调用）。
+     *
+     * @param reservation 宴会预订
+     */
+    void removeBanquet(BanquetReservation reservation);
+
+    /**
+     * 从订单和宴会预订重新汇总食堂某日的备餐计数，用于初始化历史数据或取餐时段调整后校正。
+     *
+     * @param canteenId 食堂ID
+     * @param date      日期
+     * @return 重建后的计数行数
+     */
+    int rebuild(String canteenId, LocalDate date);
+}
@@ -0,0 +1,17 @@
+package com.harukite.canteen.service;
+
+/**
+ * 每日菜谱缓存预热服务接口。
+ * 在每个菜谱供应时段开始前的一段时间内，提前构建并缓存相关食堂当天的菜谱 JSON，
+ * 使开餐高峰的第一批请求不再承担查库、序列化和冷代码路径的开销。
+ */
+public interface MenuPrewarmService
+{
+
+    /**
+     * 预热即将开始供应的菜谱，以及正在供应但缓存即将过期的菜谱。
+     *
+     * @return 本轮预热的缓存条目数
+     */
+    int prewarmUpcomingMenus();
+}
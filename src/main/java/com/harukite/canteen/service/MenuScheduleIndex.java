@@ -0,0 +1,243 @@
+package com.harukite.canteen.service;
+
+import com.harukite.canteen.dto.DailyMenuResponse;
+import com.harukite.canteen.util.AfterCommit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 正在供应菜谱的内存区间索引。
+ * 每个食堂一份按开始时间排序的区间数组，并记录前缀最大结束时间：
+ * 查询时二分找到最后一个已开始的区间，再向前扫描到前缀最大结束时间不晚于当前时间为止，
+ * 因此无需访问数据库，也不必逐个比较当天的所有菜谱。
+ * 每个食堂的区间数组不可变，写入时整体替换（写时复制），读取无需加锁。
+ * 写操作在数据库事务提交后才应用到索引。
+ */
+@Service
+@Slf4j
+public class MenuScheduleIndex
+{
+
+    private volatile Map<String, CanteenSchedule> schedulesByCanteen = Map.of();
+
+    // 菜谱ID -> 菜谱，仅在持有 this 锁时访问
+    private final Map<String, DailyMenuResponse> menusById = new HashMap<>();
+
+    /**
+     * 用给定的菜谱全量替换索引内容。
+     *
+     * @param menus 菜谱列表（通常为今天和明天的全部菜谱）
+     */
+    public synchronized void replaceAll(Collection<DailyMenuResponse> menus)
+    {
+        menusById.clear();
+        for (DailyMenuResponse menu : menus)
+        {
+            menusById.put(menu.getMenuId(), menu);
+        }
+        rebuildAll();
+        log.info("Menu schedule index built for {} menus.", menusById.size());
+    }
+
+    /**
+     * 在当前事务提交后写入或覆盖一个菜谱。
+     *
+     * @param menu 菜谱响应 DTO
+     */
+    public void put(DailyMenuResponse menu)
+    {
+        AfterCommit.run(() -> apply(menu.getMenuId(), menu));
+    }
+
+    /**
+     * 在当前事务提交后移除一个菜谱。
+     *
+     * @param menuId 菜谱ID
+     */
+    public void remove(String menuId)
+    {
+        AfterCommit.run(() -> apply(menuId, null));
+    }
+
+    /**
+     * 查找在指定时间正在供应的菜谱。
+     *
+     * @param canteenId 食堂ID，为 null 时查找所有食堂
+     * @param at        时间
+     * @return 正在供应的菜谱，按食堂内开始时间排列
+     */
+    public List<DailyMenuResponse> findActive(String canteenId, LocalDateTime at)
+    {
+        Map<String, CanteenSchedule> schedules = schedulesByCanteen;
+        List<DailyMenuResponse> active = new ArrayList<>();
+        if (canteenId != null)
+        {
+            CanteenSchedule schedule = schedules.get(canteenId);
+            if (schedule != null)
+            {
+                schedule.collectActive(at, active);
+            }
+            return active;
+        }
+        for (CanteenSchedule schedule : schedules.values())
+        {
+            schedule.collectActive(at, active);
+        }
+        return active;
+    }
+
+    /**
+     * 查找开始时间落在 (from, to] 内的菜谱，用于在供应开始前预热缓存。
+     *
+     * @param from 起始时间（不含）
+     * @param to   结束时间（含）
+     * @return 即将开始供应的菜谱
+     */
+    public List<DailyMenuResponse> findStartingBetween(LocalDateTime from, LocalDateTime to)
+    {
+        List<DailyMenuResponse> starting = new ArrayList<>();
+        for (CanteenSchedule schedule : schedulesByCanteen.values())
+        {
+            schedule.collectStarting(from, to, starting);
+        }
+        return starting;
+    }
+
+    private synchronized void apply(String menuId, DailyMenuResponse menu)
+    {
+        DailyMenuResponse previous = menu == null ? menusById.remove(menuId) : menusById.put(menuId, menu);
+        Set<String> affected = new HashSet<>();
+        if (previous != null)
+        {
+            affected.add(previous.getCanteenId());
+        }
+        if (menu != null)
+        {
+            affected.add(menu.getCanteenId());
+        }
+        Map<String, CanteenSchedule> schedules = new HashMap<>(schedulesByCanteen);
+        for (String canteenId : affected)
+        {
+            List<DailyMenuResponse> canteenMenus = menusById.values().stream()
+                    .filter(m -> canteenId.equals(m.getCanteenId()))
+                    .toList();
+            if (canteenMenus.isEmpty())
+            {
+                schedules.remove(canteenId);
+            }
+            else
+            {
+                schedules.put(canteenId, CanteenSchedule.of(canteenMenus));
+            }
+        }
+        schedulesByCanteen = Map.copyOf(schedules);
+    }
+
+    private void rebuildAll()
+    {
+        Map<String, List<DailyMenuResponse>> byCanteen = new HashMap<>();
+        for (DailyMenuResponse menu : menusById.values())
+        {
+            byCanteen.computeIfAbsent(menu.getCanteenId(), k -> new ArrayList<>()).add(menu);
+        }
+        Map<String, CanteenSchedule> schedules = new HashMap<>();
+        byCanteen.forEach((canteenId, canteenMenus) -> schedules.put(canteenId, CanteenSchedule.of(canteenMenus)));
+        schedulesByCanteen = Map.copyOf(schedules);
+    }
+
+    /**
+     * 单个食堂的不可变区间数组：按开始时间排序，maxEnds[i] 为前 i+1 个区间结束时间的最大值。
+     * 结束时间不晚于开始时间的菜谱视为跨过午夜。
+     */
+    private static final class CanteenSchedule
+    {
+        private final LocalDateTime[] starts;
+        private final LocalDateTime[] ends;
+        private final LocalDateTime[] maxEnds;
+        private final DailyMenuResponse[] menus;
+
+        private CanteenSchedule(int size)
+        {
+            starts = new LocalDateTime[size];
+            ends = new LocalDateTime[size];
+            maxEnds = new LocalDateTime[size];
+            menus = new DailyMenuResponse[size];
+        }
+
+        private static CanteenSchedule of(Collection<DailyMenuResponse> canteenMenus)
+        {
+            List<DailyMenuResponse> sorted = new ArrayList<>(canteenMenus);
+            sorted.sort(Comparator.comparing(CanteenSchedule::startOf));
+            CanteenSchedule schedule = new CanteenSchedule(sorted.size());
+            for (int i = 0; i < sorted.size(); i++)
+            {
+                DailyMenuResponse menu = sorted.get(i);
+                LocalDateTime start = startOf(menu);
+                LocalDateTime end = menu.getMenuDate().atTime(menu.getEndTime());
+                if (!end.isAfter(start))
+                {
+                    end = end.plusDays(1);
+                }
+                schedule.starts[i] = start;
+                schedule.ends[i] = end;
+                schedule.maxEnds[i] = i == 0 || end.isAfter(schedule.maxEnds[i - 1]) ? end : schedule.maxEnds[i - 1];
+                schedule.menus[i] = menu;
+            }
+            return schedule;
+        }
+
+        private static LocalDateTime startOf(DailyMenuResponse menu)
+        {
+            return menu.getMenuDate().atTime(menu.getStartTime());
+        }
+
+        /**
+         * 收集开始时间落在 (from, to] 内的菜谱。
+         */
+        private void collectStarting(LocalDateTime from, LocalDateTime to, List<DailyMenuResponse> out)
+        {
+            for (int i = 0; i < starts.length && !starts[i].isAfter(to); i++)
+            {
+                if (starts[i].isAfter(from))
+                {
+                    out.add(menus[i]);
+                }
+            }
+        }
+
+        /**
+         * 收集在 at 时刻正在供应（start <= at < end）的菜谱，按开始时间排列。
+         */
+        private void collectActive(LocalDateTime at, List<DailyMenuResponse> out)
+        {
+            // 最后一个 start <= at 的下标
+            int low = 0;
+            int high = starts.length - 1;
+            int last = -1;
+            while (low <= high)
+            {
+                int mid = (low + high) >>> 1;
+                if (starts[mid].isAfter(at))
+                {
+                    high = mid - 1;
+                }
+                else
+                {
+                    last = mid;
+                    low = mid + 1;
+                }
+            }
+            int first = out.size();
+            for (int i = last; i >= 0 && maxEnds[i].isAfter(at); i--)
+            {
+                if (ends[i].isAfter(at))
+                {
+                    out.add(first, menus[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.harukite.canteen.service;
+
+import com.harukite.canteen.dto.ObjectListingPage;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 对象存储接口。
+ * 由 canteen.storage.type 选择实现：cos（腾讯云 COS，默认）或 local（本地文件系统）。
+ * 所有实现返回相同格式的 URL：{base-url}/{key}。
+ * 图片按内容寻址存放在 objects/{SHA-256}{扩展名}，衍生版本为 objects/{SHA-256}_{规格}{扩展名}；key 由 StoredObjectService 决定，
+ * 存储实现只负责按 key 写入、列举和批量删除。
+ */
+public interface ObjectStorage
+{
+
+    /**
+     * 以指定 key 上传文件，已存在时覆盖。
+     *
+     * @param key  对象 key
+     * @param file MultipartFile 文件对象
+     * @return 文件 URL
+     * @throws IOException 如果文件处理或上传失败
+     */
+    String putFile(String key, MultipartFile file) throws IOException;
+
+    /**
+     * 以指定 key 写入一段内容，已存在时覆盖。
+     *
+     * @param key         对象 key
+     * @param content     内容
+     * @param contentType 内容类型
+     * @return 文件 URL
+     * @throws IOException 如果写入失败
+     */
+    String putObject(String key, byte[] content, String contentType) throws IOException;
+
+    /**
+     * 批量删除文件。不属于本存储的 URL 视为已删除。
+     *
+     * @param fileUrls 要删除的文件 URL 集合
+     * @return 删除失败的文件 URL 到错误信息的映射，全部成功时为空
+     */
+    Map<String, String> deleteFiles(Collection<String> fileUrls);
+
+    /**
+     * 按 key 顺序分页列出指定前缀下的对象。
+     *
+     * @param prefix  key 前缀（例如 "dishes/"）
+     * @param marker  上一页返回的 nextMarker，首页传 null
+     * @param maxKeys 每页最多返回的对象数
+     * @return 当前页对象
+     * @throws IOException 如果列举失败
+     */
+    ObjectListingPage listObjects(String prefix, String marker, int maxKeys) throws IOException;
+
+    /**
+     * 根据对象 key 拼接可访问 URL。
+     *
+     * @param key 对象 key
+     * @return 文件 URL
+     */
+    String urlOf(String key);
+
+    /**
+     * 从 URL 中提取对象 key。
+     *
+     * @param fileUrl 文件 URL
+     * @return 对象 key，不属于本存储的 URL 返回 null
+     */
+    String keyOf(String fileUrl);
+}
@@ -0,0 +1,34 @@
+package com.harukite.canteen.service;
+
+import com.harukite.canteen.dto.OrderEvent;
+
+import java.util.function.Consumer;
+
+/**
+ * 订单变更事件总线接口。
+ * 事件在业务事务内发布、随事务提交投递到所有节点，事务回滚时不投递。
+ */
+public interface OrderEventBus
+{
+
+    /**
+     * 在当前事务中发布事件。
+     *
+     * @param event 事件（eventId 由总线在投递时分配）
+     */
+    void publish(OrderEvent event);
+
+    /**
+     * 订阅本节点收到的事件。回调在总线的投递线程上执行，不得阻塞。
+     *
+     * @param listener 事件回调
+     */
+    void subscribe(Consumer<OrderEvent> listener);
+
+    /**
+     * 订阅投递中断事件：与数据库的监听连接断开重连后，期间的事件可能已丢失，订阅方应让客户端重新加载。
+     *
+     * @param listener 回调
+     */
+    void onGap(Runnable listener);
+}
@@ -0,0 +1,16 @@
+package com.harukite.canteen.service;
+
+/**
+ * 订单分区维护服务接口。
+ * Orders 与 Order_Items 按预订日期按月分区：提前创建未来月份的分区，并将超出保留期的分区分离归档。
+ */
+public interface OrderPartitionService
+{
+
+    /**
+     * 创建缺失的未来分区并归档过期分区。
+     *
+     * @return 本轮归档的月份数
+     */
+    int maintainPartitions();
+}
@@ -1,9 +1,13 @@
 package com.harukite.canteen.service;
 
+import com.harukite.canteen.dto.CursorPageResponse;
 import com.harukite.canteen.dto.OrderRequest;
 import com.harukite.canteen.dto.OrderResponse;
+import com.harukite.canteen.dto.OrderSearchQuery;
+import com.harukite.canteen.dto.OrderSummaryDto;
 import com.harukite.canteen.model.OrderStatus;
 
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -25,10 +29,11 @@ public interface OrderService
     /**
      * 根据订单ID获取订单详情。
      *
-     * @param orderId 订单ID
+     * @param orderId   订单ID
+     * @param orderDate 预订日期，可为空；提供时只查找该日期所在的分区
      * @return 订单响应 DTO
      */
-    OrderResponse getOrderById(String orderId);
+    OrderResponse getOrderById(String orderId, LocalDate orderDate);
 
     /**
      * 获取所有订单列表。
@@ -37,6 +42,16 @@ public interface OrderService
      */
     List<OrderResponse> getAllOrders();
 
+    /**
+     * 按条件检索订单，按创建时间倒序键集分页。
+     *
+     * @param filter 筛选条件，所有字段均可为空
+     * @param cursor 上一页返回的游标，首页为 null
+     * @param limit  每页数量
+     * @return 当前页订单摘要及下一页游标
+     */
+    CursorPageResponse<OrderSummaryDto> searchOrders(OrderSearchQuery filter, String cursor, int limit);
+
     /**
      * 根据用户ID获取其所有订单。
      *
@@ -49,16 +64,18 @@ public interface OrderService
      * 更新订单状态。
      *
      * @param orderId   订单ID
+     * @param orderDate 预订日期，可为空；提供时只查找该日期所在的分区
      * @param newStatus 新的订单状态
      * @return 更新后的订单响应 DTO
      */
-    OrderResponse updateOrderStatus(String orderId, OrderStatus newStatus);
+    OrderResponse updateOrderStatus(String orderId, LocalDate orderDate, OrderStatus newStatus);
 
     /**
      * 取消订单。
      *
-     * @param orderId 订单ID
-     * @param userId  操作用户ID (用于权限检查)
+     * @param orderId   订单ID
+     * @param orderDate 预订日期，可为空；提供时只查找该日期所在的分区
+     * @param userId    操作用户ID (用于权限检查)
      */
-    void cancelOrder(String orderId, String userId);
+    void cancelOrder(String orderId, LocalDate orderDate, String userId);
 }
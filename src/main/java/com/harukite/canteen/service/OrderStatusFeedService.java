@@ -0,0 +1,20 @@
+package com.harukite.canteen.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 订单状态实时推送服务接口。
+ * 向用餐者推送其本人订单的状态变化，供客户端替代对当前用户订单列表的轮询。
+ */
+public interface OrderStatusFeedService
+{
+
+    /**
+     * 订阅用户本人订单的状态变化。
+     *
+     * @param userId      用户ID
+     * @param lastEventId 客户端最后收到的事件ID（Last-Event-ID），首次连接为 null
+     * @return SSE 连接
+     */
+    SseEmitter subscribe(String userId, String lastEventId);
+}
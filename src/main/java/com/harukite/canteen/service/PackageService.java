@@ -2,6 +2,7 @@ package com.harukite.canteen.service;
 
 import com.harukite.canteen.dto.PackageDto;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -26,6 +27,14 @@ public interface PackageService {
      */
     PackageDto getPackageById(String packageId);
 
+    /**
+     * 根据套餐ID批量获取套餐详情。
+     *
+     * @param packageIds 套餐ID集合
+     * @return 套餐 DTO 列表
+     */
+    List<PackageDto> getPackagesByIds(Collection<String> packageIds);
+
     /**
      * 获取所有套餐列表。
      *
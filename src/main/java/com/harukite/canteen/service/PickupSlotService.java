@@ -0,0 +1,74 @@
+package com.harukite.canteen.service;
+
+import com.harukite.canteen.dto.PickupSlotDto;
+import com.harukite.canteen.dto.PickupSlotRequest;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * 取餐时段容量服务接口。
+ * 定义时段的配置、剩余容量查询，以及下单时的容量预占与取消时的释放。
+ */
+public interface PickupSlotService
+{
+
+    /**
+     * 创建取餐时段。
+     *
+     * @param request 时段信息
+     * @return 创建成功的时段 DTO
+     */
+    PickupSlotDto createSlot(PickupSlotRequest request);
+
+    /**
+     * 更新取餐时段的时间范围和容量。调低容量不会影响已预占的订单。
+     *
+     * @param slotId  时段ID
+     * @param request 时段信息
+     * @return 更新后的时段 DTO
+     */
+    PickupSlotDto updateSlot(String slotId, PickupSlotRequest request);
+
+    /**
+     * 删除取餐时段。已预占该时段的订单不再关联时段。
+     *
+     * @param slotId 时段ID
+     */
+    void deleteSlot(String slotId);
+
+    /**
+     * 获取食堂某日各时段的容量与剩余名额。
+     *
+     * @param canteenId 食堂ID
+     * @param slotDate  日期
+     * @return 按开始时间排序的时段 DTO 列表
+     */
+    List<PickupSlotDto> getSlots(String canteenId, LocalDate slotDate);
+
+    /**
+     * 为一个订单预占覆盖取餐时间的时段名额。
+     *
+     * @param canteenId  食堂ID
+     * @param slotDate   日期
+     * @param pickupTime 取餐时间
+     * @return 预占的时段ID；该时间未配置时段（不限量）时返回 null
+     */
+    String reserve(String canteenId, LocalDate slotDate, LocalTime pickupTime);
+
+    /**
+     * 释放一个已预占的名额，在当前事务提交后生效。
+     *
+     * @param slotId 时段ID，为 null 时忽略
+     */
+    void release(String slotId);
+
+    /**
+     * 归还已预占却没有对应订单的名额（预占提交后、订单事务提交前进程崩溃）。
+     * 只处理一段时间内没有预占或释放的时段，正在下单的请求不会被误判。
+     *
+     * @return 被校正的时段数
+     */
+    int reconcileReserved();
+}
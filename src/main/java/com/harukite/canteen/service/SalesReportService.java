@@ -0,0 +1,47 @@
+package com.harukite.canteen.service;
+
+import com.harukite.canteen.dto.DailySalesDto;
+import com.harukite.canteen.dto.DishSalesDto;
+import com.harukite.canteen.dto.SalesSummaryDto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 销售报表服务接口。
+ * 所有报表只读取汇总表，不扫描订单明细。
+ */
+public interface SalesReportService
+{
+
+    /**
+     * 按食堂和日期获取销售数据。
+     *
+     * @param canteenId 食堂ID，为 null 时包含所有食堂
+     * @param fromDate  开始日期（含）
+     * @param toDate    结束日期（含）
+     * @return 按日期和食堂名称排序的每日销售列表
+     */
+    List<DailySalesDto> getDailySales(String canteenId, LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * 获取日期范围内销量最高的菜品。
+     *
+     * @param canteenId 食堂ID，为 null 时包含所有食堂
+     * @param fromDate  开始日期（含）
+     * @param toDate    结束日期（含）
+     * @param limit     返回条数
+     * @return 按销量倒序的菜品销售列表
+     */
+    List<DishSalesDto> getTopDishes(String canteenId, LocalDate fromDate, LocalDate toDate, int limit);
+
+    /**
+     * 获取日期范围内各状态的订单数和销售金额。
+     *
+     * @param canteenId 食堂ID，为 null 时包含所有食堂
+     * @param fromDate  开始日期（含）
+     * @param toDate    结束日期（含）
+     * @return 汇总数据
+     */
+    SalesSummaryDto getSummary(String canteenId, LocalDate fromDate, LocalDate toDate);
+}
@@ -0,0 +1,37 @@
+package com.harukite.canteen.service;
+
+import com.harukite.canteen.model.Order;
+import com.harukite.canteen.model.OrderStatus;
+
+import java.time.LocalDate;
+
+/**
+ * 销售汇总维护服务接口。
+ * 订单创建和状态变化时在同一事务内增量更新 (食堂, 日期) 与 (食堂, 菜品, 日期) 汇总表，
+ * 并由夜间对账任务从订单表重新计算，校正任何偏差。
+ */
+public interface SalesRollupService
+{
+
+    /**
+     * 在当前事务中记录订单的创建或状态变化。订单须已写入数据库，且已设置为新状态。
+     *
+     * @param order          订单
+     * @param previousStatus 原状态，新建订单为 null
+     */
+    void recordStatusChange(Order order, OrderStatus previousStatus);
+
+    /**
+     * 从订单表重新计算日期范围内（含两端）的汇总，每天一个独立事务。
+     *
+     * @param fromDate 开始日期
+     * @param toDate   结束日期
+     * @return 重新计算的天数
+     */
+    int reconcile(LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * 夜间对账：重新计算最近若干天以及已有预订的未来若干天的汇总。
+     */
+    void scheduledReconcile();
+}
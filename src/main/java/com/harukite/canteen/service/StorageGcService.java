@@ -0,0 +1,46 @@
+package com.harukite.canteen.service;
+
+import com.harukite.canteen.dto.StorageGcReport;
+import com.harukite.canteen.exception.OperationInProgressException;
+
+/**
+ * 对象存储孤儿对象回收服务接口。
+ * 标记阶段流式读取所有实体引用的图片，清除阶段分页列举存储桶，
+ * 删除不再被引用且超过宽限期的对象（包括残留的衍生版本）。
+ */
+public interface StorageGcService
+{
+
+    /**
+     * 运行模式。
+     */
+    enum Mode
+    {
+        /**
+         * 只统计孤儿对象数量和大小并上报指标。
+         */
+        METRICS,
+        /**
+         * 在 METRICS 的基础上逐个记录将被删除的对象，但不删除。
+         */
+        DRY_RUN,
+        /**
+         * 批量删除孤儿对象。
+         */
+        DELETE
+    }
+
+    /**
+     * 以配置的模式（canteen.storage.gc.mode）定时执行一轮回收。
+     */
+    void scheduledCollect();
+
+    /**
+     * 以指定模式执行一轮回收。同一实例上同时只允许一轮在运行。
+     *
+     * @param mode 运行模式
+     * @return 本轮统计
+     * @throws OperationInProgressException 如果已有一轮正在运行
+     */
+    StorageGcReport collect(Mode mode);
+}
@@ -0,0 +1,55 @@
+package com.harukite.canteen.service;
+
+import com.harukite.canteen.dto.StoredFile;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * 对象存储 outbox 服务接口。
+ * 上传在数据库事务开始前完成，引用和删除只在事务内登记，由后台任务批量执行，
+ * 使网络 I/O 不再占用数据库连接。
+ */
+public interface StorageOutboxService
+{
+
+    /**
+     * 在事务之外预先存储文件（按内容寻址，相同内容不会重复上传）。
+     * 必须在业务事务开始前调用；事务内应通过 {@link #retain(String)} 登记引用，
+     * 若随后的事务失败，调用方应通过 {@link #discardStaged(String)} 撤销。
+     * 复用已有对象时结果标记为 deduplicated，其衍生版本已经存在，调用方无需再生成。
+     *
+     * @param file 文件，为 null 或空时不上传
+     * @return 文件 URL 及是否复用了已有对象，未上传时返回 null
+     * @throws RuntimeException 如果上传失败
+     */
+    StoredFile stageUpload(MultipartFile file);
+
+    /**
+     * 撤销一个已预先上传、但业务事务未能提交的文件。
+     *
+     * @param fileUrl 文件 URL，为 null 时忽略
+     */
+    void discardStaged(String fileUrl);
+
+    /**
+     * 在当前事务中登记实体对文件的一个引用。
+     *
+     * @param fileUrl 文件 URL，为 null 或不是按内容寻址的对象时忽略
+     */
+    void retain(String fileUrl);
+
+    /**
+     * 在当前事务中释放实体对文件的引用，随事务一同提交或回滚。
+     * 按内容寻址的对象只减少引用计数，归零后由清理任务删除；
+     * 其它（旧的按 UUID 命名的）文件连同其衍生版本登记到 outbox 等待删除。
+     *
+     * @param fileUrl 文件 URL，为 null 或空时忽略
+     */
+    void release(String fileUrl);
+
+    /**
+     * 批量处理到期的删除任务。
+     *
+     * @return 本轮成功删除的文件数
+     */
+    int drainOutbox();
+}
@@ -0,0 +1,56 @@
+package com.harukite.canteen.service;
+
+import com.harukite.canteen.dto.StoredFile;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * 按内容寻址、带引用计数的图片存储服务接口。
+ * 上传以内容的 SHA-256 作为对象 key，相同内容只写入一次；
+ * 引用它的实体在业务事务内增减引用计数，归零且超过宽限期后才删除实际对象。
+ */
+public interface StoredObjectService
+{
+
+    /**
+     * 存储文件并返回其 URL。内容已存在时直接返回已有 URL 并标记为 deduplicated，不发生网络写入。
+     * 必须在业务事务之外调用；返回的对象在被 {@link #retain(String)} 之前引用计数为 0。
+     *
+     * @param file MultipartFile 文件对象
+     * @return 文件 URL 及是否复用了已有对象
+     * @throws RuntimeException 如果读取或上传失败
+     */
+    StoredFile store(MultipartFile file);
+
+    /**
+     * 判断 URL 是否指向按内容寻址的对象。
+     *
+     * @param fileUrl 文件 URL
+     * @return 是否按内容寻址
+     */
+    boolean isContentAddressed(String fileUrl);
+
+    /**
+     * 在当前事务中为对象增加一个引用。
+     *
+     * @param fileUrl 文件 URL
+     * @return 若 URL 是按内容寻址的对象则返回 true，否则不做任何修改并返回 false
+     * @throws com.harukite.canteen.exception.OperationInProgressException 如果对象正被清理任务删除
+     * @throws com.harukite.canteen.exception.ResourceNotFoundException    如果对象已被删除
+     */
+    boolean retain(String fileUrl);
+
+    /**
+     * 在当前事务中为对象减少一个引用。
+     *
+     * @param fileUrl 文件 URL
+     * @return 若 URL 是按内容寻址的对象则返回 true，否则不做任何修改并返回 false
+     */
+    boolean release(String fileUrl);
+
+    /**
+     * 删除引用计数为 0 且超过宽限期的对象及其衍生版本。
+     *
+     * @return 本轮删除的对象数
+     */
+    int sweepUnreferenced();
+}
@@ -0,0 +1,58 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.service.ObjectStorage;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 对象存储实现的公共部分：URL 与 key 的相互转换。
+ * 各实现共用同一个 base-url，保证切换存储后 URL 格式不变。
+ */
+public abstract class AbstractObjectStorage implements ObjectStorage
+{
+
+    @Value("${tencent.cos.base-url}")
+    protected String baseUrl; // 访问域名，用于拼接文件 URL
+
+    /**
+     * 根据对象 key 拼接可访问 URL。
+     */
+    @Override
+    public String urlOf(String key)
+    {
+        return baseUrl + "/" + key;
+    }
+
+    /**
+     * 从 URL 中提取对象 key，不属于本存储的 URL 返回 null。
+     */
+    @Override
+    public String keyOf(String fileUrl)
+    {
+        if (fileUrl == null || !fileUrl.startsWith(baseUrl + "/"))
+        {
+            return null;
+        }
+        return fileUrl.substring(baseUrl.length() + 1); // +1 是为了去掉开头的斜杠
+    }
+
+    /**
+     * 将 URL 集合转换为 key 到 URL 的映射，跳过不属于本存储的 URL。
+     */
+    protected Map<String, String> urlsByKey(Collection<String> fileUrls)
+    {
+        Map<String, String> urlsByKey = new LinkedHashMap<>();
+        for (String fileUrl : fileUrls)
+        {
+            String key = keyOf(fileUrl);
+            if (key != null)
+            {
+                urlsByKey.put(key, fileUrl);
+            }
+        }
+        return urlsByKey;
+    }
+}
@@ -7,6 +7,7 @@ import com.harukite.canteen.model.Allergen;
 import com.harukite.canteen.repository.AllergenRepository;
 import com.harukite.canteen.repository.UserRepository;
 import com.harukite.canteen.service.AllergenService;
+import com.harukite.canteen.service.DailyMenuCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -27,6 +28,7 @@ public class AllergenServiceImpl implements AllergenService
 
     private final AllergenRepository allergenRepository;
     private final UserRepository userRepository; // 注入 UserRepository
+    private final DailyMenuCache dailyMenuCache; // 菜谱中的菜品带有过敏原名称
 
     /**
      * 创建一个新的过敏原。
@@ -111,6 +113,7 @@ public class AllergenServiceImpl implements AllergenService
 
         existingAllergen.setAllergenName(updatedAllergenDto.getAllergenName());
         Allergen savedAllergen = allergenRepository.save(existingAllergen);
+        dailyMenuCache.invalidateAllergen(id);
         return convertToDto(savedAllergen);
     }
 
@@ -0,0 +1,98 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.model.User;
+import com.harukite.canteen.repository.BanquetReservationRepository;
+import com.harukite.canteen.repository.OrderRepository;
+import com.harukite.canteen.repository.UserRepository;
+import com.harukite.canteen.service.AuthorizationService;
+import com.harukite.canteen.service.CanteenUserDetails;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+/**
+ * 资源归属鉴权服务接口的实现类。
+ * 认证主体由 JwtRequestFilter 通过 CustomUserDetailsService 加载，已携带用户ID；
+ * 仅当主体不是 CanteenUserDetails 时才按用户名回查一次用户表。
+ */
+@Service("authz")
+@RequiredArgsConstructor
+public class AuthorizationServiceImpl implements AuthorizationService
+{
+
+    private final OrderRepository orderRepository;
+    private final BanquetReservationRepository banquetReservationRepository;
+    private final UserRepository userRepository;
+
+    /**
+     * 判断 userId 是否为当前认证用户本人，不访问数据库。
+     *
+     * @param userId         用户ID
+     * @param authentication 当前认证信息
+     * @return 是本人时返回 true
+     */
+    @Override
+    public boolean isCurrentUser(String userId, Authentication authentication)
+    {
+        String currentUserId = currentUserId(authentication);
+        return currentUserId != null && currentUserId.equals(userId);
+    }
+
+    /**
+     * 判断订单是否属于当前认证用户，一次按主键的存在性查询；提供预订日期时只探查一个月分区。
+     *
+     * @param orderId        订单ID
+     * @param orderDate      预订日期，可为空
+     * @param authentication 当前认证信息
+     * @return 属于当前用户时返回 true
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public boolean isOrderOwner(String orderId, LocalDate orderDate, Authentication authentication)
+    {
+        String currentUserId = currentUserId(authentication);
+        if (currentUserId == null)
+        {
+            return false;
+        }
+        return orderDate != null
+                ? orderRepository.existsByOrderIdAndOrderDateAndUser_UserId(orderId, orderDate, currentUserId)
+                : orderRepository.existsByOrderIdAndUser_UserId(orderId, currentUserId);
+    }
+
+    /**
+     * 判断宴会预订是否属于当前认证用户，一次按主键的存在性查询。
+     *
+     * @param banquetId      宴会预订ID
+     * @param authentication 当前认证信息
+     * @return 属于当前用户时返回 true
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public boolean isBanquetOwner(String banquetId, Authentication authentication)
+    {
+        String currentUserId = currentUserId(authentication);
+        return currentUserId != null && banquetReservationRepository.existsByBanquetIdAndUser_UserId(banquetId, currentUserId);
+    }
+
+    /**
+     * 从认证主体取出当前用户ID；未认证时返回 null。
+     */
+    private String currentUserId(Authentication authentication)
+    {
+        if (authentication == null || !authentication.isAuthenticated())
+        {
+            return null;
+        }
+        if (authentication.getPrincipal() instanceof CanteenUserDetails details)
+        {
+            return details.getUserId();
+        }
+        return userRepository.findByUsername(authentication.getName())
+                .map(User::getUserId)
+                .orElse(null);
+    }
+}
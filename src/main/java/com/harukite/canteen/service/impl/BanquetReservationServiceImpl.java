@@ -15,6 +15,7 @@ import com.harukite.canteen.repository.PackageRepository;
 import com.harukite.canteen.repository.RoomRepository;
 import com.harukite.canteen.repository.UserRepository;
 import com.harukite.canteen.service.BanquetReservationService;
+import com.harukite.canteen.service.KitchenPrepService;
 import com.harukite.canteen.service.PackageService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -45,6 +46,7 @@ public class BanquetReservationServiceImpl implements BanquetReservationService
     private final DishRepository dishRepository;
     private final PackageRepository packageRepository;
     private final PackageService packageService;
+    private final KitchenPrepService kitchenPrepService; // 后厨备餐计数
 
     // 假设宴会默认时长为 2 小时，可根据实际业务需求调整或设为可配置项
     private static final int DEFAULT_BANQUET_DURATION_HOURS = 2;
@@ -228,6 +230,15 @@ public class BanquetReservationServiceImpl implements BanquetReservationService
             }
         }
 
+        // 已确认（及已完成）的预订计入备餐计数，进入或离开该状态时相应累加或扣除
+        boolean wasCounted = countsForPrep(reservation.getStatus());
+        boolean counted = countsForPrep(newStatus);
+        if (counted && !wasCounted) {
+            kitchenPrepService.addBanquet(reservation);
+        } else if (wasCounted && !counted) {
+            kitchenPrepService.removeBanquet(reservation);
+        }
+
         reservation.setStatus(newStatus);
         if (newStatus == BanquetStatus.CONFIRMED && reservation.getConfirmationDate() == null) {
             reservation.setConfirmationDate(LocalDateTime.now());
@@ -261,10 +272,20 @@ public class BanquetReservationServiceImpl implements BanquetReservationService
             throw new InvalidInputException("Reservation cannot be cancelled as its current status is " + reservation.getStatus());
         }
 
+        if (countsForPrep(reservation.getStatus())) {
+            kitchenPrepService.removeBanquet(reservation);
+        }
         reservation.setStatus(BanquetStatus.CANCELLED);
         banquetReservationRepository.save(reservation);
     }
 
+    /**
+     * 该状态的预订是否计入后厨备餐计数。
+     */
+    private static boolean countsForPrep(BanquetStatus status) {
+        return status == BanquetStatus.CONFIRMED || status == BanquetStatus.COMPLETED;
+    }
+
     /**
      * 检查某个包厢在指定日期和时间段是否可用。
      * 考虑时间段重叠。
@@ -364,10 +385,7 @@ public class BanquetReservationServiceImpl implements BanquetReservationService
         List<String> packageIds = reservation.getSelectedPackages().stream()
                 .map(Package::getPackageId)
                 .collect(Collectors.toList());
-        List<PackageDto> packageDtos = reservation.getSelectedPackages().stream()
-                .map(Package::getPackageId) // 先获取ID
-                .map(packageService::getPackageById) // 再通过服务获取DTO
-                .collect(Collectors.toList());
+        List<PackageDto> packageDtos = packageService.getPackagesByIds(packageIds); // 批量获取套餐及其菜品 DTO
 
         return new BanquetReservationResponse(
                 reservation.getBanquetId(),
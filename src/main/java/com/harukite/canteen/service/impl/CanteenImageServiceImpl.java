@@ -1,20 +1,22 @@
 package com.harukite.canteen.service.impl;
 
 import com.harukite.canteen.dto.CanteenImageDto;
+import com.harukite.canteen.dto.StoredFile;
 import com.harukite.canteen.exception.ResourceNotFoundException;
 import com.harukite.canteen.model.Canteen;
 import com.harukite.canteen.model.CanteenImage;
 import com.harukite.canteen.repository.CanteenImageRepository;
 import com.harukite.canteen.repository.CanteenRepository;
 import com.harukite.canteen.service.CanteenImageService;
-import com.harukite.canteen.service.CosService;
+import com.harukite.canteen.service.ImageVariantService;
+import com.harukite.canteen.service.StorageOutboxService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -30,7 +32,9 @@ public class CanteenImageServiceImpl implements CanteenImageService
 
     private final CanteenImageRepository canteenImageRepository;
     private final CanteenRepository canteenRepository;
-    private final CosService cosService; // 注入 COS 服务
+    private final StorageOutboxService storageOutboxService; // 图片上传与延迟删除
+    private final ImageVariantService imageVariantService; // 图片衍生版本
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * 为指定食堂上传并创建新的图片记录。
@@ -43,26 +47,44 @@ public class CanteenImageServiceImpl implements CanteenImageService
      * @throws RuntimeException 如果图片上传失败
      */
     @Override
-    @Transactional
     public CanteenImageDto createCanteenImage(String canteenId, String description, MultipartFile imageFile) {
-        Canteen canteen = canteenRepository.findById(canteenId)
-                .orElseThrow(() -> new ResourceNotFoundException("Canteen not found with ID: " + canteenId));
-
         if (imageFile == null || imageFile.isEmpty()) {
             throw new IllegalArgumentException("Image file cannot be empty.");
         }
 
-        String imageUrl;
+        // 图片在事务开始前上传，上传期间不占用数据库连接
+        StoredFile stagedImage = storageOutboxService.stageUpload(imageFile);
+        String imageUrl = stagedImage != null ? stagedImage.getUrl() : null;
+        CanteenImageDto result;
         try {
-            imageUrl = cosService.uploadFile(imageFile, "canteen-additional-images/"); // 上传到专门的文件夹
-        } catch (IOException e) {
-            log.error("Failed to upload canteen additional image: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to upload canteen additional image: " + e.getMessage(), e);
+            result = transactionTemplate.execute(status -> doCreateCanteenImage(canteenId, description, imageUrl));
+        } catch (RuntimeException e) {
+            storageOutboxService.discardStaged(imageUrl);
+            throw e;
         }
+        // 复用已有对象时也提交，版本齐全时工作线程直接跳过，缺失的版本得以补齐
+        if (stagedImage != null) {
+            imageVariantService.generateVariants(imageFile, imageUrl); // 提交后在后台生成缩略图等版本
+        }
+        return result;
+    }
+
+    /**
+     * 在事务内创建食堂图片记录。
+     *
+     * @param canteenId 食堂ID
+     * @param description 图片描述（可选）
+     * @param imageUrl 已预先上传的图片 URL
+     * @return 创建成功的食堂图片 DTO
+     */
+    private CanteenImageDto doCreateCanteenImage(String canteenId, String description, String imageUrl) {
+        Canteen canteen = canteenRepository.findById(canteenId)
+                .orElseThrow(() -> new ResourceNotFoundException("Canteen not found with ID: " + canteenId));
 
         CanteenImage canteenImage = new CanteenImage();
         canteenImage.setCanteen(canteen);
         canteenImage.setImageUrl(imageUrl);
+        storageOutboxService.retain(imageUrl); // 登记对图片的引用
         canteenImage.setDescription(description);
 
         CanteenImage savedImage = canteenImageRepository.save(canteenImage);
@@ -128,7 +150,7 @@ public class CanteenImageServiceImpl implements CanteenImageService
 
     /**
      * 根据图片ID删除食堂图片。
-     * 同时会删除 COS 中的实际图片文件。
+     * 对图片文件的引用在事务内释放，不再被引用的图片由后台任务从对象存储中删除。
      *
      * @param imageId 要删除的图片ID
      * @throws ResourceNotFoundException 如果图片不存在
@@ -139,10 +161,8 @@ public class CanteenImageServiceImpl implements CanteenImageService
         CanteenImage imageToDelete = canteenImageRepository.findById(imageId)
                 .orElseThrow(() -> new ResourceNotFoundException("Canteen image not found with ID: " + imageId));
 
-        // 删除 COS 中的图片
-        if (imageToDelete.getImageUrl() != null && !imageToDelete.getImageUrl().isEmpty()) {
-            cosService.deleteFile(imageToDelete.getImageUrl());
-        }
+        // 释放对图片的引用，不再被引用的图片由后台任务删除
+        storageOutboxService.release(imageToDelete.getImageUrl());
 
         canteenImageRepository.delete(imageToDelete);
     }
@@ -159,7 +179,8 @@ public class CanteenImageServiceImpl implements CanteenImageService
                 canteenImage.getCanteen().getCanteenId(),
                 canteenImage.getImageUrl(),
                 canteenImage.getDescription(),
-                canteenImage.getUploadTime()
+                canteenImage.getUploadTime(),
+                imageVariantService.variantUrls(canteenImage.getImageUrl())
         );
     }
 }
\ No newline at end of file
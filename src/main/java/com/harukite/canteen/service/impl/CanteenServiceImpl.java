@@ -1,19 +1,22 @@
 package com.harukite.canteen.service.impl;
 
 import com.harukite.canteen.dto.CanteenDto;
+import com.harukite.canteen.dto.StoredFile;
 import com.harukite.canteen.exception.DuplicateEntryException;
 import com.harukite.canteen.exception.ResourceNotFoundException;
 import com.harukite.canteen.model.Canteen;
 import com.harukite.canteen.repository.CanteenRepository;
 import com.harukite.canteen.service.CanteenService;
-import com.harukite.canteen.service.CosService;
+import com.harukite.canteen.service.DailyMenuCache;
+import com.harukite.canteen.service.ImageVariantService;
+import com.harukite.canteen.service.StorageOutboxService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -28,7 +31,10 @@ public class CanteenServiceImpl implements CanteenService
 {
 
     private final CanteenRepository canteenRepository;
-    private final CosService cosService; // 注入 CosService
+    private final StorageOutboxService storageOutboxService; // 图片上传与延迟删除
+    private final ImageVariantService imageVariantService; // 图片衍生版本
+    private final TransactionTemplate transactionTemplate;
+    private final DailyMenuCache dailyMenuCache; // 菜谱中带有食堂名称
 
     /**
      * 创建新食堂。
@@ -40,8 +46,37 @@ public class CanteenServiceImpl implements CanteenService
      * @throws RuntimeException        如果图片上传失败
      */
     @Override
-    @Transactional
     public CanteenDto createCanteen(CanteenDto canteenDto, MultipartFile imageFile)
+    {
+        // 图片在事务开始前上传，上传期间不占用数据库连接
+        StoredFile stagedImage = storageOutboxService.stageUpload(imageFile);
+        String stagedImageUrl = stagedImage != null ? stagedImage.getUrl() : null;
+        CanteenDto result;
+        try
+        {
+            result = transactionTemplate.execute(status -> doCreateCanteen(canteenDto, stagedImageUrl));
+        }
+        catch (RuntimeException e)
+        {
+            storageOutboxService.discardStaged(stagedImageUrl);
+            throw e;
+        }
+        // 复用已有对象时也提交，版本齐全时工作线程直接跳过，缺失的版本得以补齐
+        if (stagedImage != null)
+        {
+            imageVariantService.generateVariants(imageFile, stagedImageUrl); // 提交后在后台生成缩略图等版本
+        }
+        return result;
+    }
+
+    /**
+     * 在事务内创建食堂。
+     *
+     * @param canteenDto     包含食堂信息的 DTO
+     * @param stagedImageUrl 已预先上传的图片 URL，未上传时为 null
+     * @return 创建成功的食堂 DTO
+     */
+    private CanteenDto doCreateCanteen(CanteenDto canteenDto, String stagedImageUrl)
     {
         // 检查食堂名称是否已存在
         if (canteenRepository.findByName(canteenDto.getName()).isPresent())
@@ -57,24 +92,16 @@ public class CanteenServiceImpl implements CanteenService
         canteen.setOpeningHours(canteenDto.getOpeningHours());
         canteen.setContactPhone(canteenDto.getContactPhone());
 
-        // 处理图片上传
-        if (imageFile != null && !imageFile.isEmpty())
+        // 处理图片
+        if (stagedImageUrl != null)
         {
-            try
-            {
-                String imageUrl = cosService.uploadFile(imageFile, "canteens/"); // 上传到 canteens 文件夹
-                canteen.setImageUrl(imageUrl);
-            }
-            catch (IOException e)
-            {
-                log.error("Failed to upload canteen image: {}", e.getMessage(), e);
-                throw new RuntimeException("Failed to upload canteen image: " + e.getMessage(), e);
-            }
+            canteen.setImageUrl(stagedImageUrl);
         }
         else
         {
             canteen.setImageUrl(canteenDto.getImageUrl()); // 如果没有新文件，使用DTO中可能已有的URL
         }
+        storageOutboxService.retain(canteen.getImageUrl()); // 登记对图片的引用
 
         Canteen savedCanteen = canteenRepository.save(canteen);
         canteenRepository.flush();
@@ -120,11 +147,41 @@ public class CanteenServiceImpl implements CanteenService
      * @return 更新后的食堂 DTO
      * @throws ResourceNotFoundException 如果食堂不存在
      * @throws DuplicateEntryException   如果更新后的食堂名称已存在且不属于当前食堂
-     * @throws RuntimeException          如果图片上传或删除失败
+     * @throws RuntimeException          如果图片上传失败
      */
     @Override
-    @Transactional
     public CanteenDto updateCanteen(String canteenId, CanteenDto updatedCanteenDto, MultipartFile imageFile)
+    {
+        // 新图片在事务开始前上传，对新旧图片的引用在事务内调整
+        StoredFile stagedImage = storageOutboxService.stageUpload(imageFile);
+        String stagedImageUrl = stagedImage != null ? stagedImage.getUrl() : null;
+        CanteenDto result;
+        try
+        {
+            result = transactionTemplate.execute(status -> doUpdateCanteen(canteenId, updatedCanteenDto, stagedImageUrl));
+        }
+        catch (RuntimeException e)
+        {
+            storageOutboxService.discardStaged(stagedImageUrl);
+            throw e;
+        }
+        // 复用已有对象时也提交，版本齐全时工作线程直接跳过，缺失的版本得以补齐
+        if (stagedImage != null)
+        {
+            imageVariantService.generateVariants(imageFile, stagedImageUrl); // 提交后在后台生成缩略图等版本
+        }
+        return result;
+    }
+
+    /**
+     * 在事务内更新食堂。
+     *
+     * @param canteenId         要更新的食堂ID
+     * @param updatedCanteenDto 包含更新信息的食堂 DTO
+     * @param stagedImageUrl    已预先上传的新图片 URL，未上传时为 null
+     * @return 更新后的食堂 DTO
+     */
+    private CanteenDto doUpdateCanteen(String canteenId, CanteenDto updatedCanteenDto, String stagedImageUrl)
     {
         Canteen existingCanteen = canteenRepository.findById(canteenId)
                 .orElseThrow(() -> new ResourceNotFoundException("Canteen not found with ID: " + canteenId));
@@ -147,43 +204,30 @@ public class CanteenServiceImpl implements CanteenService
         existingCanteen.setContactPhone(updatedCanteenDto.getContactPhone());
 
         // 处理图片更新
-        if (imageFile != null && !imageFile.isEmpty())
+        if (stagedImageUrl != null)
         {
-            // 如果存在旧图片，先删除旧图片
-            if (existingCanteen.getImageUrl() != null && !existingCanteen.getImageUrl().isEmpty())
-            {
-                cosService.deleteFile(existingCanteen.getImageUrl());
-            }
-            try
-            {
-                String newImageUrl = cosService.uploadFile(imageFile, "canteens/");
-                existingCanteen.setImageUrl(newImageUrl);
-            }
-            catch (IOException e)
-            {
-                log.error("Failed to upload new canteen image: {}", e.getMessage(), e);
-                throw new RuntimeException("Failed to upload new canteen image: " + e.getMessage(), e);
-            }
+            // 释放对旧图片的引用，改为引用新图片
+            storageOutboxService.release(existingCanteen.getImageUrl());
+            existingCanteen.setImageUrl(stagedImageUrl);
+            storageOutboxService.retain(stagedImageUrl);
         }
         else if (updatedCanteenDto.getImageUrl() != null && updatedCanteenDto.getImageUrl().isEmpty())
         {
             // 如果DTO中的imageUrl被显式设置为空字符串，表示清除图片
-            if (existingCanteen.getImageUrl() != null && !existingCanteen.getImageUrl().isEmpty())
-            {
-                cosService.deleteFile(existingCanteen.getImageUrl());
-            }
+            storageOutboxService.release(existingCanteen.getImageUrl());
             existingCanteen.setImageUrl(null);
         }
         // 如果 imageFile 为 null 且 updatedCanteenDto.getImageUrl() 也为 null，则保持不变
 
         Canteen savedCanteen = canteenRepository.save(existingCanteen);
         canteenRepository.flush(); // 确保数据立即写入数据库
+        dailyMenuCache.invalidateCanteen(canteenId);
         return convertToDto(savedCanteen);
     }
 
     /**
      * 删除食堂。
-     * 同时删除 COS 中关联的图片。
+     * 关联图片的引用在事务内释放，不再被引用的图片由后台任务从对象存储中删除。
      *
      * @param canteenId 要删除的食堂ID
      * @throws ResourceNotFoundException 如果食堂不存在
@@ -195,13 +239,11 @@ public class CanteenServiceImpl implements CanteenService
         Canteen canteenToDelete = canteenRepository.findById(canteenId)
                 .orElseThrow(() -> new ResourceNotFoundException("Canteen not found with ID: " + canteenId));
 
-        // 删除 COS 中的图片
-        if (canteenToDelete.getImageUrl() != null && !canteenToDelete.getImageUrl().isEmpty())
-        {
-            cosService.deleteFile(canteenToDelete.getImageUrl());
-        }
+        // 释放对图片的引用，不再被引用的图片由后台任务删除
+        storageOutboxService.release(canteenToDelete.getImageUrl());
 
         canteenRepository.delete(canteenToDelete);
+        dailyMenuCache.invalidateCanteen(canteenId);
     }
 
     /**
@@ -219,7 +261,8 @@ public class CanteenServiceImpl implements CanteenService
                 canteen.getLocation(),
                 canteen.getOpeningHours(),
                 canteen.getContactPhone(),
-                canteen.getImageUrl() // 使用数据库存储的 URL
+                canteen.getImageUrl(), // 使用数据库存储的 URL
+                imageVariantService.variantUrls(canteen.getImageUrl())
         );
     }
 }
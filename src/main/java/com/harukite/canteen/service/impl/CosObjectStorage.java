@@ -0,0 +1,242 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.dto.ObjectListingPage;
+import com.harukite.canteen.dto.ObjectSummary;
+import com.qcloud.cos.COSClient;
+import com.qcloud.cos.ClientConfig;
+import com.qcloud.cos.auth.BasicCOSCredentials;
+import com.qcloud.cos.auth.COSCredentials;
+import com.qcloud.cos.exception.MultiObjectDeleteException;
+import com.qcloud.cos.model.COSObjectSummary;
+import com.qcloud.cos.model.DeleteObjectsRequest;
+import com.qcloud.cos.model.ListObjectsRequest;
+import com.qcloud.cos.model.ObjectListing;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.model.PutObjectRequest;
+import com.qcloud.cos.region.Region;
+import com.qcloud.cos.transfer.TransferManager;
+import com.qcloud.cos.transfer.TransferManagerConfiguration;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 腾讯云 COS 对象存储实现（canteen.storage.type=cos，默认）。
+ * 负责文件的上传、删除等操作；超过分块阈值的文件通过 TransferManager 并行分块上传。
+ */
+@Service
+@ConditionalOnProperty(name = "canteen.storage.type", havingValue = "cos", matchIfMissing = true)
+@Slf4j // Lombok 注解，用于生成日志记录器
+public class CosObjectStorage extends AbstractObjectStorage
+{
+
+    private static final int MAX_KEYS_PER_DELETE = 1000; // COS 批量删除单次请求上限
+    private static final int MAX_KEYS_PER_LIST = 1000; // COS 列举单次请求上限
+
+    @Value("${tencent.cos.secret-id}")
+    private String secretId;
+
+    @Value("${tencent.cos.secret-key}")
+    private String secretKey;
+
+    @Value("${tencent.cos.region}")
+    private String regionName;
+
+    @Value("${tencent.cos.bucket-name}")
+    private String bucketName;
+
+    @Value("${canteen.storage.multipart-threshold-bytes:16777216}")
+    private long multipartThreshold; // 超过该大小的文件走分块上传
+
+    @Value("${canteen.storage.multipart-part-size-bytes:8388608}")
+    private long multipartPartSize;
+
+    @Value("${canteen.storage.multipart-parallelism:4}")
+    private int multipartParallelism;
+
+    private COSClient cosClient;
+    private TransferManager transferManager;
+
+    /**
+     * 服务初始化后，创建 COSClient 与分块上传使用的 TransferManager。
+     */
+    @PostConstruct
+    public void init()
+    {
+        COSCredentials cred = new BasicCOSCredentials(secretId, secretKey);
+        ClientConfig clientConfig = new ClientConfig(new Region(regionName));
+        this.cosClient = new COSClient(cred, clientConfig);
+
+        ExecutorService uploadPool = Executors.newFixedThreadPool(multipartParallelism);
+        this.transferManager = new TransferManager(cosClient, uploadPool);
+        TransferManagerConfiguration transferConfig = new TransferManagerConfiguration();
+        transferConfig.setMultipartUploadThreshold(multipartThreshold);
+        transferConfig.setMinimumUploadPartSize(multipartPartSize);
+        transferManager.setConfiguration(transferConfig);
+        log.info("Tencent COS Client initialized for bucket: {}", bucketName);
+    }
+
+    /**
+     * 关闭 TransferManager 及其线程池，同时关闭 COSClient。
+     */
+    @PreDestroy
+    public void shutdown()
+    {
+        transferManager.shutdownNow(true);
+    }
+
+    /**
+     * 以指定 key 上传文件到 COS，已存在时覆盖。
+     * 小文件直接 PutObject；超过分块阈值的文件由 TransferManager 拆分后并行上传各分块。
+     *
+     * @param key  对象 key
+     * @param file MultipartFile 文件对象
+     * @return 文件 URL
+     * @throws IOException 如果文件处理或上传失败
+     */
+    @Override
+    public String putFile(String key, MultipartFile file) throws IOException
+    {
+        try (InputStream inputStream = file.getInputStream())
+        {
+            ObjectMetadata objectMetadata = new ObjectMetadata();
+            objectMetadata.setContentLength(file.getSize());
+            objectMetadata.setContentType(file.getContentType()); // 设置文件类型
+
+            PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, key, inputStream, objectMetadata);
+            if (file.getSize() >= multipartThreshold)
+            {
+                transferManager.upload(putObjectRequest).waitForUploadResult();
+            }
+            else
+            {
+                cosClient.putObject(putObjectRequest);
+            }
+
+            // 返回文件的可访问 URL
+            // COS 的 URL 格式通常是 https://<bucket-name>.cos.<region>.myqcloud.com/<key>
+            return urlOf(key);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while uploading file to COS", e);
+        }
+        catch (Exception e)
+        {
+            log.error("Failed to upload file to COS: {}", e.getMessage(), e);
+            throw new IOException("Failed to upload file to COS: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 以指定 key 写入一段内容到 COS，已存在时覆盖。
+     *
+     * @param key         对象 key
+     * @param content     内容
+     * @param contentType 内容类型
+     * @return 文件 URL
+     * @throws IOException 如果上传失败
+     */
+    @Override
+    public String putObject(String key, byte[] content, String contentType) throws IOException
+    {
+        try (InputStream inputStream = new ByteArrayInputStream(content))
+        {
+            ObjectMetadata objectMetadata = new ObjectMetadata();
+            objectMetadata.setContentLength(content.length);
+            objectMetadata.setContentType(contentType);
+            cosClient.putObject(new PutObjectRequest(bucketName, key, inputStream, objectMetadata));
+            return urlOf(key);
+        }
+        catch (Exception e)
+        {
+            log.error("Failed to put object {} to COS: {}", key, e.getMessage(), e);
+            throw new IOException("Failed to put object to COS: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 批量删除文件，使用 COS 批量删除接口，每次请求最多 1000 个对象。
+     *
+     * @param fileUrls 要删除的文件 URL 集合
+     * @return 删除失败的文件 URL 到错误信息的映射，全部成功时为空
+     */
+    @Override
+    public Map<String, String> deleteFiles(Collection<String> fileUrls)
+    {
+        Map<String, String> urlsByKey = urlsByKey(fileUrls);
+        Map<String, String> failures = new HashMap<>();
+
+        List<String> keys = new ArrayList<>(urlsByKey.keySet());
+        for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_DELETE)
+        {
+            List<String> chunk = keys.subList(from, Math.min(from + MAX_KEYS_PER_DELETE, keys.size()));
+            DeleteObjectsRequest request = new DeleteObjectsRequest(bucketName);
+            request.setQuiet(true); // 只返回失败项
+            request.setKeys(chunk.stream().map(DeleteObjectsRequest.KeyVersion::new).toList());
+            try
+            {
+                cosClient.deleteObjects(request);
+            }
+            catch (MultiObjectDeleteException e)
+            {
+                e.getErrors().forEach(error -> failures.put(urlsByKey.get(error.getKey()), error.getMessage()));
+            }
+            catch (Exception e)
+            {
+                log.error("Failed to batch delete {} files from COS: {}", chunk.size(), e.getMessage(), e);
+                chunk.forEach(key -> failures.put(urlsByKey.get(key), String.valueOf(e.getMessage())));
+            }
+        }
+        log.info("Batch deleted {} files from COS, {} failed", urlsByKey.size() - failures.size(), failures.size());
+        return failures;
+    }
+
+    /**
+     * 按 key 顺序分页列出指定前缀下的对象，每页最多 1000 个。
+     *
+     * @param prefix  key 前缀（例如 "dishes/"）
+     * @param marker  上一页返回的 nextMarker，首页传 null
+     * @param maxKeys 每页最多返回的对象数
+     * @return 当前页对象
+     * @throws IOException 如果列举失败
+     */
+    @Override
+    public ObjectListingPage listObjects(String prefix, String marker, int maxKeys) throws IOException
+    {
+        ListObjectsRequest request = new ListObjectsRequest(bucketName, prefix, marker, null,
+                Math.min(Math.max(maxKeys, 1), MAX_KEYS_PER_LIST));
+        try
+        {
+            ObjectListing listing = cosClient.listObjects(request);
+            List<ObjectSummary> objects = new ArrayList<>(listing.getObjectSummaries().size());
+            for (COSObjectSummary summary : listing.getObjectSummaries())
+            {
+                objects.add(new ObjectSummary(summary.getKey(), summary.getSize(), summary.getLastModified().toInstant()));
+            }
+            String nextMarker = listing.getNextMarker();
+            if (nextMarker == null && !objects.isEmpty())
+            {
+                nextMarker = objects.get(objects.size() - 1).getKey();
+            }
+            return new ObjectListingPage(objects, nextMarker, listing.isTruncated());
+        }
+        catch (Exception e)
+        {
+            log.error("Failed to list objects under {} in COS: {}", prefix, e.getMessage(), e);
+            throw new IOException("Failed to list objects in COS: " + e.getMessage(), e);
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.harukite.canteen.service.impl;
 
+import com.harukite.canteen.dto.BulkMenuPublishRequest;
 import com.harukite.canteen.dto.DailyMenuRequest;
 import com.harukite.canteen.dto.DailyMenuResponse;
 import com.harukite.canteen.dto.DishDto;
+import com.harukite.canteen.dto.MenuBatchResult;
+import com.harukite.canteen.dto.MenuCloneRequest;
 import com.harukite.canteen.exception.DuplicateEntryException;
+import com.harukite.canteen.exception.InvalidInputException;
 import com.harukite.canteen.exception.ResourceNotFoundException;
 import com.harukite.canteen.model.Canteen;
 import com.harukite.canteen.model.DailyMenu;
@@ -13,15 +17,26 @@ import com.harukite.canteen.repository.CanteenRepository;
 import com.harukite.canteen.repository.DailyMenuRepository;
 import com.harukite.canteen.repository.DishRepository;
 import com.harukite.canteen.repository.UserRepository;
+import com.harukite.canteen.service.DailyMenuCache;
 import com.harukite.canteen.service.DailyMenuService;
 import com.harukite.canteen.service.DishService;
+import com.harukite.canteen.service.MenuScheduleIndex;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Set;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -38,6 +53,17 @@ public class DailyMenuServiceImpl implements DailyMenuService
     private final UserRepository userRepository;
     private final DishRepository dishRepository;
     private final DishService dishService; // 注入 DishService 来获取 DishDto (包含平均评分)
+    private final DailyMenuCache dailyMenuCache; // 按 (食堂, 日期) 预序列化的菜谱 JSON
+    private final MenuScheduleIndex menuScheduleIndex; // 今天和明天菜谱的供应时间区间索引
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate; // 批量发布菜谱时的 JDBC 批量插入
+
+    // 匿名可访问的缓存查询只接受今天前后这些天数内的日期，限制缓存键的数量
+    @Value("${canteen.menu-cache.max-days-back:31}")
+    private int cachedDaysBack;
+
+    @Value("${canteen.menu-cache.max-days-ahead:31}")
+    private int cachedDaysAhead;
 
     /**
      * 发布每日菜谱。
@@ -46,7 +72,8 @@ public class DailyMenuServiceImpl implements DailyMenuService
      * @param publisherName 发布者用户名
      * @return 发布成功的菜谱响应 DTO
      * @throws ResourceNotFoundException 如果食堂、发布者或菜品不存在
-     * @throws DuplicateEntryException   如果指定食堂、日期和时间段的菜谱已存在
+     * @throws org.springframework.dao.DataIntegrityViolationException 如果与同一食堂已有菜谱的时间窗口重叠
+     *                                   （由数据库排他约束检测，GlobalExceptionHandler 映射为 409）
      */
     @Override
     @Transactional
@@ -57,14 +84,6 @@ public class DailyMenuServiceImpl implements DailyMenuService
         User publisher = userRepository.findByUsername(publisherName)
                 .orElseThrow(() -> new ResourceNotFoundException("Publisher user not found with Name: " + publisherName));
 
-        // 检查指定食堂、日期和时间段的菜谱是否已存在
-        if (dailyMenuRepository.findByCanteenAndMenuDateAndStartTimeAndEndTime(
-                canteen, request.getMenuDate(), request.getStartTime(), request.getEndTime()).isPresent())
-        {
-            throw new DuplicateEntryException("A menu already exists for canteen '" + canteen.getName() +
-                    "' on " + request.getMenuDate() + " from " + request.getStartTime() + " to " + request.getEndTime());
-        }
-
         // 查找所有菜品实体
         Set<Dish> dishes = request.getDishIds().stream()
                 .map(dishId -> dishRepository.findById(dishId)
@@ -79,9 +98,125 @@ public class DailyMenuServiceImpl implements DailyMenuService
         dailyMenu.setPublishedBy(publisher);
         dailyMenu.setDishes(dishes); // 设置菜品集合
 
+        // 时间窗口重叠由排他约束在插入时检测，并发发布也不会写入重叠的菜谱
         DailyMenu savedMenu = dailyMenuRepository.save(dailyMenu);
         dailyMenuRepository.flush();
-        return convertToDto(savedMenu);
+        dailyMenuCache.invalidateMenu(canteen.getCanteenId(), savedMenu.getMenuDate());
+        DailyMenuResponse response = convertToDto(savedMenu);
+        menuScheduleIndex.put(response);
+        return response;
+    }
+
+    /**
+     * 批量发布每日菜谱。
+     * 校验按集合进行：请求内的时间窗口重叠在内存中检查，食堂和菜品是否存在、与已有菜谱的重叠各用一次查询完成，
+     * 然后在同一个事务内以 JDBC 批量插入 Daily_Menus 和 Menu_Dishes。
+     *
+     * @param request       批量发布请求 DTO
+     * @param publisherName 发布者用户名
+     * @return 批量写入结果
+     * @throws ResourceNotFoundException 如果发布者、任一食堂或菜品不存在
+     * @throws InvalidInputException     如果请求内同一食堂的时间窗口重叠
+     * @throws DuplicateEntryException   如果任一时间窗口与已有菜谱重叠
+     */
+    @Override
+    @Transactional
+    public MenuBatchResult publishDailyMenus(BulkMenuPublishRequest request, String publisherName)
+    {
+        User publisher = userRepository.findByUsername(publisherName)
+                .orElseThrow(() -> new ResourceNotFoundException("Publisher user not found with Name: " + publisherName));
+
+        List<MenuRow> rows = new ArrayList<>(request.getMenus().size());
+        for (DailyMenuRequest menu : request.getMenus())
+        {
+            rows.add(new MenuRow(UUID.randomUUID().toString(), menu.getCanteenId(), menu.getMenuDate(),
+                    menu.getStartTime(), menu.getEndTime(), new ArrayList<>(new LinkedHashSet<>(menu.getDishIds()))));
+        }
+
+        checkRequestOverlaps(rows);
+
+        // 食堂和菜品是否存在
+        Map<String, Canteen> canteensById = loadCanteens(rows);
+        Set<String> dishIds = rows.stream().flatMap(row -> row.dishIds().stream()).collect(Collectors.toSet());
+        Set<String> foundDishIds = dishRepository.findAllById(dishIds).stream().map(Dish::getDishId).collect(Collectors.toSet());
+        dishIds.removeAll(foundDishIds);
+        if (!dishIds.isEmpty())
+        {
+            throw new ResourceNotFoundException("Dish not found with ID: " + String.join(", ", dishIds));
+        }
+
+        // 与已有菜谱的冲突；并发写入时最终由排他约束兜底
+        Map<String, List<MenuRow>> existing = existingWindows(rows);
+        List<String> conflicts = rows.stream().filter(row -> overlapsAny(row, existing))
+                .map(row -> canteensById.get(row.canteenId()).getName() + " on " + row.menuDate() + " from " + row.startTime() + " to " + row.endTime())
+                .toList();
+        if (!conflicts.isEmpty())
+        {
+            throw new DuplicateEntryException("Menu time windows overlap existing menus: " + String.join("; ", conflicts));
+        }
+
+        return insertMenus(rows, 0, canteensById, publisher);
+    }
+
+    /**
+     * 将源日期范围内的菜谱复制到目标日期范围。
+     * 源菜谱及其菜品各用一次查询读出，按日期偏移后与 {@link #publishDailyMenus} 共用冲突检查和批量插入。
+     *
+     * @param request       复制请求 DTO
+     * @param publisherName 发布者用户名
+     * @return 批量写入结果
+     * @throws ResourceNotFoundException 如果发布者不存在
+     * @throws InvalidInputException     如果源范围与目标范围重叠或源范围内没有菜谱
+     * @throws DuplicateEntryException   如果任一目标时间窗口与已有菜谱重叠且未设置 skipExisting
+     */
+    @Override
+    @Transactional
+    public MenuBatchResult cloneDailyMenus(MenuCloneRequest request, String publisherName)
+    {
+        User publisher = userRepository.findByUsername(publisherName)
+                .orElseThrow(() -> new ResourceNotFoundException("Publisher user not found with Name: " + publisherName));
+
+        int days = request.getDays();
+        LocalDate sourceFrom = request.getSourceStartDate();
+        LocalDate sourceTo = sourceFrom.plusDays(days - 1L);
+        LocalDate targetFrom = request.getTargetStartDate();
+        long offset = ChronoUnit.DAYS.between(sourceFrom, targetFrom);
+        if (Math.abs(offset) < days)
+        {
+            throw new InvalidInputException("Source and target date ranges must not overlap.");
+        }
+
+        Set<String> canteenFilter = request.getCanteenIds() == null ? Set.of() : new HashSet<>(request.getCanteenIds());
+        List<Object[]> sourceRows = dailyMenuRepository.findMenuRowsInRange(sourceFrom, sourceTo).stream()
+                .filter(row -> canteenFilter.isEmpty() || canteenFilter.contains((String) row[1]))
+                .toList();
+        if (sourceRows.isEmpty())
+        {
+            throw new InvalidInputException("No menus found between " + sourceFrom + " and " + sourceTo + ".");
+        }
+        Map<String, List<String>> dishIdsByMenu = dailyMenuRepository.findMenuDishPairs(
+                        sourceRows.stream().map(row -> (String) row[0]).toList()).stream()
+                .collect(Collectors.groupingBy(pair -> (String) pair[0],
+                        Collectors.mapping(pair -> (String) pair[1], Collectors.toList())));
+
+        List<MenuRow> rows = new ArrayList<>(sourceRows.size());
+        for (Object[] source : sourceRows)
+        {
+            rows.add(new MenuRow(UUID.randomUUID().toString(), (String) source[1],
+                    ((LocalDate) source[2]).plusDays(offset), (LocalTime) source[3], (LocalTime) source[4],
+                    dishIdsByMenu.getOrDefault((String) source[0], List.of())));
+        }
+
+        Map<String, Canteen> canteensById = loadCanteens(rows);
+        Map<String, List<MenuRow>> existing = existingWindows(rows);
+        List<MenuRow> free = rows.stream().filter(row -> !overlapsAny(row, existing)).toList();
+        if (free.size() < rows.size() && !request.isSkipExisting())
+        {
+            throw new DuplicateEntryException((rows.size() - free.size()) +
+                    " target menus overlap existing menus; set skipExisting to copy the remaining ones.");
+        }
+
+        return insertMenus(free, rows.size() - free.size(), canteensById, publisher);
     }
 
     /**
@@ -100,9 +235,75 @@ public class DailyMenuServiceImpl implements DailyMenuService
                 .orElseThrow(() -> new ResourceNotFoundException("Canteen not found with ID: " + canteenId));
 
         List<DailyMenu> dailyMenus = dailyMenuRepository.findByCanteenAndMenuDate(canteen, menuDate);
-        return dailyMenus.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return convertToDtos(dailyMenus);
+    }
+
+    /**
+     * 根据食堂ID和日期获取每日菜谱列表的 JSON 字节。
+     * 命中缓存时不访问数据库；未命中时只有一个线程在事务中组装并序列化，其它并发请求等待其结果。
+     *
+     * @param canteenId 食堂ID
+     * @param menuDate  菜谱日期
+     * @return 每日菜谱响应 DTO 列表的 JSON 字节
+     * @throws ResourceNotFoundException 如果食堂不存在
+     * @throws InvalidInputException     如果日期超出今天前后允许查询的范围
+     */
+    @Override
+    public byte[] getDailyMenusJsonByCanteenAndDate(String canteenId, LocalDate menuDate)
+    {
+        LocalDate today = LocalDate.now();
+        if (menuDate.isBefore(today.minusDays(cachedDaysBack)) || menuDate.isAfter(today.plusDays(cachedDaysAhead)))
+        {
+            throw new InvalidInputException("Menu date must be within " + cachedDaysBack + " days before and "
+                    + cachedDaysAhead + " days after today: " + menuDate);
+        }
+        return dailyMenuCache.get(canteenId, menuDate,
+                () -> transactionTemplate.execute(status -> getDailyMenusByCanteenAndDate(canteenId, menuDate)));
+    }
+
+    /**
+     * 重新构建某食堂某日菜谱的预序列化缓存条目（预热）。
+     *
+     * @param canteenId 食堂ID
+     * @param menuDate  菜谱日期
+     * @throws ResourceNotFoundException 如果食堂不存在
+     */
+    @Override
+    public boolean prewarmDailyMenus(String canteenId, LocalDate menuDate)
+    {
+        return dailyMenuCache.refresh(canteenId, menuDate,
+                () -> transactionTemplate.execute(status -> getDailyMenusByCanteenAndDate(canteenId, menuDate)));
+    }
+
+    /**
+     * 获取当前正在供应的菜谱。
+     * 只查询内存区间索引，不访问数据库。
+     *
+     * @param canteenId 食堂ID（可选，为 null 时返回所有食堂）
+     * @return 正在供应的菜谱响应 DTO 列表
+     */
+    @Override
+    public List<DailyMenuResponse> getActiveMenus(String canteenId)
+    {
+        return menuScheduleIndex.findActive(canteenId, LocalDateTime.now());
+    }
+
+    /**
+     * 从数据库重新加载今天和明天的菜谱到正在供应菜谱索引。
+     * 启动完成后执行一次，之后定时执行，用于滚动到新的一天、刷新菜品详情并同步其它节点的修改。
+     *
+     * @return 加载的菜谱数
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${canteen.menu-schedule.refresh-cron:0 */10 * * * *}")
+    public int refreshMenuSchedule()
+    {
+        LocalDate today = LocalDate.now();
+        List<DailyMenuResponse> menus = transactionTemplate.execute(status ->
+                convertToDtos(dailyMenuRepository.findByMenuDateBetween(today, today.plusDays(1))));
+        menuScheduleIndex.replaceAll(menus);
+        return menus.size();
     }
 
     /**
@@ -114,9 +315,7 @@ public class DailyMenuServiceImpl implements DailyMenuService
     public List<DailyMenuResponse> getAllDailyMenus()
     {
         List<DailyMenu> dailyMenus = dailyMenuRepository.findAll();
-        return dailyMenus.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return convertToDtos(dailyMenus);
     }
 
     /**
@@ -142,7 +341,8 @@ public class DailyMenuServiceImpl implements DailyMenuService
      * @param request 包含更新信息的菜谱请求 DTO
      * @return 更新后的菜谱响应 DTO
      * @throws ResourceNotFoundException 如果菜谱、食堂或菜品不存在
-     * @throws DuplicateEntryException   如果更新后的食堂、日期和时间段的菜谱已存在
+     * @throws org.springframework.dao.DataIntegrityViolationException 如果更新后的时间窗口与同一食堂其它菜谱重叠
+     *                                   （由数据库排他约束检测，GlobalExceptionHandler 映射为 409）
      */
     @Override
     @Transactional
@@ -154,16 +354,9 @@ public class DailyMenuServiceImpl implements DailyMenuService
         Canteen canteen = canteenRepository.findById(request.getCanteenId())
                 .orElseThrow(() -> new ResourceNotFoundException("Canteen not found with ID: " + request.getCanteenId()));
 
-        // 检查更新后的唯一性约束
-        dailyMenuRepository.findByCanteenAndMenuDateAndStartTimeAndEndTime(
-                        canteen, request.getMenuDate(), request.getStartTime(), request.getEndTime())
-                .ifPresent(menu -> {
-                    if (!menu.getMenuId().equals(menuId))
-                    { // 如果找到的菜单不是当前正在更新的菜单
-                        throw new DuplicateEntryException("A menu already exists for canteen '" + canteen.getName() +
-                                "' on " + request.getMenuDate() + " from " + request.getStartTime() + " to " + request.getEndTime());
-                    }
-                });
+        // 旧的和新的 (食堂, 日期) 都需要失效
+        dailyMenuCache.invalidateMenu(existingMenu.getCanteen().getCanteenId(), existingMenu.getMenuDate());
+        dailyMenuCache.invalidateMenu(canteen.getCanteenId(), request.getMenuDate());
 
         // 更新基本信息
         existingMenu.setCanteen(canteen);
@@ -179,7 +372,10 @@ public class DailyMenuServiceImpl implements DailyMenuService
         existingMenu.setDishes(updatedDishes);
 
         DailyMenu savedMenu = dailyMenuRepository.save(existingMenu);
-        return convertToDto(savedMenu);
+        dailyMenuRepository.flush(); // 在方法内触发排他约束检查
+        DailyMenuResponse response = convertToDto(savedMenu);
+        menuScheduleIndex.put(response);
+        return response;
     }
 
     /**
@@ -192,11 +388,11 @@ public class DailyMenuServiceImpl implements DailyMenuService
     @Transactional
     public void deleteDailyMenu(String menuId)
     {
-        if (!dailyMenuRepository.existsById(menuId))
-        {
-            throw new ResourceNotFoundException("Daily Menu not found with ID: " + menuId);
-        }
-        dailyMenuRepository.deleteById(menuId);
+        DailyMenu dailyMenu = dailyMenuRepository.findById(menuId)
+                .orElseThrow(() -> new ResourceNotFoundException("Daily Menu not found with ID: " + menuId));
+        dailyMenuCache.invalidateMenu(dailyMenu.getCanteen().getCanteenId(), dailyMenu.getMenuDate());
+        dailyMenuRepository.delete(dailyMenu);
+        menuScheduleIndex.remove(menuId);
     }
 
     /**
@@ -207,21 +403,174 @@ public class DailyMenuServiceImpl implements DailyMenuService
      */
     private DailyMenuResponse convertToDto(DailyMenu dailyMenu)
     {
-        List<DishDto> dishDtos = dailyMenu.getDishes().stream()
-                .map(Dish::getDishId) // 获取每个 Dish 对象的 ID
-                .map(dishService::getDishById) // 使用 DishService 获取包含平均评分的 DishDto
+        return convertToDtos(List.of(dailyMenu)).get(0);
+    }
+
+    /**
+     * 辅助方法：批量将 DailyMenu 实体转换为 DailyMenuResponse DTO。
+     * 所有菜谱涉及的菜品通过 DishService 一次性批量加载，避免逐个菜品查询。
+     *
+     * @param dailyMenus DailyMenu 实体列表
+     * @return DailyMenuResponse DTO 列表
+     */
+    private List<DailyMenuResponse> convertToDtos(List<DailyMenu> dailyMenus)
+    {
+        Set<String> dishIds = dailyMenus.stream()
+                .flatMap(menu -> menu.getDishes().stream())
+                .map(Dish::getDishId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<String, DishDto> dishDtosById = dishService.getDishesByIds(dishIds).stream() // 包含平均评分的 DishDto
+                .collect(Collectors.toMap(DishDto::getDishId, Function.identity()));
+
+        return dailyMenus.stream()
+                .map(dailyMenu -> new DailyMenuResponse(
+                        dailyMenu.getMenuId(),
+                        dailyMenu.getCanteen().getCanteenId(),
+                        dailyMenu.getCanteen().getName(),
+                        dailyMenu.getMenuDate(),
+                        dailyMenu.getStartTime(),
+                        dailyMenu.getEndTime(),
+                        dailyMenu.getPublishedBy().getUsername(),
+                        dailyMenu.getPublishedAt(),
+                        dailyMenu.getDishes().stream()
+                                .map(dish -> dishDtosById.get(dish.getDishId()))
+                                .collect(Collectors.toList())
+                ))
                 .collect(Collectors.toList());
+    }
 
-        return new DailyMenuResponse(
-                dailyMenu.getMenuId(),
-                dailyMenu.getCanteen().getCanteenId(),
-                dailyMenu.getCanteen().getName(),
-                dailyMenu.getMenuDate(),
-                dailyMenu.getStartTime(),
-                dailyMenu.getEndTime(),
-                dailyMenu.getPublishedBy().getUsername(),
-                dailyMenu.getPublishedAt(),
-                dishDtos
-        );
+    /**
+     * 一次查询加载批次涉及的全部食堂。
+     *
+     * @throws ResourceNotFoundException 如果任一食堂不存在
+     */
+    private Map<String, Canteen> loadCanteens(List<MenuRow> rows)
+    {
+        Set<String> canteenIds = rows.stream().map(MenuRow::canteenId).collect(Collectors.toSet());
+        Map<String, Canteen> canteensById = canteenRepository.findAllById(canteenIds).stream()
+                .collect(Collectors.toMap(Canteen::getCanteenId, Function.identity()));
+        canteenIds.removeAll(canteensById.keySet());
+        if (!canteenIds.isEmpty())
+        {
+            throw new ResourceNotFoundException("Canteen not found with ID: " + String.join(", ", canteenIds));
+        }
+        return canteensById;
+    }
+
+    /**
+     * 一次查询取出批次所涉食堂在批次日期范围内已有菜谱的时间窗口，按食堂分组。
+     * 范围向前后各扩一天：前一天的菜谱可能跨过午夜进入批次首日，批次末日跨过午夜的新菜谱也可能与后一天的菜谱重叠。
+     */
+    private Map<String, List<MenuRow>> existingWindows(List<MenuRow> rows)
+    {
+        Set<String> canteenIds = rows.stream().map(MenuRow::canteenId).collect(Collectors.toSet());
+        LocalDate from = rows.stream().map(MenuRow::menuDate).min(Comparator.naturalOrder()).orElseThrow().minusDays(1);
+        LocalDate to = rows.stream().map(MenuRow::menuDate).max(Comparator.naturalOrder()).orElseThrow().plusDays(1);
+        return dailyMenuRepository.findSlotsInRange(canteenIds, from, to).stream()
+                .map(slot -> new MenuRow(null, (String) slot[0], (LocalDate) slot[1], (LocalTime) slot[2], (LocalTime) slot[3], List.of()))
+                .collect(Collectors.groupingBy(MenuRow::canteenId));
+    }
+
+    /**
+     * 请求内同一食堂的时间窗口重叠：按开始时间排序后与此前的最大结束时间比较。
+     *
+     * @throws InvalidInputException 如果任意两个窗口重叠
+     */
+    static void checkRequestOverlaps(List<MenuRow> rows)
+    {
+        Map<String, List<MenuRow>> rowsByCanteen = rows.stream().collect(Collectors.groupingBy(MenuRow::canteenId));
+        for (List<MenuRow> canteenRows : rowsByCanteen.values())
+        {
+            List<MenuRow> sorted = canteenRows.stream().sorted(Comparator.comparing(MenuRow::windowStart)).toList();
+            LocalDateTime maxEnd = LocalDateTime.MIN;
+            for (MenuRow row : sorted)
+            {
+                if (row.windowStart().isBefore(maxEnd))
+                {
+                    throw new InvalidInputException("Overlapping menus in request for canteen " + row.canteenId() +
+                            " on " + row.menuDate() + " from " + row.startTime() + " to " + row.endTime());
+                }
+                maxEnd = row.windowEnd().isAfter(maxEnd) ? row.windowEnd() : maxEnd;
+            }
+        }
+    }
+
+    /**
+     * 判断窗口是否与同一食堂的任一已有窗口重叠（半开区间相交）。
+     */
+    static boolean overlapsAny(MenuRow row, Map<String, List<MenuRow>> windowsByCanteen)
+    {
+        return windowsByCanteen.getOrDefault(row.canteenId(), List.of()).stream()
+                .anyMatch(other -> row.windowStart().isBefore(other.windowEnd()) && other.windowStart().isBefore(row.windowEnd()));
+    }
+
+    /**
+     * 以 JDBC 批量插入菜谱及其菜品关联，并在事务提交后刷新缓存和正在供应菜谱索引。
+     */
+    private MenuBatchResult insertMenus(List<MenuRow> rows, int skipped, Map<String, Canteen> canteensById, User publisher)
+    {
+        LocalDateTime publishedAt = LocalDateTime.now();
+        List<Object[]> menuArgs = new ArrayList<>(rows.size());
+        List<Object[]> dishArgs = new ArrayList<>();
+        for (MenuRow row : rows)
+        {
+            menuArgs.add(new Object[]{row.menuId(), row.canteenId(), row.menuDate(), row.startTime(), row.endTime(),
+                    publisher.getUserId(), publishedAt});
+            for (String dishId : row.dishIds())
+            {
+                dishArgs.add(new Object[]{row.menuId(), dishId});
+            }
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO daily_menus (menu_id, canteen_id, menu_date, start_time, end_time, published_by_user_id, published_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                """, menuArgs);
+        jdbcTemplate.batchUpdate("INSERT INTO menu_dishes (menu_id, dish_id) VALUES (?, ?)", dishArgs);
+
+        // 缓存失效；落在今天和明天的菜谱写入正在供应菜谱索引
+        LocalDate today = LocalDate.now();
+        List<MenuRow> scheduled = new ArrayList<>();
+        for (MenuRow row : rows)
+        {
+            dailyMenuCache.invalidateMenu(row.canteenId(), row.menuDate());
+            if (!row.menuDate().isBefore(today) && !row.menuDate().isAfter(today.plusDays(1)))
+            {
+                scheduled.add(row);
+            }
+        }
+        if (!scheduled.isEmpty())
+        {
+            Map<String, DishDto> dishDtosById = dishService.getDishesByIds(scheduled.stream()
+                            .flatMap(row -> row.dishIds().stream())
+                            .collect(Collectors.toCollection(LinkedHashSet::new))).stream()
+                    .collect(Collectors.toMap(DishDto::getDishId, Function.identity()));
+            for (MenuRow row : scheduled)
+            {
+                menuScheduleIndex.put(new DailyMenuResponse(row.menuId(), row.canteenId(),
+                        canteensById.get(row.canteenId()).getName(), row.menuDate(), row.startTime(), row.endTime(),
+                        publisher.getUsername(), publishedAt,
+                        row.dishIds().stream().map(dishDtosById::get).collect(Collectors.toList())));
+            }
+        }
+
+        return new MenuBatchResult(rows.size(), dishArgs.size(), skipped, rows.stream().map(MenuRow::menuId).toList());
+    }
+
+    /**
+     * 批量写入的一行菜谱。时间窗口与数据库 menu_window 列一致：[开始, 结束)，结束不晚于开始时视为跨过午夜。
+     */
+    record MenuRow(String menuId, String canteenId, LocalDate menuDate, LocalTime startTime, LocalTime endTime,
+                   List<String> dishIds)
+    {
+        LocalDateTime windowStart()
+        {
+            return menuDate.atTime(startTime);
+        }
+
+        LocalDateTime windowEnd()
+        {
+            LocalDateTime end = menuDate.atTime(endTime);
+            return end.isAfter(windowStart()) ? end : end.plusDays(1);
+        }
     }
 }
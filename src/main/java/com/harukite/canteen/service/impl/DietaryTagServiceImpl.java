@@ -7,6 +7,7 @@ import com.harukite.canteen.model.DietaryTag;
 import com.harukite.canteen.repository.DietaryTagRepository;
 import com.harukite.canteen.repository.DishRepository;
 import com.harukite.canteen.repository.UserRepository;
+import com.harukite.canteen.service.DailyMenuCache;
 import com.harukite.canteen.service.DietaryTagService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -29,6 +30,7 @@ public class DietaryTagServiceImpl implements DietaryTagService
     private final DietaryTagRepository dietaryTagRepository;
     private final DishRepository dishRepository; // 注入 DishRepository
     private final UserRepository userRepository; // 注入 UserRepository
+    private final DailyMenuCache dailyMenuCache; // 菜谱中的菜品带有标签名称
 
     /**
      * 创建一个新的饮食习惯标签。
@@ -113,6 +115,7 @@ public class DietaryTagServiceImpl implements DietaryTagService
 
         existingDietaryTag.setTagName(updatedDietaryTagDto.getTagName());
         DietaryTag savedDietaryTag = dietaryTagRepository.save(existingDietaryTag);
+        dailyMenuCache.invalidateTag(id);
         return convertToDto(savedDietaryTag);
     }
 
@@ -0,0 +1,153 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.model.DishRatingStats;
+import com.harukite.canteen.repository.DishRatingStatsRepository;
+import com.harukite.canteen.service.DailyMenuCache;
+import com.harukite.canteen.service.DishRatingStatsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 菜品评分聚合服务接口的实现类。
+ * 评价的增删改只对 dish_rating_stats 做一次原子增量更新，
+ * 菜品展示时按主键读取一行即可得到平均评分。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DishRatingStatsServiceImpl implements DishRatingStatsService
+{
+
+    private final DishRatingStatsRepository dishRatingStatsRepository;
+    private final DailyMenuCache dailyMenuCache; // 菜谱中的菜品带有平均评分
+
+    /**
+     * 获取菜品的平均评分，没有评分时返回 0.0。
+     *
+     * @param dishId 菜品ID
+     * @return 平均评分
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public double getAverageRating(String dishId)
+    {
+        return dishRatingStatsRepository.findById(dishId)
+                .map(DishRatingStats::getAverageRating)
+                .orElse(0.0);
+    }
+
+    /**
+     * 批量获取菜品的平均评分，只发出一次主键 IN 查询。
+     *
+     * @param dishIds 菜品ID集合
+     * @return 菜品ID到平均评分的映射
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Double> getAverageRatings(Collection<String> dishIds)
+    {
+        if (dishIds == null || dishIds.isEmpty())
+        {
+            return Collections.emptyMap();
+        }
+        return dishRatingStatsRepository.findAllById(dishIds).stream()
+                .collect(Collectors.toMap(DishRatingStats::getDishId, DishRatingStats::getAverageRating));
+    }
+
+    /**
+     * 记录一条新增评分。
+     *
+     * @param dishId 菜品ID
+     * @param rating 评分（1-5星）
+     */
+    @Override
+    @Transactional
+    public void recordRatingAdded(String dishId, Integer rating)
+    {
+        applyDelta(dishId, rating, 1);
+    }
+
+    /**
+     * 记录一条评分被修改。
+     *
+     * @param dishId    菜品ID
+     * @param oldRating 修改前评分
+     * @param newRating 修改后评分
+     */
+    @Override
+    @Transactional
+    public void recordRatingChanged(String dishId, Integer oldRating, Integer newRating)
+    {
+        if (oldRating != null && oldRating.equals(newRating))
+        {
+            return;
+        }
+        applyDelta(dishId, oldRating, -1);
+        applyDelta(dishId, newRating, 1);
+    }
+
+    /**
+     * 记录一条评分被删除。
+     *
+     * @param dishId 菜品ID
+     * @param rating 被删除的评分
+     */
+    @Override
+    @Transactional
+    public void recordRatingRemoved(String dishId, Integer rating)
+    {
+        applyDelta(dishId, rating, -1);
+    }
+
+    /**
+     * 根据 ratings_reviews 表全量重建所有菜品的评分聚合。
+     * 每天凌晨执行一次，用于修正可能出现的漂移；也可由管理员手动触发。
+     *
+     * @return 重建后的聚合行数
+     */
+    @Override
+    @Transactional
+    @Scheduled(cron = "${canteen.rating-stats.rebuild-cron:0 30 3 * * *}")
+    public int rebuildAll()
+    {
+        dishRatingStatsRepository.deleteAllStats();
+        int rebuilt = dishRatingStatsRepository.rebuildFromReviews();
+        log.info("Rebuilt rating stats for {} dishes.", rebuilt);
+        dailyMenuCache.invalidateAll();
+        return rebuilt;
+    }
+
+    /**
+     * 辅助方法：将单条评分以给定符号累加到聚合上。
+     *
+     * @param dishId 菜品ID
+     * @param rating 评分，为 null 或超出 1-5 范围时忽略
+     * @param sign   1 表示增加，-1 表示减少
+     */
+    private void applyDelta(String dishId, Integer rating, int sign)
+    {
+        if (rating == null || rating < 1 || rating > 5)
+        {
+            return;
+        }
+        dishRatingStatsRepository.applyDelta(
+                dishId,
+                sign,
+                (long) sign * rating,
+                rating == 1 ? sign : 0,
+                rating == 2 ? sign : 0,
+                rating == 3 ? sign : 0,
+                rating == 4 ? sign : 0,
+                rating == 5 ? sign : 0
+        );
+        dailyMenuCache.invalidateDish(dishId);
+    }
+}
@@ -1,21 +1,33 @@
 package com.harukite.canteen.service.impl;
 
+import com.harukite.canteen.dto.CursorPageResponse;
+import com.harukite.canteen.dto.DishCatalogQuery;
 import com.harukite.canteen.dto.DishDto;
+import com.harukite.canteen.dto.PageResponse;
+import com.harukite.canteen.dto.StoredFile;
+import com.harukite.canteen.exception.InvalidInputException;
 import com.harukite.canteen.exception.ResourceNotFoundException;
 import com.harukite.canteen.model.*;
 import com.harukite.canteen.repository.*;
-import com.harukite.canteen.service.CosService;
+import com.harukite.canteen.service.DailyMenuCache;
+import com.harukite.canteen.service.DishFilterIndex;
+import com.harukite.canteen.service.DishRatingStatsService;
 import com.harukite.canteen.service.DishService;
+import com.harukite.canteen.service.ImageVariantService;
+import com.harukite.canteen.service.StorageOutboxService;
+import com.harukite.canteen.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -28,12 +40,22 @@ import java.util.stream.Collectors;
 public class DishServiceImpl implements DishService
 {
 
+    private static final int MAX_CATALOG_PAGE_SIZE = 100;
+    private static final int MAX_SEARCH_KEYWORD_LENGTH = 50;
+    private static final int MAX_SEARCH_PAGE = 100; // 相关度排序的深分页没有意义，也避免 OFFSET 溢出
+    private static final Sort CATALOG_SORT = Sort.by(Sort.Direction.DESC, "createdAt")
+            .and(Sort.by(Sort.Direction.DESC, "dishId"));
+
     private final DishRepository dishRepository;
     private final CanteenRepository canteenRepository;
     private final DietaryTagRepository dietaryTagRepository;
     private final AllergenRepository allergenRepository;
-    private final RatingReviewRepository ratingReviewRepository;
-    private final CosService cosService; // 注入 CosService
+    private final DishRatingStatsService dishRatingStatsService; // 读取增量维护的评分聚合
+    private final StorageOutboxService storageOutboxService; // 图片上传与延迟删除
+    private final ImageVariantService imageVariantService; // 图片衍生版本
+    private final TransactionTemplate transactionTemplate;
+    private final DishFilterIndex dishFilterIndex; // 标签/过敏原位图索引
+    private final DailyMenuCache dailyMenuCache; // 预序列化的每日菜谱
 
     /**
      * 创建新菜品。
@@ -45,8 +67,37 @@ public class DishServiceImpl implements DishService
      * @throws RuntimeException          如果图片上传失败
      */
     @Override
-    @Transactional
     public DishDto createDish(DishDto dishDto, MultipartFile imageFile)
+    {
+        // 图片在事务开始前上传，上传期间不占用数据库连接
+        StoredFile stagedImage = storageOutboxService.stageUpload(imageFile);
+        String stagedImageUrl = stagedImage != null ? stagedImage.getUrl() : null;
+        DishDto result;
+        try
+        {
+            result = transactionTemplate.execute(status -> doCreateDish(dishDto, stagedImageUrl));
+        }
+        catch (RuntimeException e)
+        {
+            storageOutboxService.discardStaged(stagedImageUrl);
+            throw e;
+        }
+        // 复用已有对象时也提交，版本齐全时工作线程直接跳过，缺失的版本得以补齐
+        if (stagedImage != null)
+        {
+            imageVariantService.generateVariants(imageFile, stagedImageUrl); // 提交后在后台生成缩略图等版本
+        }
+        return result;
+    }
+
+    /**
+     * 在事务内创建菜品。
+     *
+     * @param dishDto        包含菜品信息的 DTO
+     * @param stagedImageUrl 已预先上传的图片 URL，未上传时为 null
+     * @return 创建成功的菜品 DTO
+     */
+    private DishDto doCreateDish(DishDto dishDto, String stagedImageUrl)
     {
         Canteen canteen = canteenRepository.findById(dishDto.getCanteenId())
                 .orElseThrow(() -> new ResourceNotFoundException("Canteen not found with ID: " + dishDto.getCanteenId()));
@@ -58,24 +109,16 @@ public class DishServiceImpl implements DishService
         dish.setPrice(dishDto.getPrice());
         dish.setIsAvailable(dishDto.getIsAvailable() != null ? dishDto.getIsAvailable() : true); // 默认为可用
 
-        // 处理图片上传
-        if (imageFile != null && !imageFile.isEmpty())
+        // 处理图片
+        if (stagedImageUrl != null)
         {
-            try
-            {
-                String imageUrl = cosService.uploadFile(imageFile, "dishes/"); // 上传到 dishes 文件夹
-                dish.setImageUrl(imageUrl);
-            }
-            catch (IOException e)
-            {
-                log.error("Failed to upload dish image: {}", e.getMessage(), e);
-                throw new RuntimeException("Failed to upload dish image: " + e.getMessage(), e);
-            }
+            dish.setImageUrl(stagedImageUrl);
         }
         else
         {
             dish.setImageUrl(dishDto.getImageUrl()); // 如果没有新文件，使用DTO中可能已有的URL
         }
+        storageOutboxService.retain(dish.getImageUrl()); // 登记对图片的引用
 
 
         // 处理饮食标签
@@ -108,6 +151,7 @@ public class DishServiceImpl implements DishService
 
         Dish savedDish = dishRepository.save(dish);
         dishRepository.flush();
+        dishFilterIndex.indexDish(savedDish);
         return convertToDto(savedDish);
     }
 
@@ -127,6 +171,21 @@ public class DishServiceImpl implements DishService
         return convertToDto(dish);
     }
 
+    /**
+     * 根据菜品ID批量获取菜品详情。
+     * 共发出三次集合查询：菜品+饮食标签、过敏原、评分聚合，与菜品数量无关。
+     *
+     * @param dishIds 菜品ID集合
+     * @return 菜品 DTO 列表，顺序与传入ID顺序一致
+     * @throws ResourceNotFoundException 如果某个菜品不存在
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<DishDto> getDishesByIds(Collection<String> dishIds)
+    {
+        return loadDishDtos(dishIds, false);
+    }
+
     /**
      * 获取所有菜品列表。
      *
@@ -136,9 +195,127 @@ public class DishServiceImpl implements DishService
     @Transactional(readOnly = true)
     public List<DishDto> getAllDishes()
     {
-        return dishRepository.findAllWithDetails().stream()
-                .map(this::convertToDto)
+        List<String> dishIds = dishRepository.findAll(CATALOG_SORT).stream()
+                .map(Dish::getDishId)
                 .collect(Collectors.toList());
+        return getDishesByIds(dishIds);
+    }
+
+    /**
+     * 按条件分页浏览菜品目录（键集分页）。
+     * 按 (created_at, dish_id) 倒序排列，多取一条用于判断是否还有下一页，
+     * 然后批量组装当前页的 DishDto，不会因标签和过敏原连接而放大结果行数。
+     *
+     * @param filter 筛选条件
+     * @param cursor 上一页返回的游标，首页为 null
+     * @param limit  每页数量（1-100）
+     * @return 当前页菜品及下一页游标
+     * @throws com.harukite.canteen.exception.InvalidInputException 如果游标无效
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponse<DishDto> getDishCatalog(DishCatalogQuery filter, String cursor, int limit)
+    {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_CATALOG_PAGE_SIZE);
+        KeysetCursor after = (cursor == null || cursor.isEmpty()) ? null : KeysetCursor.decode(cursor);
+
+        Specification<Dish> spec = Specification.allOf(
+                DishSpecifications.inCanteen(filter.getCanteenId()),
+                DishSpecifications.availability(filter.getIsAvailable()),
+                DishSpecifications.priceBetween(filter.getMinPrice(), filter.getMaxPrice()),
+                DishSpecifications.hasAllTags(filter.getRequiredTagIds()),
+                DishSpecifications.excludesAllergens(filter.getExcludedAllergenIds()),
+                DishSpecifications.after(after)
+        );
+        List<Dish> dishes = dishRepository.findBy(spec, query -> query.sortBy(CATALOG_SORT).limit(pageSize + 1).all());
+
+        boolean hasMore = dishes.size() > pageSize;
+        if (hasMore)
+        {
+            dishes = dishes.subList(0, pageSize);
+        }
+        String nextCursor = null;
+        if (hasMore)
+        {
+            Dish last = dishes.get(dishes.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getDishId()).encode();
+        }
+
+        List<DishDto> items = getDishesByIds(dishes.stream()
+                .map(Dish::getDishId)
+                .collect(Collectors.toList()));
+        return new CursorPageResponse<>(items, nextCursor, hasMore);
+    }
+
+    /**
+     * 查找同时带有全部指定饮食标签、且不含任一指定过敏原的可用菜品。
+     * 先在 DishFilterIndex 上以位运算得到命中的菜品ID，再批量加载详情；
+     * 索引在事务提交后才更新，期间刚被删除的菜品会被直接跳过。
+     *
+     * @param canteenId           食堂ID（可选）
+     * @param requiredTagIds      必须带有的饮食标签ID（可选）
+     * @param excludedAllergenIds 需要排除的过敏原ID（可选）
+     * @return 菜品 DTO 列表
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<DishDto> getSafeDishes(String canteenId, List<String> requiredTagIds, List<String> excludedAllergenIds)
+    {
+        List<String> dishIds = dishFilterIndex.findDishIds(canteenId, requiredTagIds, excludedAllergenIds, true);
+        return loadDishDtos(dishIds, true);
+    }
+
+    /**
+     * 按关键字检索菜品。
+     * 检索和排序在数据库中完成（pg_trgm 索引），多取一条用于判断是否还有下一页，
+     * 然后按相关度顺序批量组装当前页的 DishDto。
+     *
+     * @param keyword   关键字
+     * @param canteenId 食堂ID（可选）
+     * @param todayOnly 是否仅检索今日菜谱中的菜品
+     * @param page      页码，从 0 开始（最大 100）
+     * @param size      每页数量（1-100）
+     * @return 当前页菜品
+     * @throws InvalidInputException 如果关键字为空或过长，或页码超过上限
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public PageResponse<DishDto> searchDishes(String keyword, String canteenId, boolean todayOnly, int page, int size)
+    {
+        String trimmed = keyword == null ? "" : keyword.trim();
+        if (trimmed.isEmpty())
+        {
+            throw new InvalidInputException("Search keyword must not be empty.");
+        }
+        if (trimmed.length() > MAX_SEARCH_KEYWORD_LENGTH)
+        {
+            throw new InvalidInputException("Search keyword must not exceed " + MAX_SEARCH_KEYWORD_LENGTH + " characters.");
+        }
+        if (page > MAX_SEARCH_PAGE)
+        {
+            throw new InvalidInputException("Search page must not exceed " + MAX_SEARCH_PAGE + ".");
+        }
+        int pageNumber = Math.max(page, 0);
+        int pageSize = Math.min(Math.max(size, 1), MAX_CATALOG_PAGE_SIZE);
+
+        // 转义 LIKE 通配符，关键字按字面匹配
+        String pattern = "%" + trimmed.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+        LocalDate menuDate = todayOnly ? LocalDate.now() : null;
+
+        // 不足三个字符的关键字切不出三元组，改走单字、双字片段索引
+        List<String> dishIds = trimmed.codePointCount(0, trimmed.length()) < 3
+                ? dishRepository.searchDishIdsByShortKeyword(trimmed, pattern, canteenId, menuDate,
+                        pageSize + 1, pageNumber * pageSize)
+                : dishRepository.searchDishIds(trimmed, pattern, canteenId, menuDate,
+                        pageSize + 1, pageNumber * pageSize);
+        boolean hasMore = dishIds.size() > pageSize;
+        if (hasMore)
+        {
+            dishIds = dishIds.subList(0, pageSize);
+        }
+        return new PageResponse<>(getDishesByIds(dishIds), pageNumber, pageSize, hasMore);
     }
 
     /**
@@ -149,11 +326,41 @@ public class DishServiceImpl implements DishService
      * @param imageFile      菜品图片文件（可选，如果提供则更新图片）
      * @return 更新后的菜品 DTO
      * @throws ResourceNotFoundException 如果菜品、所属食堂、饮食标签或过敏原不存在
-     * @throws RuntimeException          如果图片上传失败或删除失败
+     * @throws RuntimeException          如果图片上传失败
      */
     @Override
-    @Transactional
     public DishDto updateDish(String dishId, DishDto updatedDishDto, MultipartFile imageFile)
+    {
+        // 新图片在事务开始前上传，对新旧图片的引用在事务内调整
+        StoredFile stagedImage = storageOutboxService.stageUpload(imageFile);
+        String stagedImageUrl = stagedImage != null ? stagedImage.getUrl() : null;
+        DishDto result;
+        try
+        {
+            result = transactionTemplate.execute(status -> doUpdateDish(dishId, updatedDishDto, stagedImageUrl));
+        }
+        catch (RuntimeException e)
+        {
+            storageOutboxService.discardStaged(stagedImageUrl);
+            throw e;
+        }
+        // 复用已有对象时也提交，版本齐全时工作线程直接跳过，缺失的版本得以补齐
+        if (stagedImage != null)
+        {
+            imageVariantService.generateVariants(imageFile, stagedImageUrl); // 提交后在后台生成缩略图等版本
+        }
+        return result;
+    }
+
+    /**
+     * 在事务内更新菜品。
+     *
+     * @param dishId         要更新的菜品ID
+     * @param updatedDishDto 包含更新信息的菜品 DTO
+     * @param stagedImageUrl 已预先上传的新图片 URL，未上传时为 null
+     * @return 更新后的菜品 DTO
+     */
+    private DishDto doUpdateDish(String dishId, DishDto updatedDishDto, String stagedImageUrl)
     {
         Dish existingDish = dishRepository.findById(dishId)
                 .orElseThrow(() -> new ResourceNotFoundException("Dish not found with ID: " + dishId));
@@ -185,31 +392,17 @@ public class DishServiceImpl implements DishService
         }
 
         // 处理图片更新
-        if (imageFile != null && !imageFile.isEmpty())
+        if (stagedImageUrl != null)
         {
-            // 如果存在旧图片，先删除旧图片
-            if (existingDish.getImageUrl() != null && !existingDish.getImageUrl().isEmpty())
-            {
-                cosService.deleteFile(existingDish.getImageUrl());
-            }
-            try
-            {
-                String newImageUrl = cosService.uploadFile(imageFile, "dishes/");
-                existingDish.setImageUrl(newImageUrl);
-            }
-            catch (IOException e)
-            {
-                log.error("Failed to upload new dish image: {}", e.getMessage(), e);
-                throw new RuntimeException("Failed to upload new dish image: " + e.getMessage(), e);
-            }
+            // 释放对旧图片的引用，改为引用新图片
+            storageOutboxService.release(existingDish.getImageUrl());
+            existingDish.setImageUrl(stagedImageUrl);
+            storageOutboxService.retain(stagedImageUrl);
         }
         else if (updatedDishDto.getImageUrl() != null && updatedDishDto.getImageUrl().isEmpty())
         {
             // 如果DTO中的imageUrl被显式设置为空字符串，表示清除图片
-            if (existingDish.getImageUrl() != null && !existingDish.getImageUrl().isEmpty())
-            {
-                cosService.deleteFile(existingDish.getImageUrl());
-            }
+            storageOutboxService.release(existingDish.getImageUrl());
             existingDish.setImageUrl(null);
         }
         // 如果 imageFile 为 null 且 updatedDishDto.getImageUrl() 也为 null，则保持不变
@@ -244,12 +437,14 @@ public class DishServiceImpl implements DishService
 
         Dish savedDish = dishRepository.save(existingDish);
         dishRepository.flush(); // 确保所有更改都被持久化到数据库
+        dishFilterIndex.indexDish(savedDish);
+        dailyMenuCache.invalidateDish(dishId);
         return convertToDto(savedDish);
     }
 
     /**
      * 删除菜品。
-     * 同时删除 COS 中关联的图片。
+     * 关联图片的引用在事务内释放，不再被引用的图片由后台任务从对象存储中删除。
      *
      * @param dishId 要删除的菜品ID
      * @throws ResourceNotFoundException 如果菜品不存在
@@ -261,24 +456,74 @@ public class DishServiceImpl implements DishService
         Dish dishToDelete = dishRepository.findById(dishId)
                 .orElseThrow(() -> new ResourceNotFoundException("Dish not found with ID: " + dishId));
 
-        // 删除 COS 中的图片
-        if (dishToDelete.getImageUrl() != null && !dishToDelete.getImageUrl().isEmpty())
-        {
-            cosService.deleteFile(dishToDelete.getImageUrl());
-        }
+        // 释放对图片的引用，不再被引用的图片由后台任务删除
+        storageOutboxService.release(dishToDelete.getImageUrl());
 
         dishRepository.delete(dishToDelete);
         dishRepository.flush(); // 确保所有更改都被持久化到数据库
+        dishFilterIndex.removeDish(dishId);
+        dailyMenuCache.invalidateDish(dishId);
+    }
+
+    /**
+     * 辅助方法：批量组装 DishDto。
+     * 共发出三次集合查询：菜品+饮食标签、过敏原、评分聚合，与菜品数量无关。
+     *
+     * @param dishIds     菜品ID集合
+     * @param skipMissing 为 true 时跳过不存在的菜品，否则抛出异常
+     * @return 菜品 DTO 列表，顺序与传入ID顺序一致
+     */
+    private List<DishDto> loadDishDtos(Collection<String> dishIds, boolean skipMissing)
+    {
+        if (dishIds == null || dishIds.isEmpty())
+        {
+            return new ArrayList<>();
+        }
+        Set<String> uniqueIds = new LinkedHashSet<>(dishIds);
+
+        Map<String, Dish> dishesById = dishRepository.findAllWithTagsByDishIdIn(uniqueIds).stream()
+                .collect(Collectors.toMap(Dish::getDishId, Function.identity()));
+        // 第二次抓取会在同一持久化上下文中初始化上面菜品的过敏原集合
+        dishRepository.findAllWithAllergensByDishIdIn(uniqueIds);
+        Map<String, Double> averageRatings = dishRatingStatsService.getAverageRatings(uniqueIds);
+
+        List<DishDto> dtos = new ArrayList<>(uniqueIds.size());
+        for (String dishId : uniqueIds)
+        {
+            Dish dish = dishesById.get(dishId);
+            if (dish == null)
+            {
+                if (skipMissing)
+                {
+                    continue;
+                }
+                throw new ResourceNotFoundException("Dish not found with ID: " + dishId);
+            }
+            dtos.add(convertToDto(dish, averageRatings.getOrDefault(dishId, 0.0)));
+        }
+        return dtos;
     }
 
     /**
      * 辅助方法：将 Dish 实体转换为 DishDto。
-     * 同时计算菜品的平均评分。
+     * 平均评分从 dish_rating_stats 按主键读取，不再加载全部评价。
      *
      * @param dish Dish 实体
      * @return DishDto
      */
     private DishDto convertToDto(Dish dish)
+    {
+        return convertToDto(dish, dishRatingStatsService.getAverageRating(dish.getDishId()));
+    }
+
+    /**
+     * 辅助方法：使用已知的平均评分将 Dish 实体转换为 DishDto。
+     *
+     * @param dish          Dish 实体
+     * @param averageRating 平均评分
+     * @return DishDto
+     */
+    private DishDto convertToDto(Dish dish, double averageRating)
     {
         Set<DietaryTag> dietaryTags = dish.getDietaryTags();
         Set<Allergen> allergens = dish.getAllergens();
@@ -302,17 +547,6 @@ public class DishServiceImpl implements DishService
                 .map(Allergen::getAllergenName)
                 .collect(Collectors.toList());
 
-        // 计算平均评分
-        List<RatingReview> reviews = ratingReviewRepository.findByDish(dish);
-        double averageRating = 0.0;
-        if (!reviews.isEmpty())
-        {
-            double sumRatings = reviews.stream()
-                    .mapToInt(RatingReview::getRating)
-                    .sum();
-            averageRating = sumRatings / reviews.size();
-        }
-
         return new DishDto(
                 dish.getCanteen().getCanteenId(),
                 dish.getName(),
@@ -326,7 +560,8 @@ public class DishServiceImpl implements DishService
                 dish.getCreatedAt(),
                 dietaryTagNames,
                 allergenNames,
-                averageRating
+                averageRating,
+                imageVariantService.variantUrls(dish.getImageUrl())
         );
     }
 }
@@ -0,0 +1,342 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.dto.DishStockDto;
+import com.harukite.canteen.dto.DishStockRequest;
+import com.harukite.canteen.exception.InvalidInputException;
+import com.harukite.canteen.exception.ResourceNotFoundException;
+import com.harukite.canteen.model.Dish;
+import com.harukite.canteen.model.DishDailyStock;
+import com.harukite.canteen.repository.DishDailyStockRepository;
+import com.harukite.canteen.repository.DishRepository;
+import com.harukite.canteen.service.DailyMenuCache;
+import com.harukite.canteen.service.DishFilterIndex;
+import com.harukite.canteen.service.DishStockService;
+import com.harukite.canteen.util.AfterCommit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 菜品每日库存服务接口的实现类。
+ * <p>
+ * 扣减是一条 "remaining &gt;= 份数" 的条件 UPDATE，由调用方在订单事务之外的短事务中执行，
+ * 同一热门菜品的并发订单只在这一条语句上排队；一个订单的多个菜品按菜品ID顺序加锁，避免死锁。
+ * 任一菜品不足时整个短事务回滚，已扣减的其它菜品随之恢复。
+ * <p>
+ * 当日库存扣到 0 时，在同一事务内把菜品置为不可用并打上售罄标记；归还使剩余份数大于 0 时撤销。
+ * 售罄标记保证只恢复由库存下架的菜品，不会覆盖工作人员手动下架的决定。
+ * 本节点还会短暂记住已售罄的菜品，在午高峰直接拒绝而不访问数据库。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DishStockServiceImpl implements DishStockService
+{
+
+    private final DishDailyStockRepository dishDailyStockRepository;
+    private final DishRepository dishRepository;
+    private final DishFilterIndex dishFilterIndex;
+    private final DailyMenuCache dailyMenuCache;
+
+    @Value("${canteen.dish-stock.sold-out-marker-ttl-ms:1000}")
+    private long soldOutMarkerTtlMs;
+
+    @Value("${canteen.dish-stock.reconcile-quiet-minutes:5}")
+    private long reconcileQuietMinutes;
+
+    /**
+     * (菜品ID, 日期) -> "已售罄"标记过期的 System.nanoTime()。
+     */
+    private final ConcurrentMap<String, Long> soldOutUntil = new ConcurrentHashMap<>();
+
+    /**
+     * 设置菜品某日的供应总份数。
+     *
+     * @param request 库存信息
+     * @return 设置后的库存 DTO
+     * @throws ResourceNotFoundException 如果菜品不存在
+     */
+    @Override
+    @Transactional
+    public DishStockDto setStock(DishStockRequest request)
+    {
+        Dish dish = dishRepository.findById(request.getDishId())
+                .orElseThrow(() -> new ResourceNotFoundException("Dish not found with ID: " + request.getDishId()));
+
+        int remaining = dishDailyStockRepository.upsertStock(UUID.randomUUID().toString(), dish.getDishId(),
+                dish.getCanteen().getCanteenId(), request.getStockDate(), request.getQuantity());
+        if (request.getStockDate().equals(LocalDate.now()))
+        {
+            if (remaining == 0)
+            {
+                markSoldOut(dish.getDishId(), request.getStockDate());
+            }
+            else
+            {
+                reopen(dish.getDishId(), request.getStockDate());
+            }
+        }
+        AfterCommit.run(() -> soldOutUntil.remove(markerKey(dish.getDishId(), request.getStockDate())));
+
+        DishDailyStock stock = dishDailyStockRepository.findByDish_DishIdAndStockDate(dish.getDishId(), request.getStockDate())
+                .orElseThrow(() -> new IllegalStateException("Stock row disappeared for dish: " + dish.getDishId()));
+        return convertToDto(stock);
+    }
+
+    /**
+     * 获取食堂某日的全部菜品库存。
+     *
+     * @param canteenId 食堂ID
+     * @param stockDate 日期
+     * @return 按菜品名称排序的库存 DTO 列表
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<DishStockDto> getStocks(String canteenId, LocalDate stockDate)
+    {
+        return dishDailyStockRepository.findByCanteenAndDate(canteenId, stockDate).stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 删除菜品某日的库存设置。因售罄被下架的菜品会重新上架。
+     *
+     * @param dishId    菜品ID
+     * @param stockDate 日期
+     * @throws ResourceNotFoundException 如果该日没有库存设置
+     */
+    @Override
+    @Transactional
+    public void deleteStock(String dishId, LocalDate stockDate)
+    {
+        List<Boolean> deleted = dishDailyStockRepository.deleteStock(dishId, stockDate);
+        if (deleted.isEmpty())
+        {
+            throw new ResourceNotFoundException("No stock configured for dish " + dishId + " on " + stockDate);
+        }
+        if (Boolean.TRUE.equals(deleted.get(0)))
+        {
+            setAvailability(dishId, true);
+        }
+        AfterCommit.run(() -> soldOutUntil.remove(markerKey(dishId, stockDate)));
+    }
+
+    /**
+     * 为一个订单扣减各菜品的库存。
+     * 调用方不应处于事务中；订单创建失败时调用方负责 {@link #restore(LocalDate, Map)} 返回的菜品。
+     *
+     * @param stockDate        订单日期
+     * @param quantitiesByDish 菜品ID到份数的映射，非正数的份数被忽略
+     * @return 实际扣减了库存的菜品ID
+     * @throws InvalidInputException 如果任一菜品库存不足
+     */
+    @Override
+    @Transactional
+    public Set<String> reserve(LocalDate stockDate, Map<String, Integer> quantitiesByDish)
+    {
+        boolean today = stockDate.equals(LocalDate.now());
+        Set<String> reserved = new HashSet<>();
+        for (Map.Entry<String, Integer> entry : new TreeMap<>(quantitiesByDish).entrySet()) // 按菜品ID顺序加锁
+        {
+            String dishId = entry.getKey();
+            int quantity = entry.getValue();
+            if (quantity <= 0)
+            {
+                continue;
+            }
+
+            Long markedUntil = soldOutUntil.get(markerKey(dishId, stockDate));
+            if (markedUntil != null && markedUntil - System.nanoTime() > 0)
+            {
+                throw insufficientStock(dishId, 0);
+            }
+
+            Object[] result = dishDailyStockRepository.tryDecrement(dishId, stockDate, quantity).get(0);
+            Integer remainingAfter = toInteger(result[0]);
+            Integer remainingBefore = toInteger(result[1]);
+            if (remainingAfter != null)
+            {
+                reserved.add(dishId);
+                if (remainingAfter == 0 && today)
+                {
+                    markSoldOut(dishId, stockDate);
+                }
+                continue;
+            }
+            if (remainingBefore == null)
+            {
+                continue; // 当日没有库存设置，不限量
+            }
+            if (remainingBefore == 0)
+            {
+                soldOutUntil.put(markerKey(dishId, stockDate), System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(soldOutMarkerTtlMs));
+            }
+            throw insufficientStock(dishId, remainingBefore);
+        }
+        return reserved;
+    }
+
+    /**
+     * 归还一个订单扣减的库存。
+     *
+     * @param stockDate        订单日期
+     * @param quantitiesByDish 菜品ID到份数的映射，非正数的份数被忽略
+     */
+    @Override
+    @Transactional
+    public void restore(LocalDate stockDate, Map<String, Integer> quantitiesByDish)
+    {
+        for (Map.Entry<String, Integer> entry : new TreeMap<>(quantitiesByDish).entrySet())
+        {
+            String dishId = entry.getKey();
+            if (entry.getValue() <= 0)
+            {
+                continue;
+            }
+            List<Boolean> soldOut = dishDailyStockRepository.restore(dishId, stockDate, entry.getValue());
+            if (soldOut.isEmpty())
+            {
+                continue; // 不限量
+            }
+            if (Boolean.TRUE.equals(soldOut.get(0)))
+            {
+                reopen(dishId, stockDate);
+            }
+            AfterCommit.run(() -> soldOutUntil.remove(markerKey(dishId, stockDate)));
+        }
+    }
+
+    /**
+     * 每天零点后同步售罄状态。各节点都会执行，依靠售罄标记保证幂等。
+     */
+    @Override
+    @Scheduled(cron = "${canteen.dish-stock.rollover-cron:5 0 0 * * *}")
+    @Transactional
+    public void rolloverSoldOut()
+    {
+        LocalDate today = LocalDate.now();
+        List<String> closed = dishDailyStockRepository.markSoldOutOn(today);
+        Set<String> soldOutToday = new HashSet<>(dishDailyStockRepository.findSoldOutDishIds(today));
+        List<String> reopened = dishDailyStockRepository.clearSoldOutBefore(today).stream()
+                .filter(dishId -> !soldOutToday.contains(dishId))
+                .distinct()
+                .toList();
+
+        closed.forEach(dishId -> setAvailability(dishId, false));
+        reopened.forEach(dishId -> setAvailability(dishId, true));
+        if (!closed.isEmpty() || !reopened.isEmpty())
+        {
+            log.info("Dish stock rollover for {}: {} dishes marked sold out, {} reopened", today, closed.size(), reopened.size());
+        }
+    }
+
+    /**
+     * 定时归还扣减后没有落成订单的库存。扣减在订单事务之前以独立短事务提交，
+     * 进程在两者之间崩溃时库存不会被归还。今天及以后、最近若干分钟内没有变更的库存行，
+     * 剩余份数按总份数减去未取消订单已扣减的份数校正；热门菜品在高峰期持续变更，要等高峰过后才会被校正。
+     * 多个节点同时执行时结果相同。
+     *
+     * @return 被校正的库存行数
+     */
+    @Override
+    @Scheduled(cron = "${canteen.dish-stock.reconcile-cron:0 */5 * * * *}")
+    @Transactional
+    public int reconcileRemaining()
+    {
+        List<Object[]> rows = dishDailyStockRepository.reconcileRemaining(LocalDate.now(),
+                LocalDateTime.now().minusMinutes(reconcileQuietMinutes));
+        for (Object[] row : rows)
+        {
+            String dishId = (String) row[0];
+            LocalDate stockDate = row[1] instanceof java.sql.Date sqlDate ? sqlDate.toLocalDate() : (LocalDate) row[1];
+            if (Boolean.TRUE.equals(row[2]))
+            {
+                reopen(dishId, stockDate);
+            }
+            AfterCommit.run(() -> soldOutUntil.remove(markerKey(dishId, stockDate)));
+            log.warn("Restored stock of dish {} on {} that was reserved without an order", dishId, stockDate);
+        }
+        return rows.size();
+    }
+
+    /**
+     * 库存扣到 0：打上售罄标记并下架菜品。调用时该库存行已被当前事务锁定。
+     */
+    private void markSoldOut(String dishId, LocalDate stockDate)
+    {
+        if (dishDailyStockRepository.updateSoldOut(dishId, stockDate, true) == 1)
+        {
+            setAvailability(dishId, false);
+        }
+    }
+
+    /**
+     * 库存恢复：若菜品此前因售罄被下架，则清除标记并重新上架。
+     */
+    private void reopen(String dishId, LocalDate stockDate)
+    {
+        if (dishDailyStockRepository.updateSoldOut(dishId, stockDate, false) == 1)
+        {
+            setAvailability(dishId, true);
+        }
+    }
+
+    private void setAvailability(String dishId, boolean available)
+    {
+        if (dishRepository.updateAvailability(dishId, available) == 1)
+        {
+            dishFilterIndex.updateAvailability(dishId, available);
+            dailyMenuCache.invalidateDish(dishId); // 菜谱中的菜品带有可用状态
+        }
+    }
+
+    private InvalidInputException insufficientStock(String dishId, int remaining)
+    {
+        String dishName = dishRepository.findById(dishId).map(Dish::getName).orElse(dishId);
+        return remaining == 0
+                ? new InvalidInputException("Dish '" + dishName + "' is sold out.")
+                : new InvalidInputException("Only " + remaining + " portion(s) of dish '" + dishName + "' left.");
+    }
+
+    private static String markerKey(String dishId, LocalDate stockDate)
+    {
+        return dishId + '|' + stockDate;
+    }
+
+    private static Integer toInteger(Object value)
+    {
+        return value == null ? null : ((Number) value).intValue();
+    }
+
+    /**
+     * 辅助方法：将 DishDailyStock 实体转换为 DishStockDto。
+     *
+     * @param stock DishDailyStock 实体
+     * @return DishStockDto
+     */
+    private DishStockDto convertToDto(DishDailyStock stock)
+    {
+        return new DishStockDto(
+                stock.getStockId(),
+                stock.getDish().getDishId(),
+                stock.getDish().getName(),
+                stock.getCanteen().getCanteenId(),
+                stock.getStockDate(),
+                stock.getTotalQuantity(),
+                stock.getRemainingQuantity(),
+                stock.getSoldOut()
+        );
+    }
+}
@@ -0,0 +1,459 @@
+package com.harukite.canteen.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.harukite.canteen.exception.InvalidInputException;
+import com.harukite.canteen.exception.OperationInProgressException;
+import com.harukite.canteen.model.IdempotencyRecord;
+import com.harukite.canteen.repository.IdempotencyRecordRepository;
+import com.harukite.canteen.service.IdempotencyService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 幂等请求服务接口的实现类。
+ * 三层：本节点内正在执行的请求表（合并并发重复请求）、有界且会过期的本地结果缓存、
+ * 以及 Idempotency_Keys 表（多节点共享，唯一约束保证同一个键只被一个节点认领）。
+ * 认领、执行和保存结果各在独立的短事务中完成，不改变被包装操作自身的事务划分。
+ * 只有操作本身失败时才释放认领；操作执行期间定期续租，操作提交后若结果无法保存，
+ * 认领会一直保留到结果保留期结束，保证同一个键不会被执行第二次。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyServiceImpl implements IdempotencyService
+{
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_COMPLETE_ATTEMPTS = 3;
+    private static final long COMPLETE_RETRY_DELAY_MILLIS = 200;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 本节点正在执行的请求，键为 scope:userId:key。
+     */
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 为正在执行的操作续租。
+     */
+    private final ScheduledExecutorService leaseRenewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "idempotency-lease-renewer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 按访问顺序淘汰的本地结果缓存，访问时需持有自身的锁。
+     */
+    private final LinkedHashMap<String, CachedResult> localResults = new LinkedHashMap<>(256, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest)
+        {
+            return size() > cacheSize;
+        }
+    };
+
+    @Value("${canteen.idempotency.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    @Value("${canteen.idempotency.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Value("${canteen.idempotency.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${canteen.idempotency.wait-timeout-ms:30000}")
+    private long waitTimeoutMs;
+
+    /**
+     * 以幂等方式执行一次创建操作。
+     *
+     * @param scope          接口范围
+     * @param userId         用户ID
+     * @param idempotencyKey 幂等键，为 null 或空时直接执行
+     * @param request        请求体
+     * @param responseType   结果类型
+     * @param action         实际的创建操作
+     * @param <T>            结果类型
+     * @return 首次执行的结果
+     */
+    @Override
+    public <T> T execute(String scope, String userId, String idempotencyKey, Object request, Class<T> responseType, Supplier<T> action)
+    {
+        if (idempotencyKey == null || idempotencyKey.isBlank())
+        {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH)
+        {
+            throw new InvalidInputException("Idempotency-Key must not exceed " + MAX_KEY_LENGTH + " characters.");
+        }
+        String requestHash = hash(request);
+        String cacheKey = scope + ':' + userId + ':' + idempotencyKey;
+
+        // 1. 本地缓存命中：直接重放
+        CachedResult cached = getCached(cacheKey);
+        if (cached != null)
+        {
+            checkSameRequest(cached.requestHash(), requestHash);
+            return read(cached.body(), responseType);
+        }
+
+        // 2. 本节点已有相同的请求在执行：等待它的结果
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight existing = inFlight.putIfAbsent(cacheKey, mine);
+        if (existing != null)
+        {
+            checkSameRequest(existing.requestHash(), requestHash);
+            return read(await(existing.result()), responseType);
+        }
+
+        // 3. 由当前线程执行
+        try
+        {
+            String body = executeOnce(scope, userId, idempotencyKey, requestHash, cacheKey, action, responseType, mine);
+            return read(body, responseType);
+        }
+        finally
+        {
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    /**
+     * 认领幂等键、执行操作并保存结果；键已被认领时返回已保存的结果。
+     *
+     * @return 结果 JSON
+     */
+    private <T> String executeOnce(String scope, String userId, String idempotencyKey, String requestHash, String cacheKey,
+                                   Supplier<T> action, Class<T> responseType, InFlight mine)
+    {
+        try
+        {
+            LocalDateTime now = LocalDateTime.now();
+            Integer rows = transactionTemplate.execute(status -> idempotencyRecordRepository.claim(
+                    scope, userId, idempotencyKey, requestHash, now, now.plusSeconds(leaseSeconds)));
+            if (rows == null || rows == 0)
+            {
+                String body = storedResult(scope, userId, idempotencyKey, requestHash);
+                putCached(cacheKey, new CachedResult(requestHash, body, System.currentTimeMillis() + ttlSeconds * 1000));
+                mine.result().complete(body);
+                return body;
+            }
+        }
+        catch (RuntimeException e)
+        {
+            mine.result().completeExceptionally(e);
+            throw e;
+        }
+
+        // 操作执行期间定期续租，执行时间超过 lease-seconds 也不会被其它请求重新认领
+        ScheduledFuture<?> renewal = leaseRenewer.scheduleWithFixedDelay(
+                () -> extendLeaseQuietly(scope, userId, idempotencyKey, LocalDateTime.now().plusSeconds(leaseSeconds)),
+                renewalIntervalSeconds(), renewalIntervalSeconds(), TimeUnit.SECONDS);
+        try
+        {
+            T result;
+            try
+            {
+                result = action.get();
+            }
+            catch (RuntimeException e)
+            {
+                // 操作本身失败，没有提交任何结果：释放认领，允许客户端用同一个键重试
+                releaseQuietly(scope, userId, idempotencyKey);
+                mine.result().completeExceptionally(e);
+                throw e;
+            }
+
+            // 操作已经提交：此后无论发生什么都不能让认领被释放或过期，否则重试会再执行一次
+            String body;
+            try
+            {
+                body = write(result);
+            }
+            catch (RuntimeException e)
+            {
+                pinClaim(scope, userId, idempotencyKey);
+                mine.result().completeExceptionally(e);
+                throw e;
+            }
+            storeResult(scope, userId, idempotencyKey, body);
+            putCached(cacheKey, new CachedResult(requestHash, body, System.currentTimeMillis() + ttlSeconds * 1000));
+            mine.result().complete(body);
+            return body;
+        }
+        finally
+        {
+            renewal.cancel(false);
+        }
+    }
+
+    /**
+     * 保存已提交操作的结果，失败时重试；仍然失败则把认领保留到结果保留期结束。
+     */
+    private void storeResult(String scope, String userId, String idempotencyKey, String body)
+    {
+        for (int attempt = 1; attempt <= MAX_COMPLETE_ATTEMPTS; attempt++)
+        {
+            try
+            {
+                LocalDateTime expiresAt = LocalDateTime.now().plusSeconds(ttlSeconds);
+                transactionTemplate.executeWithoutResult(status ->
+                        idempotencyRecordRepository.complete(scope, userId, idempotencyKey, body, expiresAt));
+                return;
+            }
+            catch (RuntimeException e)
+            {
+                log.warn("Failed to store result for idempotency key {} in scope {} (attempt {}): {}",
+                        idempotencyKey, scope, attempt, e.getMessage());
+            }
+            if (attempt < MAX_COMPLETE_ATTEMPTS)
+            {
+                try
+                {
+                    Thread.sleep(COMPLETE_RETRY_DELAY_MILLIS * attempt);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        // 结果已经提交，保存失败不应让本次请求失败
+        pinClaim(scope, userId, idempotencyKey);
+    }
+
+    /**
+     * 操作已提交但结果无法保存：把 IN_PROGRESS 记录的租约延长到结果保留期结束。
+     * 期间用同一个键重试会得到"仍在处理"，而不是重新执行操作。
+     */
+    private void pinClaim(String scope, String userId, String idempotencyKey)
+    {
+        log.error("Result for idempotency key {} in scope {} could not be stored; keeping the key claimed for {} seconds",
+                idempotencyKey, scope, ttlSeconds);
+        extendLeaseQuietly(scope, userId, idempotencyKey, LocalDateTime.now().plusSeconds(ttlSeconds));
+    }
+
+    /**
+     * 延长租约，失败只记录日志。
+     */
+    private void extendLeaseQuietly(String scope, String userId, String idempotencyKey, LocalDateTime leaseUntil)
+    {
+        try
+        {
+            transactionTemplate.executeWithoutResult(status ->
+                    idempotencyRecordRepository.extendLease(scope, userId, idempotencyKey, leaseUntil));
+        }
+        catch (RuntimeException e)
+        {
+            log.error("Failed to extend lease of idempotency key {} in scope {}: {}", idempotencyKey, scope, e.getMessage(), e);
+        }
+    }
+
+    private long renewalIntervalSeconds()
+    {
+        return Math.max(leaseSeconds / 3, 1);
+    }
+
+    /**
+     * 读取其它节点（或之前的请求）已认领的记录。
+     *
+     * @return 已保存的结果 JSON
+     * @throws OperationInProgressException 如果该请求仍在执行
+     */
+    private String storedResult(String scope, String userId, String idempotencyKey, String requestHash)
+    {
+        Optional<IdempotencyRecord> stored = idempotencyRecordRepository.findByScopeAndUserIdAndIdempotencyKey(scope, userId, idempotencyKey);
+        if (stored.isEmpty())
+        {
+            // 认领与查询之间记录被清理，视为仍在处理，由客户端稍后重试
+            throw new OperationInProgressException("A request with this Idempotency-Key is still being processed.");
+        }
+        IdempotencyRecord record = stored.get();
+        checkSameRequest(record.getRequestHash(), requestHash);
+        if (!IdempotencyRecord.STATUS_COMPLETED.equals(record.getStatus()))
+        {
+            throw new OperationInProgressException("A request with this Idempotency-Key is still being processed.");
+        }
+        return record.getResponseBody();
+    }
+
+    /**
+     * 释放认领，失败只记录日志，不掩盖原本的异常；未释放的认领在租约到期后可被重新认领。
+     */
+    private void releaseQuietly(String scope, String userId, String idempotencyKey)
+    {
+        try
+        {
+            transactionTemplate.executeWithoutResult(status -> idempotencyRecordRepository.release(scope, userId, idempotencyKey));
+        }
+        catch (RuntimeException e)
+        {
+            log.error("Failed to release idempotency key {} in scope {}: {}", idempotencyKey, scope, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 停止续租线程。
+     */
+    @PreDestroy
+    public void shutdown()
+    {
+        leaseRenewer.shutdownNow();
+    }
+
+    /**
+     * 定时清理已过期的幂等键记录。
+     *
+     * @return 删除的记录数
+     */
+    @Override
+    @Scheduled(cron = "${canteen.idempotency.purge-cron:0 20 * * * *}")
+    public int purgeExpired()
+    {
+        Integer deleted = transactionTemplate.execute(status -> idempotencyRecordRepository.deleteExpired(LocalDateTime.now()));
+        if (deleted != null && deleted > 0)
+        {
+            log.info("Purged {} expired idempotency keys", deleted);
+        }
+        return deleted == null ? 0 : deleted;
+    }
+
+    /**
+     * 等待同一节点上正在执行的相同请求。
+     */
+    private String await(CompletableFuture<String> result)
+    {
+        try
+        {
+            return result.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException cause)
+            {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        catch (TimeoutException e)
+        {
+            throw new OperationInProgressException("A request with this Idempotency-Key is still being processed.");
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a duplicate request", e);
+        }
+    }
+
+    private void checkSameRequest(String storedHash, String requestHash)
+    {
+        if (!storedHash.equals(requestHash))
+        {
+            throw new InvalidInputException("Idempotency-Key has already been used with a different request body.");
+        }
+    }
+
+    private CachedResult getCached(String cacheKey)
+    {
+        synchronized (localResults)
+        {
+            CachedResult cached = localResults.get(cacheKey);
+            if (cached != null && cached.expiresAtMillis() < System.currentTimeMillis())
+            {
+                localResults.remove(cacheKey);
+                return null;
+            }
+            return cached;
+        }
+    }
+
+    private void putCached(String cacheKey, CachedResult result)
+    {
+        synchronized (localResults)
+        {
+            localResults.put(cacheKey, result);
+        }
+    }
+
+    private String hash(Object request)
+    {
+        try
+        {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        }
+        catch (JsonProcessingException | NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException("Failed to hash request body", e);
+        }
+    }
+
+    private String write(Object result)
+    {
+        try
+        {
+            return objectMapper.writeValueAsString(result);
+        }
+        catch (JsonProcessingException e)
+        {
+            throw new IllegalStateException("Failed to serialize response", e);
+        }
+    }
+
+    private <T> T read(String body, Class<T> responseType)
+    {
+        try
+        {
+            return objectMapper.readValue(body, responseType);
+        }
+        catch (JsonProcessingException e)
+        {
+            throw new IllegalStateException("Failed to deserialize stored response", e);
+        }
+    }
+
+    /**
+     * 本节点正在执行的请求。
+     */
+    private record InFlight(String requestHash, CompletableFuture<String> result)
+    {
+    }
+
+    /**
+     * 本地缓存的结果。
+     */
+    private record CachedResult(String requestHash, String body, long expiresAtMillis)
+    {
+    }
+}
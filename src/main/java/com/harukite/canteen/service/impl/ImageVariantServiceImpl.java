@@ -0,0 +1,366 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.dto.ObjectSummary;
+import com.harukite.canteen.service.ImageVariantService;
+import com.harukite.canteen.service.ObjectStorage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 图片衍生版本服务接口的实现类。
+ * 请求线程只把上传文件转存为本地临时文件并提交任务；有界线程池中的工作线程解码原图一次，
+ * 依次缩放出各个版本（每个版本从上一个更大的版本缩小），以 JPEG 重新压缩后写入对象存储。
+ * 队列满时直接丢弃任务并记录日志：衍生版本缺失时客户端回退到原图，不影响上传本身。
+ * 复用已有对象的上传同样提交任务，工作线程发现各版本都已存在时跳过，以便补齐此前被丢弃或失败的版本。
+ * 解码前先只读取图片尺寸，像素数超过上限的图片不解码，避免小文件声明超大尺寸耗尽内存。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImageVariantServiceImpl implements ImageVariantService
+{
+
+    /**
+     * 衍生版本：名称 -> 最长边像素，按从大到小排列。
+     */
+    private static final Map<String, Integer> VARIANTS = variants();
+    private static final String VARIANT_EXTENSION = ".jpg";
+
+    private final ObjectStorage objectStorage;
+
+    @Value("${canteen.image-variants.threads:2}")
+    private int threads;
+
+    @Value("${canteen.image-variants.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${canteen.image-variants.jpeg-quality:0.8}")
+    private float jpegQuality;
+
+    // 解码后按每像素 4 字节占用内存，默认约 100MB
+    @Value("${canteen.image-variants.max-pixels:25000000}")
+    private long maxPixels;
+
+    private ThreadPoolExecutor executor;
+
+    private static Map<String, Integer> variants()
+    {
+        Map<String, Integer> variants = new LinkedHashMap<>();
+        variants.put("large", 1280);
+        variants.put("medium", 640);
+        variants.put("thumb", 200);
+        return Collections.unmodifiableMap(variants);
+    }
+
+    /**
+     * 创建有界的工作线程池。
+     */
+    @PostConstruct
+    public void init()
+    {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 停止接收新任务，已排队的任务直接放弃。
+     */
+    @PreDestroy
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 为已上传的原图排队生成衍生版本。
+     *
+     * @param file        上传的原图文件，为 null 或空时忽略
+     * @param originalUrl 原图 URL，为 null 时忽略
+     */
+    @Override
+    public void generateVariants(MultipartFile file, String originalUrl)
+    {
+        if (file == null || file.isEmpty() || originalUrl == null || objectStorage.keyOf(originalUrl) == null)
+        {
+            return;
+        }
+        Path source;
+        try
+        {
+            // 请求结束后 multipart 临时文件会被清理，先转存一份交给工作线程
+            source = Files.createTempFile("image-variant-", ".src");
+            file.transferTo(source);
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to spool image {} for variant generation: {}", originalUrl, e.getMessage());
+            return;
+        }
+
+        try
+        {
+            executor.execute(() -> processImage(source, originalUrl));
+        }
+        catch (RejectedExecutionException e)
+        {
+            log.warn("Image variant queue is full, skipping variants for {}", originalUrl);
+            deleteQuietly(source);
+        }
+    }
+
+    /**
+     * 计算原图各衍生版本的 URL。
+     *
+     * @param originalUrl 原图 URL
+     * @return 版本名到 URL 的映射；原图为空或不属于本存储时返回空映射
+     */
+    @Override
+    public Map<String, String> variantUrls(String originalUrl)
+    {
+        String key = objectStorage.keyOf(originalUrl);
+        if (key == null)
+        {
+            return Collections.emptyMap();
+        }
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (String variant : VARIANTS.keySet())
+        {
+            urls.put(variant, objectStorage.urlOf(variantKey(key, variant)));
+        }
+        return urls;
+    }
+
+    /**
+     * 计算原图所有衍生版本的 URL。
+     *
+     * @param originalUrl 原图 URL
+     * @return 衍生版本 URL 列表
+     */
+    @Override
+    public List<String> allVariantUrls(String originalUrl)
+    {
+        return new ArrayList<>(variantUrls(originalUrl).values());
+    }
+
+    /**
+     * 工作线程：各版本已存在时直接结束，否则解码一次原图，逐级缩小并写入各版本，最后删除临时文件。
+     */
+    private void processImage(Path source, String originalUrl)
+    {
+        String key = objectStorage.keyOf(originalUrl);
+        try
+        {
+            if (variantsExist(key))
+            {
+                log.debug("Variants of {} already exist", originalUrl);
+                return;
+            }
+            BufferedImage image = decode(source, originalUrl);
+            if (image == null)
+            {
+                return;
+            }
+            BufferedImage current = toRgb(image);
+            for (Map.Entry<String, Integer> variant : VARIANTS.entrySet())
+            {
+                current = scaleToFit(current, variant.getValue());
+                objectStorage.putObject(variantKey(key, variant.getKey()), encodeJpeg(current), "image/jpeg");
+            }
+            log.debug("Generated {} variants for {}", VARIANTS.size(), originalUrl);
+        }
+        catch (Exception e)
+        {
+            log.error("Failed to generate variants for {}: {}", originalUrl, e.getMessage(), e);
+        }
+        finally
+        {
+            deleteQuietly(source);
+        }
+    }
+
+    /**
+     * 判断原图的所有衍生版本是否都已写入对象存储。
+     */
+    private boolean variantsExist(String originalKey) throws IOException
+    {
+        String large = variantKey(originalKey, VARIANTS.keySet().iterator().next());
+        String prefix = large.substring(0, large.lastIndexOf('_') + 1);
+        Set<String> existing = new HashSet<>();
+        for (ObjectSummary object : objectStorage.listObjects(prefix, null, VARIANTS.size() + 1).getObjects())
+        {
+            existing.add(object.getKey());
+        }
+        for (String variant : VARIANTS.keySet())
+        {
+            if (!existing.contains(variantKey(originalKey, variant)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 先只读取尺寸，像素数不超过上限时才解码第一帧。格式不受支持或尺寸超限时返回 null。
+     */
+    private BufferedImage decode(Path source, String originalUrl) throws IOException
+    {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile()))
+        {
+            Iterator<ImageReader> readers = input == null ? Collections.emptyIterator() : ImageIO.getImageReaders(input);
+            if (!readers.hasNext())
+            {
+                log.warn("Unsupported image format, no variants generated for {}", originalUrl);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try
+            {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels)
+                {
+                    log.warn("Image {} has {}x{} pixels, above the limit of {}, no variants generated",
+                            originalUrl, reader.getWidth(0), reader.getHeight(0), maxPixels);
+                    return null;
+                }
+                return reader.read(0);
+            }
+            finally
+            {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 转换为不含透明通道的 RGB 图像，透明部分以白色填充。
+     */
+    private static BufferedImage toRgb(BufferedImage image)
+    {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB)
+        {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        try
+        {
+            graphics.drawImage(image, 0, 0, Color.WHITE, null);
+        }
+        finally
+        {
+            graphics.dispose();
+        }
+        return rgb;
+    }
+
+    /**
+     * 按比例缩小到最长边不超过 maxSide，不放大。
+     */
+    private static BufferedImage scaleToFit(BufferedImage image, int maxSide)
+    {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int longest = Math.max(width, height);
+        if (longest <= maxSide)
+        {
+            return image;
+        }
+        double ratio = (double) maxSide / longest;
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+
+        BufferedImage scaled = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try
+        {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+        }
+        finally
+        {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    /**
+     * 以配置的质量压缩为 JPEG。
+     */
+    private byte[] encodeJpeg(BufferedImage image) throws IOException
+    {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(buffer))
+        {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        }
+        finally
+        {
+            writer.dispose();
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * 版本 key：原图 key 去掉扩展名后追加 _{版本名}.jpg。
+     */
+    private static String variantKey(String originalKey, String variant)
+    {
+        int slash = originalKey.lastIndexOf('/');
+        int dot = originalKey.lastIndexOf('.');
+        String base = dot > slash ? originalKey.substring(0, dot) : originalKey;
+        return base + "_" + variant + VARIANT_EXTENSION;
+    }
+
+    private static void deleteQuietly(Path path)
+    {
+        try
+        {
+            Files.deleteIfExists(path);
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to delete temp file {}: {}", path, e.getMessage());
+        }
+    }
+}
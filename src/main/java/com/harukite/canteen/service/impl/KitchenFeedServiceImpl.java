@@ -0,0 +1,99 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.dto.OrderEvent;
+import com.harukite.canteen.exception.ResourceNotFoundException;
+import com.harukite.canteen.repository.CanteenRepository;
+import com.harukite.canteen.service.KitchenFeedService;
+import com.harukite.canteen.service.OrderEventBus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 厨房订单实时推送服务接口的实现类。
+ * 从订单事件总线接收所有节点的订单事件，按食堂分组推送给订阅的后厨屏幕。
+ * 每个食堂保留最近的事件用于 Last-Event-ID 续传；即使暂时没有屏幕连接也会保留，屏幕重连后可以补齐。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class KitchenFeedServiceImpl implements KitchenFeedService
+{
+
+    private final OrderEventBus orderEventBus;
+    private final CanteenRepository canteenRepository;
+
+    @Value("${canteen.kitchen-feed.replay-size:500}")
+    private int replaySize;
+
+    @Value("${canteen.kitchen-feed.subscriber-buffer:256}")
+    private int subscriberBuffer;
+
+    @Value("${canteen.kitchen-feed.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    private ExecutorService sender;
+    private SseBroadcaster<String> broadcaster;
+
+    /**
+     * 创建广播器并订阅订单事件。
+     */
+    @PostConstruct
+    public void init()
+    {
+        this.sender = Executors.newVirtualThreadPerTaskExecutor();
+        this.broadcaster = new SseBroadcaster<>("kitchen-feed", replaySize, subscriberBuffer,
+                emitterTimeoutMs, Long.MAX_VALUE, sender); // 食堂数量有限，不回收
+        orderEventBus.subscribe(this::onOrderEvent);
+        orderEventBus.onGap(broadcaster::reset);
+    }
+
+    /**
+     * 关闭发送线程池。
+     */
+    @PreDestroy
+    public void shutdown()
+    {
+        sender.shutdownNow();
+    }
+
+    /**
+     * 订阅食堂的订单事件流。
+     *
+     * @param canteenId   食堂ID
+     * @param lastEventId 客户端最后收到的事件ID，首次连接为 null
+     * @return SSE 连接
+     * @throws ResourceNotFoundException 如果食堂不存在
+     */
+    @Override
+    public SseEmitter subscribe(String canteenId, String lastEventId)
+    {
+        if (!canteenRepository.existsById(canteenId))
+        {
+            throw new ResourceNotFoundException("Canteen not found with ID: " + canteenId);
+        }
+        return broadcaster.subscribe(canteenId, lastEventId);
+    }
+
+    /**
+     * 定时发送心跳，保持连接并清理已断开的客户端。
+     */
+    @Scheduled(fixedDelayString = "${canteen.kitchen-feed.heartbeat-ms:15000}")
+    public void heartbeat()
+    {
+        broadcaster.heartbeat();
+    }
+
+    private void onOrderEvent(OrderEvent event)
+    {
+        broadcaster.publish(event.getCanteenId(), event.getEventId(), event.getType().name(), event, true);
+    }
+}
@@ -0,0 +1,152 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.dto.KitchenPrepItemDto;
+import com.harukite.canteen.exception.ResourceNotFoundException;
+import com.harukite.canteen.model.BanquetReservation;
+import com.harukite.canteen.model.KitchenPrepCount;
+import com.harukite.canteen.model.Order;
+import com.harukite.canteen.repository.CanteenRepository;
+import com.harukite.canteen.repository.KitchenPrepCountRepository;
+import com.harukite.canteen.service.KitchenPrepService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 后厨备餐清单服务接口的实现类。
+ * 查询只读取按 (食堂, 日期) 聚簇的计数行，耗时与订单量无关；
+ * 计数由下单、取消和宴会确认在各自事务内以 upsert 累加，重建时用一条汇总语句从源数据重新计算。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class KitchenPrepServiceImpl implements KitchenPrepService
+{
+
+    private final KitchenPrepCountRepository kitchenPrepCountRepository;
+    private final CanteenRepository canteenRepository;
+
+    /**
+     * 获取食堂某日的备餐清单。
+     *
+     * @param canteenId 食堂ID
+     * @param date      日期
+     * @return 备餐项列表
+     * @throws ResourceNotFoundException 如果食堂不存在
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<KitchenPrepItemDto> getPrepList(String canteenId, LocalDate date)
+    {
+        if (!canteenRepository.existsById(canteenId))
+        {
+            throw new ResourceNotFoundException("Canteen not found with ID: " + canteenId);
+        }
+        return kitchenPrepCountRepository.findPrepList(canteenId, date).stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 在当前事务中计入一个订单的菜品份数。
+     *
+     * @param order 订单（须已写入数据库）
+     */
+    @Override
+    @Transactional
+    public void addOrder(Order order)
+    {
+        applyOrder(order, 1);
+    }
+
+    /**
+     * 在当前事务中扣除一个订单的菜品份数。
+     *
+     * @param order 订单
+     */
+    @Override
+    @Transactional
+    public void removeOrder(Order order)
+    {
+        applyOrder(order, -1);
+    }
+
+    /**
+     * 在当前事务中计入一个宴会预订的菜品份数。
+     *
+     * @param reservation 宴会预订
+     */
+    @Override
+    @Transactional
+    public void addBanquet(BanquetReservation reservation)
+    {
+        applyBanquet(reservation, 1);
+    }
+
+    /**
+     * 在当前事务中扣除一个宴会预订的菜品份数。
+     *
+     * @param reservation 宴会预订
+     */
+    @Override
+    @Transactional
+    public void removeBanquet(BanquetReservation reservation)
+    {
+        applyBanquet(reservation, -1);
+    }
+
+    /**
+     * 重新汇总食堂某日的备餐计数。持有排他锁期间，该日的下单和取消会等待重建提交后再累加。
+     *
+     * @param canteenId 食堂ID
+     * @param date      日期
+     * @return 重建后的计数行数
+     * @throws ResourceNotFoundException 如果食堂不存在
+     */
+    @Override
+    @Transactional
+    public int rebuild(String canteenId, LocalDate date)
+    {
+        if (!canteenRepository.existsById(canteenId))
+        {
+            throw new ResourceNotFoundException("Canteen not found with ID: " + canteenId);
+        }
+        kitchenPrepCountRepository.lockExclusive(canteenId, (int) date.toEpochDay());
+        kitchenPrepCountRepository.deleteByCanteenAndDate(canteenId, date);
+        int rows = kitchenPrepCountRepository.rebuild(canteenId, date);
+        log.info("Rebuilt kitchen prep counts for canteen {} on {}: {} rows", canteenId, date, rows);
+        return rows;
+    }
+
+    private void applyOrder(Order order, int sign)
+    {
+        kitchenPrepCountRepository.lockShared(order.getCanteen().getCanteenId(), (int) order.getOrderDate().toEpochDay());
+        kitchenPrepCountRepository.applyOrder(order.getOrderId(), sign);
+    }
+
+    private void applyBanquet(BanquetReservation reservation, int sign)
+    {
+        kitchenPrepCountRepository.lockShared(reservation.getCanteen().getCanteenId(), (int) reservation.getEventDate().toEpochDay());
+        kitchenPrepCountRepository.applyBanquet(reservation.getBanquetId(), sign);
+    }
+
+    /**
+     * 辅助方法：将 KitchenPrepCount 实体转换为 KitchenPrepItemDto。
+     */
+    private KitchenPrepItemDto convertToDto(KitchenPrepCount count)
+    {
+        return new KitchenPrepItemDto(
+                count.getSlotStart(),
+                count.getDish().getDishId(),
+                count.getDish().getName(),
+                count.getOrderQuantity(),
+                count.getBanquetQuantity(),
+                count.getOrderQuantity() + count.getBanquetQuantity()
+        );
+    }
+}
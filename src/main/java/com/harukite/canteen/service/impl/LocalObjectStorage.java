@@ -0,0 +1,341 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.dto.ObjectListingPage;
+import com.harukite.canteen.dto.ObjectSummary;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * 本地文件系统对象存储实现（canteen.storage.type=local），用于离线开发和压测。
+ * 对象以 key 为相对路径存放在 canteen.storage.local-root 下，返回的 URL 与 COS 格式相同。
+ * 写入先落到同目录的临时文件，完成后原子改名，读者不会看到写了一半的对象。
+ * 上传通过 FileChannel.transferFrom / transferTo 完成，由内核在通道间搬运数据；
+ * 超过分块阈值的文件先落到本地临时文件，再按分块并行 transferTo 到目标文件的各自偏移处。
+ */
+@Service
+@ConditionalOnProperty(name = "canteen.storage.type", havingValue = "local")
+@Slf4j
+public class LocalObjectStorage extends AbstractObjectStorage
+{
+
+    private static final String UPLOAD_TEMP_PREFIX = ".upload-";
+    private static final String SOURCE_TEMP_PREFIX = ".source-";
+
+    @Value("${canteen.storage.local-root:./object-store}")
+    private String localRoot;
+
+    @Value("${canteen.storage.multipart-threshold-bytes:16777216}")
+    private long multipartThreshold; // 超过该大小的文件走并行分块写入
+
+    @Value("${canteen.storage.multipart-part-size-bytes:8388608}")
+    private long multipartPartSize;
+
+    @Value("${canteen.storage.multipart-parallelism:4}")
+    private int multipartParallelism;
+
+    private Path rootPath;
+    private ExecutorService partWriters;
+
+    /**
+     * 服务初始化后，创建存储根目录和分块写入线程池。
+     */
+    @PostConstruct
+    public void init() throws IOException
+    {
+        this.rootPath = Paths.get(localRoot).toAbsolutePath().normalize();
+        Files.createDirectories(rootPath);
+        this.partWriters = Executors.newFixedThreadPool(multipartParallelism);
+        log.info("Local object storage initialized at {}", rootPath);
+    }
+
+    /**
+     * 关闭分块写入线程池。
+     */
+    @PreDestroy
+    public void shutdown()
+    {
+        partWriters.shutdownNow();
+    }
+
+    /**
+     * 以指定 key 写入文件到本地目录，已存在时覆盖。
+     *
+     * @param key  对象 key
+     * @param file MultipartFile 文件对象
+     * @return 文件 URL
+     * @throws IOException 如果文件写入失败
+     */
+    @Override
+    public String putFile(String key, MultipartFile file) throws IOException
+    {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), UPLOAD_TEMP_PREFIX, ".tmp");
+        try
+        {
+            if (file.getSize() >= multipartThreshold)
+            {
+                writeInParallel(file, temp);
+            }
+            else
+            {
+                try (InputStream inputStream = file.getInputStream())
+                {
+                    writeStream(inputStream, file.getSize(), temp);
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return urlOf(key);
+        }
+        catch (IOException e)
+        {
+            Files.deleteIfExists(temp);
+            log.error("Failed to write file to local storage: {}", e.getMessage(), e);
+            throw new IOException("Failed to write file to local storage: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 以指定 key 写入一段内容到本地目录，已存在时覆盖。
+     *
+     * @param key         对象 key
+     * @param content     内容
+     * @param contentType 内容类型（本地存储不记录）
+     * @return 文件 URL
+     * @throws IOException 如果写入失败
+     */
+    @Override
+    public String putObject(String key, byte[] content, String contentType) throws IOException
+    {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), UPLOAD_TEMP_PREFIX, ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE))
+        {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining())
+            {
+                out.write(buffer);
+            }
+        }
+        catch (IOException e)
+        {
+            Files.deleteIfExists(temp);
+            throw new IOException("Failed to write object to local storage: " + e.getMessage(), e);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return urlOf(key);
+    }
+
+    /**
+     * 批量删除本地文件。
+     *
+     * @param fileUrls 要删除的文件 URL 集合
+     * @return 删除失败的文件 URL 到错误信息的映射，全部成功时为空
+     */
+    @Override
+    public Map<String, String> deleteFiles(Collection<String> fileUrls)
+    {
+        Map<String, String> failures = new HashMap<>();
+        urlsByKey(fileUrls).forEach((key, url) -> {
+            try
+            {
+                Files.deleteIfExists(resolve(key));
+            }
+            catch (IOException e)
+            {
+                failures.put(url, e.getMessage());
+            }
+        });
+        return failures;
+    }
+
+    /**
+     * 按 key 顺序分页列出指定前缀下的文件，跳过写入中的临时文件。
+     * 每页都要遍历前缀目录，仅适用于开发和压测规模的数据量。
+     *
+     * @param prefix  key 前缀（例如 "dishes/"）
+     * @param marker  上一页返回的 nextMarker，首页传 null
+     * @param maxKeys 每页最多返回的对象数
+     * @return 当前页对象
+     * @throws IOException 如果遍历目录失败
+     */
+    @Override
+    public ObjectListingPage listObjects(String prefix, String marker, int maxKeys) throws IOException
+    {
+        Path start = resolve(prefix == null ? "" : prefix);
+        if (!Files.isDirectory(start))
+        {
+            return new ObjectListingPage(List.of(), null, false);
+        }
+
+        List<Path> page;
+        try (Stream<Path> paths = Files.walk(start))
+        {
+            page = paths.filter(Files::isRegularFile)
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return !name.startsWith(UPLOAD_TEMP_PREFIX) && !name.startsWith(SOURCE_TEMP_PREFIX);
+                    })
+                    .filter(path -> marker == null || keyOfPath(path).compareTo(marker) > 0)
+                    .sorted((a, b) -> keyOfPath(a).compareTo(keyOfPath(b)))
+                    .limit(maxKeys + 1L)
+                    .toList();
+        }
+
+        boolean truncated = page.size() > maxKeys;
+        List<ObjectSummary> objects = new ArrayList<>(Math.min(page.size(), maxKeys));
+        for (Path path : truncated ? page.subList(0, maxKeys) : page)
+        {
+            try
+            {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                objects.add(new ObjectSummary(keyOfPath(path), attributes.size(), attributes.lastModifiedTime().toInstant()));
+            }
+            catch (NoSuchFileException e)
+            {
+                // 遍历后被并发删除，忽略
+            }
+        }
+        String nextMarker = objects.isEmpty() ? null : objects.get(objects.size() - 1).getKey();
+        return new ObjectListingPage(objects, nextMarker, truncated);
+    }
+
+    /**
+     * 将输入流经由 FileChannel.transferFrom 写入目标文件。
+     * 输入流不足 size 字节时抛出异常：对象按内容哈希寻址，截断的内容不能以完整内容的 key 保存。
+     */
+    private void writeStream(InputStream inputStream, long size, Path target) throws IOException
+    {
+        try (ReadableByteChannel in = Channels.newChannel(inputStream);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE))
+        {
+            long position = 0;
+            while (position < size)
+            {
+                long transferred = out.transferFrom(in, position, size - position);
+                if (transferred <= 0)
+                {
+                    throw new IOException("Input ended at " + position + " of " + size + " bytes");
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * 大文件：先将上传内容落到临时文件（磁盘上的 multipart 通常只是改名），
+     * 再将其按 multipart-part-size-bytes 切分，各分块并行 transferTo 到目标文件的对应偏移。
+     */
+    private void writeInParallel(MultipartFile file, Path target) throws IOException
+    {
+        Path source = Files.createTempFile(target.getParent(), SOURCE_TEMP_PREFIX, ".tmp");
+        try
+        {
+            file.transferTo(source);
+            long size = Files.size(source);
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE))
+            {
+                out.truncate(0);
+                out.write(ByteBuffer.allocate(1), size - 1); // 预先扩展到最终长度
+            }
+
+            List<Future<?>> parts = new ArrayList<>();
+            for (long offset = 0; offset < size; offset += multipartPartSize)
+            {
+                long partOffset = offset;
+                long partLength = Math.min(multipartPartSize, size - offset);
+                parts.add(partWriters.submit(() -> {
+                    copyPart(source, target, partOffset, partLength);
+                    return null;
+                }));
+            }
+            for (Future<?> part : parts)
+            {
+                part.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing file parts", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException("Failed to write file part: " + e.getCause().getMessage(), e.getCause());
+        }
+        finally
+        {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    /**
+     * 将源文件 [offset, offset + length) 区间零拷贝写入目标文件的相同偏移处。
+     */
+    private static void copyPart(Path source, Path target, long offset, long length) throws IOException
+    {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE))
+        {
+            out.position(offset);
+            long copied = 0;
+            while (copied < length)
+            {
+                long transferred = in.transferTo(offset + copied, length - copied, out);
+                if (transferred <= 0)
+                {
+                    // 源文件比预期短（被截断），继续循环不会再有进展
+                    throw new IOException("Source file ended at " + (offset + copied) + " while copying part ["
+                            + offset + ", " + (offset + length) + ")");
+                }
+                copied += transferred;
+            }
+        }
+    }
+
+    /**
+     * 将根目录下的路径还原为以 "/" 分隔的对象 key。
+     */
+    private String keyOfPath(Path path)
+    {
+        return rootPath.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+    }
+
+    /**
+     * 解析 key 对应的本地路径，拒绝跳出根目录的 key。
+     */
+    private Path resolve(String key) throws IOException
+    {
+        Path path = rootPath.resolve(key).normalize();
+        if (!path.startsWith(rootPath))
+        {
+            throw new IOException("Invalid object key: " + key);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,173 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.dto.DailyMenuResponse;
+import com.harukite.canteen.service.DailyMenuCache;
+import com.harukite.canteen.service.DailyMenuService;
+import com.harukite.canteen.service.MenuPrewarmService;
+import com.harukite.canteen.service.MenuScheduleIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 每日菜谱缓存预热服务接口的实现类。
+ * <p>
+ * 定时从正在供应菜谱索引中读取开始时间落在 (现在, 现在 + lead-minutes] 内的菜谱，
+ * 为其 (食堂, 日期) 重新构建缓存条目；同一菜谱在开始前只成功预热一次，预热失败的下一轮继续重试。
+ * 正在供应的菜谱若缓存条目缺失或将在下一轮之前超过 max-age，也一并重建，使整个时段内的请求都命中缓存。
+ * 预热走与正常请求相同的查询和序列化路径，Hibernate、Jackson 和相关代码在高峰前已被执行过。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MenuPrewarmServiceImpl implements MenuPrewarmService
+{
+
+    private static final String METRIC_PREFIX = "canteen.menu.prewarm.";
+
+    private final DailyMenuService dailyMenuService;
+    private final DailyMenuCache dailyMenuCache;
+    private final MenuScheduleIndex menuScheduleIndex;
+    private final MeterRegistry meterRegistry;
+
+    // 已预热的菜谱ID -> 开始时间，开始后移除
+    private final Map<String, LocalDateTime> warmedMenus = new ConcurrentHashMap<>();
+
+    private Counter entriesCounter;
+    private Counter failuresCounter;
+    private Timer runTimer;
+
+    @Value("${canteen.menu-prewarm.enabled:true}")
+    private boolean enabled;
+
+    @Value("${canteen.menu-prewarm.lead-minutes:15}")
+    private long leadMinutes;
+
+    @Value("${canteen.menu-prewarm.poll-interval-ms:60000}")
+    private long pollIntervalMs;
+
+    /**
+     * 注册指标。
+     */
+    @PostConstruct
+    public void init()
+    {
+        this.entriesCounter = Counter.builder(METRIC_PREFIX + "entries")
+                .description("Daily menu cache entries rebuilt ahead of demand").register(meterRegistry);
+        this.failuresCounter = Counter.builder(METRIC_PREFIX + "failures")
+                .description("Daily menu cache entries that failed to pre-warm").register(meterRegistry);
+        this.runTimer = Timer.builder(METRIC_PREFIX + "duration")
+                .description("Duration of pre-warming runs").register(meterRegistry);
+    }
+
+    /**
+     * 定时预热即将开始供应的菜谱，默认每分钟一轮。
+     *
+     * @return 本轮预热的缓存条目数
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${canteen.menu-prewarm.poll-interval-ms:60000}")
+    public int prewarmUpcomingMenus()
+    {
+        if (!enabled)
+        {
+            return 0;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try
+        {
+            return doPrewarm();
+        }
+        finally
+        {
+            sample.stop(runTimer);
+        }
+    }
+
+    private int doPrewarm()
+    {
+        LocalDateTime now = LocalDateTime.now();
+        warmedMenus.values().removeIf(start -> !start.isAfter(now));
+
+        // (食堂, 日期) -> 需要预热的菜谱，同一条目只构建一次
+        Map<String, DailyMenuResponse> targets = new LinkedHashMap<>();
+        List<DailyMenuResponse> upcoming = menuScheduleIndex.findStartingBetween(now, now.plusMinutes(leadMinutes));
+        for (DailyMenuResponse menu : upcoming)
+        {
+            if (!warmedMenus.containsKey(menu.getMenuId()))
+            {
+                targets.putIfAbsent(menu.getCanteenId() + "|" + menu.getMenuDate(), menu);
+            }
+        }
+        for (DailyMenuResponse menu : menuScheduleIndex.findActive(null, now))
+        {
+            if (dailyMenuCache.expiresWithin(menu.getCanteenId(), menu.getMenuDate(), pollIntervalMs))
+            {
+                targets.putIfAbsent(menu.getCanteenId() + "|" + menu.getMenuDate(), menu);
+            }
+        }
+
+        Set<String> warmedKeys = new HashSet<>();
+        for (Map.Entry<String, DailyMenuResponse> target : targets.entrySet())
+        {
+            DailyMenuResponse menu = target.getValue();
+            if (prewarm(menu.getCanteenId(), menu.getMenuDate()))
+            {
+                warmedKeys.add(target.getKey());
+            }
+        }
+        // 只记录所在条目已成功构建的菜谱，失败的下一轮继续重试
+        for (DailyMenuResponse menu : upcoming)
+        {
+            if (warmedKeys.contains(menu.getCanteenId() + "|" + menu.getMenuDate()))
+            {
+                warmedMenus.put(menu.getMenuId(), menu.getMenuDate().atTime(menu.getStartTime()));
+            }
+        }
+        int warmed = warmedKeys.size();
+        if (warmed > 0)
+        {
+            log.debug("Pre-warmed {} daily menu cache entries", warmed);
+        }
+        return warmed;
+    }
+
+    /**
+     * 预热一个缓存条目，失败只记录日志，不影响其它条目。
+     * 构建期间有数据变更提交时条目不会写入缓存，视为未预热，下一轮重试。
+     */
+    private boolean prewarm(String canteenId, LocalDate menuDate)
+    {
+        try
+        {
+            if (!dailyMenuService.prewarmDailyMenus(canteenId, menuDate))
+            {
+                log.debug("Pre-warmed daily menus of canteen {} on {} were discarded by a concurrent invalidation", canteenId, menuDate);
+                return false;
+            }
+            entriesCounter.increment();
+            return true;
+        }
+        catch (RuntimeException e)
+        {
+            failuresCounter.increment();
+            log.warn("Failed to pre-warm daily menus of canteen {} on {}: {}", canteenId, menuDate, e.getMessage());
+            return false;
+        }
+    }
+}
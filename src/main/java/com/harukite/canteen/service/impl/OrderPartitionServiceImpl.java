@@ -0,0 +1,87 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.service.OrderPartitionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+
+/**
+ * 订单分区维护服务接口的实现类。
+ * 分区的创建和分离由数据库函数 ensure_order_partitions() / archive_order_partitions() 完成（见 db.sql），
+ * 函数内部以咨询锁串行化，多节点同时执行也是安全的。启动时和每天夜间各执行一次。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderPartitionServiceImpl implements OrderPartitionService
+{
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${canteen.orders.partition.lookahead-months:12}")
+    private int lookaheadMonths;
+
+    @Value("${canteen.orders.partition.retention-months:24}")
+    private int retentionMonths; // 0 表示不归档
+
+    /**
+     * 启动时确保当月及未来的分区存在。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady()
+    {
+        scheduledMaintain();
+    }
+
+    /**
+     * 每天夜间维护分区，默认 03:10 执行。
+     */
+    @Scheduled(cron = "${canteen.orders.partition.cron:0 10 3 * * *}")
+    public void scheduledMaintain()
+    {
+        try
+        {
+            maintainPartitions();
+        }
+        catch (RuntimeException e)
+        {
+            log.error("Order partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 创建从当月起 lookahead-months 个月的分区，并归档结束于保留期之前的分区。
+     * 分离分区需要短暂的排他锁，放在夜间低峰执行。
+     *
+     * @return 本轮归档的月份数
+     */
+    @Override
+    public int maintainPartitions()
+    {
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        Integer created = jdbcTemplate.queryForObject("SELECT ensure_order_partitions(?, ?)", Integer.class,
+                currentMonth, Math.max(lookaheadMonths, 1));
+        if (created != null && created > 0)
+        {
+            log.info("Created {} order partitions (lookahead {} months)", created, lookaheadMonths);
+        }
+        if (retentionMonths <= 0)
+        {
+            return 0;
+        }
+        LocalDate cutoff = currentMonth.minusMonths(retentionMonths);
+        Integer archived = jdbcTemplate.queryForObject("SELECT archive_order_partitions(?)", Integer.class, cutoff);
+        if (archived != null && archived > 0)
+        {
+            log.info("Archived {} monthly order partitions ending before {}", archived, cutoff);
+        }
+        return archived == null ? 0 : archived;
+    }
+}
@@ -1,19 +1,36 @@
 package com.harukite.canteen.service.impl;
 
+import com.harukite.canteen.dto.CursorPageResponse;
+import com.harukite.canteen.dto.OrderEvent;
 import com.harukite.canteen.dto.OrderRequest;
 import com.harukite.canteen.dto.OrderResponse;
+import com.harukite.canteen.dto.OrderSearchQuery;
+import com.harukite.canteen.dto.OrderSummaryDto;
 import com.harukite.canteen.exception.InvalidInputException;
 import com.harukite.canteen.exception.ResourceNotFoundException;
 import com.harukite.canteen.model.*;
 import com.harukite.canteen.repository.*;
+import com.harukite.canteen.service.DishStockService;
+import com.harukite.canteen.service.KitchenPrepService;
+import com.harukite.canteen.service.OrderEventBus;
 import com.harukite.canteen.service.OrderService;
+import com.harukite.canteen.service.PickupSlotService;
+import com.harukite.canteen.service.SalesRollupService;
+import com.harukite.canteen.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -23,13 +40,22 @@ import java.util.stream.Collectors;
  */
 @Service("orderService")
 @RequiredArgsConstructor
+@Slf4j
 public class OrderServiceImpl implements OrderService
 {
 
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final CanteenRepository canteenRepository;
     private final DishRepository dishRepository;
+    private final PickupSlotService pickupSlotService; // 取餐时段容量
+    private final DishStockService dishStockService; // 菜品每日库存
+    private final KitchenPrepService kitchenPrepService; // 后厨备餐计数
+    private final SalesRollupService salesRollupService; // 销售汇总
+    private final OrderEventBus orderEventBus; // 订单变更推送，随事务提交投递
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * 创建新订单。
@@ -38,11 +64,48 @@ public class OrderServiceImpl implements OrderService
      * @param userId 下单用户
      * @return 创建成功的订单响应 DTO
      * @throws ResourceNotFoundException 如果用户、食堂或菜品不存在
-     * @throws InvalidInputException     如果订单项为空或菜品数量无效
+     * @throws InvalidInputException     如果订单项为空、菜品数量无效、取餐时段已满或菜品库存不足
      */
     @Override
-    @Transactional
     public OrderResponse createOrder(OrderRequest request, String userId)
+    {
+        // 在订单事务开始前以独立短事务预占取餐时段名额和菜品库存，热点行的行锁不会持有到订单事务结束
+        String slotId = pickupSlotService.reserve(request.getCanteenId(), request.getOrderDate(), request.getPickupTime());
+        Map<String, Integer> quantities = quantitiesByDish(request);
+        Set<String> stockReserved;
+        try
+        {
+            stockReserved = dishStockService.reserve(request.getOrderDate(), quantities);
+        }
+        catch (RuntimeException e)
+        {
+            releaseQuietly(slotId);
+            throw e;
+        }
+        try
+        {
+            return transactionTemplate.execute(status -> doCreateOrder(request, userId, slotId, stockReserved));
+        }
+        catch (RuntimeException e)
+        {
+            // 订单未创建，归还名额和实际扣减的库存
+            quantities.keySet().retainAll(stockReserved);
+            restoreQuietly(request.getOrderDate(), quantities);
+            releaseQuietly(slotId);
+            throw e;
+        }
+    }
+
+    /**
+     * 在事务内创建订单。
+     *
+     * @param request       包含订单信息的 DTO
+     * @param userId        下单用户
+     * @param slotId        已预占的取餐时段ID，未配置时段时为 null
+     * @param stockReserved 已扣减库存的菜品ID
+     * @return 创建成功的订单响应 DTO
+     */
+    private OrderResponse doCreateOrder(OrderRequest request, String userId, String slotId, Set<String> stockReserved)
     {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
@@ -59,6 +122,7 @@ public class OrderServiceImpl implements OrderService
         order.setCanteen(canteen);
         order.setOrderDate(request.getOrderDate());
         order.setPickupTime(request.getPickupTime());
+        order.setPickupSlotId(slotId);
         order.setStatus(OrderStatus.PENDING); // 新订单默认为待处理状态
 
         BigDecimal totalAmount = BigDecimal.ZERO;
@@ -81,6 +145,7 @@ public class OrderServiceImpl implements OrderService
             orderItem.setDish(dish);
             orderItem.setQuantity(itemDto.getQuantity());
             orderItem.setSubtotal(subtotal);
+            orderItem.setStockReserved(stockReserved.contains(dish.getDishId()));
             orderItem.setOrder(order); // 设置双向关联
             orderItems.add(orderItem);
         }
@@ -90,6 +155,9 @@ public class OrderServiceImpl implements OrderService
 
         Order savedOrder = orderRepository.save(order);
         orderRepository.flush(); // 确保订单和订单项都已保存到数据库
+        kitchenPrepService.addOrder(savedOrder);
+        salesRollupService.recordStatusChange(savedOrder, null);
+        orderEventBus.publish(createdEvent(savedOrder));
 
         return convertToDto(savedOrder);
     }
@@ -97,17 +165,16 @@ public class OrderServiceImpl implements OrderService
     /**
      * 根据订单ID获取订单详情。
      *
-     * @param orderId 订单ID
+     * @param orderId   订单ID
+     * @param orderDate 预订日期，可为空；提供时只查找该日期所在的分区
      * @return 订单响应 DTO
      * @throws ResourceNotFoundException 如果订单不存在
      */
     @Override
     @Transactional(readOnly = true)
-    public OrderResponse getOrderById(String orderId)
+    public OrderResponse getOrderById(String orderId, LocalDate orderDate)
     {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found with ID: " + orderId));
-        return convertToDto(order);
+        return convertToDto(findOrder(orderId, orderDate));
     }
 
     /**
@@ -124,6 +191,46 @@ public class OrderServiceImpl implements OrderService
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 按条件检索订单。
+     * 筛选、排序和分页都在一条查询中完成，直接投影为扁平的订单摘要，不加载用户、食堂和订单项实体；
+     * 多取一条用于判断是否还有下一页。
+     *
+     * @param filter 筛选条件
+     * @param cursor 上一页返回的游标，首页为 null
+     * @param limit  每页数量（1-100）
+     * @return 当前页订单摘要及下一页游标
+     * @throws InvalidInputException 如果游标无效或日期、取餐时间范围颠倒
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponse<OrderSummaryDto> searchOrders(OrderSearchQuery filter, String cursor, int limit)
+    {
+        if (filter.getOrderDateFrom() != null && filter.getOrderDateTo() != null
+                && filter.getOrderDateFrom().isAfter(filter.getOrderDateTo()))
+        {
+            throw new InvalidInputException("orderDateFrom must not be after orderDateTo.");
+        }
+        if (filter.getPickupFrom() != null && filter.getPickupTo() != null
+                && filter.getPickupFrom().isAfter(filter.getPickupTo()))
+        {
+            throw new InvalidInputException("pickupFrom must not be after pickupTo.");
+        }
+        int pageSize = Math.min(Math.max(limit, 1), MAX_SEARCH_PAGE_SIZE);
+        KeysetCursor after = (cursor == null || cursor.isEmpty()) ? null : KeysetCursor.decode(cursor);
+
+        List<OrderSummaryDto> orders = orderRepository.searchSummaries(filter, after, pageSize + 1);
+        boolean hasMore = orders.size() > pageSize;
+        String nextCursor = null;
+        if (hasMore)
+        {
+            orders = orders.subList(0, pageSize);
+            OrderSummaryDto last = orders.get(orders.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getOrderId()).encode();
+        }
+        return new CursorPageResponse<>(orders, nextCursor, hasMore);
+    }
+
     /**
      * 根据用户ID获取其所有订单。
      *
@@ -147,45 +254,59 @@ public class OrderServiceImpl implements OrderService
      * 更新订单状态。
      *
      * @param orderId   订单ID
+     * @param orderDate 预订日期，可为空；提供时只查找该日期所在的分区
      * @param newStatus 新的订单状态
      * @return 更新后的订单响应 DTO
      * @throws ResourceNotFoundException 如果订单不存在
-     * @throws InvalidInputException     如果状态转换无效 (例如，尝试从 COMPLETED 转换为 PENDING)
+     * @throws InvalidInputException     如果状态转换无效 (例如，变更已完成的订单，或恢复已取消的订单)
      */
     @Override
     @Transactional
-    public OrderResponse updateOrderStatus(String orderId, OrderStatus newStatus)
+    public OrderResponse updateOrderStatus(String orderId, LocalDate orderDate, OrderStatus newStatus)
     {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found with ID: " + orderId));
+        Order order = findOrder(orderId, orderDate);
 
         // 简单的状态转换逻辑示例，可以根据业务需求进行扩展
-        if (order.getStatus() == OrderStatus.CANCELLED || order.getStatus() == OrderStatus.COMPLETED)
+        if (order.getStatus() == OrderStatus.CANCELLED && newStatus != OrderStatus.CANCELLED)
+        { // 取消时已归还取餐时段名额和菜品库存，已取消的订单不能再恢复
+            throw new InvalidInputException("Cannot change status from " + order.getStatus() + " to " + newStatus);
+        }
+        if (order.getStatus() == OrderStatus.COMPLETED && newStatus != OrderStatus.COMPLETED)
+        { // 已完成的订单不能再变更：餐品已经取走，取消会归还已消耗的名额和库存，造成超卖
+            throw new InvalidInputException("Cannot change status from " + order.getStatus() + " to " + newStatus);
+        }
+        if (newStatus == OrderStatus.CANCELLED && order.getStatus() != OrderStatus.CANCELLED)
         {
-            if (newStatus != OrderStatus.CANCELLED && newStatus != OrderStatus.COMPLETED)
-            { // 已取消或已完成的订单不能再次转换为其他状态 (除了再次设为已完成或取消，但意义不大)
-                throw new InvalidInputException("Cannot change status from " + order.getStatus() + " to " + newStatus);
-            }
+            // 归还取餐时段名额和菜品库存，并从备餐计数中扣除
+            pickupSlotService.release(order.getPickupSlotId());
+            dishStockService.restore(order.getOrderDate(), reservedQuantitiesByDish(order));
+            kitchenPrepService.removeOrder(order);
         }
+        OrderStatus previousStatus = order.getStatus();
         order.setStatus(newStatus);
         Order updatedOrder = orderRepository.save(order);
+        if (previousStatus != newStatus)
+        {
+            salesRollupService.recordStatusChange(updatedOrder, previousStatus);
+            orderEventBus.publish(statusChangedEvent(updatedOrder, previousStatus));
+        }
         return convertToDto(updatedOrder);
     }
 
     /**
      * 取消订单。
      *
-     * @param orderId 订单ID
-     * @param userId  操作用户ID (用于权限检查)
+     * @param orderId   订单ID
+     * @param orderDate 预订日期，可为空；提供时只查找该日期所在的分区
+     * @param userId    操作用户ID (用于权限检查)
      * @throws ResourceNotFoundException 如果订单不存在
      * @throws InvalidInputException     如果订单状态不允许取消或用户没有权限
      */
     @Override
     @Transactional
-    public void cancelOrder(String orderId, String userId)
+    public void cancelOrder(String orderId, LocalDate orderDate, String userId)
     {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found with ID: " + orderId));
+        Order order = findOrder(orderId, orderDate);
 
         // 权限检查：确保只有订单所有者或具有管理员权限的用户才能取消
         if (!order.getUser().getUserId().equals(userId)  && (order.getUser().getRole() != UserRole.ADMIN && order.getUser().getRole() != UserRole.STAFF))
@@ -201,8 +322,131 @@ public class OrderServiceImpl implements OrderService
             throw new InvalidInputException("Order cannot be cancelled as its current status is " + order.getStatus());
         }
 
+        // 归还取餐时段名额和菜品库存，并从备餐计数中扣除，随取消一同提交
+        pickupSlotService.release(order.getPickupSlotId());
+        dishStockService.restore(order.getOrderDate(), reservedQuantitiesByDish(order));
+        kitchenPrepService.removeOrder(order);
+        OrderStatus previousStatus = order.getStatus();
         order.setStatus(OrderStatus.CANCELLED);
         orderRepository.save(order);
+        salesRollupService.recordStatusChange(order, previousStatus);
+        orderEventBus.publish(statusChangedEvent(order, previousStatus));
+    }
+
+    /**
+     * 查找订单。提供预订日期时按 (order_id, order_date) 查找，只命中一个月分区；
+     * 否则只能按 order_id 查找，会探查每个分区。
+     *
+     * @throws ResourceNotFoundException 如果订单不存在
+     */
+    private Order findOrder(String orderId, LocalDate orderDate)
+    {
+        Optional<Order> order = orderDate != null
+                ? orderRepository.findByOrderIdAndOrderDate(orderId, orderDate)
+                : orderRepository.findById(orderId);
+        return order.orElseThrow(() -> new ResourceNotFoundException("Order not found with ID: " + orderId));
+    }
+
+    /**
+     * 归还预占的名额。失败只记录日志，不掩盖调用方原本的异常。
+     */
+    private void releaseQuietly(String slotId)
+    {
+        try
+        {
+            pickupSlotService.release(slotId);
+        }
+        catch (RuntimeException e)
+        {
+            log.error("Failed to release pickup slot {}: {}", slotId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 归还扣减的库存。失败只记录日志，不掩盖调用方原本的异常。
+     */
+    private void restoreQuietly(LocalDate orderDate, Map<String, Integer> quantities)
+    {
+        try
+        {
+            dishStockService.restore(orderDate, quantities);
+        }
+        catch (RuntimeException e)
+        {
+            log.error("Failed to restore dish stock for {}: {}", orderDate, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 汇总请求中每个菜品的份数（同一菜品可能出现在多个订单项中），忽略无效的份数。
+     */
+    private static Map<String, Integer> quantitiesByDish(OrderRequest request)
+    {
+        Map<String, Integer> quantities = new HashMap<>();
+        if (request.getItems() != null)
+        {
+            for (OrderRequest.OrderItemRequest item : request.getItems())
+            {
+                if (item.getDishId() != null && item.getQuantity() != null && item.getQuantity() > 0)
+                {
+                    quantities.merge(item.getDishId(), item.getQuantity(), Integer::sum);
+                }
+            }
+        }
+        return quantities;
+    }
+
+    /**
+     * 汇总订单中下单时扣减了库存的每个菜品的份数。
+     */
+    private static Map<String, Integer> reservedQuantitiesByDish(Order order)
+    {
+        Map<String, Integer> quantities = new HashMap<>();
+        for (OrderItem item : order.getOrderItems())
+        {
+            if (!Boolean.TRUE.equals(item.getStockReserved()))
+            {
+                continue; // 下单时不限量，没有扣减库存
+            }
+            quantities.merge(item.getDish().getDishId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    /**
+     * 构造新订单事件，包含订单项。
+     */
+    private static OrderEvent createdEvent(Order order)
+    {
+        OrderEvent event = baseEvent(order, OrderEvent.Type.ORDER_CREATED);
+        event.setItems(order.getOrderItems().stream()
+                .map(item -> new OrderEvent.Item(item.getDish().getDishId(), item.getDish().getName(), item.getQuantity()))
+                .collect(Collectors.toList()));
+        return event;
+    }
+
+    /**
+     * 构造订单状态变化事件，不包含订单项。
+     */
+    private static OrderEvent statusChangedEvent(Order order, OrderStatus previousStatus)
+    {
+        OrderEvent event = baseEvent(order, OrderEvent.Type.ORDER_STATUS_CHANGED);
+        event.setPreviousStatus(previousStatus);
+        return event;
+    }
+
+    private static OrderEvent baseEvent(Order order, OrderEvent.Type type)
+    {
+        OrderEvent event = new OrderEvent();
+        event.setType(type);
+        event.setOrderId(order.getOrderId());
+        event.setUserId(order.getUser().getUserId());
+        event.setCanteenId(order.getCanteen().getCanteenId());
+        event.setStatus(order.getStatus());
+        event.setOrderDate(order.getOrderDate());
+        event.setPickupTime(order.getPickupTime());
+        event.setOccurredAt(LocalDateTime.now());
+        return event;
     }
 
     /**
@@ -0,0 +1,101 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.dto.OrderEvent;
+import com.harukite.canteen.service.OrderEventBus;
+import com.harukite.canteen.service.OrderStatusFeedService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 订单状态实时推送服务接口的实现类。
+ * 从订单事件总线接收所有节点的状态变化事件，只转发给订单所属用户的连接。
+ * <p>
+ * 用户数量远多于食堂，因此只为当前有连接、或最近断开的用户保留事件：
+ * 没有连接的用户不保留事件，断开超过 idle-evict-ms 的用户连同其续传记录一起回收。
+ * 空闲连接只是挂起的 Servlet 异步请求，不占用线程；有事件时才在虚拟线程上写出。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderStatusFeedServiceImpl implements OrderStatusFeedService
+{
+
+    private final OrderEventBus orderEventBus;
+
+    @Value("${canteen.order-status-feed.replay-size:20}")
+    private int replaySize;
+
+    @Value("${canteen.order-status-feed.subscriber-buffer:16}")
+    private int subscriberBuffer;
+
+    @Value("${canteen.order-status-feed.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${canteen.order-status-feed.idle-evict-ms:300000}")
+    private long idleEvictMs;
+
+    private ExecutorService sender;
+    private SseBroadcaster<String> broadcaster;
+
+    /**
+     * 创建广播器并订阅订单事件。
+     */
+    @PostConstruct
+    public void init()
+    {
+        this.sender = Executors.newVirtualThreadPerTaskExecutor();
+        this.broadcaster = new SseBroadcaster<>("order-status-feed", replaySize, subscriberBuffer,
+                emitterTimeoutMs, idleEvictMs, sender);
+        orderEventBus.subscribe(this::onOrderEvent);
+        orderEventBus.onGap(broadcaster::reset);
+    }
+
+    /**
+     * 关闭发送线程池。
+     */
+    @PreDestroy
+    public void shutdown()
+    {
+        sender.shutdownNow();
+    }
+
+    /**
+     * 订阅用户本人订单的状态变化。
+     *
+     * @param userId      用户ID
+     * @param lastEventId 客户端最后收到的事件ID，首次连接为 null
+     * @return SSE 连接
+     */
+    @Override
+    public SseEmitter subscribe(String userId, String lastEventId)
+    {
+        return broadcaster.subscribe(userId, lastEventId);
+    }
+
+    /**
+     * 定时发送心跳，保持连接、清理已断开的客户端，并回收长期无连接的用户。
+     */
+    @Scheduled(fixedDelayString = "${canteen.order-status-feed.heartbeat-ms:25000}")
+    public void heartbeat()
+    {
+        broadcaster.heartbeat();
+    }
+
+    private void onOrderEvent(OrderEvent event)
+    {
+        if (event.getType() != OrderEvent.Type.ORDER_STATUS_CHANGED || event.getUserId() == null)
+        {
+            return; // 用户只关心自己订单的状态变化，新订单由其本人创建，无需推送
+        }
+        broadcaster.publish(event.getUserId(), event.getEventId(), event.getType().name(), event, false);
+    }
+}
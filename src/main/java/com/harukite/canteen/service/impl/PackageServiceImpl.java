@@ -4,23 +4,33 @@ import com.harukite.canteen.dto.DishDto;
 import com.harukite.canteen.dto.PackageDto;
 import com.harukite.canteen.exception.DuplicateEntryException;
 import com.harukite.canteen.exception.ResourceNotFoundException;
+import com.harukite.canteen.model.BanquetReservation;
+import com.harukite.canteen.model.BanquetStatus;
 import com.harukite.canteen.model.Canteen;
 import com.harukite.canteen.model.Dish;
 import com.harukite.canteen.model.Package;
+import com.harukite.canteen.repository.BanquetReservationRepository;
 import com.harukite.canteen.repository.CanteenRepository;
 import com.harukite.canteen.repository.DishRepository;
 import com.harukite.canteen.repository.PackageRepository;
 import com.harukite.canteen.service.DishService;
+import com.harukite.canteen.service.KitchenPrepService;
 import com.harukite.canteen.service.PackageService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -35,6 +45,8 @@ public class PackageServiceImpl implements PackageService {
     private final DishRepository dishRepository;
     private final DishService dishService; // 注入 DishService 以获取 DishDto
     private final CanteenRepository canteenRepository; // 新增：注入 CanteenRepository
+    private final BanquetReservationRepository banquetReservationRepository;
+    private final KitchenPrepService kitchenPrepService;
 
     /**
      * 创建新套餐。
@@ -97,6 +109,22 @@ public class PackageServiceImpl implements PackageService {
         return convertToDto(pkg);
     }
 
+    /**
+     * 根据套餐ID批量获取套餐详情。
+     * 所有套餐包含的菜品通过 DishService 一次性批量加载。
+     *
+     * @param packageIds 套餐ID集合
+     * @return 套餐 DTO 列表
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<PackageDto> getPackagesByIds(Collection<String> packageIds) {
+        if (packageIds == null || packageIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return convertToDtos(packageRepository.findAllById(packageIds));
+    }
+
     /**
      * 获取所有套餐列表。
      *
@@ -105,9 +133,7 @@ public class PackageServiceImpl implements PackageService {
     @Override
     @Transactional(readOnly = true)
     public List<PackageDto> getAllPackages() {
-        return packageRepository.findAll().stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return convertToDtos(packageRepository.findAll());
     }
 
     /**
@@ -173,10 +199,31 @@ public class PackageServiceImpl implements PackageService {
             existingPackage.setDishes(newDishes);
         }
 
-        Package savedPackage = packageRepository.save(existingPackage);
+        Package savedPackage = packageRepository.saveAndFlush(existingPackage);
+        if (updatedPackageDto.getDishIds() != null) {
+            rebuildPrepCountsForBanquets(packageId);
+        }
         return convertToDto(savedPackage);
     }
 
+    /**
+     * 已确认宴会的备餐计数按确认时套餐内的菜品计入，取消时又按当时的套餐菜品扣除。
+     * 套餐菜品变更后重新汇总所有选用该套餐、尚未举办的已确认宴会所在食堂和日期的计数，
+     * 使计数与之后的扣除保持一致。已过去的日期不再重建。
+     *
+     * @param packageId 套餐ID
+     */
+    private void rebuildPrepCountsForBanquets(String packageId) {
+        List<BanquetReservation> banquets = banquetReservationRepository
+                .findDistinctBySelectedPackages_PackageIdAndStatusInAndEventDateGreaterThanEqual(
+                        packageId, List.of(BanquetStatus.CONFIRMED, BanquetStatus.COMPLETED), LocalDate.now());
+        Set<Map.Entry<String, LocalDate>> days = new LinkedHashSet<>();
+        for (BanquetReservation banquet : banquets) {
+            days.add(Map.entry(banquet.getCanteen().getCanteenId(), banquet.getEventDate()));
+        }
+        days.forEach(day -> kitchenPrepService.rebuild(day.getKey(), day.getValue()));
+    }
+
     /**
      * 删除套餐。
      *
@@ -199,20 +246,40 @@ public class PackageServiceImpl implements PackageService {
      * @return PackageDto
      */
     private PackageDto convertToDto(Package pkg) {
-        List<DishDto> dishDtos = pkg.getDishes().stream()
-                .map(Dish::getDishId) // 先获取ID
-                .map(dishService::getDishById) // 再通过服务获取DTO
-                .collect(Collectors.toList());
+        return convertToDtos(List.of(pkg)).get(0);
+    }
+
+    /**
+     * 辅助方法：批量将 Package 实体转换为 PackageDto。
+     * 先收集所有套餐的菜品ID，再通过服务一次性获取 DishDto。
+     *
+     * @param packages Package 实体列表
+     * @return PackageDto 列表
+     */
+    private List<PackageDto> convertToDtos(List<Package> packages) {
+        Set<String> dishIds = packages.stream()
+                .flatMap(pkg -> pkg.getDishes().stream())
+                .map(Dish::getDishId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<String, DishDto> dishDtosById = dishService.getDishesByIds(dishIds).stream()
+                .collect(Collectors.toMap(DishDto::getDishId, Function.identity()));
 
-        return new PackageDto(
-                pkg.getPackageId(),
-                pkg.getCanteen().getCanteenId(), // 新增：获取食堂ID
-                pkg.getCanteen().getName(),     // 新增：获取食堂名称
-                pkg.getName(),
-                pkg.getDescription(),
-                pkg.getPrice(),
-                dishDtos.stream().map(DishDto::getDishId).collect(Collectors.toList()), // 返回ID列表给DTO
-                dishDtos // 返回完整的DishDto列表给DTO
-        );
+        return packages.stream()
+                .map(pkg -> {
+                    List<DishDto> dishDtos = pkg.getDishes().stream()
+                            .map(dish -> dishDtosById.get(dish.getDishId()))
+                            .collect(Collectors.toList());
+                    return new PackageDto(
+                            pkg.getPackageId(),
+                            pkg.getCanteen().getCanteenId(), // 新增：获取食堂ID
+                            pkg.getCanteen().getName(),     // 新增：获取食堂名称
+                            pkg.getName(),
+                            pkg.getDescription(),
+                            pkg.getPrice(),
+                            dishDtos.stream().map(DishDto::getDishId).collect(Collectors.toList()), // 返回ID列表给DTO
+                            dishDtos // 返回完整的DishDto列表给DTO
+                    );
+                })
+                .collect(Collectors.toList());
     }
 }
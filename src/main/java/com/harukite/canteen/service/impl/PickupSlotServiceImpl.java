@@ -0,0 +1,332 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.dto.PickupSlotDto;
+import com.harukite.canteen.dto.PickupSlotRequest;
+import com.harukite.canteen.exception.DuplicateEntryException;
+import com.harukite.canteen.exception.InvalidInputException;
+import com.harukite.canteen.exception.ResourceNotFoundException;
+import com.harukite.canteen.model.Canteen;
+import com.harukite.canteen.model.PickupSlot;
+import com.harukite.canteen.repository.CanteenRepository;
+import com.harukite.canteen.repository.PickupSlotRepository;
+import com.harukite.canteen.service.KitchenPrepService;
+import com.harukite.canteen.service.PickupSlotService;
+import com.harukite.canteen.util.AfterCommit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 取餐时段容量服务接口的实现类。
+ * <p>
+ * 数据库中的 reserved 计数是唯一的权威来源：预占是一条 "reserved &lt; capacity" 的条件 UPDATE，
+ * 在调用方的订单事务之外以独立短事务执行，热点时段的行锁只持有一条语句的时间，多节点下同样正确。
+ * <p>
+ * 内存中只保存两类可丢弃的提示，用于在午高峰挡掉不必要的数据库访问：
+ * (食堂, 日期, 取餐时间) 到时段ID的解析结果，以及最近一次预占失败的时段的"已满"标记。
+ * 标记在短时间后过期，本节点释放名额或修改时段时立即清除；其它节点的释放最迟在过期后可见。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PickupSlotServiceImpl implements PickupSlotService
+{
+
+    private static final String NO_SLOT = ""; // 解析缓存中表示"该时间未配置时段"
+    private static final int MAX_CACHED_RESOLUTIONS = 10_000;
+
+    private final PickupSlotRepository pickupSlotRepository;
+    private final CanteenRepository canteenRepository;
+    private final KitchenPrepService kitchenPrepService; // 后厨备餐计数按时段开始时间分组
+
+    @Value("${canteen.pickup-slots.resolution-ttl-ms:30000}")
+    private long resolutionTtlMs;
+
+    @Value("${canteen.pickup-slots.full-marker-ttl-ms:1000}")
+    private long fullMarkerTtlMs;
+
+    @Value("${canteen.pickup-slots.reconcile-quiet-minutes:5}")
+    private long reconcileQuietMinutes;
+
+    /**
+     * (食堂, 日期, 取餐时间) -> 时段ID 的解析缓存。
+     */
+    private final ConcurrentMap<String, CachedResolution> resolutions = new ConcurrentHashMap<>();
+
+    /**
+     * 时段ID -> "已满"标记过期的 System.nanoTime()。
+     */
+    private final ConcurrentMap<String, Long> fullUntil = new ConcurrentHashMap<>();
+
+    /**
+     * 创建取餐时段。
+     *
+     * @param request 时段信息
+     * @return 创建成功的时段 DTO
+     * @throws ResourceNotFoundException 如果食堂不存在
+     * @throws InvalidInputException     如果开始时间不早于结束时间
+     * @throws DuplicateEntryException   如果与同日已有时段重叠
+     */
+    @Override
+    @Transactional
+    public PickupSlotDto createSlot(PickupSlotRequest request)
+    {
+        Canteen canteen = canteenRepository.findById(request.getCanteenId())
+                .orElseThrow(() -> new ResourceNotFoundException("Canteen not found with ID: " + request.getCanteenId()));
+        validate(request, null);
+
+        PickupSlot slot = new PickupSlot();
+        slot.setCanteen(canteen);
+        slot.setSlotDate(request.getSlotDate());
+        slot.setStartTime(request.getStartTime());
+        slot.setEndTime(request.getEndTime());
+        slot.setCapacity(request.getCapacity());
+        PickupSlot savedSlot = pickupSlotRepository.save(slot);
+        AfterCommit.run(resolutions::clear); // 之前解析为"未配置时段"的取餐时间现在受限
+        return convertToDto(savedSlot);
+    }
+
+    /**
+     * 更新取餐时段的时间范围和容量。日期和所属食堂不可修改。
+     *
+     * @param slotId  时段ID
+     * @param request 时段信息
+     * @return 更新后的时段 DTO
+     * @throws ResourceNotFoundException 如果时段不存在
+     * @throws InvalidInputException     如果开始时间不早于结束时间，或试图修改日期或食堂
+     * @throws DuplicateEntryException   如果与同日其它时段重叠
+     */
+    @Override
+    @Transactional
+    public PickupSlotDto updateSlot(String slotId, PickupSlotRequest request)
+    {
+        PickupSlot slot = pickupSlotRepository.findById(slotId)
+                .orElseThrow(() -> new ResourceNotFoundException("Pickup slot not found with ID: " + slotId));
+        if (!slot.getCanteen().getCanteenId().equals(request.getCanteenId()) || !slot.getSlotDate().equals(request.getSlotDate()))
+        {
+            throw new InvalidInputException("Canteen and date of a pickup slot cannot be changed; delete and recreate it instead.");
+        }
+        validate(request, slotId);
+
+        boolean startChanged = !slot.getStartTime().equals(request.getStartTime());
+        slot.setStartTime(request.getStartTime());
+        slot.setEndTime(request.getEndTime());
+        slot.setCapacity(request.getCapacity());
+        PickupSlot savedSlot = pickupSlotRepository.saveAndFlush(slot);
+        if (startChanged && savedSlot.getReserved() > 0)
+        {
+            // 已有订单的备餐计数按原开始时间分组，重新汇总当日计数
+            kitchenPrepService.rebuild(savedSlot.getCanteen().getCanteenId(), savedSlot.getSlotDate());
+        }
+        AfterCommit.run(() -> {
+            resolutions.clear();
+            fullUntil.remove(slotId);
+        });
+        return convertToDto(savedSlot);
+    }
+
+    /**
+     * 删除取餐时段。
+     *
+     * @param slotId 时段ID
+     * @throws ResourceNotFoundException 如果时段不存在
+     */
+    @Override
+    @Transactional
+    public void deleteSlot(String slotId)
+    {
+        PickupSlot slot = pickupSlotRepository.findById(slotId)
+                .orElseThrow(() -> new ResourceNotFoundException("Pickup slot not found with ID: " + slotId));
+        pickupSlotRepository.delete(slot);
+        if (slot.getReserved() > 0)
+        {
+            // 订单失去所属时段后按各自的取餐时间分组，重新汇总当日备餐计数
+            pickupSlotRepository.flush();
+            kitchenPrepService.rebuild(slot.getCanteen().getCanteenId(), slot.getSlotDate());
+        }
+        AfterCommit.run(() -> {
+            resolutions.clear();
+            fullUntil.remove(slotId);
+        });
+    }
+
+    /**
+     * 获取食堂某日各时段的容量与剩余名额。
+     *
+     * @param canteenId 食堂ID
+     * @param slotDate  日期
+     * @return 按开始时间排序的时段 DTO 列表
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<PickupSlotDto> getSlots(String canteenId, LocalDate slotDate)
+    {
+        return pickupSlotRepository.findByCanteen_CanteenIdAndSlotDateOrderByStartTime(canteenId, slotDate).stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 为一个订单预占时段名额。
+     * 调用方不应处于事务中，预占随本方法的短事务立即提交；订单创建失败时调用方负责 {@link #release(String)}。
+     *
+     * @param canteenId  食堂ID
+     * @param slotDate   日期
+     * @param pickupTime 取餐时间
+     * @return 预占的时段ID；未配置时段时返回 null
+     * @throws InvalidInputException 如果时段已满
+     */
+    @Override
+    @Transactional
+    public String reserve(String canteenId, LocalDate slotDate, LocalTime pickupTime)
+    {
+        String resolutionKey = canteenId + '|' + slotDate + '|' + pickupTime;
+        String slotId = resolveSlotId(resolutionKey, canteenId, slotDate, pickupTime);
+        if (slotId == null)
+        {
+            return null; // 未配置时段，不限量
+        }
+
+        Long markedUntil = fullUntil.get(slotId);
+        if (markedUntil != null && markedUntil - System.nanoTime() > 0)
+        {
+            throw fullyBooked(slotDate, pickupTime);
+        }
+
+        if (pickupSlotRepository.tryReserve(slotId) == 1)
+        {
+            return slotId;
+        }
+        if (!pickupSlotRepository.existsById(slotId))
+        {
+            // 缓存的时段已在其它节点被删除，重新解析一次
+            resolutions.remove(resolutionKey);
+            slotId = resolveSlotId(resolutionKey, canteenId, slotDate, pickupTime);
+            if (slotId == null || pickupSlotRepository.tryReserve(slotId) == 1)
+            {
+                return slotId;
+            }
+        }
+        fullUntil.put(slotId, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(fullMarkerTtlMs));
+        throw fullyBooked(slotDate, pickupTime);
+    }
+
+    /**
+     * 释放一个已预占的名额，在当前事务提交后清除本节点的"已满"标记。
+     *
+     * @param slotId 时段ID，为 null 时忽略
+     */
+    @Override
+    @Transactional
+    public void release(String slotId)
+    {
+        if (slotId == null)
+        {
+            return;
+        }
+        pickupSlotRepository.release(slotId);
+        AfterCommit.run(() -> fullUntil.remove(slotId));
+    }
+
+    /**
+     * 定时归还预占后没有落成订单的名额。预占在订单事务之前以独立短事务提交，
+     * 进程在两者之间崩溃时名额不会被释放。今天及以后、最近若干分钟内没有预占或释放的时段，
+     * 已预占数按未取消订单数校正。多个节点同时执行时结果相同。
+     *
+     * @return 被校正的时段数
+     */
+    @Override
+    @Scheduled(cron = "${canteen.pickup-slots.reconcile-cron:0 */5 * * * *}")
+    @Transactional
+    public int reconcileReserved()
+    {
+        int reconciled = pickupSlotRepository.reconcileReserved(LocalDate.now(),
+                LocalDateTime.now().minusMinutes(reconcileQuietMinutes));
+        if (reconciled > 0)
+        {
+            log.warn("Released pickup slot capacity reserved without an order in {} slots", reconciled);
+            AfterCommit.run(fullUntil::clear);
+        }
+        return reconciled;
+    }
+
+    private String resolveSlotId(String resolutionKey, String canteenId, LocalDate slotDate, LocalTime pickupTime)
+    {
+        long now = System.nanoTime();
+        CachedResolution cached = resolutions.get(resolutionKey);
+        if (cached == null || cached.expiresAt - now <= 0)
+        {
+            String slotId = pickupSlotRepository.findCoveringSlotId(canteenId, slotDate, pickupTime).orElse(NO_SLOT);
+            if (resolutions.size() >= MAX_CACHED_RESOLUTIONS)
+            {
+                resolutions.clear(); // 键只随取餐时间变化，正常情况下远小于上限
+            }
+            cached = new CachedResolution(slotId, now + TimeUnit.MILLISECONDS.toNanos(resolutionTtlMs));
+            resolutions.put(resolutionKey, cached);
+        }
+        return NO_SLOT.equals(cached.slotId) ? null : cached.slotId;
+    }
+
+    private void validate(PickupSlotRequest request, String excludeSlotId)
+    {
+        if (!request.getStartTime().isBefore(request.getEndTime()))
+        {
+            throw new InvalidInputException("Start time must be before end time.");
+        }
+        if (pickupSlotRepository.existsOverlapping(request.getCanteenId(), request.getSlotDate(),
+                request.getStartTime(), request.getEndTime(), excludeSlotId))
+        {
+            throw new DuplicateEntryException("Pickup slot overlaps an existing slot of this canteen on " + request.getSlotDate());
+        }
+    }
+
+    private static InvalidInputException fullyBooked(LocalDate slotDate, LocalTime pickupTime)
+    {
+        return new InvalidInputException("Pickup slot for " + slotDate + " " + pickupTime + " is fully booked.");
+    }
+
+    /**
+     * 辅助方法：将 PickupSlot 实体转换为 PickupSlotDto。
+     *
+     * @param slot PickupSlot 实体
+     * @return PickupSlotDto
+     */
+    private PickupSlotDto convertToDto(PickupSlot slot)
+    {
+        int reserved = slot.getReserved() == null ? 0 : slot.getReserved();
+        return new PickupSlotDto(
+                slot.getSlotId(),
+                slot.getCanteen().getCanteenId(),
+                slot.getSlotDate(),
+                slot.getStartTime(),
+                slot.getEndTime(),
+                slot.getCapacity(),
+                reserved,
+                Math.max(slot.getCapacity() - reserved, 0)
+        );
+    }
+
+    private static final class CachedResolution
+    {
+        private final String slotId;
+        private final long expiresAt;
+
+        private CachedResolution(String slotId, long expiresAt)
+        {
+            this.slotId = slotId;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.harukite.canteen.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.harukite.canteen.dto.OrderEvent;
+import com.harukite.canteen.service.OrderEventBus;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 基于 PostgreSQL LISTEN / NOTIFY 的订单事件总线。
+ * <p>
+ * 发布：在业务事务内执行一条 pg_notify，负载为 "{序列号}:{事件 JSON}"。
+ * PostgreSQL 只在事务提交时投递通知，并按提交顺序投递给每个监听者，回滚的事务不会产生事件。
+ * <p>
+ * 投递：每个节点用一条专用连接 LISTEN，由单个后台线程取出通知并依次回调订阅方，
+ * 因此所有节点看到相同顺序的事件流，事件ID（序列号）在节点之间通用。
+ * 连接断开后自动重连，并通知订阅方可能存在丢失的事件。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PostgresOrderEventBus implements OrderEventBus
+{
+
+    private static final String CHANNEL = "order_events";
+    private static final int MAX_PAYLOAD_BYTES = 7900; // NOTIFY 负载上限为 8000 字节，预留序列号
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+
+    private final List<Consumer<OrderEvent>> listeners = new CopyOnWriteArrayList<>();
+    private final List<Runnable> gapListeners = new CopyOnWriteArrayList<>();
+
+    @Value("${canteen.order-events.poll-timeout-ms:10000}")
+    private int pollTimeoutMs;
+
+    @Value("${canteen.order-events.reconnect-delay-ms:2000}")
+    private long reconnectDelayMs;
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    /**
+     * 应用启动完成后启动监听线程。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start()
+    {
+        running = true;
+        listenerThread = Thread.ofPlatform().name("order-events-listener").daemon().start(this::listenLoop);
+    }
+
+    /**
+     * 停止监听线程。
+     */
+    @PreDestroy
+    public void stop()
+    {
+        running = false;
+        if (listenerThread != null)
+        {
+            listenerThread.interrupt();
+        }
+    }
+
+    /**
+     * 在当前事务中发布事件。负载超过 NOTIFY 上限时去掉订单项并标记 itemsTruncated。
+     *
+     * @param event 事件
+     */
+    @Override
+    public void publish(OrderEvent event)
+    {
+        String payload = toJson(event);
+        if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES)
+        {
+            event.setItems(null);
+            event.setItemsTruncated(true);
+            payload = toJson(event);
+        }
+        jdbcTemplate.queryForList("SELECT pg_notify(?, nextval('order_event_seq') || ':' || ?)", CHANNEL, payload);
+    }
+
+    @Override
+    public void subscribe(Consumer<OrderEvent> listener)
+    {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void onGap(Runnable listener)
+    {
+        gapListeners.add(listener);
+    }
+
+    private void listenLoop()
+    {
+        boolean reconnecting = false;
+        while (running)
+        {
+            try (Connection connection = dataSource.getConnection())
+            {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement())
+                {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                if (reconnecting)
+                {
+                    log.warn("Order event listener reconnected; events during the outage may have been missed");
+                    gapListeners.forEach(Runnable::run);
+                }
+                reconnecting = true;
+
+                while (running)
+                {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications == null)
+                    {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications)
+                    {
+                        dispatch(notification.getParameter());
+                    }
+                }
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                if (!running)
+                {
+                    break;
+                }
+                log.error("Order event listener connection failed: {}", e.getMessage(), e);
+                reconnecting = true;
+                try
+                {
+                    Thread.sleep(reconnectDelayMs);
+                }
+                catch (InterruptedException ie)
+                {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    private void dispatch(String payload)
+    {
+        int separator = payload.indexOf(':');
+        try
+        {
+            OrderEvent event = objectMapper.readValue(payload.substring(separator + 1), OrderEvent.class);
+            event.setEventId(payload.substring(0, separator));
+            for (Consumer<OrderEvent> listener : listeners)
+            {
+                try
+                {
+                    listener.accept(event);
+                }
+                catch (RuntimeException e)
+                {
+                    log.error("Order event listener failed for event {}: {}", event.getEventId(), e.getMessage(), e);
+                }
+            }
+        }
+        catch (JsonProcessingException | StringIndexOutOfBoundsException e)
+        {
+            log.error("Discarding malformed order event payload: {}", e.getMessage());
+        }
+    }
+
+    private String toJson(OrderEvent event)
+    {
+        try
+        {
+            return objectMapper.writeValueAsString(event);
+        }
+        catch (JsonProcessingException e)
+        {
+            throw new IllegalStateException("Failed to serialize order event", e);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import com.harukite.canteen.model.UserRole;
 import com.harukite.canteen.repository.DishRepository;
 import com.harukite.canteen.repository.RatingReviewRepository;
 import com.harukite.canteen.repository.UserRepository;
+import com.harukite.canteen.service.DishRatingStatsService;
 import com.harukite.canteen.service.RatingReviewService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -33,6 +34,7 @@ public class RatingReviewServiceImpl implements RatingReviewService
     private final RatingReviewRepository ratingReviewRepository;
     private final UserRepository userRepository;
     private final DishRepository dishRepository;
+    private final DishRatingStatsService dishRatingStatsService; // 增量维护菜品评分聚合
 
     /**
      * 创建新的评分和评论。
@@ -73,6 +75,7 @@ public class RatingReviewServiceImpl implements RatingReviewService
         review.setComment(request.getComment()); // 使用 request.getComment()
 
         RatingReview savedReview = ratingReviewRepository.save(review);
+        dishRatingStatsService.recordRatingAdded(dish.getDishId(), savedReview.getRating());
         return convertToDto(savedReview);
     }
 
@@ -175,6 +178,8 @@ public class RatingReviewServiceImpl implements RatingReviewService
 
         if (updatedRequest.getRating() != null)
         {
+            dishRatingStatsService.recordRatingChanged(existingReview.getDish().getDishId(),
+                    existingReview.getRating(), updatedRequest.getRating());
             existingReview.setRating(updatedRequest.getRating());
         }
         if (updatedRequest.getComment() != null)
@@ -208,6 +213,7 @@ public class RatingReviewServiceImpl implements RatingReviewService
             throw new InvalidInputException("You are not authorized to delete this review.");
         }
         ratingReviewRepository.deleteById(reviewId);
+        dishRatingStatsService.recordRatingRemoved(review.getDish().getDishId(), review.getRating());
     }
 
     /**
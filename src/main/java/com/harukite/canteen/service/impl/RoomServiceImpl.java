@@ -1,21 +1,23 @@
 package com.harukite.canteen.service.impl;
 
 import com.harukite.canteen.dto.RoomDto;
+import com.harukite.canteen.dto.StoredFile;
 import com.harukite.canteen.exception.DuplicateEntryException;
 import com.harukite.canteen.exception.ResourceNotFoundException;
 import com.harukite.canteen.model.Canteen;
 import com.harukite.canteen.model.Room;
 import com.harukite.canteen.repository.CanteenRepository;
 import com.harukite.canteen.repository.RoomRepository;
-import com.harukite.canteen.service.CosService;
+import com.harukite.canteen.service.ImageVariantService;
 import com.harukite.canteen.service.RoomService;
+import com.harukite.canteen.service.StorageOutboxService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -31,7 +33,9 @@ public class RoomServiceImpl implements RoomService
 
     private final RoomRepository roomRepository;
     private final CanteenRepository canteenRepository;
-    private final CosService cosService; // 注入 CosService
+    private final StorageOutboxService storageOutboxService; // 图片上传与延迟删除
+    private final ImageVariantService imageVariantService; // 图片衍生版本
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * 创建新包厢。
@@ -43,8 +47,37 @@ public class RoomServiceImpl implements RoomService
      * @throws RuntimeException          如果图片上传失败
      */
     @Override
-    @Transactional
     public RoomDto createRoom(RoomDto roomDto, MultipartFile imageFile)
+    {
+        // 图片在事务开始前上传，上传期间不占用数据库连接
+        StoredFile stagedImage = storageOutboxService.stageUpload(imageFile);
+        String stagedImageUrl = stagedImage != null ? stagedImage.getUrl() : null;
+        RoomDto result;
+        try
+        {
+            result = transactionTemplate.execute(status -> doCreateRoom(roomDto, stagedImageUrl));
+        }
+        catch (RuntimeException e)
+        {
+            storageOutboxService.discardStaged(stagedImageUrl);
+            throw e;
+        }
+        // 复用已有对象时也提交，版本齐全时工作线程直接跳过，缺失的版本得以补齐
+        if (stagedImage != null)
+        {
+            imageVariantService.generateVariants(imageFile, stagedImageUrl); // 提交后在后台生成缩略图等版本
+        }
+        return result;
+    }
+
+    /**
+     * 在事务内创建包厢。
+     *
+     * @param roomDto        包含包厢信息的 DTO
+     * @param stagedImageUrl 已预先上传的图片 URL，未上传时为 null
+     * @return 创建成功的包厢 DTO
+     */
+    private RoomDto doCreateRoom(RoomDto roomDto, String stagedImageUrl)
     {
         Canteen canteen = canteenRepository.findById(roomDto.getCanteenId())
                 .orElseThrow(() -> new ResourceNotFoundException("Canteen not found with ID: " + roomDto.getCanteenId()));
@@ -62,24 +95,16 @@ public class RoomServiceImpl implements RoomService
         room.setDescription(roomDto.getDescription());
         room.setBaseFee(roomDto.getBaseFee());
 
-        // 处理图片上传
-        if (imageFile != null && !imageFile.isEmpty())
+        // 处理图片
+        if (stagedImageUrl != null)
         {
-            try
-            {
-                String imageUrl = cosService.uploadFile(imageFile, "rooms/"); // 上传到 rooms 文件夹
-                room.setImageUrl(imageUrl);
-            }
-            catch (IOException e)
-            {
-                log.error("Failed to upload room image: {}", e.getMessage(), e);
-                throw new RuntimeException("Failed to upload room image: " + e.getMessage(), e);
-            }
+            room.setImageUrl(stagedImageUrl);
         }
         else
         {
             room.setImageUrl(roomDto.getImageUrl()); // 如果没有新文件，使用DTO中可能已有的URL
         }
+        storageOutboxService.retain(room.getImageUrl()); // 登记对图片的引用
 
         Room savedRoom = roomRepository.save(room);
         return convertToDto(savedRoom);
@@ -142,11 +167,41 @@ public class RoomServiceImpl implements RoomService
      * @param imageFile      包厢图片文件（可选，如果提供则更新图片）
      * @return 更新后的包厢 DTO
      * @throws ResourceNotFoundException 如果包厢或所属食堂不存在
-     * @throws RuntimeException          如果图片上传或删除失败
+     * @throws RuntimeException          如果图片上传失败
      */
     @Override
-    @Transactional
     public RoomDto updateRoom(String roomId, RoomDto updatedRoomDto, MultipartFile imageFile)
+    {
+        // 新图片在事务开始前上传，对新旧图片的引用在事务内调整
+        StoredFile stagedImage = storageOutboxService.stageUpload(imageFile);
+        String stagedImageUrl = stagedImage != null ? stagedImage.getUrl() : null;
+        RoomDto result;
+        try
+        {
+            result = transactionTemplate.execute(status -> doUpdateRoom(roomId, updatedRoomDto, stagedImageUrl));
+        }
+        catch (RuntimeException e)
+        {
+            storageOutboxService.discardStaged(stagedImageUrl);
+            throw e;
+        }
+        // 复用已有对象时也提交，版本齐全时工作线程直接跳过，缺失的版本得以补齐
+        if (stagedImage != null)
+        {
+            imageVariantService.generateVariants(imageFile, stagedImageUrl); // 提交后在后台生成缩略图等版本
+        }
+        return result;
+    }
+
+    /**
+     * 在事务内更新包厢。
+     *
+     * @param roomId         要更新的包厢ID
+     * @param updatedRoomDto 包含更新信息的包厢 DTO
+     * @param stagedImageUrl 已预先上传的新图片 URL，未上传时为 null
+     * @return 更新后的包厢 DTO
+     */
+    private RoomDto doUpdateRoom(String roomId, RoomDto updatedRoomDto, String stagedImageUrl)
     {
         Room existingRoom = roomRepository.findById(roomId)
                 .orElseThrow(() -> new ResourceNotFoundException("Room not found with ID: " + roomId));
@@ -195,31 +250,17 @@ public class RoomServiceImpl implements RoomService
         }
 
         // 处理图片更新
-        if (imageFile != null && !imageFile.isEmpty())
+        if (stagedImageUrl != null)
         {
-            // 如果存在旧图片，先删除旧图片
-            if (existingRoom.getImageUrl() != null && !existingRoom.getImageUrl().isEmpty())
-            {
-                cosService.deleteFile(existingRoom.getImageUrl());
-            }
-            try
-            {
-                String newImageUrl = cosService.uploadFile(imageFile, "rooms/");
-                existingRoom.setImageUrl(newImageUrl);
-            }
-            catch (IOException e)
-            {
-                log.error("Failed to upload new room image: {}", e.getMessage(), e);
-                throw new RuntimeException("Failed to upload new room image: " + e.getMessage(), e);
-            }
+            // 释放对旧图片的引用，改为引用新图片
+            storageOutboxService.release(existingRoom.getImageUrl());
+            existingRoom.setImageUrl(stagedImageUrl);
+            storageOutboxService.retain(stagedImageUrl);
         }
         else if (updatedRoomDto.getImageUrl() != null && updatedRoomDto.getImageUrl().isEmpty())
         {
             // 如果DTO中的imageUrl被显式设置为空字符串，表示清除图片
-            if (existingRoom.getImageUrl() != null && !existingRoom.getImageUrl().isEmpty())
-            {
-                cosService.deleteFile(existingRoom.getImageUrl());
-            }
+            storageOutboxService.release(existingRoom.getImageUrl());
             existingRoom.setImageUrl(null);
         }
         // 如果 imageFile 为 null 且 updatedRoomDto.getImageUrl() 也为 null，则保持不变
@@ -230,7 +271,7 @@ public class RoomServiceImpl implements RoomService
 
     /**
      * 删除包厢。
-     * 同时删除 COS 中关联的图片。
+     * 关联图片的引用在事务内释放，不再被引用的图片由后台任务从对象存储中删除。
      *
      * @param roomId 要删除的包厢ID
      * @throws ResourceNotFoundException 如果包厢不存在
@@ -242,11 +283,8 @@ public class RoomServiceImpl implements RoomService
         Room roomToDelete = roomRepository.findById(roomId)
                 .orElseThrow(() -> new ResourceNotFoundException("Room not found with ID: " + roomId));
 
-        // 删除 COS 中的图片
-        if (roomToDelete.getImageUrl() != null && !roomToDelete.getImageUrl().isEmpty())
-        {
-            cosService.deleteFile(roomToDelete.getImageUrl());
-        }
+        // 释放对图片的引用，不再被引用的图片由后台任务删除
+        storageOutboxService.release(roomToDelete.getImageUrl());
 
         roomRepository.delete(roomToDelete);
     }
@@ -267,7 +305,8 @@ public class RoomServiceImpl implements RoomService
                 room.getCapacity(),
                 room.getDescription(),
                 room.getImageUrl(), // 使用数据库存储的 URL
-                room.getBaseFee()
+                room.getBaseFee(),
+                imageVariantService.variantUrls(room.getImageUrl())
         );
     }
 }
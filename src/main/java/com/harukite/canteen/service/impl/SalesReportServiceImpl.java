@@ -0,0 +1,153 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.dto.DailySalesDto;
+import com.harukite.canteen.dto.DishSalesDto;
+import com.harukite.canteen.dto.SalesSummaryDto;
+import com.harukite.canteen.exception.InvalidInputException;
+import com.harukite.canteen.model.OrderStatus;
+import com.harukite.canteen.repository.DishSalesDailyRollupRepository;
+import com.harukite.canteen.repository.SalesDailyRollupRepository;
+import com.harukite.canteen.service.SalesReportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 销售报表服务接口的实现类。
+ * 查询范围受限于汇总表中 (食堂, 日期) 的行数，与订单总量无关。
+ */
+@Service
+@RequiredArgsConstructor
+public class SalesReportServiceImpl implements SalesReportService
+{
+
+    private static final int MAX_RANGE_DAYS = 366;
+    private static final int MAX_TOP_DISHES = 100;
+
+    private final SalesDailyRollupRepository salesDailyRollupRepository;
+    private final DishSalesDailyRollupRepository dishSalesDailyRollupRepository;
+
+    /**
+     * 按食堂和日期获取销售数据。
+     *
+     * @param canteenId 食堂ID，为 null 时包含所有食堂
+     * @param fromDate  开始日期（含）
+     * @param toDate    结束日期（含）
+     * @return 每日销售列表
+     * @throws InvalidInputException 如果日期范围无效或超过 366 天
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<DailySalesDto> getDailySales(String canteenId, LocalDate fromDate, LocalDate toDate)
+    {
+        validateRange(fromDate, toDate);
+        return salesDailyRollupRepository.findDailySales(canteenId, fromDate, toDate).stream()
+                .map(row -> {
+                    long pending = toLong(row[3]);
+                    long confirmed = toLong(row[4]);
+                    long completed = toLong(row[5]);
+                    return new DailySalesDto(
+                            (String) row[0],
+                            (String) row[1],
+                            toLocalDate(row[2]),
+                            pending,
+                            confirmed,
+                            completed,
+                            toLong(row[6]),
+                            pending + confirmed + completed,
+                            toBigDecimal(row[7]),
+                            toBigDecimal(row[8])
+                    );
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 获取日期范围内销量最高的菜品。
+     *
+     * @param canteenId 食堂ID，为 null 时包含所有食堂
+     * @param fromDate  开始日期（含）
+     * @param toDate    结束日期（含）
+     * @param limit     返回条数（1-100）
+     * @return 菜品销售列表
+     * @throws InvalidInputException 如果日期范围无效或超过 366 天
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<DishSalesDto> getTopDishes(String canteenId, LocalDate fromDate, LocalDate toDate, int limit)
+    {
+        validateRange(fromDate, toDate);
+        int size = Math.min(Math.max(limit, 1), MAX_TOP_DISHES);
+        return dishSalesDailyRollupRepository.findTopDishes(canteenId, fromDate, toDate, size).stream()
+                .map(row -> new DishSalesDto(
+                        (String) row[0],
+                        (String) row[1],
+                        (String) row[2],
+                        toLong(row[3]),
+                        toBigDecimal(row[4])
+                ))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 获取日期范围内各状态的订单数和销售金额。
+     *
+     * @param canteenId 食堂ID，为 null 时包含所有食堂
+     * @param fromDate  开始日期（含）
+     * @param toDate    结束日期（含）
+     * @return 汇总数据
+     * @throws InvalidInputException 如果日期范围无效或超过 366 天
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public SalesSummaryDto getSummary(String canteenId, LocalDate fromDate, LocalDate toDate)
+    {
+        validateRange(fromDate, toDate);
+        Object[] row = salesDailyRollupRepository.summarize(canteenId, fromDate, toDate).get(0);
+        Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+        counts.put(OrderStatus.PENDING, toLong(row[0]));
+        counts.put(OrderStatus.CONFIRMED, toLong(row[1]));
+        counts.put(OrderStatus.COMPLETED, toLong(row[2]));
+        counts.put(OrderStatus.CANCELLED, toLong(row[3]));
+        return new SalesSummaryDto(canteenId, fromDate, toDate, counts, toBigDecimal(row[4]), toBigDecimal(row[5]));
+    }
+
+    private static void validateRange(LocalDate fromDate, LocalDate toDate)
+    {
+        if (fromDate.isAfter(toDate))
+        {
+            throw new InvalidInputException("fromDate must not be after toDate.");
+        }
+        if (ChronoUnit.DAYS.between(fromDate, toDate) >= MAX_RANGE_DAYS)
+        {
+            throw new InvalidInputException("Date range must not exceed " + MAX_RANGE_DAYS + " days.");
+        }
+    }
+
+    private static long toLong(Object value)
+    {
+        return value == null ? 0L : ((Number) value).longValue();
+    }
+
+    private static BigDecimal toBigDecimal(Object value)
+    {
+        if (value == null)
+        {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+
+    private static LocalDate toLocalDate(Object value)
+    {
+        return value instanceof java.sql.Date sqlDate ? sqlDate.toLocalDate() : (LocalDate) value;
+    }
+}
@@ -0,0 +1,167 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.exception.InvalidInputException;
+import com.harukite.canteen.model.Order;
+import com.harukite.canteen.model.OrderStatus;
+import com.harukite.canteen.repository.DishSalesDailyRollupRepository;
+import com.harukite.canteen.repository.SalesDailyRollupRepository;
+import com.harukite.canteen.service.SalesRollupService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 销售汇总维护服务接口的实现类。
+ * <p>
+ * 每次状态变化只写一条 (食堂, 日期) 增量 upsert；该表每个 (食堂, 日期) 拆为 bucket-count 个分桶行，
+ * 随机选择其一写入，高峰期同一食堂的下单事务不会在同一行上排队。菜品汇总只在订单进入或离开"已取消"时变化。
+ * <p>
+ * 增量更新取按日期的共享咨询锁，对账取排他锁：对账等待进行中的订单事务提交后再按订单表重算，
+ * 期间开始的订单事务等对账提交后再累加，不会重复计入或丢失。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SalesRollupServiceImpl implements SalesRollupService
+{
+
+    private static final int MAX_RECONCILE_DAYS = 366;
+
+    private final SalesDailyRollupRepository salesDailyRollupRepository;
+    private final DishSalesDailyRollupRepository dishSalesDailyRollupRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${canteen.sales-rollup.bucket-count:8}")
+    private int bucketCount;
+
+    @Value("${canteen.sales-rollup.reconcile-lookback-days:3}")
+    private int lookbackDays;
+
+    @Value("${canteen.sales-rollup.reconcile-lookahead-days:7}")
+    private int lookaheadDays;
+
+    /**
+     * 在当前事务中记录订单的创建或状态变化。
+     *
+     * @param order          订单（已设置为新状态）
+     * @param previousStatus 原状态，新建订单为 null
+     */
+    @Override
+    @Transactional
+    public void recordStatusChange(Order order, OrderStatus previousStatus)
+    {
+        OrderStatus status = order.getStatus();
+        if (status == previousStatus)
+        {
+            return;
+        }
+        BigDecimal amount = order.getTotalAmount();
+        salesDailyRollupRepository.lockShared((int) order.getOrderDate().toEpochDay());
+        salesDailyRollupRepository.applyDelta(
+                UUID.randomUUID().toString(),
+                order.getCanteen().getCanteenId(),
+                order.getOrderDate(),
+                (short) ThreadLocalRandom.current().nextInt(Math.max(bucketCount, 1)),
+                countDelta(OrderStatus.PENDING, previousStatus, status),
+                countDelta(OrderStatus.CONFIRMED, previousStatus, status),
+                countDelta(OrderStatus.COMPLETED, previousStatus, status),
+                countDelta(OrderStatus.CANCELLED, previousStatus, status),
+                bookedAmount(status, amount).subtract(bookedAmount(previousStatus, amount)),
+                completedAmount(status, amount).subtract(completedAmount(previousStatus, amount))
+        );
+
+        boolean wasBooked = isBooked(previousStatus);
+        boolean booked = isBooked(status);
+        if (wasBooked != booked)
+        {
+            dishSalesDailyRollupRepository.applyOrder(order.getOrderId(), booked ? 1 : -1);
+        }
+    }
+
+    /**
+     * 从订单表重新计算日期范围内的汇总。
+     *
+     * @param fromDate 开始日期
+     * @param toDate   结束日期
+     * @return 重新计算的天数
+     * @throws InvalidInputException 如果日期范围无效或超过 366 天
+     */
+    @Override
+    public int reconcile(LocalDate fromDate, LocalDate toDate)
+    {
+        if (fromDate.isAfter(toDate))
+        {
+            throw new InvalidInputException("fromDate must not be after toDate.");
+        }
+        if (ChronoUnit.DAYS.between(fromDate, toDate) >= MAX_RECONCILE_DAYS)
+        {
+            throw new InvalidInputException("Date range must not exceed " + MAX_RECONCILE_DAYS + " days.");
+        }
+        int days = 0;
+        for (LocalDate date = fromDate; !date.isAfter(toDate); date = date.plusDays(1))
+        {
+            LocalDate salesDate = date;
+            // 每天一个短事务，排他锁只阻塞当天的下单
+            int rows = transactionTemplate.execute(status -> {
+                salesDailyRollupRepository.lockExclusive((int) salesDate.toEpochDay());
+                salesDailyRollupRepository.deleteBySalesDate(salesDate);
+                dishSalesDailyRollupRepository.deleteBySalesDate(salesDate);
+                return salesDailyRollupRepository.rebuild(salesDate) + dishSalesDailyRollupRepository.rebuild(salesDate);
+            });
+            log.debug("Reconciled sales rollups for {}: {} rows", salesDate, rows);
+            days++;
+        }
+        return days;
+    }
+
+    /**
+     * 夜间对账，默认每天 02:45 执行。
+     */
+    @Override
+    @Scheduled(cron = "${canteen.sales-rollup.reconcile-cron:0 45 2 * * *}")
+    public void scheduledReconcile()
+    {
+        LocalDate today = LocalDate.now();
+        LocalDate fromDate = today.minusDays(lookbackDays);
+        LocalDate toDate = today.plusDays(lookaheadDays);
+        try
+        {
+            int days = reconcile(fromDate, toDate);
+            log.info("Sales rollup reconciliation finished for {} to {} ({} days)", fromDate, toDate, days);
+        }
+        catch (RuntimeException e)
+        {
+            log.error("Sales rollup reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private static int countDelta(OrderStatus column, OrderStatus previousStatus, OrderStatus status)
+    {
+        return (status == column ? 1 : 0) - (previousStatus == column ? 1 : 0);
+    }
+
+    private static boolean isBooked(OrderStatus status)
+    {
+        return status != null && status != OrderStatus.CANCELLED;
+    }
+
+    private static BigDecimal bookedAmount(OrderStatus status, BigDecimal amount)
+    {
+        return isBooked(status) ? amount : BigDecimal.ZERO;
+    }
+
+    private static BigDecimal completedAmount(OrderStatus status, BigDecimal amount)
+    {
+        return status == OrderStatus.COMPLETED ? amount : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,337 @@
+package com.harukite.canteen.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongFunction;
+
+/**
+ * 按 key 分组的 SSE 广播器，供订单推送类服务复用。
+ * <p>
+ * 每个 key 保留最近若干条事件用于按 Last-Event-ID 续传；续传点已不在保留范围内时，
+ * 先发送一个 reset 事件，由客户端重新加载完整状态。
+ * <p>
+ * 每个订阅者有一个有界发送队列，发布方只做非阻塞的入队，实际写出在发送线程上完成。
+ * 队列满（客户端太慢）时直接关闭该连接，客户端带上 Last-Event-ID 重连即可补齐，发布方永远不会被拖慢。
+ * 空闲连接不占用线程：SSE 基于 Servlet 异步请求，只有在有数据待写时才占用发送线程。
+ *
+ * @param <K> 分组 key 的类型
+ */
+@Slf4j
+final class SseBroadcaster<K>
+{
+
+    static final String RESET_EVENT = "reset";
+
+    private final String name;
+    private final int replayCapacity;
+    private final int bufferCapacity;
+    private final long emitterTimeoutMs;
+    private final long idleEvictMs;
+    private final Executor sender;
+    private final LongFunction<SseEmitter> emitterFactory;
+
+    private final ConcurrentMap<K, Channel> channels = new ConcurrentHashMap<>();
+
+    /**
+     * @param name             用于日志的名称
+     * @param replayCapacity   每个 key 保留用于续传的事件数
+     * @param bufferCapacity   每个订阅者的发送队列长度
+     * @param emitterTimeoutMs 单个连接的最长存活时间，到期后客户端自动重连
+     * @param idleEvictMs      没有订阅者的 key 在最后一次活动后保留的时间
+     * @param sender           执行实际写出的线程池
+     */
+    SseBroadcaster(String name, int replayCapacity, int bufferCapacity, long emitterTimeoutMs, long idleEvictMs, Executor sender)
+    {
+        this(name, replayCapacity, bufferCapacity, emitterTimeoutMs, idleEvictMs, sender, timeout -> new SseEmitter(timeout));
+    }
+
+    /**
+     * 可替换 SseEmitter 创建方式的构造器，供测试捕获写出的事件。
+     *
+     * @param emitterFactory 按超时时间创建 SseEmitter
+     */
+    SseBroadcaster(String name, int replayCapacity, int bufferCapacity, long emitterTimeoutMs, long idleEvictMs, Executor sender,
+                   LongFunction<SseEmitter> emitterFactory)
+    {
+        this.name = name;
+        this.replayCapacity = replayCapacity;
+        this.bufferCapacity = bufferCapacity;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.idleEvictMs = idleEvictMs;
+        this.sender = sender;
+        this.emitterFactory = emitterFactory;
+    }
+
+    /**
+     * 订阅一个 key，先补发 lastEventId 之后的事件，再接收新事件。补发与登记在同一把锁内完成，不会漏发或重发。
+     *
+     * @param key         分组 key
+     * @param lastEventId 客户端最后收到的事件ID，首次连接为 null
+     * @return SSE 连接
+     */
+    SseEmitter subscribe(K key, String lastEventId)
+    {
+        SseEmitter emitter = emitterFactory.apply(emitterTimeoutMs);
+        while (true)
+        {
+            Channel channel = channels.computeIfAbsent(key, k -> new Channel());
+            synchronized (channel)
+            {
+                if (channels.get(key) != channel)
+                {
+                    continue; // 取到之后、加锁之前被心跳回收，重新获取
+                }
+                Subscriber subscriber = new Subscriber(channel, emitter);
+                emitter.onCompletion(subscriber::detach);
+                emitter.onTimeout(subscriber::detach);
+                emitter.onError(error -> subscriber.detach());
+
+                if (lastEventId != null && !lastEventId.isBlank())
+                {
+                    int position = channel.positionOf(lastEventId);
+                    if (position < 0)
+                    {
+                        subscriber.offer(SseEmitter.event().name(RESET_EVENT).data("{}", MediaType.APPLICATION_JSON));
+                    }
+                    else
+                    {
+                        channel.replay.stream().skip(position + 1L).forEach(entry -> subscriber.offer(entry.toSse()));
+                    }
+                }
+                channel.subscribers.add(subscriber);
+                channel.touch();
+                return emitter;
+            }
+        }
+    }
+
+    /**
+     * 向一个 key 的订阅者发布事件。
+     *
+     * @param key             分组 key
+     * @param eventId         事件ID
+     * @param eventName       事件名称
+     * @param data            事件数据（序列化为 JSON）
+     * @param retainWithoutSubscribers key 当前不存在时是否仍为其保留事件（用于首次连接前的续传）
+     */
+    void publish(K key, String eventId, String eventName, Object data, boolean retainWithoutSubscribers)
+    {
+        Entry entry = new Entry(eventId, eventName, data);
+        while (true)
+        {
+            Channel channel = retainWithoutSubscribers
+                    ? channels.computeIfAbsent(key, k -> new Channel())
+                    : channels.get(key);
+            if (channel == null)
+            {
+                return;
+            }
+            synchronized (channel)
+            {
+                if (channels.get(key) != channel)
+                {
+                    continue; // 已被心跳回收，事件需要记到当前的 Channel 上
+                }
+                channel.replay.addLast(entry);
+                while (channel.replay.size() > replayCapacity)
+                {
+                    channel.replay.removeFirst();
+                }
+                channel.touch();
+                for (Subscriber subscriber : channel.subscribers)
+                {
+                    subscriber.offer(entry.toSse());
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 事件流出现缺口：清空所有保留的事件，并通知所有订阅者重新加载。
+     */
+    void reset()
+    {
+        for (Channel channel : channels.values())
+        {
+            synchronized (channel)
+            {
+                channel.replay.clear();
+                for (Subscriber subscriber : channel.subscribers)
+                {
+                    subscriber.offer(SseEmitter.event().name(RESET_EVENT).data("{}", MediaType.APPLICATION_JSON));
+                }
+            }
+        }
+    }
+
+    /**
+     * 向所有订阅者发送心跳注释以保持连接并发现已断开的客户端，同时回收长期无人订阅的 key。
+     * 回收在 Channel 的锁内进行；订阅和发布加锁后会确认 Channel 仍在映射中，否则重新获取。
+     */
+    void heartbeat()
+    {
+        long now = System.currentTimeMillis();
+        channels.forEach((key, channel) -> {
+            synchronized (channel)
+            {
+                if (channel.subscribers.isEmpty() && now - channel.lastActivity > idleEvictMs)
+                {
+                    channels.remove(key, channel);
+                    return;
+                }
+                for (Subscriber subscriber : channel.subscribers)
+                {
+                    subscriber.offer(SseEmitter.event().comment("keep-alive"));
+                }
+            }
+        });
+    }
+
+    /**
+     * 当前订阅者总数。
+     */
+    int subscriberCount()
+    {
+        return channels.values().stream().mapToInt(channel -> channel.subscribers.size()).sum();
+    }
+
+    private static final class Entry
+    {
+        private final String id;
+        private final String name;
+        private final Object data;
+
+        private Entry(String id, String name, Object data)
+        {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+        }
+
+        private SseEmitter.SseEventBuilder toSse()
+        {
+            return SseEmitter.event().id(id).name(name).data(data, MediaType.APPLICATION_JSON);
+        }
+    }
+
+    private final class Channel
+    {
+        private final ArrayDeque<Entry> replay = new ArrayDeque<>(); // 只在 synchronized (this) 内访问
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        private volatile long lastActivity = System.currentTimeMillis();
+
+        private int positionOf(String eventId)
+        {
+            int position = 0;
+            for (Entry entry : replay)
+            {
+                if (entry.id.equals(eventId))
+                {
+                    return position;
+                }
+                position++;
+            }
+            return -1;
+        }
+
+        private void touch()
+        {
+            lastActivity = System.currentTimeMillis();
+        }
+    }
+
+    private final class Subscriber
+    {
+        private final Channel channel;
+        private final SseEmitter emitter;
+        private final ArrayBlockingQueue<SseEmitter.SseEventBuilder> queue = new ArrayBlockingQueue<>(bufferCapacity);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(Channel channel, SseEmitter emitter)
+        {
+            this.channel = channel;
+            this.emitter = emitter;
+        }
+
+        /**
+         * 非阻塞入队；队列已满时断开该订阅者。
+         */
+        private void offer(SseEmitter.SseEventBuilder event)
+        {
+            if (closed)
+            {
+                return;
+            }
+            if (!queue.offer(event))
+            {
+                log.info("{}: subscriber buffer full, disconnecting slow client", name);
+                close();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain()
+        {
+            if (draining.compareAndSet(false, true))
+            {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain()
+        {
+            try
+            {
+                SseEmitter.SseEventBuilder event;
+                while (!closed && (event = queue.poll()) != null)
+                {
+                    emitter.send(event);
+                }
+            }
+            catch (IOException | IllegalStateException e)
+            {
+                close(); // 客户端已断开
+            }
+            finally
+            {
+                draining.set(false);
+                if (!closed && !queue.isEmpty())
+                {
+                    scheduleDrain();
+                }
+            }
+        }
+
+        private void close()
+        {
+            detach();
+            try
+            {
+                emitter.complete();
+            }
+            catch (IllegalStateException e)
+            {
+                // 已经结束
+            }
+        }
+
+        private void detach()
+        {
+            closed = true;
+            queue.clear();
+            channel.subscribers.remove(this);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.dto.ObjectListingPage;
+import com.harukite.canteen.dto.ObjectSummary;
+import com.harukite.canteen.dto.StorageGcReport;
+import com.harukite.canteen.exception.OperationInProgressException;
+import com.harukite.canteen.repository.StoredObjectRepository;
+import com.harukite.canteen.service.ImageVariantService;
+import com.harukite.canteen.service.ObjectStorage;
+import com.harukite.canteen.service.StorageGcService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * 对象存储孤儿对象回收服务接口的实现类。
+ * <p>
+ * 标记：在一个事务中流式读取四张表引用的图片 URL 和已登记的按内容寻址对象，
+ * 连同它们的衍生版本一起转换为 key 放入内存集合，不把实体加载进持久化上下文。
+ * <p>
+ * 清除：按前缀分页列举存储桶，既不在集合中、最后修改时间又早于宽限期的对象即为孤儿，
+ * 按批调用批量删除。宽限期保护标记开始后才上传、尚未被实体引用的对象。
+ * 按内容寻址的对象只要还有登记行就视为被引用，由引用计数清理任务负责删除。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageGcServiceImpl implements StorageGcService
+{
+
+    private static final List<String> PREFIXES = List.of(
+            "dishes/", "rooms/", "canteens/", "canteen-additional-images/", "objects/");
+    private static final String METRIC_PREFIX = "canteen.storage.gc.";
+
+    private final StoredObjectRepository storedObjectRepository;
+    private final ObjectStorage objectStorage;
+    private final ImageVariantService imageVariantService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    // 最近一轮的统计，以 Gauge 形式上报
+    private final AtomicLong lastReferenced = new AtomicLong();
+    private final AtomicLong lastScanned = new AtomicLong();
+    private final AtomicLong lastOrphaned = new AtomicLong();
+    private final AtomicLong lastOrphanedBytes = new AtomicLong();
+    private final AtomicLong lastDeleted = new AtomicLong();
+    private final AtomicLong lastFailed = new AtomicLong();
+
+    private Counter deletedCounter;
+    private Timer runTimer;
+
+    @Value("${canteen.storage.gc.mode:DRY_RUN}")
+    private Mode scheduledMode;
+
+    @Value("${canteen.storage.gc.grace-hours:24}")
+    private long graceHours;
+
+    @Value("${canteen.storage.gc.page-size:1000}")
+    private int pageSize;
+
+    @Value("${canteen.storage.gc.delete-batch-size:1000}")
+    private int deleteBatchSize;
+
+    /**
+     * 注册指标。
+     */
+    @PostConstruct
+    public void init()
+    {
+        Gauge.builder(METRIC_PREFIX + "referenced", lastReferenced, AtomicLong::get)
+                .description("Object keys referenced by entities in the last run").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + "scanned", lastScanned, AtomicLong::get)
+                .description("Objects listed in the last run").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + "orphaned", lastOrphaned, AtomicLong::get)
+                .description("Unreferenced objects older than the grace period in the last run").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + "orphaned.bytes", lastOrphanedBytes, AtomicLong::get)
+                .baseUnit("bytes").description("Size of orphaned objects in the last run").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + "deleted.last", lastDeleted, AtomicLong::get)
+                .description("Objects deleted in the last run").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + "failed.last", lastFailed, AtomicLong::get)
+                .description("Objects that failed to delete in the last run").register(meterRegistry);
+        this.deletedCounter = Counter.builder(METRIC_PREFIX + "deleted")
+                .description("Orphaned objects deleted").register(meterRegistry);
+        this.runTimer = Timer.builder(METRIC_PREFIX + "duration")
+                .description("Duration of garbage collection runs").register(meterRegistry);
+    }
+
+    /**
+     * 以配置的模式定时执行一轮回收，默认每天 04:30。
+     */
+    @Override
+    @Scheduled(cron = "${canteen.storage.gc.cron:0 30 4 * * *}")
+    public void scheduledCollect()
+    {
+        if (runLock.isLocked())
+        {
+            log.info("Skipping scheduled storage garbage collection: a run is already in progress");
+            return;
+        }
+        collect(scheduledMode);
+    }
+
+    /**
+     * 以指定模式执行一轮回收。
+     *
+     * @param mode 运行模式
+     * @return 本轮统计
+     * @throws OperationInProgressException 如果已有一轮正在运行
+     */
+    @Override
+    public StorageGcReport collect(Mode mode)
+    {
+        if (!runLock.tryLock())
+        {
+            throw new OperationInProgressException("Storage garbage collection is already running.");
+        }
+        try
+        {
+            long startedAt = System.nanoTime();
+            StorageGcReport report = runTimer.record(() -> doCollect(mode));
+            report.setDurationMillis(Duration.ofNanos(System.nanoTime() - startedAt).toMillis());
+            publish(report);
+            log.info("Storage garbage collection ({}) finished: {} referenced, {} scanned, {} orphaned ({} bytes), {} deleted, {} failed in {} ms",
+                    mode, report.getReferencedKeys(), report.getScannedObjects(), report.getOrphanedObjects(),
+                    report.getOrphanedBytes(), report.getDeletedObjects(), report.getFailedObjects(), report.getDurationMillis());
+            return report;
+        }
+        finally
+        {
+            runLock.unlock();
+        }
+    }
+
+    private StorageGcReport doCollect(Mode mode)
+    {
+        // 宽限期以标记开始的时间为准：之后上传的对象不会出现在标记集合中，但一定比截止时间新
+        Instant cutoff = Instant.now().minus(Duration.ofHours(graceHours));
+        Set<String> referencedKeys = markReferencedKeys();
+
+        StorageGcReport report = new StorageGcReport();
+        report.setMode(mode);
+        report.setReferencedKeys(referencedKeys.size());
+
+        List<String> pendingDeletes = new ArrayList<>(deleteBatchSize);
+        for (String prefix : PREFIXES)
+        {
+            String marker = null;
+            ObjectListingPage page;
+            do
+            {
+                try
+                {
+                    page = objectStorage.listObjects(prefix, marker, pageSize);
+                }
+                catch (IOException e)
+                {
+                    // 列举不完整不影响已列出部分的正确性，跳过该前缀的剩余部分
+                    log.error("Failed to list objects under {}, skipping the rest of this prefix: {}", prefix, e.getMessage(), e);
+                    break;
+                }
+                for (ObjectSummary object : page.getObjects())
+                {
+                    report.setScannedObjects(report.getScannedObjects() + 1);
+                    if (referencedKeys.contains(object.getKey()) || !object.getLastModified().isBefore(cutoff))
+                    {
+                        continue;
+                    }
+                    report.setOrphanedObjects(report.getOrphanedObjects() + 1);
+                    report.setOrphanedBytes(report.getOrphanedBytes() + object.getSizeBytes());
+                    if (mode == Mode.DRY_RUN)
+                    {
+                        log.info("[dry-run] Orphaned object {} ({} bytes, last modified {})",
+                                object.getKey(), object.getSizeBytes(), object.getLastModified());
+                    }
+                    else if (mode == Mode.DELETE)
+                    {
+                        pendingDeletes.add(objectStorage.urlOf(object.getKey()));
+                        if (pendingDeletes.size() >= deleteBatchSize)
+                        {
+                            deleteBatch(pendingDeletes, report);
+                        }
+                    }
+                }
+                marker = page.getNextMarker();
+            }
+            while (page.isTruncated() && marker != null);
+        }
+        if (!pendingDeletes.isEmpty())
+        {
+            deleteBatch(pendingDeletes, report);
+        }
+        return report;
+    }
+
+    /**
+     * 标记阶段：收集所有被引用对象及其衍生版本的 key。
+     */
+    private Set<String> markReferencedKeys()
+    {
+        Set<String> keys = new HashSet<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<String> urls = storedObjectRepository.streamReferencedImageUrls())
+            {
+                urls.forEach(url -> markUrl(url, keys));
+            }
+            try (Stream<String> objectKeys = storedObjectRepository.streamObjectKeys())
+            {
+                objectKeys.forEach(key -> markUrl(objectStorage.urlOf(key), keys));
+            }
+        });
+        return keys;
+    }
+
+    private void markUrl(String url, Set<String> keys)
+    {
+        String key = objectStorage.keyOf(url);
+        if (key == null || !keys.add(key))
+        {
+            return; // 外部 URL，或已标记过
+        }
+        for (String variantUrl : imageVariantService.allVariantUrls(url))
+        {
+            String variantKey = objectStorage.keyOf(variantUrl);
+            if (variantKey != null)
+            {
+                keys.add(variantKey);
+            }
+        }
+    }
+
+    private void deleteBatch(List<String> urls, StorageGcReport report)
+    {
+        Map<String, String> failures;
+        try
+        {
+            failures = objectStorage.deleteFiles(urls);
+        }
+        catch (RuntimeException e)
+        {
+            // 失败的对象留待下一轮重新判定
+            log.error("Batch deletion of {} orphaned objects failed: {}", urls.size(), e.getMessage(), e);
+            report.setFailedObjects(report.getFailedObjects() + urls.size());
+            urls.clear();
+            return;
+        }
+        failures.forEach((url, error) -> log.warn("Failed to delete orphaned object {}: {}", url, error));
+        int deleted = urls.size() - failures.size();
+        report.setDeletedObjects(report.getDeletedObjects() + deleted);
+        report.setFailedObjects(report.getFailedObjects() + failures.size());
+        deletedCounter.increment(deleted);
+        urls.clear();
+    }
+
+    private void publish(StorageGcReport report)
+    {
+        lastReferenced.set(report.getReferencedKeys());
+        lastScanned.set(report.getScannedObjects());
+        lastOrphaned.set(report.getOrphanedObjects());
+        lastOrphanedBytes.set(report.getOrphanedBytes());
+        lastDeleted.set(report.getDeletedObjects());
+        lastFailed.set(report.getFailedObjects());
+    }
+}
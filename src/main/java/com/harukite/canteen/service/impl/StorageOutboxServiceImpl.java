@@ -0,0 +1,223 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.dto.StoredFile;
+import com.harukite.canteen.model.StorageOutboxEntry;
+import com.harukite.canteen.repository.StorageOutboxRepository;
+import com.harukite.canteen.service.ImageVariantService;
+import com.harukite.canteen.service.ObjectStorage;
+import com.harukite.canteen.service.StorageOutboxService;
+import com.harukite.canteen.service.StoredObjectService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 对象存储 outbox 服务接口的实现类。
+ * 后台任务每轮认领一批到期记录（短事务内推后 next_attempt_at 作为租约），
+ * 在事务之外调用一次批量删除，再用第二个短事务删除成功记录、为失败记录按指数退避重新排期。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageOutboxServiceImpl implements StorageOutboxService
+{
+
+    private static final int MAX_ERROR_LENGTH = 1024;
+
+    private final StorageOutboxRepository storageOutboxRepository;
+    private final ObjectStorage objectStorage;
+    private final ImageVariantService imageVariantService;
+    private final StoredObjectService storedObjectService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${canteen.storage.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${canteen.storage.outbox.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${canteen.storage.outbox.max-backoff-seconds:3600}")
+    private long maxBackoffSeconds;
+
+    /**
+     * 在事务之外预先存储文件。
+     *
+     * @param file 文件，为 null 或空时不上传
+     * @return 文件 URL 及是否复用了已有对象，未上传时返回 null
+     * @throws RuntimeException 如果上传失败
+     */
+    @Override
+    public StoredFile stageUpload(MultipartFile file)
+    {
+        if (file == null || file.isEmpty())
+        {
+            return null;
+        }
+        return storedObjectService.store(file);
+    }
+
+    /**
+     * 撤销一个已预先上传的文件。
+     * 按内容寻址的对象从未被引用，引用计数保持为 0，宽限期过后由清理任务删除，这里无需处理；
+     * 其它文件在独立事务中登记删除任务。登记失败只记录日志，不掩盖调用方原本的异常。
+     *
+     * @param fileUrl 文件 URL，为 null 时忽略
+     */
+    @Override
+    public void discardStaged(String fileUrl)
+    {
+        if (fileUrl == null || storedObjectService.isContentAddressed(fileUrl))
+        {
+            return;
+        }
+        try
+        {
+            transactionTemplate.executeWithoutResult(status -> release(fileUrl));
+        }
+        catch (RuntimeException e)
+        {
+            log.error("Failed to schedule deletion of staged file {}: {}", fileUrl, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 在当前事务中登记实体对文件的一个引用。
+     *
+     * @param fileUrl 文件 URL
+     */
+    @Override
+    @Transactional
+    public void retain(String fileUrl)
+    {
+        if (fileUrl != null && !fileUrl.isEmpty())
+        {
+            storedObjectService.retain(fileUrl);
+        }
+    }
+
+    /**
+     * 在当前事务中释放实体对文件的引用。
+     *
+     * @param fileUrl 文件 URL，为 null 或空时忽略
+     */
+    @Override
+    @Transactional
+    public void release(String fileUrl)
+    {
+        if (fileUrl == null || fileUrl.isEmpty() || storedObjectService.release(fileUrl))
+        {
+            return;
+        }
+        List<String> urls = new ArrayList<>();
+        urls.add(fileUrl);
+        urls.addAll(imageVariantService.allVariantUrls(fileUrl));
+        List<StorageOutboxEntry> entries = new ArrayList<>(urls.size());
+        for (String url : urls)
+        {
+            StorageOutboxEntry entry = new StorageOutboxEntry();
+            entry.setObjectUrl(url);
+            entries.add(entry);
+        }
+        storageOutboxRepository.saveAll(entries);
+    }
+
+    /**
+     * 定时批量处理到期的删除任务，直到没有满批的到期记录为止。
+     *
+     * @return 本轮成功删除的文件数
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${canteen.storage.outbox.poll-interval-ms:5000}")
+    public int drainOutbox()
+    {
+        int deleted = 0;
+        List<StorageOutboxEntry> batch;
+        do
+        {
+            batch = claimBatch();
+            if (batch.isEmpty())
+            {
+                break;
+            }
+            deleted += processBatch(batch);
+        }
+        while (batch.size() == batchSize);
+        return deleted;
+    }
+
+    /**
+     * 短事务：锁定一批到期记录，推后其 next_attempt_at 作为租约并累加尝试次数。
+     * 实例在处理中途崩溃时，租约到期后记录会被重新认领。
+     */
+    private List<StorageOutboxEntry> claimBatch()
+    {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<StorageOutboxEntry> entries = storageOutboxRepository.lockDueBatch(now, batchSize);
+            for (StorageOutboxEntry entry : entries)
+            {
+                entry.setAttempts(entry.getAttempts() + 1);
+                entry.setNextAttemptAt(now.plusSeconds(leaseSeconds));
+            }
+            return entries;
+        });
+    }
+
+    /**
+     * 在事务之外批量删除对象，然后用一个短事务结算结果。
+     */
+    private int processBatch(List<StorageOutboxEntry> batch)
+    {
+        Set<String> urls = batch.stream().map(StorageOutboxEntry::getObjectUrl).collect(Collectors.toSet());
+        Map<String, String> failures;
+        try
+        {
+            failures = objectStorage.deleteFiles(urls);
+        }
+        catch (RuntimeException e)
+        {
+            log.error("Batch deletion of {} objects failed: {}", urls.size(), e.getMessage(), e);
+            failures = urls.stream().collect(Collectors.toMap(url -> url, url -> String.valueOf(e.getMessage())));
+        }
+
+        Map<String, String> failed = failures;
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            for (StorageOutboxEntry entry : batch)
+            {
+                String error = failed.get(entry.getObjectUrl());
+                if (error == null)
+                {
+                    storageOutboxRepository.delete(entry);
+                    continue;
+                }
+                entry.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+                entry.setNextAttemptAt(now.plusSeconds(backoffSeconds(entry.getAttempts())));
+                storageOutboxRepository.save(entry);
+                log.warn("Deletion of {} failed (attempt {}): {}", entry.getObjectUrl(), entry.getAttempts(), error);
+            }
+        });
+        return batch.size() - (int) batch.stream().filter(entry -> failed.containsKey(entry.getObjectUrl())).count();
+    }
+
+    /**
+     * 指数退避：30 秒起每次翻倍，不超过 max-backoff-seconds。
+     */
+    private long backoffSeconds(int attempts)
+    {
+        int exponent = Math.min(Math.max(attempts - 1, 0), 16);
+        return Math.min(30L << exponent, maxBackoffSeconds);
+    }
+}
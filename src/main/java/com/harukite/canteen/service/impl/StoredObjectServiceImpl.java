@@ -0,0 +1,324 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.dto.StoredFile;
+import com.harukite.canteen.exception.OperationInProgressException;
+import com.harukite.canteen.exception.ResourceNotFoundException;
+import com.harukite.canteen.model.StoredObject;
+import com.harukite.canteen.repository.StoredObjectRepository;
+import com.harukite.canteen.service.ImageVariantService;
+import com.harukite.canteen.service.ObjectStorage;
+import com.harukite.canteen.service.StoredObjectService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 按内容寻址的图片存储服务接口的实现类。
+ * <p>
+ * 上传：先流式计算 SHA-256，再在短事务中登记对象行（已存在则刷新 updated_at）；
+ * 行已存在且已上传时直接返回 URL，否则写入对象存储并标记已上传。
+ * <p>
+ * 删除：清理任务先在短事务中认领引用计数为 0 且超过宽限期的行（标记 deleting），
+ * 在事务之外批量删除对象，再用第二个短事务删除成功的行、撤销失败行的认领。
+ * 上传登记与认领锁定的是同一行，因此两者不会交错：要么上传先刷新了 updated_at 使清理跳过该行，
+ * 要么上传看到该行已被认领，等待清理删除该行后重新登记并重新写入对象。
+ * 清理实例在删除途中崩溃时，认领超过租约后会被重新认领。
+ * 登记引用只对未被认领的行生效；对象已被认领时登记失败并回滚业务事务，客户端重新上传即可。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StoredObjectServiceImpl implements StoredObjectService
+{
+
+    private static final String OBJECT_FOLDER = "objects/";
+    private static final int MAX_STORE_ATTEMPTS = 5;
+    private static final long STORE_RETRY_DELAY_MILLIS = 500;
+
+    private final StoredObjectRepository storedObjectRepository;
+    private final ObjectStorage objectStorage;
+    private final ImageVariantService imageVariantService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${canteen.storage.unreferenced-grace-minutes:60}")
+    private long graceMinutes;
+
+    @Value("${canteen.storage.sweep-batch-size:200}")
+    private int sweepBatchSize;
+
+    @Value("${canteen.storage.sweep-lease-minutes:10}")
+    private long sweepLeaseMinutes;
+
+    /**
+     * 存储文件并返回其 URL。
+     *
+     * @param file MultipartFile 文件对象
+     * @return 文件 URL 及是否复用了已有对象
+     * @throws RuntimeException 如果读取或上传失败
+     */
+    @Override
+    public StoredFile store(MultipartFile file)
+    {
+        String contentHash = sha256(file);
+        String objectKey = OBJECT_FOLDER + contentHash + extensionOf(file.getOriginalFilename());
+
+        for (int attempt = 0; attempt < MAX_STORE_ATTEMPTS; attempt++)
+        {
+            StoredObject row = transactionTemplate.execute(status -> {
+                storedObjectRepository.insertIfAbsent(contentHash, objectKey, file.getSize(), file.getContentType());
+                return storedObjectRepository.touch(contentHash) == 1
+                        ? storedObjectRepository.findById(contentHash).orElse(null)
+                        : null;
+            });
+            if (row == null)
+            {
+                // 清理任务已认领该对象、正在删除，等它删除行后重新登记
+                pauseBeforeRetry(attempt);
+                continue;
+            }
+            if (Boolean.TRUE.equals(row.getUploaded()))
+            {
+                log.debug("Content {} already stored, reusing {}", contentHash, row.getObjectKey());
+                return new StoredFile(objectStorage.urlOf(row.getObjectKey()), true);
+            }
+            try
+            {
+                String url = objectStorage.putFile(row.getObjectKey(), file);
+                transactionTemplate.executeWithoutResult(status -> storedObjectRepository.markUploaded(contentHash));
+                return new StoredFile(url, false);
+            }
+            catch (IOException e)
+            {
+                log.error("Failed to upload object {}: {}", row.getObjectKey(), e.getMessage(), e);
+                throw new RuntimeException("Failed to upload image: " + e.getMessage(), e);
+            }
+        }
+        throw new IllegalStateException("Stored object " + contentHash + " is being deleted, retry the upload later");
+    }
+
+    /**
+     * 判断 URL 是否指向按内容寻址的对象。
+     *
+     * @param fileUrl 文件 URL
+     * @return 是否按内容寻址
+     */
+    @Override
+    public boolean isContentAddressed(String fileUrl)
+    {
+        return contentKeyOf(fileUrl) != null;
+    }
+
+    /**
+     * 在当前事务中为对象增加一个引用。
+     * 对象已被清理任务认领或已删除时抛出异常回滚业务事务，而不是让实体引用一个即将消失的对象。
+     *
+     * @param fileUrl 文件 URL
+     * @return 若 URL 是按内容寻址的对象则返回 true
+     * @throws OperationInProgressException 如果对象正被清理任务删除
+     * @throws ResourceNotFoundException    如果对象已被删除
+     */
+    @Override
+    @Transactional
+    public boolean retain(String fileUrl)
+    {
+        String key = contentKeyOf(fileUrl);
+        if (key == null)
+        {
+            return false;
+        }
+        if (storedObjectRepository.incrementRefCount(key) == 1)
+        {
+            return true;
+        }
+        if (storedObjectRepository.existsByObjectKey(key))
+        {
+            throw new OperationInProgressException("Image " + fileUrl + " is being deleted, upload it again.");
+        }
+        throw new ResourceNotFoundException("Image not found: " + fileUrl);
+    }
+
+    /**
+     * 在当前事务中为对象减少一个引用。
+     *
+     * @param fileUrl 文件 URL
+     * @return 若 URL 是按内容寻址的对象则返回 true
+     */
+    @Override
+    @Transactional
+    public boolean release(String fileUrl)
+    {
+        String key = contentKeyOf(fileUrl);
+        return key != null && storedObjectRepository.decrementRefCount(key) == 1;
+    }
+
+    /**
+     * 定时删除引用计数为 0 且超过宽限期的对象。
+     * 每批分三步：短事务认领行、事务之外批量删除对象及衍生版本、短事务结算结果。
+     *
+     * @return 本轮删除的对象数
+     */
+    @Override
+    @Scheduled(cron = "${canteen.storage.sweep-cron:0 */10 * * * *}")
+    public int sweepUnreferenced()
+    {
+        int deleted = 0;
+        List<StoredObject> batch;
+        do
+        {
+            batch = claimBatch();
+            if (batch.isEmpty())
+            {
+                break;
+            }
+            deleted += sweepBatch(batch);
+        }
+        while (batch.size() == sweepBatchSize);
+        if (deleted > 0)
+        {
+            log.info("Deleted {} unreferenced stored objects", deleted);
+        }
+        return deleted;
+    }
+
+    /**
+     * 短事务：锁定一批待删除的行并标记 deleting。此后上传不会再复用或写入这些对象。
+     */
+    private List<StoredObject> claimBatch()
+    {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<StoredObject> candidates = storedObjectRepository.lockUnreferenced(
+                    now.minusMinutes(graceMinutes), now.minusMinutes(sweepLeaseMinutes), sweepBatchSize);
+            if (!candidates.isEmpty())
+            {
+                storedObjectRepository.markDeleting(candidates.stream().map(StoredObject::getContentHash).toList());
+            }
+            return candidates;
+        });
+    }
+
+    /**
+     * 在事务之外批量删除对象，然后用一个短事务删除成功的行、撤销失败行的认领。
+     */
+    private int sweepBatch(List<StoredObject> batch)
+    {
+        Set<String> urls = new LinkedHashSet<>();
+        for (StoredObject candidate : batch)
+        {
+            String url = objectStorage.urlOf(candidate.getObjectKey());
+            urls.add(url);
+            urls.addAll(imageVariantService.allVariantUrls(url));
+        }
+        Map<String, String> failures;
+        try
+        {
+            failures = objectStorage.deleteFiles(urls);
+        }
+        catch (RuntimeException e)
+        {
+            log.error("Batch deletion of {} stored objects failed: {}", batch.size(), e.getMessage(), e);
+            failures = urls.stream().collect(Collectors.toMap(url -> url, url -> String.valueOf(e.getMessage())));
+        }
+
+        List<String> removed = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        for (StoredObject candidate : batch)
+        {
+            String url = objectStorage.urlOf(candidate.getObjectKey());
+            if (failures.containsKey(url))
+            {
+                log.warn("Failed to delete unreferenced object {}: {}", url, failures.get(url));
+                failed.add(candidate.getContentHash()); // 撤销认领，宽限期过后重试
+                continue;
+            }
+            removed.add(candidate.getContentHash());
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!removed.isEmpty())
+            {
+                int deletedRows = storedObjectRepository.deleteClaimed(removed);
+                if (deletedRows < removed.size())
+                {
+                    // 认领后仍被引用的行：撤销认领并标记为未上传，下次上传相同内容时重新写入
+                    log.warn("{} claimed stored objects were referenced again, keeping their rows", removed.size() - deletedRows);
+                    storedObjectRepository.releaseClaim(removed);
+                }
+            }
+            if (!failed.isEmpty())
+            {
+                storedObjectRepository.releaseClaim(failed);
+            }
+        });
+        return removed.size();
+    }
+
+    /**
+     * 等待正在进行的清理结束，等待时间随重试次数递增。
+     */
+    private static void pauseBeforeRetry(int attempt)
+    {
+        try
+        {
+            Thread.sleep(STORE_RETRY_DELAY_MILLIS * (attempt + 1));
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a stored object to be deleted", e);
+        }
+    }
+
+    /**
+     * 提取按内容寻址对象的 key，其它 URL 返回 null。
+     */
+    private String contentKeyOf(String fileUrl)
+    {
+        String key = objectStorage.keyOf(fileUrl);
+        return key != null && key.startsWith(OBJECT_FOLDER) ? key : null;
+    }
+
+    /**
+     * 流式计算文件内容的 SHA-256，不把整个文件读入内存。
+     */
+    private static String sha256(MultipartFile file)
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest))
+            {
+                inputStream.transferTo(OutputStream.nullOutputStream());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        }
+        catch (IOException | NoSuchAlgorithmException e)
+        {
+            throw new RuntimeException("Failed to hash uploaded file: " + e.getMessage(), e);
+        }
+    }
+
+    private static String extensionOf(String filename)
+    {
+        if (filename == null || !filename.contains("."))
+        {
+            return "";
+        }
+        String extension = filename.substring(filename.lastIndexOf(".")).toLowerCase(Locale.ROOT);
+        return extension.matches("\\.[a-z0-9]{1,10}") ? extension : "";
+    }
+}
@@ -0,0 +1,40 @@
+package com.harukite.canteen.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务提交后执行的工具类。
+ * 内存索引、缓存和计数只应反映已提交的数据，写操作通过本类推迟到事务提交之后。
+ */
+public final class AfterCommit
+{
+
+    private AfterCommit()
+    {
+    }
+
+    /**
+     * 存在事务时注册到提交之后执行，回滚时不执行；否则立即执行。
+     *
+     * @param action 要执行的操作
+     */
+    public static void run(Runnable action)
+    {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    action.run();
+                }
+            });
+        }
+        else
+        {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.harukite.canteen.util;
+
+import com.harukite.canteen.exception.InvalidInputException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 键集分页游标。
+ * 由排序键 (时间戳, ID) 组成，编码为 URL 安全的 Base64 字符串返回给客户端。
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetCursor
+{
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * 上一页最后一条记录的时间戳。
+     */
+    private final LocalDateTime timestamp;
+
+    /**
+     * 上一页最后一条记录的ID，用于时间戳相同时打破平局。
+     */
+    private final String id;
+
+    /**
+     * 将游标编码为字符串。
+     *
+     * @return URL 安全的 Base64 字符串
+     */
+    public String encode()
+    {
+        String raw = timestamp.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析客户端传入的游标字符串。
+     *
+     * @param cursor 游标字符串
+     * @return 解析后的游标
+     * @throws InvalidInputException 如果游标格式无效
+     */
+    public static KeysetCursor decode(String cursor)
+    {
+        try
+        {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separatorIndex = raw.indexOf(SEPARATOR);
+            if (separatorIndex <= 0 || separatorIndex == raw.length() - 1)
+            {
+                throw new InvalidInputException("Invalid cursor: " + cursor);
+            }
+            return new KeysetCursor(
+                    LocalDateTime.parse(raw.substring(0, separatorIndex)),
+                    raw.substring(separatorIndex + 1)
+            );
+        }
+        catch (IllegalArgumentException | DateTimeParseException e)
+        {
+            throw new InvalidInputException("Invalid cursor: " + cursor);
+        }
+    }
+}
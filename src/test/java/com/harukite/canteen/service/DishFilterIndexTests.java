@@ -0,0 +1,131 @@
+package com.harukite.canteen.service;
+
+import com.harukite.canteen.model.Allergen;
+import com.harukite.canteen.model.Canteen;
+import com.harukite.canteen.model.DietaryTag;
+import com.harukite.canteen.model.Dish;
+import com.harukite.canteen.repository.DishRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DishFilterIndexTests {
+
+  private DishFilterIndex index;
+
+  @BeforeEach
+  void setUp() {
+    DishRepository dishRepository = mock(DishRepository.class);
+    when(dishRepository.findAllFilterIndexRows()).thenReturn(List.of(
+        new Object[] {"noodles", "north", true},
+        new Object[] {"tofu", "north", true},
+        new Object[] {"salad", "south", true},
+        new Object[] {"cake", "south", false}));
+    when(dishRepository.findAllDishTagPairs()).thenReturn(List.of(
+        new Object[] {"tofu", "vegan"},
+        new Object[] {"tofu", "spicy"},
+        new Object[] {"salad", "vegan"},
+        new Object[] {"noodles", "spicy"},
+        new Object[] {"cake", "vegan"}));
+    when(dishRepository.findAllDishAllergenPairs()).thenReturn(List.of(
+        new Object[] {"noodles", "gluten"},
+        new Object[] {"tofu", "soy"},
+        new Object[] {"cake", "gluten"}));
+    index = new DishFilterIndex(dishRepository);
+    index.rebuild();
+  }
+
+  @Test
+  void requiresAllTags() {
+    assertThat(index.findDishIds(null, List.of("vegan"), null, false))
+        .containsExactlyInAnyOrder("tofu", "salad", "cake");
+    assertThat(index.findDishIds(null, List.of("vegan", "spicy"), null, false))
+        .containsExactly("tofu");
+  }
+
+  @Test
+  void excludesAnyAllergen() {
+    assertThat(index.findDishIds(null, null, List.of("gluten"), false))
+        .containsExactlyInAnyOrder("tofu", "salad");
+    assertThat(index.findDishIds(null, null, List.of("gluten", "soy"), false))
+        .containsExactly("salad");
+  }
+
+  @Test
+  void filtersByCanteenAndAvailability() {
+    assertThat(index.findDishIds("south", List.of("vegan"), null, false))
+        .containsExactlyInAnyOrder("salad", "cake");
+    assertThat(index.findDishIds("south", List.of("vegan"), null, true))
+        .containsExactly("salad");
+  }
+
+  @Test
+  void unknownTagOrCanteenMatchesNothing() {
+    assertThat(index.findDishIds(null, List.of("halal"), null, false)).isEmpty();
+    assertThat(index.findDishIds("east", null, null, false)).isEmpty();
+  }
+
+  @Test
+  void unknownAllergenExcludesNothing() {
+    assertThat(index.findDishIds("north", null, List.of("peanut"), false))
+        .containsExactlyInAnyOrder("noodles", "tofu");
+  }
+
+  @Test
+  void updateAvailabilityOnlyFlipsAvailableBit() {
+    index.updateAvailability("cake", true);
+    index.updateAvailability("salad", false);
+
+    assertThat(index.findDishIds(null, List.of("vegan"), null, true))
+        .containsExactlyInAnyOrder("tofu", "cake");
+  }
+
+  @Test
+  void removedDishDisappearsAndOrdinalIsReused() {
+    index.removeDish("tofu");
+    assertThat(index.findDishIds(null, List.of("spicy"), null, false)).containsExactly("noodles");
+    assertThat(index.findDishIds(null, null, List.of("gluten"), false)).containsExactly("salad");
+
+    index.indexDish(dish("soup", "north", true, Set.of("vegan"), Set.of()));
+    assertThat(index.findDishIds("north", List.of("vegan"), null, true)).containsExactly("soup");
+    assertThat(index.findDishIds(null, List.of("spicy"), null, false)).containsExactly("noodles");
+  }
+
+  @Test
+  void reindexingDishReplacesOldBits() {
+    index.indexDish(dish("noodles", "south", true, Set.of("vegan"), Set.of("soy")));
+
+    assertThat(index.findDishIds(null, List.of("spicy"), null, false)).containsExactly("tofu");
+    assertThat(index.findDishIds(null, null, List.of("gluten"), false))
+        .containsExactlyInAnyOrder("noodles", "tofu", "salad");
+    assertThat(index.findDishIds("north", null, null, false)).containsExactly("tofu");
+    assertThat(index.findDishIds("south", List.of("vegan"), List.of("soy"), true)).containsExactly("salad");
+  }
+
+  private static Dish dish(String dishId, String canteenId, boolean available, Set<String> tagIds,
+                           Set<String> allergenIds) {
+    Canteen canteen = new Canteen();
+    canteen.setCanteenId(canteenId);
+    Dish dish = new Dish();
+    dish.setDishId(dishId);
+    dish.setCanteen(canteen);
+    dish.setIsAvailable(available);
+    for (String tagId : tagIds) {
+      DietaryTag tag = new DietaryTag();
+      tag.setTagId(tagId);
+      dish.getDietaryTags().add(tag);
+    }
+    for (String allergenId : allergenIds) {
+      Allergen allergen = new Allergen();
+      allergen.setAllergenId(allergenId);
+      dish.getAllergens().add(allergen);
+    }
+    return dish;
+  }
+}
@@ -0,0 +1,122 @@
+package com.harukite.canteen.service;
+
+import com.harukite.canteen.dto.DailyMenuResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MenuScheduleIndexTests {
+
+  private static final LocalDate DAY = LocalDate.of(2024, 5, 17);
+
+  private final MenuScheduleIndex index = new MenuScheduleIndex();
+
+  @Test
+  void findsMenusCoveringInstant() {
+    index.replaceAll(List.of(
+        menu("breakfast", "north", DAY, "06:30", "09:30"),
+        menu("lunch", "north", DAY, "11:00", "13:30"),
+        menu("dinner", "north", DAY, "17:00", "19:30")));
+
+    assertThat(ids(index.findActive("north", DAY.atTime(12, 0)))).containsExactly("lunch");
+    assertThat(ids(index.findActive("north", DAY.atTime(10, 0)))).isEmpty();
+    assertThat(ids(index.findActive("north", DAY.atTime(6, 0)))).isEmpty();
+    assertThat(ids(index.findActive("north", DAY.atTime(20, 0)))).isEmpty();
+  }
+
+  @Test
+  void startIsInclusiveAndEndIsExclusive() {
+    index.replaceAll(List.of(menu("lunch", "north", DAY, "11:00", "13:30")));
+
+    assertThat(ids(index.findActive("north", DAY.atTime(11, 0)))).containsExactly("lunch");
+    assertThat(ids(index.findActive("north", DAY.atTime(13, 30)))).isEmpty();
+  }
+
+  @Test
+  void windowCrossingMidnightIsActiveOnBothSides() {
+    index.replaceAll(List.of(
+        menu("dinner", "north", DAY, "17:00", "19:30"),
+        menu("late-night", "north", DAY, "22:00", "02:00")));
+
+    assertThat(ids(index.findActive("north", DAY.atTime(23, 0)))).containsExactly("late-night");
+    assertThat(ids(index.findActive("north", DAY.plusDays(1).atTime(1, 0)))).containsExactly("late-night");
+    assertThat(ids(index.findActive("north", DAY.plusDays(1).atTime(2, 0)))).isEmpty();
+    assertThat(ids(index.findActive("north", DAY.atTime(21, 59)))).isEmpty();
+  }
+
+  @Test
+  void longWindowBehindShortOnesIsStillFound() {
+    // 后面较短的区间已结束，仍要通过前缀最大结束时间找到更早开始的长区间
+    index.replaceAll(List.of(
+        menu("all-day", "north", DAY, "07:00", "20:00"),
+        menu("brunch", "north", DAY, "10:00", "11:00"),
+        menu("tea", "north", DAY, "15:00", "16:00")));
+
+    assertThat(ids(index.findActive("north", DAY.atTime(17, 0)))).containsExactly("all-day");
+    assertThat(ids(index.findActive("north", DAY.atTime(15, 30)))).containsExactly("all-day", "tea");
+  }
+
+  @Test
+  void previousDaysOvernightWindowOverlapsNextDaysBreakfast() {
+    index.replaceAll(List.of(
+        menu("late-night", "north", DAY, "22:00", "07:00"),
+        menu("breakfast", "north", DAY.plusDays(1), "06:30", "09:30")));
+
+    assertThat(ids(index.findActive("north", DAY.plusDays(1).atTime(6, 45))))
+        .containsExactly("late-night", "breakfast");
+  }
+
+  @Test
+  void filtersByCanteenOrSpansAll() {
+    index.replaceAll(List.of(
+        menu("north-lunch", "north", DAY, "11:00", "13:00"),
+        menu("south-lunch", "south", DAY, "11:30", "13:30")));
+
+    assertThat(ids(index.findActive("south", DAY.atTime(12, 0)))).containsExactly("south-lunch");
+    assertThat(ids(index.findActive(null, DAY.atTime(12, 0))))
+        .containsExactlyInAnyOrder("north-lunch", "south-lunch");
+    assertThat(index.findActive("east", DAY.atTime(12, 0))).isEmpty();
+  }
+
+  @Test
+  void putAndRemoveReplaceCanteenSchedule() {
+    index.replaceAll(List.of(menu("lunch", "north", DAY, "11:00", "13:00")));
+
+    index.put(menu("lunch", "north", DAY, "12:00", "14:00"));
+    assertThat(ids(index.findActive("north", DAY.atTime(11, 30)))).isEmpty();
+    assertThat(ids(index.findActive("north", DAY.atTime(13, 30)))).containsExactly("lunch");
+
+    index.remove("lunch");
+    assertThat(index.findActive("north", DAY.atTime(13, 30))).isEmpty();
+  }
+
+  @Test
+  void findsMenusStartingInHalfOpenRange() {
+    index.replaceAll(List.of(
+        menu("lunch", "north", DAY, "11:00", "13:00"),
+        menu("dinner", "north", DAY, "17:00", "19:00")));
+
+    LocalDateTime from = DAY.atTime(11, 0);
+    assertThat(ids(index.findStartingBetween(from, from.plusHours(6)))).containsExactly("dinner");
+    assertThat(ids(index.findStartingBetween(from.minusMinutes(1), from))).containsExactly("lunch");
+  }
+
+  private static DailyMenuResponse menu(String menuId, String canteenId, LocalDate date, String start, String end) {
+    DailyMenuResponse menu = new DailyMenuResponse();
+    menu.setMenuId(menuId);
+    menu.setCanteenId(canteenId);
+    menu.setMenuDate(date);
+    menu.setStartTime(LocalTime.parse(start));
+    menu.setEndTime(LocalTime.parse(end));
+    return menu;
+  }
+
+  private static List<String> ids(List<DailyMenuResponse> menus) {
+    return menus.stream().map(DailyMenuResponse::getMenuId).toList();
+  }
+}
@@ -0,0 +1,100 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.exception.InvalidInputException;
+import com.harukite.canteen.service.impl.DailyMenuServiceImpl.MenuRow;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DailyMenuServiceImplTests {
+
+  private static final LocalDate DAY = LocalDate.of(2024, 5, 17);
+
+  @Test
+  void overnightWindowEndsNextDay() {
+    MenuRow lateNight = row("north", DAY, "22:00", "02:00");
+
+    assertThat(lateNight.windowStart()).isEqualTo(DAY.atTime(22, 0));
+    assertThat(lateNight.windowEnd()).isEqualTo(DAY.plusDays(1).atTime(2, 0));
+  }
+
+  @Test
+  void adjacentWindowsDoNotOverlap() {
+    Map<String, List<MenuRow>> existing = Map.of("north", List.of(row("north", DAY, "11:00", "13:00")));
+
+    assertThat(DailyMenuServiceImpl.overlapsAny(row("north", DAY, "13:00", "15:00"), existing)).isFalse();
+    assertThat(DailyMenuServiceImpl.overlapsAny(row("north", DAY, "09:00", "11:00"), existing)).isFalse();
+  }
+
+  @Test
+  void partialOrContainedWindowsOverlap() {
+    Map<String, List<MenuRow>> existing = Map.of("north", List.of(row("north", DAY, "11:00", "13:00")));
+
+    assertThat(DailyMenuServiceImpl.overlapsAny(row("north", DAY, "12:59", "14:00"), existing)).isTrue();
+    assertThat(DailyMenuServiceImpl.overlapsAny(row("north", DAY, "11:30", "12:00"), existing)).isTrue();
+    assertThat(DailyMenuServiceImpl.overlapsAny(row("north", DAY, "10:00", "14:00"), existing)).isTrue();
+  }
+
+  @Test
+  void otherCanteensAreIgnored() {
+    Map<String, List<MenuRow>> existing = Map.of("north", List.of(row("north", DAY, "11:00", "13:00")));
+
+    assertThat(DailyMenuServiceImpl.overlapsAny(row("south", DAY, "11:00", "13:00"), existing)).isFalse();
+  }
+
+  @Test
+  void previousDaysOvernightWindowOverlapsEarlyMorning() {
+    Map<String, List<MenuRow>> existing = Map.of("north", List.of(row("north", DAY, "22:00", "02:00")));
+
+    assertThat(DailyMenuServiceImpl.overlapsAny(row("north", DAY.plusDays(1), "01:00", "03:00"), existing)).isTrue();
+    assertThat(DailyMenuServiceImpl.overlapsAny(row("north", DAY.plusDays(1), "02:00", "03:00"), existing)).isFalse();
+  }
+
+  @Test
+  void requestWithDisjointWindowsPasses() {
+    assertThatCode(() -> DailyMenuServiceImpl.checkRequestOverlaps(List.of(
+        row("north", DAY, "11:00", "13:00"),
+        row("north", DAY, "13:00", "15:00"),
+        row("south", DAY, "12:00", "14:00"),
+        row("north", DAY, "22:00", "06:00"),
+        row("north", DAY.plusDays(1), "06:00", "09:00"))))
+        .doesNotThrowAnyException();
+  }
+
+  @Test
+  void requestWithOverlapInSameCanteenIsRejected() {
+    assertThatThrownBy(() -> DailyMenuServiceImpl.checkRequestOverlaps(List.of(
+        row("north", DAY, "11:00", "13:00"),
+        row("south", DAY, "11:00", "13:00"),
+        row("north", DAY, "12:00", "14:00"))))
+        .isInstanceOf(InvalidInputException.class);
+  }
+
+  @Test
+  void requestWindowContainedInAnotherIsRejected() {
+    assertThatThrownBy(() -> DailyMenuServiceImpl.checkRequestOverlaps(List.of(
+        row("north", DAY, "07:00", "20:00"),
+        row("north", DAY, "21:00", "22:00"),
+        row("north", DAY, "15:00", "16:00"))))
+        .isInstanceOf(InvalidInputException.class);
+  }
+
+  @Test
+  void requestOverlapAcrossMidnightIsRejected() {
+    assertThatThrownBy(() -> DailyMenuServiceImpl.checkRequestOverlaps(List.of(
+        row("north", DAY, "22:00", "07:00"),
+        row("north", DAY.plusDays(1), "06:30", "09:30"))))
+        .isInstanceOf(InvalidInputException.class);
+  }
+
+  private static MenuRow row(String canteenId, LocalDate date, String start, String end) {
+    return new MenuRow(null, canteenId, date, LocalTime.parse(start), LocalTime.parse(end), List.of());
+  }
+}
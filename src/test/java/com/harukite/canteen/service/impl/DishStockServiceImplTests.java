@@ -0,0 +1,135 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.exception.InvalidInputException;
+import com.harukite.canteen.repository.DishDailyStockRepository;
+import com.harukite.canteen.repository.DishRepository;
+import com.harukite.canteen.service.DailyMenuCache;
+import com.harukite.canteen.service.DishFilterIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DishStockServiceImplTests {
+
+  private static final LocalDate DAY = LocalDate.of(2024, 5, 17);
+
+  private DishDailyStockRepository stockRepository;
+  private DishRepository dishRepository;
+  private DishFilterIndex dishFilterIndex;
+  private DailyMenuCache dailyMenuCache;
+  private DishStockServiceImpl service;
+
+  @BeforeEach
+  void setUp() {
+    stockRepository = mock(DishDailyStockRepository.class);
+    dishRepository = mock(DishRepository.class);
+    dishFilterIndex = mock(DishFilterIndex.class);
+    dailyMenuCache = mock(DailyMenuCache.class);
+    when(dishRepository.findById(anyString())).thenReturn(Optional.empty());
+    service = new DishStockServiceImpl(stockRepository, dishRepository, dishFilterIndex, dailyMenuCache);
+    ReflectionTestUtils.setField(service, "soldOutMarkerTtlMs", 60_000L);
+  }
+
+  @Test
+  void reserveReportsOnlyDishesWhoseStockWasDecremented() {
+    when(stockRepository.tryDecrement("limited", DAY, 2)).thenReturn(decrement(3, 5));
+    when(stockRepository.tryDecrement("unlimited", DAY, 1)).thenReturn(decrement(null, null));
+
+    assertThat(service.reserve(DAY, Map.of("limited", 2, "unlimited", 1))).containsExactly("limited");
+  }
+
+  @Test
+  void reserveDecrementsInDishIdOrder() {
+    when(stockRepository.tryDecrement(anyString(), eq(DAY), anyInt())).thenReturn(decrement(9, 10));
+    Map<String, Integer> quantities = new LinkedHashMap<>();
+    quantities.put("b", 1);
+    quantities.put("a", 1);
+
+    service.reserve(DAY, quantities);
+
+    InOrder order = inOrder(stockRepository);
+    order.verify(stockRepository).tryDecrement("a", DAY, 1);
+    order.verify(stockRepository).tryDecrement("b", DAY, 1);
+  }
+
+  @Test
+  void insufficientStockIsRejectedWithRemainingCount() {
+    when(stockRepository.tryDecrement("limited", DAY, 3)).thenReturn(decrement(null, 2));
+
+    assertThatThrownBy(() -> service.reserve(DAY, Map.of("limited", 3)))
+        .isInstanceOf(InvalidInputException.class)
+        .hasMessageContaining("Only 2 portion(s)");
+  }
+
+  @Test
+  void soldOutDishIsRejectedLocallyUntilStockIsRestored() {
+    when(stockRepository.tryDecrement("limited", DAY, 1)).thenReturn(decrement(null, 0));
+    when(stockRepository.restore("limited", DAY, 1)).thenReturn(List.of(false));
+
+    assertThatThrownBy(() -> service.reserve(DAY, Map.of("limited", 1))).hasMessageContaining("sold out");
+    assertThatThrownBy(() -> service.reserve(DAY, Map.of("limited", 1))).hasMessageContaining("sold out");
+    verify(stockRepository, times(1)).tryDecrement("limited", DAY, 1);
+
+    service.restore(DAY, Map.of("limited", 1));
+    assertThatThrownBy(() -> service.reserve(DAY, Map.of("limited", 1))).hasMessageContaining("sold out");
+    verify(stockRepository, times(2)).tryDecrement("limited", DAY, 1);
+  }
+
+  @Test
+  void takingTheLastPortionTodayClosesTheDish() {
+    LocalDate today = LocalDate.now();
+    when(stockRepository.tryDecrement("limited", today, 2)).thenReturn(decrement(0, 2));
+    when(stockRepository.updateSoldOut("limited", today, true)).thenReturn(1);
+    when(dishRepository.updateAvailability("limited", false)).thenReturn(1);
+
+    service.reserve(today, Map.of("limited", 2));
+
+    verify(dishFilterIndex).updateAvailability("limited", false);
+    verify(dailyMenuCache).invalidateDish("limited");
+  }
+
+  @Test
+  void restoreReopensDishClosedBySoldOut() {
+    when(stockRepository.restore("limited", DAY, 2)).thenReturn(List.of(true));
+    when(stockRepository.updateSoldOut("limited", DAY, false)).thenReturn(1);
+    when(dishRepository.updateAvailability("limited", true)).thenReturn(1);
+
+    service.restore(DAY, Map.of("limited", 2));
+
+    verify(dishFilterIndex).updateAvailability("limited", true);
+  }
+
+  @Test
+  void restoreLeavesManuallyClosedDishAlone() {
+    when(stockRepository.restore("limited", DAY, 2)).thenReturn(List.of(false));
+
+    service.restore(DAY, Map.of("limited", 2, "ignored", 0));
+
+    verify(stockRepository, never()).updateSoldOut(anyString(), eq(DAY), eq(false));
+    verify(stockRepository, never()).restore(eq("ignored"), eq(DAY), anyInt());
+    verify(dishRepository, never()).updateAvailability(anyString(), eq(true));
+  }
+
+  private static List<Object[]> decrement(Integer remainingAfter, Integer remainingBefore) {
+    return List.<Object[]>of(new Object[] {remainingAfter, remainingBefore});
+  }
+}
@@ -0,0 +1,210 @@
+package com.harukite.canteen.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.harukite.canteen.exception.InvalidInputException;
+import com.harukite.canteen.exception.OperationInProgressException;
+import com.harukite.canteen.model.IdempotencyRecord;
+import com.harukite.canteen.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceImplTests {
+
+  private static final String SCOPE = "order.create";
+  private static final Map<String, Object> REQUEST = Map.of("dishId", "d1", "quantity", 2);
+  private static final Map<String, Object> RESULT = Map.of("orderId", "o1");
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final AtomicInteger runs = new AtomicInteger();
+  private IdempotencyRecordRepository repository;
+  private IdempotencyServiceImpl service;
+
+  @BeforeEach
+  void setUp() {
+    repository = mock(IdempotencyRecordRepository.class);
+    service = new IdempotencyServiceImpl(repository,
+        new TransactionTemplate(mock(PlatformTransactionManager.class)), objectMapper);
+    ReflectionTestUtils.setField(service, "ttlSeconds", 3600L);
+    ReflectionTestUtils.setField(service, "leaseSeconds", 60L);
+    ReflectionTestUtils.setField(service, "cacheSize", 100);
+    ReflectionTestUtils.setField(service, "waitTimeoutMs", 5000L);
+  }
+
+  @AfterEach
+  void tearDown() {
+    service.shutdown();
+  }
+
+  @Test
+  void firstRequestRunsOnceAndStoresItsResult() {
+    claimSucceeds();
+
+    assertThat(execute("k1", REQUEST, this::createOrder)).isEqualTo(RESULT);
+
+    assertThat(runs).hasValue(1);
+    verify(repository).complete(eq(SCOPE), eq("u1"), eq("k1"), eq("{\"orderId\":\"o1\"}"), any());
+  }
+
+  @Test
+  void retryOnTheSameNodeIsReplayedFromTheLocalCache() {
+    claimSucceeds();
+
+    execute("k1", REQUEST, this::createOrder);
+    assertThat(execute("k1", REQUEST, this::createOrder)).isEqualTo(RESULT);
+
+    assertThat(runs).hasValue(1);
+    verify(repository, times(1)).claim(anyString(), anyString(), anyString(), anyString(), any(), any());
+  }
+
+  @Test
+  void keyClaimedByAnotherNodeReplaysItsStoredResult() {
+    claimFails();
+    when(repository.findByScopeAndUserIdAndIdempotencyKey(SCOPE, "u1", "k1"))
+        .thenReturn(Optional.of(record(IdempotencyRecord.STATUS_COMPLETED, "{\"orderId\":\"o1\"}")));
+
+    assertThat(execute("k1", REQUEST, this::createOrder)).isEqualTo(RESULT);
+
+    assertThat(runs).hasValue(0);
+  }
+
+  @Test
+  void keyStillRunningElsewhereIsReportedAsInProgress() {
+    claimFails();
+    when(repository.findByScopeAndUserIdAndIdempotencyKey(SCOPE, "u1", "k1"))
+        .thenReturn(Optional.of(record(IdempotencyRecord.STATUS_IN_PROGRESS, null)));
+
+    assertThatThrownBy(() -> execute("k1", REQUEST, this::createOrder))
+        .isInstanceOf(OperationInProgressException.class);
+    assertThat(runs).hasValue(0);
+  }
+
+  @Test
+  void reusingAKeyWithADifferentBodyIsRejected() {
+    claimSucceeds();
+    execute("k1", REQUEST, this::createOrder);
+
+    assertThatThrownBy(() -> execute("k1", Map.of("dishId", "d2", "quantity", 1), this::createOrder))
+        .isInstanceOf(InvalidInputException.class);
+    assertThat(runs).hasValue(1);
+  }
+
+  @Test
+  void failedActionReleasesTheClaimSoTheKeyCanBeRetried() {
+    claimSucceeds();
+
+    assertThatThrownBy(() -> execute("k1", REQUEST, () -> {
+      throw new IllegalStateException("sold out");
+    })).hasMessage("sold out");
+    verify(repository).release(SCOPE, "u1", "k1");
+    verify(repository, never()).complete(anyString(), anyString(), anyString(), anyString(), any());
+
+    assertThat(execute("k1", REQUEST, this::createOrder)).isEqualTo(RESULT);
+    assertThat(runs).hasValue(1);
+  }
+
+  @Test
+  void blankKeyRunsTheActionWithoutClaiming() {
+    assertThat(execute(" ", REQUEST, this::createOrder)).isEqualTo(RESULT);
+    assertThat(execute(null, REQUEST, this::createOrder)).isEqualTo(RESULT);
+
+    assertThat(runs).hasValue(2);
+    verify(repository, never()).claim(anyString(), anyString(), anyString(), anyString(), any(), any());
+  }
+
+  @Test
+  void concurrentDuplicateOnTheSameNodeWaitsForTheFirstResult() throws Exception {
+    claimSucceeds();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch proceed = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<Map<?, ?>> first = executor.submit(() -> execute("k1", REQUEST, () -> {
+        started.countDown();
+        await(proceed);
+        return createOrder();
+      }));
+      assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+      Future<Map<?, ?>> duplicate = executor.submit(() -> execute("k1", REQUEST, this::createOrder));
+      Thread.sleep(100);
+      proceed.countDown();
+
+      assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(RESULT);
+      assertThat(duplicate.get(5, TimeUnit.SECONDS)).isEqualTo(RESULT);
+      assertThat(runs).hasValue(1);
+      verify(repository, times(1)).claim(anyString(), anyString(), anyString(), anyString(), any(), any());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Map<?, ?> execute(String key, Object request, Supplier<Map<?, ?>> action) {
+    return service.execute(SCOPE, "u1", key, request, Map.class, action::get);
+  }
+
+  private Map<?, ?> createOrder() {
+    runs.incrementAndGet();
+    return RESULT;
+  }
+
+  private void claimSucceeds() {
+    when(repository.claim(eq(SCOPE), eq("u1"), anyString(), anyString(), any(), any())).thenReturn(1);
+  }
+
+  private void claimFails() {
+    when(repository.claim(eq(SCOPE), eq("u1"), anyString(), anyString(), any(), any())).thenReturn(0);
+  }
+
+  private IdempotencyRecord record(String status, String responseBody) {
+    IdempotencyRecord record = new IdempotencyRecord();
+    record.setScope(SCOPE);
+    record.setUserId("u1");
+    record.setIdempotencyKey("k1");
+    record.setRequestHash(hash(REQUEST));
+    record.setStatus(status);
+    record.setResponseBody(responseBody);
+    return record;
+  }
+
+  private String hash(Object request) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request)));
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.dto.OrderRequest;
+import com.harukite.canteen.exception.InvalidInputException;
+import com.harukite.canteen.model.Canteen;
+import com.harukite.canteen.model.Dish;
+import com.harukite.canteen.model.Order;
+import com.harukite.canteen.model.OrderItem;
+import com.harukite.canteen.model.OrderStatus;
+import com.harukite.canteen.model.User;
+import com.harukite.canteen.repository.CanteenRepository;
+import com.harukite.canteen.repository.DishRepository;
+import com.harukite.canteen.repository.OrderRepository;
+import com.harukite.canteen.repository.UserRepository;
+import com.harukite.canteen.service.DishStockService;
+import com.harukite.canteen.service.KitchenPrepService;
+import com.harukite.canteen.service.OrderEventBus;
+import com.harukite.canteen.service.PickupSlotService;
+import com.harukite.canteen.service.SalesRollupService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderServiceImplTests {
+
+  private static final LocalDate DAY = LocalDate.of(2024, 5, 17);
+  private static final LocalTime NOON = LocalTime.NOON;
+
+  private OrderRepository orderRepository;
+  private PickupSlotService pickupSlotService;
+  private DishStockService dishStockService;
+  private KitchenPrepService kitchenPrepService;
+  private TransactionTemplate transactionTemplate;
+  private OrderServiceImpl service;
+
+  @BeforeEach
+  void setUp() {
+    orderRepository = mock(OrderRepository.class);
+    pickupSlotService = mock(PickupSlotService.class);
+    dishStockService = mock(DishStockService.class);
+    kitchenPrepService = mock(KitchenPrepService.class);
+    transactionTemplate = mock(TransactionTemplate.class);
+    service = new OrderServiceImpl(orderRepository, mock(UserRepository.class), mock(CanteenRepository.class),
+        mock(DishRepository.class), pickupSlotService, dishStockService, kitchenPrepService,
+        mock(SalesRollupService.class), mock(OrderEventBus.class), transactionTemplate);
+  }
+
+  @Test
+  void failedOrderReturnsOnlyTheStockItReserved() {
+    when(pickupSlotService.reserve("north", DAY, NOON)).thenReturn("slot-1");
+    when(dishStockService.reserve(DAY, Map.of("limited", 2, "unlimited", 1))).thenReturn(Set.of("limited"));
+    when(transactionTemplate.execute(any())).thenThrow(new IllegalStateException("insert failed"));
+
+    assertThatThrownBy(() -> service.createOrder(request(), "u1")).hasMessage("insert failed");
+
+    verify(dishStockService).restore(DAY, Map.of("limited", 2));
+    verify(pickupSlotService).release("slot-1");
+  }
+
+  @Test
+  void rejectedStockReservationReleasesTheSlot() {
+    when(pickupSlotService.reserve("north", DAY, NOON)).thenReturn("slot-1");
+    when(dishStockService.reserve(DAY, Map.of("limited", 2, "unlimited", 1)))
+        .thenThrow(new InvalidInputException("Dish 'limited' is sold out."));
+
+    assertThatThrownBy(() -> service.createOrder(request(), "u1")).isInstanceOf(InvalidInputException.class);
+
+    verify(pickupSlotService).release("slot-1");
+    verify(dishStockService, never()).restore(any(), anyMap());
+    verify(transactionTemplate, never()).execute(any());
+  }
+
+  @Test
+  void cancelReturnsOnlyStockReservedAtOrderTime() {
+    Order order = order(OrderStatus.PENDING);
+    when(orderRepository.findByOrderIdAndOrderDate("o1", DAY)).thenReturn(Optional.of(order));
+    when(orderRepository.save(order)).thenReturn(order);
+
+    service.cancelOrder("o1", DAY, "u1");
+
+    verify(pickupSlotService).release("slot-1");
+    verify(dishStockService).restore(DAY, Map.of("limited", 2));
+    verify(kitchenPrepService).removeOrder(order);
+  }
+
+  @Test
+  void completedOrderCannotBeCancelled() {
+    Order order = order(OrderStatus.COMPLETED);
+    when(orderRepository.findByOrderIdAndOrderDate("o1", DAY)).thenReturn(Optional.of(order));
+
+    assertThatThrownBy(() -> service.cancelOrder("o1", DAY, "u1")).isInstanceOf(InvalidInputException.class);
+    assertThatThrownBy(() -> service.updateOrderStatus("o1", DAY, OrderStatus.CANCELLED))
+        .isInstanceOf(InvalidInputException.class);
+
+    verify(pickupSlotService, never()).release(any());
+    verify(dishStockService, never()).restore(any(), anyMap());
+  }
+
+  private static OrderRequest request() {
+    return new OrderRequest("north", DAY, NOON, List.of(
+        new OrderRequest.OrderItemRequest("limited", 2),
+        new OrderRequest.OrderItemRequest("unlimited", 1)));
+  }
+
+  private static Order order(OrderStatus status) {
+    User user = new User();
+    user.setUserId("u1");
+    Canteen canteen = new Canteen();
+    canteen.setCanteenId("north");
+    Order order = new Order();
+    order.setOrderId("o1");
+    order.setUser(user);
+    order.setCanteen(canteen);
+    order.setOrderDate(DAY);
+    order.setPickupTime(NOON);
+    order.setPickupSlotId("slot-1");
+    order.setStatus(status);
+    order.getOrderItems().add(item("limited", 2, true));
+    order.getOrderItems().add(item("unlimited", 1, false));
+    return order;
+  }
+
+  private static OrderItem item(String dishId, int quantity, boolean stockReserved) {
+    Dish dish = new Dish();
+    dish.setDishId(dishId);
+    OrderItem item = new OrderItem();
+    item.setOrderItemId("item-" + dishId);
+    item.setDish(dish);
+    item.setQuantity(quantity);
+    item.setStockReserved(stockReserved);
+    return item;
+  }
+}
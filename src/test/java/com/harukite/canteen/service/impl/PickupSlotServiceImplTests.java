@@ -0,0 +1,103 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.exception.InvalidInputException;
+import com.harukite.canteen.repository.CanteenRepository;
+import com.harukite.canteen.repository.PickupSlotRepository;
+import com.harukite.canteen.service.KitchenPrepService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PickupSlotServiceImplTests {
+
+  private static final LocalDate DAY = LocalDate.of(2024, 5, 17);
+  private static final LocalTime NOON = LocalTime.NOON;
+
+  private PickupSlotRepository repository;
+  private PickupSlotServiceImpl service;
+
+  @BeforeEach
+  void setUp() {
+    repository = mock(PickupSlotRepository.class);
+    service = new PickupSlotServiceImpl(repository, mock(CanteenRepository.class), mock(KitchenPrepService.class));
+    ReflectionTestUtils.setField(service, "resolutionTtlMs", 30_000L);
+    ReflectionTestUtils.setField(service, "fullMarkerTtlMs", 60_000L);
+    ReflectionTestUtils.setField(service, "reconcileQuietMinutes", 5L);
+  }
+
+  @Test
+  void pickupTimeWithoutASlotIsNotLimited() {
+    when(repository.findCoveringSlotId("north", DAY, NOON)).thenReturn(Optional.empty());
+
+    assertThat(service.reserve("north", DAY, NOON)).isNull();
+
+    verify(repository, never()).tryReserve(any());
+  }
+
+  @Test
+  void reserveTakesOneSeatOfTheCoveringSlot() {
+    when(repository.findCoveringSlotId("north", DAY, NOON)).thenReturn(Optional.of("slot-1"));
+    when(repository.tryReserve("slot-1")).thenReturn(1);
+
+    assertThat(service.reserve("north", DAY, NOON)).isEqualTo("slot-1");
+  }
+
+  @Test
+  void fullSlotIsRejectedLocallyUntilASeatIsReleased() {
+    when(repository.findCoveringSlotId("north", DAY, NOON)).thenReturn(Optional.of("slot-1"));
+    when(repository.tryReserve("slot-1")).thenReturn(0);
+    when(repository.existsById("slot-1")).thenReturn(true);
+
+    assertThatThrownBy(() -> service.reserve("north", DAY, NOON)).isInstanceOf(InvalidInputException.class);
+    assertThatThrownBy(() -> service.reserve("north", DAY, NOON)).isInstanceOf(InvalidInputException.class);
+    verify(repository, times(1)).tryReserve("slot-1");
+
+    service.release("slot-1");
+    when(repository.tryReserve("slot-1")).thenReturn(1);
+    assertThat(service.reserve("north", DAY, NOON)).isEqualTo("slot-1");
+  }
+
+  @Test
+  void slotDeletedOnAnotherNodeIsResolvedAgain() {
+    when(repository.findCoveringSlotId("north", DAY, NOON))
+        .thenReturn(Optional.of("slot-1"), Optional.of("slot-2"));
+    when(repository.tryReserve("slot-1")).thenReturn(0);
+    when(repository.existsById("slot-1")).thenReturn(false);
+    when(repository.tryReserve("slot-2")).thenReturn(1);
+
+    assertThat(service.reserve("north", DAY, NOON)).isEqualTo("slot-2");
+  }
+
+  @Test
+  void reconcileOnlyTouchesSlotsQuietForTheConfiguredMinutes() {
+    when(repository.findCoveringSlotId("north", DAY, NOON)).thenReturn(Optional.of("slot-1"));
+    when(repository.tryReserve("slot-1")).thenReturn(0);
+    when(repository.existsById("slot-1")).thenReturn(true);
+    assertThatThrownBy(() -> service.reserve("north", DAY, NOON)).isInstanceOf(InvalidInputException.class);
+    LocalDateTime before = LocalDateTime.now().minusMinutes(5);
+    when(repository.reconcileReserved(eq(LocalDate.now()), any())).thenReturn(1);
+
+    assertThat(service.reconcileReserved()).isEqualTo(1);
+
+    verify(repository).reconcileReserved(eq(LocalDate.now()),
+        argThat(quietSince -> !quietSince.isBefore(before) && quietSince.isBefore(LocalDateTime.now().minusMinutes(4))));
+    when(repository.tryReserve("slot-1")).thenReturn(1);
+    assertThat(service.reserve("north", DAY, NOON)).isEqualTo("slot-1");
+  }
+}
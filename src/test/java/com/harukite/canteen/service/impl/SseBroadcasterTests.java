@@ -0,0 +1,172 @@
+package com.harukite.canteen.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SseBroadcasterTests {
+
+  private static final Pattern ID = Pattern.compile("(?m)^id:(.*)$");
+  private static final Pattern EVENT = Pattern.compile("(?m)^event:(.*)$");
+
+  @Test
+  void deliversLiveEventsInOrder() {
+    SseBroadcaster<String> broadcaster = broadcaster(8, 8, Runnable::run);
+    CapturingEmitter emitter = (CapturingEmitter) broadcaster.subscribe("u1", null);
+
+    broadcaster.publish("u1", "e1", "status", "PENDING", false);
+    broadcaster.publish("u1", "e2", "status", "COMPLETED", false);
+    broadcaster.publish("u2", "e3", "status", "PENDING", false);
+
+    assertThat(emitter.events).containsExactly("e1", "e2");
+  }
+
+  @Test
+  void replaysEventsAfterLastEventIdThenContinuesLive() {
+    SseBroadcaster<String> broadcaster = broadcaster(8, 8, Runnable::run);
+    broadcaster.publish("u1", "e1", "status", "PENDING", true);
+    broadcaster.publish("u1", "e2", "status", "CONFIRMED", true);
+    broadcaster.publish("u1", "e3", "status", "COMPLETED", true);
+
+    CapturingEmitter emitter = (CapturingEmitter) broadcaster.subscribe("u1", "e1");
+    broadcaster.publish("u1", "e4", "status", "CANCELLED", false);
+
+    assertThat(emitter.events).containsExactly("e2", "e3", "e4");
+  }
+
+  @Test
+  void upToDateClientReceivesNoReplay() {
+    SseBroadcaster<String> broadcaster = broadcaster(8, 8, Runnable::run);
+    broadcaster.publish("u1", "e1", "status", "PENDING", true);
+
+    CapturingEmitter emitter = (CapturingEmitter) broadcaster.subscribe("u1", "e1");
+
+    assertThat(emitter.events).isEmpty();
+  }
+
+  @Test
+  void sendsResetWhenLastEventIdFellOutOfReplayWindow() {
+    SseBroadcaster<String> broadcaster = broadcaster(2, 8, Runnable::run);
+    broadcaster.publish("u1", "e1", "status", "PENDING", true);
+    broadcaster.publish("u1", "e2", "status", "CONFIRMED", true);
+    broadcaster.publish("u1", "e3", "status", "COMPLETED", true);
+
+    CapturingEmitter stale = (CapturingEmitter) broadcaster.subscribe("u1", "e1");
+    CapturingEmitter recent = (CapturingEmitter) broadcaster.subscribe("u1", "e2");
+
+    assertThat(stale.events).containsExactly(SseBroadcaster.RESET_EVENT);
+    assertThat(recent.events).containsExactly("e3");
+  }
+
+  @Test
+  void eventsWithoutRetentionAreDroppedWhenNobodyListens() {
+    SseBroadcaster<String> broadcaster = broadcaster(8, 8, Runnable::run);
+    broadcaster.publish("u1", "e1", "status", "PENDING", false);
+
+    CapturingEmitter emitter = (CapturingEmitter) broadcaster.subscribe("u1", "e1");
+
+    assertThat(emitter.events).containsExactly(SseBroadcaster.RESET_EVENT);
+  }
+
+  @Test
+  void resetNotifiesSubscribersAndClearsReplay() {
+    SseBroadcaster<String> broadcaster = broadcaster(8, 8, Runnable::run);
+    CapturingEmitter live = (CapturingEmitter) broadcaster.subscribe("u1", null);
+    broadcaster.publish("u1", "e1", "status", "PENDING", false);
+
+    broadcaster.reset();
+    CapturingEmitter reconnected = (CapturingEmitter) broadcaster.subscribe("u1", "e1");
+
+    assertThat(live.events).containsExactly("e1", SseBroadcaster.RESET_EVENT);
+    assertThat(reconnected.events).containsExactly(SseBroadcaster.RESET_EVENT);
+  }
+
+  @Test
+  void heartbeatEvictsIdleChannelWithoutSubscribers() {
+    SseBroadcaster<String> broadcaster = new SseBroadcaster<>("test", 8, 8, 60_000, -1, Runnable::run,
+        CapturingEmitter::new);
+    broadcaster.publish("u1", "e1", "status", "PENDING", true);
+
+    broadcaster.heartbeat();
+    CapturingEmitter emitter = (CapturingEmitter) broadcaster.subscribe("u1", "e1");
+
+    assertThat(emitter.events).containsExactly(SseBroadcaster.RESET_EVENT);
+  }
+
+  @Test
+  void heartbeatKeepsSubscribedChannel() {
+    SseBroadcaster<String> broadcaster = new SseBroadcaster<>("test", 8, 8, 60_000, -1, Runnable::run,
+        CapturingEmitter::new);
+    CapturingEmitter emitter = (CapturingEmitter) broadcaster.subscribe("u1", null);
+
+    broadcaster.heartbeat();
+    broadcaster.publish("u1", "e1", "status", "PENDING", false);
+
+    assertThat(emitter.events).containsExactly(":keep-alive", "e1");
+    assertThat(broadcaster.subscriberCount()).isEqualTo(1);
+  }
+
+  @Test
+  void disconnectsSubscriberWhenBufferOverflows() {
+    List<Runnable> pending = new ArrayList<>();
+    SseBroadcaster<String> broadcaster = broadcaster(8, 2, pending::add);
+    CapturingEmitter emitter = (CapturingEmitter) broadcaster.subscribe("u1", null);
+
+    broadcaster.publish("u1", "e1", "status", "PENDING", false);
+    broadcaster.publish("u1", "e2", "status", "CONFIRMED", false);
+    assertThat(emitter.completed).isFalse();
+
+    broadcaster.publish("u1", "e3", "status", "COMPLETED", false);
+    assertThat(emitter.completed).isTrue();
+    assertThat(broadcaster.subscriberCount()).isZero();
+
+    pending.forEach(Runnable::run);
+    assertThat(emitter.events).isEmpty();
+  }
+
+  private static SseBroadcaster<String> broadcaster(int replayCapacity, int bufferCapacity, Executor sender) {
+    return new SseBroadcaster<>("test", replayCapacity, bufferCapacity, 60_000, 60_000, sender, CapturingEmitter::new);
+  }
+
+  /**
+   * Records each event as its id, its name when it has no id, or ":comment" for comments.
+   */
+  private static final class CapturingEmitter extends SseEmitter {
+
+    private final List<String> events = new ArrayList<>();
+    private boolean completed;
+
+    private CapturingEmitter(long timeout) {
+      super(timeout);
+    }
+
+    @Override
+    public void send(SseEventBuilder builder) {
+      String text = builder.build().stream()
+          .map(part -> String.valueOf(part.getData()))
+          .collect(Collectors.joining());
+      Matcher id = ID.matcher(text);
+      Matcher event = EVENT.matcher(text);
+      if (id.find()) {
+        events.add(id.group(1));
+      } else if (event.find()) {
+        events.add(event.group(1));
+      } else {
+        events.add(text.strip());
+      }
+    }
+
+    @Override
+    public void complete() {
+      completed = true;
+    }
+  }
+}
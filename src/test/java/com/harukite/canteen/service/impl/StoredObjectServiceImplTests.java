@@ -0,0 +1,160 @@
+package com.harukite.canteen.service.impl;
+
+import com.harukite.canteen.exception.OperationInProgressException;
+import com.harukite.canteen.exception.ResourceNotFoundException;
+import com.harukite.canteen.model.StoredObject;
+import com.harukite.canteen.repository.StoredObjectRepository;
+import com.harukite.canteen.service.ImageVariantService;
+import com.harukite.canteen.service.ObjectStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StoredObjectServiceImplTests {
+
+  private static final String BASE_URL = "https://cdn.example.com/";
+
+  private StoredObjectRepository repository;
+  private ObjectStorage objectStorage;
+  private ImageVariantService imageVariantService;
+  private StoredObjectServiceImpl service;
+
+  @BeforeEach
+  void setUp() {
+    repository = mock(StoredObjectRepository.class);
+    objectStorage = mock(ObjectStorage.class);
+    imageVariantService = mock(ImageVariantService.class);
+    when(objectStorage.urlOf(anyString())).thenAnswer(invocation -> BASE_URL + invocation.getArgument(0));
+    when(objectStorage.keyOf(anyString())).thenAnswer(invocation -> {
+      String url = invocation.getArgument(0);
+      return url.startsWith(BASE_URL) ? url.substring(BASE_URL.length()) : null;
+    });
+    when(imageVariantService.allVariantUrls(anyString()))
+        .thenAnswer(invocation -> List.of(invocation.getArgument(0) + ".thumb.jpg"));
+    service = new StoredObjectServiceImpl(repository, objectStorage, imageVariantService,
+        new TransactionTemplate(mock(PlatformTransactionManager.class)));
+    ReflectionTestUtils.setField(service, "graceMinutes", 60L);
+    ReflectionTestUtils.setField(service, "sweepBatchSize", 10);
+    ReflectionTestUtils.setField(service, "sweepLeaseMinutes", 10L);
+  }
+
+  @Test
+  void retainIgnoresUrlsOutsideTheContentStore() {
+    assertThat(service.retain(BASE_URL + "dishes/legacy.jpg")).isFalse();
+    assertThat(service.retain("https://elsewhere.example.com/objects/a.jpg")).isFalse();
+
+    verify(repository, never()).incrementRefCount(anyString());
+  }
+
+  @Test
+  void retainCountsAReferenceToALiveObject() {
+    when(repository.incrementRefCount("objects/a.jpg")).thenReturn(1);
+
+    assertThat(service.retain(BASE_URL + "objects/a.jpg")).isTrue();
+  }
+
+  @Test
+  void retainFailsWhileTheObjectIsClaimedForDeletion() {
+    when(repository.incrementRefCount("objects/a.jpg")).thenReturn(0);
+    when(repository.existsByObjectKey("objects/a.jpg")).thenReturn(true);
+
+    assertThatThrownBy(() -> service.retain(BASE_URL + "objects/a.jpg"))
+        .isInstanceOf(OperationInProgressException.class);
+  }
+
+  @Test
+  void retainFailsOnceTheObjectIsGone() {
+    when(repository.incrementRefCount("objects/a.jpg")).thenReturn(0);
+    when(repository.existsByObjectKey("objects/a.jpg")).thenReturn(false);
+
+    assertThatThrownBy(() -> service.retain(BASE_URL + "objects/a.jpg"))
+        .isInstanceOf(ResourceNotFoundException.class);
+  }
+
+  @Test
+  void sweepDeletesClaimedObjectsWithTheirVariantsAndThenTheRows() {
+    claim(object("a"));
+    when(objectStorage.deleteFiles(anyCollection())).thenReturn(Map.of());
+    when(repository.deleteClaimed(List.of("a"))).thenReturn(1);
+
+    assertThat(service.sweepUnreferenced()).isEqualTo(1);
+
+    verify(repository).markDeleting(List.of("a"));
+    verify(objectStorage).deleteFiles(argThat((Collection<String> urls) -> urls.containsAll(
+        List.of(BASE_URL + "objects/a.jpg", BASE_URL + "objects/a.jpg.thumb.jpg"))));
+    verify(repository, never()).releaseClaim(anyCollection());
+  }
+
+  @Test
+  void sweepReleasesTheClaimOfObjectsThatFailedToDelete() {
+    claim(object("a"), object("b"));
+    when(objectStorage.deleteFiles(anyCollection())).thenReturn(Map.of(BASE_URL + "objects/a.jpg", "timeout"));
+    when(repository.deleteClaimed(List.of("b"))).thenReturn(1);
+
+    assertThat(service.sweepUnreferenced()).isEqualTo(1);
+
+    verify(repository).deleteClaimed(List.of("b"));
+    verify(repository).releaseClaim(List.of("a"));
+  }
+
+  @Test
+  void sweepReleasesEverythingWhenTheBatchDeleteThrows() {
+    claim(object("a"));
+    when(objectStorage.deleteFiles(anyCollection())).thenThrow(new IllegalStateException("storage down"));
+
+    assertThat(service.sweepUnreferenced()).isZero();
+
+    verify(repository, never()).deleteClaimed(anyCollection());
+    verify(repository).releaseClaim(List.of("a"));
+  }
+
+  @Test
+  void sweepKeepsRowsThatWereReferencedAgainAfterTheClaim() {
+    claim(object("a"));
+    when(objectStorage.deleteFiles(anyCollection())).thenReturn(Map.of());
+    when(repository.deleteClaimed(List.of("a"))).thenReturn(0);
+
+    service.sweepUnreferenced();
+
+    verify(repository).releaseClaim(List.of("a"));
+  }
+
+  @Test
+  void sweepWithNothingToClaimTouchesNoStorage() {
+    claim();
+
+    assertThat(service.sweepUnreferenced()).isZero();
+
+    verify(repository, never()).markDeleting(anyCollection());
+    verify(objectStorage, never()).deleteFiles(anyCollection());
+  }
+
+  private void claim(StoredObject... objects) {
+    when(repository.lockUnreferenced(any(), any(), anyInt())).thenReturn(List.of(objects), List.of());
+  }
+
+  private static StoredObject object(String hash) {
+    StoredObject object = new StoredObject();
+    object.setContentHash(hash);
+    object.setObjectKey("objects/" + hash + ".jpg");
+    return object;
+  }
+}
@@ -0,0 +1,63 @@
+package com.harukite.canteen.util;
+
+import com.harukite.canteen.exception.InvalidInputException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetCursorTests {
+
+  @Test
+  void encodeThenDecodeRoundTrips() {
+    LocalDateTime timestamp = LocalDateTime.of(2024, 5, 17, 11, 30, 15, 123_456_000);
+    KeysetCursor decoded = KeysetCursor.decode(new KeysetCursor(timestamp, "dish-42").encode());
+
+    assertThat(decoded.getTimestamp()).isEqualTo(timestamp);
+    assertThat(decoded.getId()).isEqualTo("dish-42");
+  }
+
+  @Test
+  void encodedCursorIsUrlSafe() {
+    String encoded = new KeysetCursor(LocalDateTime.of(2024, 1, 1, 0, 0), "??>>??").encode();
+
+    assertThat(encoded).doesNotContain("+", "/", "=");
+  }
+
+  @Test
+  void idMayContainSeparator() {
+    KeysetCursor decoded = KeysetCursor.decode(new KeysetCursor(LocalDateTime.of(2024, 1, 1, 8, 0), "a|b").encode());
+
+    assertThat(decoded.getId()).isEqualTo("a|b");
+  }
+
+  @Test
+  void rejectsInvalidBase64() {
+    assertThatThrownBy(() -> KeysetCursor.decode("not base64!"))
+        .isInstanceOf(InvalidInputException.class);
+  }
+
+  @Test
+  void rejectsMissingOrEmptyParts() {
+    assertThatThrownBy(() -> KeysetCursor.decode(raw("2024-01-01T08:00")))
+        .isInstanceOf(InvalidInputException.class);
+    assertThatThrownBy(() -> KeysetCursor.decode(raw("|dish-1")))
+        .isInstanceOf(InvalidInputException.class);
+    assertThatThrownBy(() -> KeysetCursor.decode(raw("2024-01-01T08:00|")))
+        .isInstanceOf(InvalidInputException.class);
+  }
+
+  @Test
+  void rejectsMalformedTimestamp() {
+    assertThatThrownBy(() -> KeysetCursor.decode(raw("yesterday|dish-1")))
+        .isInstanceOf(InvalidInputException.class);
+  }
+
+  private static String raw(String value) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+}